@@ -0,0 +1,91 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Conversiones masivas de ColorSpaces sobre arreglos por componente; el tiempo se reporta
+// por color para compararlo directamente con ColorConversionBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkColorConversionBenchmark {
+
+    private static final int COLORS = 1 << 16;
+
+    private final float[] a = new float[COLORS];
+    private final float[] b = new float[COLORS];
+    private final float[] c = new float[COLORS];
+    private final float[] d = new float[COLORS];
+    private final float[] out0 = new float[COLORS];
+    private final float[] out1 = new float[COLORS];
+    private final float[] out2 = new float[COLORS];
+    private final float[] out3 = new float[COLORS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        for (int i = 0; i < COLORS; i++) {
+            a[i] = random.nextFloat();
+            b[i] = random.nextFloat();
+            c[i] = random.nextFloat();
+            d[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLORS)
+    public float[] rgbToCmyk() {
+        ColorSpaces.rgbToCmyk(a, b, c, out0, out1, out2, out3, 0, COLORS);
+        return out3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLORS)
+    public float[] cmykToRgb() {
+        ColorSpaces.cmykToRgb(a, b, c, d, out0, out1, out2, 0, COLORS);
+        return out2;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLORS)
+    public float[] rgbToHsl() {
+        ColorSpaces.rgbToHsl(a, b, c, out0, out1, out2, 0, COLORS);
+        return out2;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLORS)
+    public float[] hslToRgb() {
+        ColorSpaces.hslToRgb(a, b, c, out0, out1, out2, 0, COLORS);
+        return out2;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLORS)
+    public float[] rgbToHsv() {
+        ColorSpaces.rgbToHsv(a, b, c, out0, out1, out2, 0, COLORS);
+        return out2;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLORS)
+    public float[] hsvToRgb() {
+        ColorSpaces.hsvToRgb(a, b, c, out0, out1, out2, 0, COLORS);
+        return out2;
+    }
+}
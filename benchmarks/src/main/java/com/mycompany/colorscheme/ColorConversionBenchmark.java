@@ -0,0 +1,90 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Conversiones de color una por una, tal como las llama drawImGui()
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorConversionBenchmark {
+
+    private static final int COLORS = 1024;
+
+    private float[][] rgb;
+    private float[][] cmyk;
+    private float[][] hsl;
+    private float[][] hsv;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        rgb = new float[COLORS][];
+        cmyk = new float[COLORS][];
+        hsl = new float[COLORS][];
+        hsv = new float[COLORS][];
+        for (int i = 0; i < COLORS; i++) {
+            rgb[i] = new float[]{random.nextFloat(), random.nextFloat(), random.nextFloat()};
+            cmyk[i] = new float[]{random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat()};
+            hsl[i] = new float[]{random.nextFloat(), random.nextFloat(), random.nextFloat()};
+            hsv[i] = new float[]{random.nextFloat(), random.nextFloat(), random.nextFloat()};
+        }
+    }
+
+    @Benchmark
+    public void rgbToCmyk(Blackhole blackhole) {
+        for (float[] color : rgb) {
+            blackhole.consume(ColorSpaces.rgbToCmyk(color));
+        }
+    }
+
+    @Benchmark
+    public void cmykToRgb(Blackhole blackhole) {
+        for (float[] color : cmyk) {
+            blackhole.consume(ColorSpaces.cmykToRgb(color));
+        }
+    }
+
+    @Benchmark
+    public void rgbToHsl(Blackhole blackhole) {
+        for (float[] color : rgb) {
+            blackhole.consume(ColorSpaces.rgbToHsl(color));
+        }
+    }
+
+    @Benchmark
+    public void hslToRgb(Blackhole blackhole) {
+        for (float[] color : hsl) {
+            blackhole.consume(ColorSpaces.hslToRgb(color));
+        }
+    }
+
+    @Benchmark
+    public void rgbToHsv(Blackhole blackhole) {
+        for (float[] color : rgb) {
+            blackhole.consume(ColorSpaces.rgbToHsv(color));
+        }
+    }
+
+    @Benchmark
+    public void hsvToRgb(Blackhole blackhole) {
+        for (float[] color : hsv) {
+            blackhole.consume(ColorSpaces.hsvToRgb(color));
+        }
+    }
+}
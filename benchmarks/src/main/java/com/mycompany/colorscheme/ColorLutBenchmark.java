@@ -0,0 +1,87 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// La cadena de PaletteTransformBenchmark (tono en HSL y desaturación en CMYK) sobre un millón
+// de colores en un solo hilo: evaluada exactamente y a través de una ColorLut de cada tamaño,
+// con ambas interpolaciones. La precisión de cada tabla la mide ColorLutReport.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorLutBenchmark {
+
+    private static final int COLORS = 1_000_000;
+
+    @Param({"17", "33", "65"})
+    public int size;
+
+    private PaletteTransform transform;
+    private ColorLut lut;
+    private PaletteTransform.Block block;
+    private float[] red, green, blue;
+
+    @Setup
+    public void setUp() {
+        transform = new PaletteTransform(
+                PaletteTransform.hueShiftHsl(30.0f),
+                PaletteTransform.desaturateCmyk(0.5f));
+        lut = ColorLut.bake(transform, size);
+        block = new PaletteTransform.Block(COLORS);
+        Random random = new Random(42L);
+        red = new float[COLORS];
+        green = new float[COLORS];
+        blue = new float[COLORS];
+        for (int i = 0; i < COLORS; i++) {
+            red[i] = random.nextFloat();
+            green[i] = random.nextFloat();
+            blue[i] = random.nextFloat();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        System.arraycopy(red, 0, block.red(), 0, COLORS);
+        System.arraycopy(green, 0, block.green(), 0, COLORS);
+        System.arraycopy(blue, 0, block.blue(), 0, COLORS);
+    }
+
+    @Benchmark
+    public float[] exact() {
+        transform.applyRange(block, 0, COLORS);
+        return block.red();
+    }
+
+    @Benchmark
+    public float[] trilinear() {
+        lut.apply(block.red(), block.green(), block.blue(), 0, COLORS, ColorLut.Interpolation.TRILINEAR);
+        return block.red();
+    }
+
+    @Benchmark
+    public float[] tetrahedral() {
+        lut.apply(block.red(), block.green(), block.blue(), 0, COLORS, ColorLut.Interpolation.TETRAHEDRAL);
+        return block.red();
+    }
+
+    @Benchmark
+    public ColorLut bake() {
+        return ColorLut.bake(transform, size);
+    }
+}
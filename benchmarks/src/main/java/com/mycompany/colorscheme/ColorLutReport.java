@@ -0,0 +1,82 @@
+package com.mycompany.colorscheme;
+
+import java.util.Random;
+
+// Precisión y rendimiento de ColorLut frente a la cadena exacta: para cada tamaño de tabla e
+// interpolación, error máximo y medio por canal (en unidades de 1/255) sobre colores al azar,
+// y colores por segundo en un solo hilo. Las mediciones de tiempo son orientativas; para
+// cifras estables usar ColorLutBenchmark.
+//
+// Uso: ColorLutReport [colores]
+public class ColorLutReport {
+
+    private static final int[] SIZES = {17, 33, 65};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        PaletteTransform transform = new PaletteTransform(
+                PaletteTransform.hueShiftHsl(30.0f),
+                PaletteTransform.desaturateCmyk(0.5f));
+
+        Random random = new Random(42L);
+        float[] red = new float[count], green = new float[count], blue = new float[count];
+        for (int i = 0; i < count; i++) {
+            red[i] = random.nextFloat();
+            green[i] = random.nextFloat();
+            blue[i] = random.nextFloat();
+        }
+        PaletteTransform.Block exact = copy(red, green, blue);
+        PaletteTransform.Block block = new PaletteTransform.Block(count);
+
+        long nanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            reset(block, red, green, blue);
+            long start = System.nanoTime();
+            transform.applyRange(block, 0, count);
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        transform.applyRange(exact, 0, count);
+        System.out.printf("Colores: %d%n", count);
+        System.out.printf("%-22s %12s %12s %14s%n", "", "error máx", "error medio", "colores/s");
+        System.out.printf("%-22s %12s %12s %14.0f%n", "exacta", "-", "-", count * 1e9 / nanos);
+
+        for (int size : SIZES) {
+            long bakeStart = System.nanoTime();
+            ColorLut lut = ColorLut.bake(transform, size);
+            double bakeMs = (System.nanoTime() - bakeStart) / 1e6;
+            for (ColorLut.Interpolation interpolation : ColorLut.Interpolation.values()) {
+                nanos = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    reset(block, red, green, blue);
+                    long start = System.nanoTime();
+                    lut.apply(block.red(), block.green(), block.blue(), 0, count, interpolation);
+                    nanos = Math.min(nanos, System.nanoTime() - start);
+                }
+                float[][] a = {exact.red(), exact.green(), exact.blue()};
+                float[][] b = {block.red(), block.green(), block.blue()};
+                double max = 0, sum = 0;
+                for (int i = 0; i < count; i++) {
+                    for (int c = 0; c < 3; c++) {
+                        double error = Math.abs(a[c][i] - b[c][i]) * 255;
+                        max = Math.max(max, error);
+                        sum += error;
+                    }
+                }
+                String name = size + "³ " + interpolation.name().toLowerCase();
+                System.out.printf("%-22s %12.3f %12.4f %14.0f%n", name, max, sum / (3.0 * count), count * 1e9 / nanos);
+            }
+            System.out.printf("  (horneado de %d³: %.1f ms)%n", size, bakeMs);
+        }
+    }
+
+    private static PaletteTransform.Block copy(float[] red, float[] green, float[] blue) {
+        return new PaletteTransform.Block(red.clone(), green.clone(), blue.clone());
+    }
+
+    private static void reset(PaletteTransform.Block block, float[] red, float[] green, float[] blue) {
+        System.arraycopy(red, 0, block.red(), 0, red.length);
+        System.arraycopy(green, 0, block.green(), 0, green.length);
+        System.arraycopy(blue, 0, block.blue(), 0, blue.length);
+    }
+}
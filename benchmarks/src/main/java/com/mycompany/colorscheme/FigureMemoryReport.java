@@ -0,0 +1,66 @@
+package com.mycompany.colorscheme;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+// Memoria por figura de cada representación de la escena: objetos con la distribución
+// anterior, FigureStore en el heap y FigureStore con búferes directos (con y sin manejadores).
+// Mide el heap usado tras forzar la recolección, así que conviene correrlo solo.
+//
+// Uso: FigureMemoryReport [figuras]
+public class FigureMemoryReport {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("Figuras: %d%n", count);
+
+        long before = heapUsed();
+        long directBefore = directUsed();
+        FigureStore source = SceneFactory.stressScene(count, 42L, false);
+        report("FigureStore (heap)", before, directBefore, count);
+
+        before = heapUsed();
+        directBefore = directUsed();
+        ObjectFigure[] objects = ObjectFigure.copyOf(source);
+        report("Objetos", before, directBefore, count);
+
+        before = heapUsed();
+        directBefore = directUsed();
+        FigureStore direct = SceneFactory.stressScene(count, 42L, true);
+        report("FigureStore (directo)", before, directBefore, count);
+
+        before = heapUsed();
+        directBefore = directUsed();
+        for (int i = 0; i < direct.size(); i++) {
+            direct.get(i);
+        }
+        report("Manejadores Figure", before, directBefore, count);
+
+        // Usar las tres escenas después de medir las mantiene vivas hasta el final
+        System.out.printf("Escenas medidas: %d, %d y %d figuras%n", source.size(), objects.length, direct.size());
+    }
+
+    private static void report(String label, long heapBefore, long directBefore, int count) {
+        long heap = heapUsed() - heapBefore;
+        long direct = directUsed() - directBefore;
+        System.out.printf("%-22s heap %8.1f B/figura  directo %8.1f B/figura%n",
+                label, (double) heap / count, (double) direct / count);
+    }
+
+    private static long heapUsed() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
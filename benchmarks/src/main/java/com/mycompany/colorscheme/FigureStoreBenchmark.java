@@ -0,0 +1,88 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Recorrido de toda la escena leyendo posición y color de cada figura (como una pasada de
+// selección o de recoloreo): por columnas de FigureStore, por manejadores Figure y, como
+// línea base, por objetos con la distribución anterior. Para la memoria por figura ver
+// FigureMemoryReport.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FigureStoreBenchmark {
+
+    @Param({"1000000"})
+    public int figures;
+
+    @Param({"heap", "directo"})
+    public String storage;
+
+    private FigureStore store;
+    private ObjectFigure[] objects;
+
+    @Setup
+    public void setUp() {
+        store = SceneFactory.stressScene(figures, 42L, "directo".equals(storage));
+        objects = ObjectFigure.copyOf(store);
+        for (int i = 0; i < store.size(); i++) {
+            store.get(i); // Crea los manejadores fuera de la medición
+        }
+    }
+
+    @Benchmark
+    public int columns() {
+        FloatBuffer x = store.column(FigureStore.TRANSLATE_X);
+        FloatBuffer y = store.column(FigureStore.TRANSLATE_Y);
+        FloatBuffer r = store.column(FigureStore.RED);
+        FloatBuffer g = store.column(FigureStore.GREEN);
+        FloatBuffer b = store.column(FigureStore.BLUE);
+        int hits = 0;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            if (x.get(i) <= 0.0f && y.get(i) <= 0.0f && r.get(i) + g.get(i) + b.get(i) > 1.5f) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int handles() {
+        int hits = 0;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            Figure f = store.get(i);
+            if (f.getTranslateX() <= 0.0f && f.getTranslateY() <= 0.0f
+                    && f.getRed() + f.getGreen() + f.getBlue() > 1.5f) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int objects() {
+        int hits = 0;
+        for (ObjectFigure f : objects) {
+            if (f.translateX <= 0.0f && f.translateY <= 0.0f
+                    && f.color[0] + f.color[1] + f.color[2] > 1.5f) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
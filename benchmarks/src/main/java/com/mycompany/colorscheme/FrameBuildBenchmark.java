@@ -0,0 +1,68 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Costo de CPU por cuadro de armar los datos de dibujo de toda la escena (lo que
+// BatchRenderer sube al VBO), sin OpenGL. "animada" cambia la rotación de cada figura en
+// cada cuadro, así que también mide el recálculo de las transformaciones.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameBuildBenchmark {
+
+    @Param({"1000", "100000"})
+    public int figures;
+
+    @Param({"estatica", "animada"})
+    public String scene;
+
+    private List<Figure> list;
+    private FloatBuffer vertices;
+    private final Transform2D transform = new Transform2D();
+    private final TessellationCache tessellation = new TessellationCache(800, 600);
+
+    @Setup
+    public void setUp() {
+        list = SceneFactory.stressScene(figures, 42L);
+        int total = 0;
+        for (Figure figure : list) {
+            total += FigureGeometry.fillVertexCount(figure, tessellation);
+        }
+        vertices = ByteBuffer.allocateDirect(total * FigureGeometry.FLOATS_PER_VERTEX * Float.BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    @Benchmark
+    public FloatBuffer buildFrame() {
+        boolean animate = "animada".equals(scene);
+        vertices.clear();
+        for (Figure figure : list) {
+            if (animate) {
+                figure.setRotation(figure.getRotation() + 1.0f);
+            }
+            figure.getTransform(transform);
+            FigureGeometry.writeFill(figure, transform, tessellation, vertices);
+        }
+        vertices.flip();
+        return vertices;
+    }
+}
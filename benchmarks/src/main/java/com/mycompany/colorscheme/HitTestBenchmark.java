@@ -0,0 +1,78 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Figure.contains y calculateCentroid para cada tipo de figura
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitTestBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"rectangulo", "circulo", "triangulo", "pentagono", "hexagono"})
+    public String shape;
+
+    private Figure figure;
+    private float[] points;
+
+    @Setup
+    public void setUp() {
+        float[] color = {0.0f, 0.0f, 0.0f};
+        switch (shape) {
+            case "rectangulo":
+                figure = new Figure(shape, new float[]{-0.8f, -0.8f, 0.4f, 0.4f}, color);
+                break;
+            case "circulo":
+                figure = new Figure(shape, new float[]{0.0f, 0.0f, 0.2f}, color);
+                break;
+            case "triangulo":
+                figure = new Figure(shape, new float[]{0.4f, -0.8f, 0.4f, -0.4f, 0.8f, -0.8f}, color);
+                break;
+            case "pentagono":
+                figure = new Figure(shape, SceneFactory.regularPolygon(5, -0.5f, 0.5f, 0.2f), color);
+                break;
+            default:
+                figure = new Figure(shape, SceneFactory.regularPolygon(6, 0.5f, 0.5f, 0.2f), color);
+                break;
+        }
+        Random random = new Random(42L);
+        points = new float[2 * POINTS];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat() * 2 - 1;
+        }
+    }
+
+    @Benchmark
+    public int contains() {
+        int hits = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            if (figure.contains(points[i], points[i + 1])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public void calculateCentroid(Blackhole blackhole) {
+        blackhole.consume(figure.calculateCentroid());
+    }
+}
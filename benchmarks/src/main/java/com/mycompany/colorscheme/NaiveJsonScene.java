@@ -0,0 +1,91 @@
+package com.mycompany.colorscheme;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Línea base para SceneFileBenchmark: la escena como un arreglo JSON escrito con un
+// BufferedWriter y leído con un analizador mínimo que solo entiende este formato.
+// Representa lo que haría una primera implementación sin formato binario.
+final class NaiveJsonScene {
+
+    private NaiveJsonScene() {
+    }
+
+    static void write(Path path, List<Figure> figures) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int i = 0; i < figures.size(); i++) {
+                Figure f = figures.get(i);
+                out.write("{\"id\":" + f.getId() + ",\"name\":\"" + f.getName() + "\",\"shape\":");
+                writeArray(out, f.getShape());
+                out.write(",\"color\":");
+                writeArray(out, f.getColor());
+                out.write(",\"transform\":");
+                writeArray(out, new float[]{f.getRotation(), f.getScaleX(), f.getScaleY(),
+                        f.getTranslateX(), f.getTranslateY(), f.getBiasX(), f.getBiasY()});
+                out.write(i + 1 < figures.size() ? "},\n" : "}\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    private static void writeArray(BufferedWriter out, float[] values) throws IOException {
+        out.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(Float.toString(values[i]));
+        }
+        out.write(']');
+    }
+
+    // Una figura por línea, como la escribe write()
+    static List<Figure> read(Path path) throws IOException {
+        List<Figure> figures = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.startsWith("{")) {
+                    continue;
+                }
+                long id = Long.parseLong(field(line, "\"id\":", ','));
+                String name = field(line, "\"name\":\"", '"');
+                float[] shape = parseArray(field(line, "\"shape\":[", ']'));
+                float[] color = parseArray(field(line, "\"color\":[", ']'));
+                float[] t = parseArray(field(line, "\"transform\":[", ']'));
+                Figure figure = new Figure(name, shape, color);
+                figure.setId(id);
+                figure.setRotation(t[0]);
+                figure.setScaleX(t[1]);
+                figure.setScaleY(t[2]);
+                figure.setTranslateX(t[3]);
+                figure.setTranslateY(t[4]);
+                figure.setBiasX(t[5]);
+                figure.setBiasY(t[6]);
+                figures.add(figure);
+            }
+        }
+        return figures;
+    }
+
+    private static String field(String line, String key, char end) {
+        int start = line.indexOf(key) + key.length();
+        return line.substring(start, line.indexOf(end, start));
+    }
+
+    private static float[] parseArray(String text) {
+        String[] parts = text.split(",");
+        float[] values = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Float.parseFloat(parts[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.colorscheme;
+
+// Línea base para FigureStoreBenchmark: una figura como objeto propio, con los mismos campos
+// que tenía Figure antes de FigureStore (nombre, forma y color en arreglos aparte, transformación
+// y matriz en objetos propios). Solo sirve para comparar memoria y recorrido.
+final class ObjectFigure {
+    long id = -1;
+    String name;
+    float[] shape;
+    float[] color;
+
+    float rotation, scaleX = 1.0f, scaleY = 1.0f, translateX, translateY, biasX, biasY;
+    int version;
+
+    final Transform2D transform = new Transform2D();
+    final float[] glMatrix = new float[16];
+    boolean transformDirty = true;
+
+    float centroidX, centroidY;
+    float localMinX, localMinY, localMaxX, localMaxY;
+
+    SpatialIndex index;
+    int proxyId = -1;
+
+    // Copia la figura de la posición dada sin crear su manejador
+    ObjectFigure(FigureStore store, int slot) {
+        name = store.name(slot);
+        shape = store.shapeCopy(slot);
+        color = new float[]{store.get(FigureStore.RED, slot), store.get(FigureStore.GREEN, slot),
+                store.get(FigureStore.BLUE, slot)};
+        rotation = store.get(FigureStore.ROTATION, slot);
+        scaleX = store.get(FigureStore.SCALE_X, slot);
+        scaleY = store.get(FigureStore.SCALE_Y, slot);
+        translateX = store.get(FigureStore.TRANSLATE_X, slot);
+        translateY = store.get(FigureStore.TRANSLATE_Y, slot);
+        biasX = store.get(FigureStore.BIAS_X, slot);
+        biasY = store.get(FigureStore.BIAS_Y, slot);
+        centroidX = store.get(FigureStore.CENTROID_X, slot);
+        centroidY = store.get(FigureStore.CENTROID_Y, slot);
+        localMinX = store.get(FigureStore.MIN_X, slot);
+        localMinY = store.get(FigureStore.MIN_Y, slot);
+        localMaxX = store.get(FigureStore.MAX_X, slot);
+        localMaxY = store.get(FigureStore.MAX_Y, slot);
+    }
+
+    static ObjectFigure[] copyOf(FigureStore store) {
+        ObjectFigure[] figures = new ObjectFigure[store.size()];
+        for (int i = 0; i < figures.length; i++) {
+            figures[i] = new ObjectFigure(store, i);
+        }
+        return figures;
+    }
+}
@@ -0,0 +1,69 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Búsqueda del color más cercano de la paleta: árbol k-d de PaletteMapper frente a recorrer
+// toda la paleta, para 100 000 colores al azar y paletas de distinto tamaño, en OKLab.
+// Las dos variantes incluyen la conversión de cada consulta a OKLab.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteMapperBenchmark {
+
+    private static final int COLORS = 100_000;
+
+    @Param({"16", "256", "1024", "4096"})
+    public int paletteSize;
+
+    private PaletteMapper mapper;
+    private float[] red, green, blue;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        float[] palette = new float[3 * paletteSize];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = random.nextFloat();
+        }
+        mapper = new PaletteMapper(palette, PaletteMapper.Metric.OKLAB);
+        red = new float[COLORS];
+        green = new float[COLORS];
+        blue = new float[COLORS];
+        for (int i = 0; i < COLORS; i++) {
+            red[i] = random.nextFloat();
+            green[i] = random.nextFloat();
+            blue[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public void kdTree(Blackhole blackhole) {
+        for (int i = 0; i < COLORS; i++) {
+            blackhole.consume(mapper.nearest(red[i], green[i], blue[i]));
+        }
+    }
+
+    @Benchmark
+    public void bruteForce(Blackhole blackhole) {
+        for (int i = 0; i < COLORS; i++) {
+            blackhole.consume(mapper.nearestBruteForce(red[i], green[i], blue[i]));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Escalado de PaletteTransform con el número de hilos: la misma cadena (tono en HSL y
+// desaturación en CMYK) sobre un millón de colores con pools de distinto paralelismo.
+// Los valores de 'parallelism' mayores que los núcleos disponibles muestran la saturación.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteTransformBenchmark {
+
+    private static final int COLORS = 1_000_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private PaletteTransform transform;
+    private PaletteTransform.Block block;
+    private float[] red, green, blue;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(parallelism);
+        transform = new PaletteTransform(
+                PaletteTransform.hueShiftHsl(30.0f),
+                PaletteTransform.desaturateCmyk(0.5f));
+        block = new PaletteTransform.Block(COLORS);
+        Random random = new Random(42L);
+        red = new float[COLORS];
+        green = new float[COLORS];
+        blue = new float[COLORS];
+        for (int i = 0; i < COLORS; i++) {
+            red[i] = random.nextFloat();
+            green[i] = random.nextFloat();
+            blue[i] = random.nextFloat();
+        }
+    }
+
+    // Restaura los colores originales para que cada iteración parta de la misma paleta
+    @Setup(Level.Invocation)
+    public void reset() {
+        System.arraycopy(red, 0, block.red(), 0, COLORS);
+        System.arraycopy(green, 0, block.green(), 0, COLORS);
+        System.arraycopy(blue, 0, block.blue(), 0, COLORS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public float[] transformScene() {
+        transform.apply(block, pool);
+        return block.red();
+    }
+}
@@ -0,0 +1,72 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Selección de una figura: recorrido lineal (como el selectFigure original) contra SpatialIndex
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class PickBenchmark {
+
+    private static final int POINTS = 4096;
+
+    @Param({"10000", "100000", "1000000"})
+    public int figures;
+
+    private List<Figure> scene;
+    private SpatialIndex index;
+    private float[] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        scene = SceneFactory.stressScene(figures, 42L);
+        index = new SpatialIndex();
+        index.insertAll(scene);
+        Random random = new Random(7L);
+        points = new float[2 * POINTS];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat() * 2 - 1;
+        }
+    }
+
+    @Benchmark
+    public Figure linearScan() {
+        int i = nextPoint();
+        float x = points[i], y = points[i + 1];
+        for (Figure figure : scene) {
+            if (figure.hitTest(x, y)) {
+                return figure;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Figure spatialIndex() {
+        int i = nextPoint();
+        return index.pick(points[i], points[i + 1]);
+    }
+
+    private int nextPoint() {
+        next = (next + 2) % points.length;
+        return next;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mycompany.colorscheme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Guardar y abrir escenas: SceneFile contra la línea base JSON. "open" solo abre el archivo
+// mapeado y decodifica la última figura (carga perezosa); "readAll" decodifica todo.
+// Para 10M figuras: -p figures=10000000 (requiere más memoria en el fork).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+public class SceneFileBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int figures;
+
+    private List<Figure> scene;
+    private Path binary;
+    private Path json;
+
+    @Setup
+    public void setUp() throws IOException {
+        scene = SceneFactory.stressScene(figures, 42L);
+        binary = Files.createTempFile("escena", ".fgsc");
+        json = Files.createTempFile("escena", ".json");
+        SceneFile.write(binary, scene);
+        NaiveJsonScene.write(json, scene);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary);
+        Files.deleteIfExists(json);
+    }
+
+    @Benchmark
+    public Path saveBinary() throws IOException {
+        SceneFile.write(binary, scene);
+        return binary;
+    }
+
+    @Benchmark
+    public Path saveJson() throws IOException {
+        NaiveJsonScene.write(json, scene);
+        return json;
+    }
+
+    @Benchmark
+    public Figure openBinary() throws IOException {
+        try (SceneFile.Reader reader = SceneFile.Reader.open(binary)) {
+            return reader.get(reader.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public List<Figure> readAllBinary() throws IOException {
+        return SceneFile.readAll(binary, false);
+    }
+
+    @Benchmark
+    public List<Figure> readAllJson() throws IOException {
+        return NaiveJsonScene.read(json);
+    }
+}
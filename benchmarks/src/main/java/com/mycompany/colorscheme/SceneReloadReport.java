@@ -0,0 +1,103 @@
+package com.mycompany.colorscheme;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Latencia de la recarga en caliente sobre una escena grande: escribe la escena de prueba en
+// un archivo, la vigila con SceneWatcher y la reescribe varias veces con algunas figuras
+// modificadas, agregadas y quitadas (reemplazando el archivo de una vez, como hacen los
+// editores). Cada recarga se aplica a una escena viva desde el hilo principal, que hace de
+// hilo de render. No incluye subir los cambios a la GPU ni el cuadro: eso lo informa la
+// aplicación con -Dcolorscheme.watch=true.
+//
+// Uso: SceneReloadReport [figuras] [cambios por tipo]
+public class SceneReloadReport {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        Path directory = Files.createTempDirectory("scene-reload");
+        Path file = directory.resolve("escena.fgsc");
+        Path staging = directory.resolve("escena.fgsc.tmp");
+        FigureStore authored = SceneFactory.stressScene(count, 42L);
+        SceneFile.write(file, authored);
+
+        FigureStore live = SceneFile.readAll(file, false);
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(live);
+        BlockingQueue<SceneWatcher.Reload> queue = new LinkedBlockingQueue<>();
+        SceneWatcher watcher = new SceneWatcher(file, SceneFile.readAll(file, false), queue::add);
+        watcher.start();
+
+        System.out.printf("Figuras: %d, cambios por recarga: %d modificadas, %d agregadas, %d quitadas%n",
+                count, changes, changes, changes);
+        System.out.println("ronda  detección  lectura  diferencias  aplicar  total (ms)");
+        Random random = new Random(7L);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                edit(authored, changes, random);
+                SceneFile.write(staging, authored);
+                long written = System.nanoTime();
+                Files.move(staging, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                SceneWatcher.Reload reload = queue.poll(60, TimeUnit.SECONDS);
+                if (reload == null) {
+                    throw new IllegalStateException("No llegó la recarga de la ronda " + round);
+                }
+                long start = System.nanoTime();
+                reload.diff.apply(live, index);
+                long applied = System.nanoTime();
+                check(authored, live);
+                System.out.printf("%5d  %9.1f  %7.1f  %11.1f  %7.1f  %5.1f%n", round,
+                        (reload.detected - written) / 1e6, (reload.parsed - reload.detected) / 1e6,
+                        (reload.diffed - reload.parsed) / 1e6, (applied - start) / 1e6,
+                        (applied - written) / 1e6);
+            }
+        } finally {
+            watcher.stop();
+            Files.deleteIfExists(staging);
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // Cambia el color de 'changes' figuras, quita otras tantas y agrega otras tantas al final
+    private static void edit(FigureStore figures, int changes, Random random) {
+        for (int i = 0; i < changes; i++) {
+            figures.setColor(random.nextInt(figures.size()), random.nextFloat(), random.nextFloat(), random.nextFloat());
+        }
+        BitSet marked = new BitSet(figures.size());
+        while (marked.cardinality() < changes) {
+            marked.set(random.nextInt(figures.size()));
+        }
+        figures.removeSlots(marked);
+        for (int i = 0; i < changes; i++) {
+            float x = random.nextFloat() * 2 - 1, y = random.nextFloat() * 2 - 1;
+            figures.add("Círculo nuevo", new float[]{x, y, 0.01f}, new float[]{random.nextFloat(), random.nextFloat(), random.nextFloat()});
+        }
+    }
+
+    // La escena viva tiene que terminar con las mismas figuras y colores que el archivo
+    private static void check(FigureStore authored, FigureStore live) {
+        if (authored.size() != live.size()) {
+            throw new IllegalStateException("Tamaños distintos: " + authored.size() + " y " + live.size());
+        }
+        SceneDiff.IdMap ids = SceneDiff.IdMap.of(live);
+        for (int slot = 0; slot < authored.size(); slot++) {
+            int other = ids.get(authored.id(slot));
+            if (other < 0 || authored.get(FigureStore.RED, slot) != live.get(FigureStore.RED, other)) {
+                throw new IllegalStateException("La figura " + authored.id(slot) + " no coincide");
+            }
+        }
+    }
+}
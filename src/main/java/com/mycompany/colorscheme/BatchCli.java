@@ -0,0 +1,584 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Modo por lotes: dibuja una escena con cada variante de paleta de un archivo de
+// especificación y escribe una imagen por variante. Cada hilo de trabajo tiene su propia
+// copia de la escena y su propio renderizador (SoftwareRenderer de un hilo, o un contexto
+// OpenGL oculto por hilo) y toma la siguiente variante de un contador compartido. Los cuadros
+// pasan por un pool fijo de búferes a los hilos escritores, así que la memoria no crece con
+// el número de variantes: cada cuadro en vuelo lleva su hora de inicio y las latencias van a
+// un histograma de tamaño fijo. Al final informa variantes por segundo y percentiles de
+// latencia por variante (desde que se empieza a recolorear hasta que la imagen está en disco).
+//
+// Uso: BatchCli <variantes.txt> <directorio> [ancho] [alto]
+//
+// Cada línea del archivo de variantes es "[nombre:] operación ...", con operaciones
+//   rgb=r,g,b        rgb.r=f  rgb.g=f  rgb.b=f
+//   hsl.hue=grados   hsl.sat=f  hsl.light=f
+//   hsv.hue=grados   hsv.sat=f  hsv.value=f
+//   cmyk.c=f  cmyk.m=f  cmyk.y=f  cmyk.k=f  cmyk.desat=f
+// Un valor "a..b/n" son n valores de a a b y la línea se expande al producto de sus rangos
+// (por ejemplo "tono: hsl.hue=0..330/12 hsl.sat=0.5..1.5/3" son 36 variantes). Las líneas
+// vacías y las que empiezan con # se ignoran. El nombre es el del archivo de salida: solo
+// letras, dígitos, espacios, '.', '-' y '_', sin empezar con punto. Una línea de varias
+// variantes escribe nombre_00000, nombre_00001...; dos líneas no pueden dar el mismo archivo.
+//
+// Propiedades:
+//   colorscheme.scene=archivo    escena a dibujar (si no, colorscheme.stress o la predeterminada)
+//   colorscheme.stress=N         escena de estrés con N figuras
+//   colorscheme.renderer=...     software (predeterminado), batch o instanced
+//   colorscheme.threads=N        hilos de trabajo (predeterminado: un núcleo cada uno)
+//   colorscheme.writers=N        hilos escritores (predeterminado: la mitad de los de trabajo)
+//   colorscheme.format=png|raw   PNG o RGBA crudo (.rgba, fila 0 arriba) por variante
+//   colorscheme.palette=archivo  ajusta cada píxel a la paleta (.gpl o #rrggbb por línea)
+//   colorscheme.palette.metric=oklab|lab  espacio en que se mide la cercanía (oklab)
+public class BatchCli {
+
+    private final int width;
+    private final int height;
+    private final Path directory;
+    private final String mode;
+    private final boolean png;
+    private final PaletteMapper palette;
+    private final List<VariantLine> lines;
+    private final int total;
+
+    // Latencia (ns) de las variantes escritas
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final BlockingQueue<int[]> freeBuffers;
+    private final BlockingQueue<Frame> queue;
+
+    private static final Frame END = new Frame(-1, null, 0L);
+
+    private static final class Frame {
+        final int variant;
+        final int[] pixels;
+        final long started; // System.nanoTime() al empezar la variante
+
+        Frame(int variant, int[] pixels, long started) {
+            this.variant = variant;
+            this.pixels = pixels;
+            this.started = started;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Uso: BatchCli <variantes.txt> <directorio> [ancho] [alto]");
+            System.exit(2);
+        }
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 1920;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 1080;
+        List<VariantLine> lines = parse(Paths.get(args[0]));
+        new BatchCli(lines, new File(args[1]), width, height).run();
+    }
+
+    BatchCli(List<VariantLine> lines, File directory, int width, int height) throws IOException {
+        long count = 0;
+        for (VariantLine line : lines) {
+            count += line.count();
+        }
+        if (count == 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cantidad de variantes no válida: " + count);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear el directorio " + directory);
+        }
+        this.lines = lines;
+        this.total = (int) count;
+        this.directory = directory.toPath().toAbsolutePath().normalize();
+        this.width = width;
+        this.height = height;
+        this.mode = System.getProperty("colorscheme.renderer", "software");
+        this.png = !"raw".equals(System.getProperty("colorscheme.format", "png"));
+        this.palette = PaletteMapper.fromProperties();
+        int workers = workerCount();
+        this.freeBuffers = new ArrayBlockingQueue<>(2 * workers);
+        this.queue = new ArrayBlockingQueue<>(2 * workers + 1);
+    }
+
+    private static int workerCount() {
+        return Math.max(1, Integer.getInteger("colorscheme.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    void run() throws Exception {
+        int workers = workerCount();
+        int writers = Math.max(1, Integer.getInteger("colorscheme.writers", (workers + 1) / 2));
+        for (int i = 0; i < 2 * workers; i++) {
+            freeBuffers.add(new int[width * height]);
+        }
+
+        // Las ventanas de GLFW solo se crean en el hilo principal; cada hilo de trabajo
+        // después activa la suya
+        boolean gl = !"software".equals(mode);
+        long[] contexts = new long[gl ? workers : 0];
+        if (gl) {
+            if (!GLFW.glfwInit()) {
+                throw new IllegalStateException("No se pudo inicializar GLFW");
+            }
+            for (int i = 0; i < workers; i++) {
+                contexts[i] = HeadlessRenderer.createContext();
+                GLFW.glfwMakeContextCurrent(MemoryUtil.NULL);
+            }
+        }
+
+        try {
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                threads.add(new Thread(this::writeLoop, "escritor-" + i));
+            }
+            List<Thread> renderThreads = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                final long context = gl ? contexts[i] : MemoryUtil.NULL;
+                renderThreads.add(new Thread(() -> renderLoop(context), "render-" + i));
+            }
+
+            long start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : renderThreads) {
+                thread.start();
+            }
+            for (Thread thread : renderThreads) {
+                thread.join();
+            }
+            for (int i = 0; i < writers; i++) {
+                queue.put(END);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Throwable error = failure.get();
+            if (error != null) {
+                throw new RuntimeException("Falló el lote", error);
+            }
+            report(elapsed, workers, writers);
+        } finally {
+            for (long context : contexts) {
+                GLFW.glfwDestroyWindow(context);
+            }
+            if (gl) {
+                GLFW.glfwTerminate();
+            }
+        }
+    }
+
+    // ---- Hilos de trabajo ----
+
+    private void renderLoop(long context) {
+        Renderer renderer = null;
+        SoftwareRenderer software = null;
+        OffscreenTarget target = null;
+        try {
+            FigureStore figures = loadScene();
+            if (context != MemoryUtil.NULL) {
+                GLFW.glfwMakeContextCurrent(context);
+                GL.createCapabilities(); // Las capacidades de LWJGL son por hilo
+                target = new OffscreenTarget(width, height);
+                target.bind();
+                GL33.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+                renderer = "instanced".equals(mode) ? new InstancedRenderer() : new BatchRenderer();
+            } else {
+                software = new SoftwareRenderer(width, height, 1);
+                renderer = software;
+            }
+
+            // Paleta original; cada variante parte de ella
+            int count = figures.size();
+            float[] baseRed = new float[count];
+            float[] baseGreen = new float[count];
+            float[] baseBlue = new float[count];
+            for (int i = 0; i < count; i++) {
+                Figure figure = figures.get(i);
+                baseRed[i] = figure.getRed();
+                baseGreen[i] = figure.getGreen();
+                baseBlue[i] = figure.getBlue();
+            }
+            PaletteTransform.Block block = new PaletteTransform.Block(count);
+
+            int variant;
+            while (failure.get() == null && (variant = next.getAndIncrement()) < total) {
+                long started = System.nanoTime();
+                System.arraycopy(baseRed, 0, block.red(), 0, count);
+                System.arraycopy(baseGreen, 0, block.green(), 0, count);
+                System.arraycopy(baseBlue, 0, block.blue(), 0, count);
+                // Ya hay un hilo por núcleo, así que la variante se transforma en este mismo hilo
+                transformFor(variant).applyRange(block, 0, count);
+                for (int i = 0; i < count; i++) {
+                    figures.get(i).setColor(block.red()[i], block.green()[i], block.blue()[i]);
+                }
+
+                if (target != null) {
+                    GL33.glClear(GL33.GL_COLOR_BUFFER_BIT);
+                }
+                renderer.render(figures, null);
+
+                int[] pixels = freeBuffers.take(); // Espera si los escritores van atrasados
+                if (target != null) {
+                    GlPixels.fromGlRgba(target.readPixels(), width, height, pixels);
+                } else {
+                    System.arraycopy(software.getPixels(), 0, pixels, 0, pixels.length);
+                }
+                if (palette != null) {
+                    palette.mapArgb(pixels, 0, pixels.length);
+                }
+                queue.put(new Frame(variant, pixels, started));
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (renderer != null) {
+                renderer.dispose();
+            }
+            if (target != null) {
+                target.unbind();
+                target.dispose();
+            }
+            if (context != MemoryUtil.NULL) {
+                GLFW.glfwMakeContextCurrent(MemoryUtil.NULL);
+            }
+        }
+    }
+
+    private FigureStore loadScene() throws IOException {
+        String scene = System.getProperty("colorscheme.scene");
+        if (scene != null) {
+            return SceneFile.readAll(Paths.get(scene), false);
+        }
+        int stress = Integer.getInteger("colorscheme.stress", 0);
+        return stress > 0 ? SceneFactory.stressScene(stress, 42L) : SceneFactory.defaultScene();
+    }
+
+    // ---- Hilos escritores ----
+
+    private void writeLoop() {
+        BufferedImage image = png ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB) : null;
+        ByteBuffer raw = png ? null : ByteBuffer.allocateDirect(width * height * 4);
+        try {
+            Frame frame;
+            while ((frame = queue.take()) != END) {
+                try {
+                    if (failure.get() == null) {
+                        write(frame, image, raw);
+                        latency.record(System.nanoTime() - frame.started);
+                    }
+                } finally {
+                    freeBuffers.put(frame.pixels);
+                }
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            drain();
+        }
+    }
+
+    // Sigue vaciando la cola (esperando en take(), sin escribir) hasta el fin, para que ningún
+    // hilo de trabajo quede bloqueado. El pool tiene lugar para todos los búferes.
+    private void drain() {
+        try {
+            Frame frame;
+            while ((frame = queue.take()) != END) {
+                freeBuffers.put(frame.pixels);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Frame frame, BufferedImage image, ByteBuffer raw) throws IOException {
+        String name = nameFor(frame.variant);
+        if (png) {
+            image.setRGB(0, 0, width, height, frame.pixels, 0, width);
+            ImageIO.write(image, "png", output(name + ".png").toFile());
+            return;
+        }
+        raw.clear();
+        for (int pixel : frame.pixels) {
+            raw.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel).put((byte) (pixel >>> 24));
+        }
+        raw.flip();
+        try (FileChannel channel = new FileOutputStream(output(name + ".rgba").toFile()).getChannel()) {
+            while (raw.hasRemaining()) {
+                channel.write(raw);
+            }
+        }
+    }
+
+    // Archivo de salida dentro del directorio; los nombres ya se validaron al leer las variantes
+    private Path output(String file) {
+        Path path = directory.resolve(file).normalize();
+        if (!directory.equals(path.getParent())) {
+            throw new IllegalStateException("El archivo de salida queda fuera de " + directory + ": " + file);
+        }
+        return path;
+    }
+
+    private void report(long elapsed, int workers, int writers) {
+        System.err.printf("Variantes: %d, resolución: %dx%d, renderizador: %s, hilos: %d de trabajo y %d escritores%n",
+                total, width, height, mode, workers, writers);
+        System.err.printf("%.2f s en total, %.1f variantes/s%n", elapsed / 1e9, total * 1e9 / elapsed);
+        System.err.printf("Latencia por variante: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, máx %.2f ms%n",
+                latency.percentile(0.50) / 1e6, latency.percentile(0.90) / 1e6,
+                latency.percentile(0.99) / 1e6, latency.max() / 1e6);
+    }
+
+    // ---- Variantes ----
+
+    private PaletteTransform transformFor(int variant) {
+        for (VariantLine line : lines) {
+            if (variant < line.count()) {
+                return line.transform(variant);
+            }
+            variant -= line.count();
+        }
+        throw new IllegalStateException("Variante fuera de rango: " + variant);
+    }
+
+    private String nameFor(int variant) {
+        for (VariantLine line : lines) {
+            if (variant < line.count()) {
+                return line.count() == 1 ? line.name : String.format("%s_%05d", line.name, variant);
+            }
+            variant -= line.count();
+        }
+        throw new IllegalStateException("Variante fuera de rango: " + variant);
+    }
+
+    // Una línea del archivo: operaciones con uno o más valores cada una. Las variantes de la
+    // línea se generan por índice (el último rango varía más rápido), sin guardarlas.
+    static final class VariantLine {
+        final String name;
+        private final String[] keys;
+        private final float[][] values; // values[operación][valor], "rgb" guarda r, g, b seguidos
+        private final long count;
+
+        VariantLine(String name, List<String> keys, List<float[]> values) {
+            this.name = name;
+            this.keys = keys.toArray(new String[0]);
+            this.values = values.toArray(new float[0][]);
+            long product = 1;
+            for (int i = 0; i < this.keys.length; i++) {
+                product *= choices(i);
+            }
+            this.count = product;
+        }
+
+        long count() {
+            return count;
+        }
+
+        private int choices(int operation) {
+            return "rgb".equals(keys[operation]) ? values[operation].length / 3 : values[operation].length;
+        }
+
+        PaletteTransform transform(long index) {
+            PaletteTransform.Operation[] operations = new PaletteTransform.Operation[keys.length];
+            for (int i = keys.length - 1; i >= 0; i--) {
+                int choice = (int) (index % choices(i));
+                index /= choices(i);
+                operations[i] = operation(keys[i], values[i], choice);
+            }
+            return new PaletteTransform(operations);
+        }
+
+        private static PaletteTransform.Operation operation(String key, float[] values, int choice) {
+            float v = values[choice];
+            switch (key) {
+                case "rgb":
+                    return PaletteTransform.rgbScale(values[3 * choice], values[3 * choice + 1], values[3 * choice + 2]);
+                case "rgb.r": return PaletteTransform.scale(PaletteTransform.Space.RGB, 0, v);
+                case "rgb.g": return PaletteTransform.scale(PaletteTransform.Space.RGB, 1, v);
+                case "rgb.b": return PaletteTransform.scale(PaletteTransform.Space.RGB, 2, v);
+                case "hsl.hue": return PaletteTransform.hueShiftHsl(v);
+                case "hsl.sat": return PaletteTransform.saturationScaleHsl(v);
+                case "hsl.light": return PaletteTransform.lightnessScaleHsl(v);
+                case "hsv.hue": return PaletteTransform.hueShiftHsv(v);
+                case "hsv.sat": return PaletteTransform.saturationScaleHsv(v);
+                case "hsv.value": return PaletteTransform.valueScaleHsv(v);
+                case "cmyk.c": return PaletteTransform.scale(PaletteTransform.Space.CMYK, 0, v);
+                case "cmyk.m": return PaletteTransform.scale(PaletteTransform.Space.CMYK, 1, v);
+                case "cmyk.y": return PaletteTransform.scale(PaletteTransform.Space.CMYK, 2, v);
+                case "cmyk.k": return PaletteTransform.scale(PaletteTransform.Space.CMYK, 3, v);
+                case "cmyk.desat": return PaletteTransform.desaturateCmyk(v);
+                default:
+                    throw new IllegalStateException("Operación desconocida: " + key);
+            }
+        }
+    }
+
+    static List<VariantLine> parse(Path path) throws IOException {
+        List<VariantLine> lines = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        int number = 0;
+        for (String text : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            number++;
+            String line = text.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                lines.add(parseLine(line, "variante" + number));
+                numbers.add(number);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException(path + ":" + number + ": " + e.getMessage(), e);
+            }
+        }
+        checkFileNames(path, lines, numbers);
+        return lines;
+    }
+
+    // Dos líneas que dieran el mismo archivo se pisarían al escribir, quizá a la vez desde dos
+    // escritores. Se compara sin mayúsculas porque en Windows y macOS son el mismo archivo.
+    // Los nombres generados (nombre_00000...) solo pueden coincidir con el de otra línea de
+    // varias variantes o con el de una línea de una sola, que se busca en los nombres generados.
+    private static void checkFileNames(Path path, List<VariantLine> lines, List<Integer> numbers) {
+        Map<String, Integer> names = new HashMap<>();
+        Map<String, Integer> multiple = new HashMap<>(); // Líneas de varias variantes
+        for (int i = 0; i < lines.size(); i++) {
+            String name = lines.get(i).name.toLowerCase(Locale.ROOT);
+            Integer previous = names.put(name, i);
+            if (previous != null) {
+                throw new IllegalStateException(path + ":" + numbers.get(i) + ": Nombre de variante repetido (ya en la línea "
+                        + numbers.get(previous) + "): " + lines.get(i).name);
+            }
+            if (lines.get(i).count() > 1) {
+                multiple.put(name, i);
+            }
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            VariantLine line = lines.get(i);
+            int underscore = line.name.lastIndexOf('_');
+            if (line.count() > 1 || underscore < 0) {
+                continue;
+            }
+            Integer owner = multiple.get(line.name.substring(0, underscore).toLowerCase(Locale.ROOT));
+            String suffix = line.name.substring(underscore + 1);
+            if (owner == null || suffix.length() < 5 || suffix.length() > 18 || !suffix.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                continue;
+            }
+            long variant = Long.parseLong(suffix);
+            if (variant < lines.get(owner).count() && String.format("%05d", variant).equals(suffix)) {
+                // Se informa la segunda de las dos líneas, como con los nombres repetidos
+                throw new IllegalStateException(path + ":" + numbers.get(Math.max(i, owner)) + ": El nombre " + line.name
+                        + " coincide con una variante de " + lines.get(owner).name + " (líneas "
+                        + numbers.get(Math.min(i, owner)) + " y " + numbers.get(Math.max(i, owner)) + ")");
+            }
+        }
+    }
+
+    static VariantLine parseLine(String line, String defaultName) {
+        String name = defaultName;
+        int colon = line.indexOf(':');
+        if (colon >= 0) {
+            name = checkName(line.substring(0, colon).trim());
+            line = line.substring(colon + 1).trim();
+        }
+        List<String> keys = new ArrayList<>();
+        List<float[]> values = new ArrayList<>();
+        for (String token : line.split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            int equals = token.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalStateException("Se esperaba operación=valor: " + token);
+            }
+            String key = token.substring(0, equals);
+            String value = token.substring(equals + 1);
+            if ("rgb".equals(key)) {
+                String[] parts = value.split(",");
+                if (parts.length != 3) {
+                    throw new IllegalStateException("rgb necesita tres factores: " + value);
+                }
+                float[][] channels = {range(parts[0]), range(parts[1]), range(parts[2])};
+                float[] triples = new float[3 * channels[0].length * channels[1].length * channels[2].length];
+                int t = 0;
+                for (float r : channels[0]) {
+                    for (float g : channels[1]) {
+                        for (float b : channels[2]) {
+                            triples[t++] = r;
+                            triples[t++] = g;
+                            triples[t++] = b;
+                        }
+                    }
+                }
+                values.add(triples);
+            } else {
+                values.add(range(value));
+            }
+            keys.add(key);
+            VariantLine.operation(key, values.get(values.size() - 1), 0); // Valida el nombre
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("Variante sin operaciones");
+        }
+        return new VariantLine(name, keys, values);
+    }
+
+    // El nombre se usa como nombre de archivo: nada de separadores, rutas relativas ni ocultos
+    static String checkName(String name) {
+        boolean valid = !name.isEmpty() && name.charAt(0) != '.';
+        for (int i = 0; valid && i < name.length(); i++) {
+            char c = name.charAt(i);
+            valid = Character.isLetterOrDigit(c) || c == ' ' || c == '.' || c == '-' || c == '_';
+        }
+        if (!valid) {
+            throw new IllegalStateException("Nombre de variante no válido: \"" + name + "\"");
+        }
+        return name;
+    }
+
+    // "v" o "a..b/n" (n valores de a a b, ambos incluidos)
+    private static float[] range(String text) {
+        int dots = text.indexOf("..");
+        if (dots < 0) {
+            return new float[]{Float.parseFloat(text)};
+        }
+        int slash = text.indexOf('/', dots);
+        if (slash < 0) {
+            throw new IllegalStateException("Falta la cantidad de valores en " + text);
+        }
+        float from = Float.parseFloat(text.substring(0, dots));
+        float to = Float.parseFloat(text.substring(dots + 2, slash));
+        int steps = Integer.parseInt(text.substring(slash + 1));
+        if (steps < 1) {
+            throw new IllegalStateException("Cantidad de valores no válida en " + text);
+        }
+        float[] values = new float[steps];
+        for (int i = 0; i < steps; i++) {
+            values[i] = steps == 1 ? from : from + (to - from) * i / (steps - 1);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,269 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Renderizador retenido: toda la geometría de la escena vive en un VBO persistente detrás
+// de un VAO (perfil core 3.3). Solo se vuelven a subir las figuras cuya versión cambió y
+// la escena completa se dibuja con una llamada, más otra para el borde de la selección.
+// El ajuste de color de la escena (ColorGrade) lo aplica el fragment shader; el de cada
+// figura va por vértice en un segundo VBO con la misma distribución que el de la geometría
+// (FigureGeometry no cambia: lo comparten el renderizador por software y los benchmarks).
+class BatchRenderer implements Renderer {
+
+    private static final String VERTEX_SHADER =
+            "#version 330 core\n"
+            + "layout(location = 0) in vec2 aPos;\n"
+            + "layout(location = 1) in vec3 aColor;\n"
+            + "layout(location = 2) in vec4 aGrade;\n"
+            + "out vec3 vColor;\n"
+            + "flat out vec4 vGrade;\n"
+            + "void main() {\n"
+            + "    vColor = aColor;\n"
+            + "    vGrade = aGrade;\n"
+            + "    gl_Position = vec4(aPos, 0.0, 1.0);\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "#version 330 core\n"
+            + ColorGrade.GLSL
+            + "in vec3 vColor;\n"
+            + "flat in vec4 vGrade;\n"
+            + "uniform bool uGraded;\n"
+            + "out vec4 fragColor;\n"
+            + "void main() {\n"
+            + "    fragColor = vec4(uGraded ? grade(vColor, vGrade) : vColor, 1.0);\n"
+            + "}\n";
+
+    private static final int STRIDE = FigureGeometry.FLOATS_PER_VERTEX * Float.BYTES;
+    private static final int GRADE_FLOATS = 4; // Ajuste de la figura por vértice
+    private static final int GRADE_STRIDE = GRADE_FLOATS * Float.BYTES;
+    private static final float[] BORDER_COLOR = {1.0f, 0.0f, 0.0f}; // Borde rojo
+
+    private final int program;
+    private final ColorGrade.Uniforms gradeUniforms;
+    private final int gradedLocation;
+    private final int fillVao;
+    private final int fillVbo;
+    private final int gradeVbo;
+    private final int borderVao;
+    private final int borderVbo;
+
+    private int capacityVertices = 0;
+    private int totalVertices = 0;
+    private FloatBuffer scratch = MemoryUtil.memAllocFloat(1024);
+    private FloatBuffer gradeScratch = MemoryUtil.memAllocFloat(1024);
+    private final Transform2D transform = new Transform2D();
+    private final TessellationCache tessellation = new TessellationCache(800, 600);
+    private final int[] viewport = new int[4];
+
+    // Distribución actual del VBO: figura, primer vértice, número de vértices y versión subida
+    private Figure[] slotFigures = new Figure[0];
+    private int[] slotOffset = new int[0];
+    private int[] slotCount = new int[0];
+    private int[] slotVersion = new int[0];
+
+    BatchRenderer() {
+        this(new ColorGrade());
+    }
+
+    // 'grade' es el ajuste de color de toda la escena; se aplica en el shader al relleno,
+    // con el de cada figura, no al borde de la selección
+    BatchRenderer(ColorGrade grade) {
+        program = Shaders.link(VERTEX_SHADER, FRAGMENT_SHADER);
+        gradeUniforms = new ColorGrade.Uniforms(grade, program);
+        gradedLocation = GL33.glGetUniformLocation(program, "uGraded");
+        fillVao = GL33.glGenVertexArrays();
+        fillVbo = GL33.glGenBuffers();
+        gradeVbo = GL33.glGenBuffers();
+        borderVao = GL33.glGenVertexArrays();
+        borderVbo = GL33.glGenBuffers();
+        configureAttributes(fillVao, fillVbo);
+        configureAttributes(borderVao, borderVbo);
+        // El borde no lleva ajuste (uGraded es falso al dibujarlo)
+        GL33.glBindVertexArray(fillVao);
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, gradeVbo);
+        GL33.glEnableVertexAttribArray(2);
+        GL33.glVertexAttribPointer(2, GRADE_FLOATS, GL33.GL_FLOAT, false, GRADE_STRIDE, 0L);
+        GL33.glBindVertexArray(0);
+    }
+
+    private static void configureAttributes(int vao, int vbo) {
+        GL33.glBindVertexArray(vao);
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, vbo);
+        GL33.glEnableVertexAttribArray(0);
+        GL33.glVertexAttribPointer(0, 2, GL33.GL_FLOAT, false, STRIDE, 0L);
+        GL33.glEnableVertexAttribArray(1);
+        GL33.glVertexAttribPointer(1, 3, GL33.GL_FLOAT, false, STRIDE, 2L * Float.BYTES);
+        GL33.glBindVertexArray(0);
+    }
+
+    @Override
+    public void render(List<Figure> figures, Figure selected) {
+        // El detalle de los círculos depende del tamaño del viewport en píxeles
+        GL33.glGetIntegerv(GL33.GL_VIEWPORT, viewport);
+        tessellation.setViewport(viewport[2], viewport[3]);
+
+        GL33.glUseProgram(program);
+        gradeUniforms.bind();
+        GL33.glUniform1i(gradedLocation, 1);
+        int changed = firstLayoutChange(figures);
+        if (changed >= 0) {
+            rebuild(figures, changed);
+        }
+        uploadDirty();
+
+        GL33.glBindVertexArray(fillVao);
+        GL33.glDrawArrays(GL33.GL_TRIANGLES, 0, totalVertices);
+        FrameProfiler.countDraw(totalVertices);
+
+        if (selected != null) {
+            GL33.glUniform1i(gradedLocation, 0);
+            drawBorder(selected);
+        }
+        GL33.glBindVertexArray(0);
+        GL33.glUseProgram(0);
+    }
+
+    // La distribución cambia si se agregan, quitan o reordenan figuras. Devuelve la primera
+    // posición que cambió, o -1 si ninguna: lo anterior sigue igual en el VBO.
+    private int firstLayoutChange(List<Figure> figures) {
+        int size = figures.size();
+        int common = Math.min(size, slotFigures.length);
+        for (int i = 0; i < common; i++) {
+            Figure figure = figures.get(i);
+            if (figure != slotFigures[i] || FigureGeometry.fillVertexCount(figure, tessellation) != slotCount[i]) {
+                return i;
+            }
+        }
+        return size != slotFigures.length ? common : -1;
+    }
+
+    // Rehace la distribución desde 'from' y sube solo ese tramo: agregar figuras al final
+    // (o quitar las últimas, como en una recarga de la escena) no vuelve a subir todo. Si el VBO
+    // tiene que crecer se reserva de nuevo y se sube completo.
+    private void rebuild(List<Figure> figures, int from) {
+        int size = figures.size();
+        slotFigures = Arrays.copyOf(slotFigures, size);
+        slotOffset = Arrays.copyOf(slotOffset, size);
+        slotCount = Arrays.copyOf(slotCount, size);
+        slotVersion = Arrays.copyOf(slotVersion, size);
+
+        int offset = from == 0 ? 0 : slotOffset[from - 1] + slotCount[from - 1];
+        for (int i = from; i < size; i++) {
+            slotFigures[i] = figures.get(i);
+            slotOffset[i] = offset;
+            slotCount[i] = FigureGeometry.fillVertexCount(slotFigures[i], tessellation);
+            offset += slotCount[i];
+        }
+        totalVertices = offset;
+
+        if (totalVertices > capacityVertices) {
+            capacityVertices = Math.max(totalVertices, capacityVertices * 2);
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, fillVbo);
+            GL33.glBufferData(GL33.GL_ARRAY_BUFFER, (long) capacityVertices * STRIDE, GL33.GL_DYNAMIC_DRAW);
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, gradeVbo);
+            GL33.glBufferData(GL33.GL_ARRAY_BUFFER, (long) capacityVertices * GRADE_STRIDE, GL33.GL_DYNAMIC_DRAW);
+            from = 0;
+        }
+        if (from == size) {
+            return;
+        }
+        ensureScratch(totalVertices - slotOffset[from]);
+        for (int i = from; i < size; i++) {
+            write(i);
+        }
+        upload(slotOffset[from]);
+    }
+
+    // Sube solo las figuras modificadas, agrupando las consecutivas en una sola copia
+    private void uploadDirty() {
+        int size = slotFigures.length;
+        int i = 0;
+        while (i < size) {
+            if (slotFigures[i].getVersion() == slotVersion[i]) {
+                i++;
+                continue;
+            }
+            int first = i;
+            int vertices = 0;
+            while (i < size && slotFigures[i].getVersion() != slotVersion[i]) {
+                vertices += slotCount[i];
+                i++;
+            }
+            ensureScratch(vertices);
+            for (int j = first; j < i; j++) {
+                write(j);
+            }
+            upload(slotOffset[first]);
+        }
+    }
+
+    private void write(int slot) {
+        Figure figure = slotFigures[slot];
+        figure.getTransform(transform);
+        FigureGeometry.writeFill(figure, transform, tessellation, scratch);
+        for (int i = 0; i < slotCount[slot]; i++) {
+            ColorGrade.writeFigure(figure, gradeScratch);
+        }
+        slotVersion[slot] = figure.getVersion();
+    }
+
+    // Sube lo escrito en los dos búferes temporales desde el vértice 'vertex'
+    private void upload(int vertex) {
+        scratch.flip();
+        gradeScratch.flip();
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, fillVbo);
+        GL33.glBufferSubData(GL33.GL_ARRAY_BUFFER, (long) vertex * STRIDE, scratch);
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, gradeVbo);
+        GL33.glBufferSubData(GL33.GL_ARRAY_BUFFER, (long) vertex * GRADE_STRIDE, gradeScratch);
+    }
+
+    private void drawBorder(Figure figure) {
+        int vertices = FigureGeometry.borderVertexCount(figure, tessellation);
+        if (vertices == 0) {
+            return;
+        }
+        ensureScratch(vertices);
+        figure.getTransform(transform);
+        FigureGeometry.writeBorder(figure, transform, tessellation, BORDER_COLOR, scratch);
+        scratch.flip();
+
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, borderVbo);
+        GL33.glBufferData(GL33.GL_ARRAY_BUFFER, scratch, GL33.GL_STREAM_DRAW);
+        GL33.glBindVertexArray(borderVao);
+        GL33.glDrawArrays(GL33.GL_LINES, 0, vertices);
+        FrameProfiler.countDraw(vertices);
+    }
+
+    // Deja los búferes temporales vacíos y con espacio para el número de vértices pedido
+    private void ensureScratch(int vertices) {
+        int floats = vertices * FigureGeometry.FLOATS_PER_VERTEX;
+        if (scratch.capacity() < floats) {
+            scratch = MemoryUtil.memRealloc(scratch, Math.max(floats, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        floats = vertices * GRADE_FLOATS;
+        if (gradeScratch.capacity() < floats) {
+            gradeScratch = MemoryUtil.memRealloc(gradeScratch, Math.max(floats, gradeScratch.capacity() * 2));
+        }
+        gradeScratch.clear();
+    }
+
+    @Override
+    public void dispose() {
+        GL33.glDeleteBuffers(fillVbo);
+        GL33.glDeleteBuffers(gradeVbo);
+        GL33.glDeleteBuffers(borderVbo);
+        GL33.glDeleteVertexArrays(fillVao);
+        GL33.glDeleteVertexArrays(borderVao);
+        GL33.glDeleteProgram(program);
+        gradeUniforms.dispose();
+        MemoryUtil.memFree(scratch);
+        MemoryUtil.memFree(gradeScratch);
+    }
+}
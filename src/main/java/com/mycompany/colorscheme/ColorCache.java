@@ -0,0 +1,149 @@
+package com.mycompany.colorscheme;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Caché de las representaciones del color de cada figura (CMYK, HSL, HSV) para la interfaz.
+// Cada conversión se hace una sola vez y se reutiliza hasta que el color cambia con setColor
+// (se compara getColorVersion()), así que un cuadro sin cambios no convierte ni asigna nada.
+//
+// Cuando una barra edita un componente, el caché guarda los componentes tal como los dejó el
+// usuario en lugar de volver a derivarlos del RGB resultante. Así no se acumula error de ida y
+// vuelta y no se pierde información que el RGB no conserva (el tono de un gris, o C, M e Y con
+// K = 1).
+//
+// Se guardan como mucho 'capacity' figuras; al llenarse se vacía (las entradas se recalculan
+// la próxima vez que se piden).
+final class ColorCache {
+
+    private static final int SPACES = PaletteTransform.Space.values().length;
+
+    private static final class Entry {
+        int colorVersion = -1;
+        final boolean[] valid = new boolean[SPACES];
+        final float[][] components = new float[SPACES][];
+        final float[] rgb = new float[3];
+
+        Entry() {
+            for (PaletteTransform.Space space : PaletteTransform.Space.values()) {
+                components[space.ordinal()] = new float[componentCount(space)];
+            }
+        }
+    }
+
+    private final int capacity;
+    private final Map<Figure, Entry> entries = new IdentityHashMap<>();
+    private long hits = 0;
+    private long misses = 0;
+
+    ColorCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    static int componentCount(PaletteTransform.Space space) {
+        return space == PaletteTransform.Space.CMYK ? 4 : 3;
+    }
+
+    // Componentes del color en el espacio dado; el arreglo es del caché y no se debe modificar
+    float[] get(Figure figure, PaletteTransform.Space space) {
+        Entry entry = entry(figure);
+        int s = space.ordinal();
+        if (entry.valid[s]) {
+            hits++;
+            return entry.components[s];
+        }
+        misses++;
+        entry.rgb[0] = figure.getRed();
+        entry.rgb[1] = figure.getGreen();
+        entry.rgb[2] = figure.getBlue();
+        float[] out = entry.components[s];
+        switch (space) {
+            case RGB:
+                System.arraycopy(entry.rgb, 0, out, 0, 3);
+                break;
+            case HSL:
+                ColorSpaces.rgbToHsl(entry.rgb, out);
+                break;
+            case HSV:
+                ColorSpaces.rgbToHsv(entry.rgb, out);
+                break;
+            case CMYK:
+                ColorSpaces.rgbToCmyk(entry.rgb, out);
+                break;
+        }
+        entry.valid[s] = true;
+        return out;
+    }
+
+    // Cambia un componente en el espacio dado y aplica el color a la figura. Los componentes
+    // de ese espacio quedan tal cual; los de los demás se recalculan desde el RGB nuevo.
+    void set(Figure figure, PaletteTransform.Space space, int component, float value) {
+        get(figure, space)[component] = value;
+        apply(figure, space);
+    }
+
+    // Fija todos los componentes en el espacio dado (por ejemplo, después de una edición en
+    // bloque que ya cambió el color de la figura)
+    void setAll(Figure figure, PaletteTransform.Space space, float[] values) {
+        float[] components = get(figure, space);
+        System.arraycopy(values, 0, components, 0, components.length);
+        apply(figure, space);
+    }
+
+    // Aplica un color RGB completo (por ejemplo, desde el selector de color)
+    void setRgb(Figure figure, float[] rgb) {
+        float[] components = get(figure, PaletteTransform.Space.RGB);
+        if (components[0] != rgb[0] || components[1] != rgb[1] || components[2] != rgb[2]) {
+            System.arraycopy(rgb, 0, components, 0, 3);
+            apply(figure, PaletteTransform.Space.RGB);
+        }
+    }
+
+    private void apply(Figure figure, PaletteTransform.Space space) {
+        Entry entry = entry(figure);
+        float[] components = entry.components[space.ordinal()];
+        float[] rgb = entry.rgb;
+        switch (space) {
+            case RGB:
+                System.arraycopy(components, 0, rgb, 0, 3);
+                break;
+            case HSL:
+                ColorSpaces.hslToRgb(components, rgb);
+                break;
+            case HSV:
+                ColorSpaces.hsvToRgb(components, rgb);
+                break;
+            case CMYK:
+                ColorSpaces.cmykToRgb(components, rgb);
+                break;
+        }
+        figure.setColor(rgb[0], rgb[1], rgb[2]);
+        for (int i = 0; i < SPACES; i++) {
+            entry.valid[i] = i == space.ordinal();
+        }
+        entry.colorVersion = figure.getColorVersion();
+    }
+
+    private Entry entry(Figure figure) {
+        Entry entry = entries.get(figure);
+        if (entry == null) {
+            if (entries.size() >= capacity) {
+                entries.clear();
+            }
+            entry = new Entry();
+            entries.put(figure, entry);
+        }
+        int version = figure.getColorVersion();
+        if (entry.colorVersion != version) {
+            // El color cambió por fuera de este caché
+            for (int i = 0; i < SPACES; i++) {
+                entry.valid[i] = false;
+            }
+            entry.colorVersion = version;
+        }
+        return entry;
+    }
+
+    long getHits() { return hits; }
+    long getMisses() { return misses; }
+}
@@ -0,0 +1,208 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+
+// Ajuste de color de toda la escena hecho en el fragment shader: desplazamiento de tono y
+// escala de saturación y luminosidad en el perfil elegido (HSL o HSV), luego desaturación y
+// límite de tinta por canal en CMYK. Los colores de las figuras no cambian; cambiar el ajuste
+// cuesta subir un bloque de uniformes de 48 bytes en lugar de recorrer todas las figuras.
+//
+// Cada figura suma su propio ajuste (columnas GRADE_* del FigureStore), que llega al shader
+// como atributo por instancia o por vértice: su tono se suma al de la escena, sus factores
+// multiplican los de la escena y su tope de tinta se aplica a los cuatro canales.
+//
+// GLSL reproduce las conversiones de ColorSpaces, y toTransform() da la misma cadena como
+// PaletteTransform para aplicarla en Java (renderizador legacy, guardar el resultado en los
+// colores de la escena o comparar con lo que dibuja la GPU, ver ColorGradeCheck).
+final class ColorGrade {
+
+    // Punto de enlace del bloque de uniformes, el mismo en todos los programas
+    static final int BINDING = 0;
+
+    // Bloque std140 y función grade(rgb, figura) para incluir en un fragment shader #version 330 (solo
+    // ASCII: algunos compiladores de GLSL rechazan otros caracteres aun en comentarios)
+    static final String GLSL =
+            "layout(std140) uniform ColorGrade {\n"
+            + "    vec4 gradeHsx;   // tono (vueltas), saturacion, luminosidad, perfil (0 HSL, 1 HSV)\n"
+            + "    vec4 gradeInk;   // limite de c, m, y, k\n"
+            + "    vec4 gradeCmyk;  // desaturacion en CMYK, activo (0 o 1), -, -\n"
+            + "};\n"
+            + "float gradeHue(float p, float q, float t) {\n"
+            + "    if (t < 0.0) t += 1.0;\n"
+            + "    if (t > 1.0) t -= 1.0;\n"
+            + "    if (t < 1.0 / 6.0) return p + (q - p) * 6.0 * t;\n"
+            + "    if (t < 0.5) return q;\n"
+            + "    if (t < 2.0 / 3.0) return p + (q - p) * (2.0 / 3.0 - t) * 6.0;\n"
+            + "    return p;\n"
+            + "}\n"
+            + "// figure: tono (vueltas), saturacion, luminosidad y limite de tinta de la figura\n"
+            + "vec3 grade(vec3 c, vec4 figure) {\n"
+            + "    if (gradeCmyk.y == 0.0 && figure == vec4(0.0, 1.0, 1.0, 1.0)) return c;\n"
+            + "    bool hsv = gradeHsx.w > 0.5;\n"
+            + "    float mx = max(c.r, max(c.g, c.b));\n"
+            + "    float mn = min(c.r, min(c.g, c.b));\n"
+            + "    float d = mx - mn;\n"
+            + "    float h = 0.0;\n"
+            + "    if (mx != mn) {\n"
+            + "        if (mx == c.r) h = (c.g - c.b) / d + (c.g < c.b ? 6.0 : 0.0);\n"
+            + "        else if (mx == c.g) h = (c.b - c.r) / d + 2.0;\n"
+            + "        else h = (c.r - c.g) / d + 4.0;\n"
+            + "        h /= 6.0;\n"
+            + "    }\n"
+            + "    float l = hsv ? mx : (mx + mn) / 2.0;\n"
+            + "    float s = hsv ? (mx == 0.0 ? 0.0 : d / mx)\n"
+            + "                  : (mx == mn ? 0.0 : (l > 0.5 ? d / (2.0 - mx - mn) : d / (mx + mn)));\n"
+            + "    h += gradeHsx.x + figure.x;\n"
+            + "    h -= floor(h);\n"
+            + "    s = clamp(s * (gradeHsx.y * figure.y), 0.0, 1.0);\n"
+            + "    l = clamp(l * (gradeHsx.z * figure.z), 0.0, 1.0);\n"
+            + "    if (hsv) {\n"
+            + "        int i = int(h * 6.0);\n"
+            + "        float f = h * 6.0 - float(i);\n"
+            + "        float p = l * (1.0 - s), q = l * (1.0 - f * s), t = l * (1.0 - (1.0 - f) * s);\n"
+            + "        i = i % 6;\n"
+            + "        c = i == 0 ? vec3(l, t, p) : i == 1 ? vec3(q, l, p) : i == 2 ? vec3(p, l, t)\n"
+            + "          : i == 3 ? vec3(p, q, l) : i == 4 ? vec3(t, p, l) : vec3(l, p, q);\n"
+            + "    } else if (s == 0.0) {\n"
+            + "        c = vec3(l);\n"
+            + "    } else {\n"
+            + "        float q = l < 0.5 ? l * (1.0 + s) : l + s - l * s;\n"
+            + "        float p = 2.0 * l - q;\n"
+            + "        c = vec3(gradeHue(p, q, h + 1.0 / 3.0), gradeHue(p, q, h), gradeHue(p, q, h - 1.0 / 3.0));\n"
+            + "    }\n"
+            + "    float k = 1.0 - max(c.r, max(c.g, c.b));\n"
+            + "    vec3 cmy = k >= 1.0 ? vec3(0.0) : (1.0 - c - k) / (1.0 - k);\n"
+            + "    if (k >= 1.0) k = 1.0;\n"
+            + "    float gray = (cmy.x + cmy.y + cmy.z) / 3.0;\n"
+            + "    cmy += (gray - cmy) * gradeCmyk.x;\n"
+            + "    cmy = min(cmy, min(gradeInk.xyz, vec3(figure.w)));\n"
+            + "    k = min(k, min(gradeInk.w, figure.w));\n"
+            + "    return (1.0 - cmy) * (1.0 - k);\n"
+            + "}\n";
+
+    private static final int FLOATS = 12;
+
+    private PaletteTransform.Space profile = PaletteTransform.Space.HSL;
+    private float hueShift = 0.0f;     // Grados
+    private float saturation = 1.0f;
+    private float lightness = 1.0f;    // Luminosidad en HSL, valor en HSV
+    private float desaturate = 0.0f;   // 0 a 1, en CMYK
+    private final float[] inkLimit = {1.0f, 1.0f, 1.0f, 1.0f};
+    private int version = 0;
+
+    // Cambia cada vez que cambia un parámetro; los renderizadores suben el bloque solo entonces
+    int version() { return version; }
+
+    void set(PaletteTransform.Space profile, float hueShift, float saturation, float lightness, float desaturate) {
+        if (profile != PaletteTransform.Space.HSL && profile != PaletteTransform.Space.HSV) {
+            throw new IllegalStateException("El perfil del ajuste tiene que ser HSL o HSV: " + profile);
+        }
+        if (profile != this.profile || hueShift != this.hueShift || saturation != this.saturation
+                || lightness != this.lightness || desaturate != this.desaturate) {
+            this.profile = profile;
+            this.hueShift = hueShift;
+            this.saturation = saturation;
+            this.lightness = lightness;
+            this.desaturate = desaturate;
+            version++;
+        }
+    }
+
+    void setInkLimit(float c, float m, float y, float k) {
+        if (c != inkLimit[0] || m != inkLimit[1] || y != inkLimit[2] || k != inkLimit[3]) {
+            inkLimit[0] = c;
+            inkLimit[1] = m;
+            inkLimit[2] = y;
+            inkLimit[3] = k;
+            version++;
+        }
+    }
+
+    void reset() {
+        set(PaletteTransform.Space.HSL, 0.0f, 1.0f, 1.0f, 0.0f);
+        setInkLimit(1.0f, 1.0f, 1.0f, 1.0f);
+    }
+
+    // Sin ajuste el shader devuelve el color tal cual, sin convertir
+    boolean isIdentity() {
+        return hueShift == 0.0f && saturation == 1.0f && lightness == 1.0f && desaturate == 0.0f
+                && inkLimit[0] >= 1.0f && inkLimit[1] >= 1.0f && inkLimit[2] >= 1.0f && inkLimit[3] >= 1.0f;
+    }
+
+    // La misma cadena en Java
+    PaletteTransform toTransform() {
+        return toTransform(0.0f, 1.0f, 1.0f, 1.0f);
+    }
+
+    // La cadena para una figura con su propio ajuste (tono en grados, factores y tope de tinta)
+    PaletteTransform toTransform(float hue, float saturation, float lightness, float ink) {
+        float shift = hueShift + hue;
+        return new PaletteTransform(
+                profile == PaletteTransform.Space.HSV ? PaletteTransform.hueShiftHsv(shift) : PaletteTransform.hueShiftHsl(shift),
+                PaletteTransform.scale(profile, 1, this.saturation * saturation),
+                PaletteTransform.scale(profile, 2, this.lightness * lightness),
+                PaletteTransform.desaturateCmyk(desaturate),
+                PaletteTransform.inkLimitCmyk(Math.min(inkLimit[0], ink), Math.min(inkLimit[1], ink),
+                        Math.min(inkLimit[2], ink), Math.min(inkLimit[3], ink)));
+    }
+
+    // Sin ajuste propio (la misma comparación que hace grade() en el shader)
+    static boolean isIdentity(Figure figure) {
+        return figure.getGradeHue() == 0.0f && figure.getGradeSaturation() == 1.0f
+                && figure.getGradeLightness() == 1.0f && figure.getGradeInk() == 1.0f;
+    }
+
+    // Ajuste de una figura en el orden del parámetro 'figure' de grade()
+    static void writeFigure(Figure figure, FloatBuffer out) {
+        out.put(figure.getGradeHue() / 360.0f).put(figure.getGradeSaturation())
+                .put(figure.getGradeLightness()).put(figure.getGradeInk());
+    }
+
+    // Contenido del bloque std140, en el orden de GLSL
+    void write(FloatBuffer out) {
+        out.put(hueShift / 360.0f).put(saturation).put(lightness).put(profile == PaletteTransform.Space.HSV ? 1.0f : 0.0f);
+        out.put(inkLimit[0]).put(inkLimit[1]).put(inkLimit[2]).put(inkLimit[3]);
+        out.put(desaturate).put(isIdentity() ? 0.0f : 1.0f).put(0.0f).put(0.0f);
+    }
+
+    // Búfer de uniformes de un renderizador: enlaza el bloque del programa y vuelve a subir
+    // los parámetros solo si cambiaron desde el último cuadro
+    static final class Uniforms {
+        private final ColorGrade grade;
+        private final int buffer;
+        private final FloatBuffer data = MemoryUtil.memAllocFloat(FLOATS);
+        private int uploaded = -1;
+
+        Uniforms(ColorGrade grade, int program) {
+            this.grade = grade;
+            int block = GL33.glGetUniformBlockIndex(program, "ColorGrade");
+            if (block == GL33.GL_INVALID_INDEX) {
+                throw new IllegalStateException("El programa no declara el bloque ColorGrade");
+            }
+            GL33.glUniformBlockBinding(program, block, BINDING);
+            buffer = GL33.glGenBuffers();
+            GL33.glBindBuffer(GL33.GL_UNIFORM_BUFFER, buffer);
+            GL33.glBufferData(GL33.GL_UNIFORM_BUFFER, (long) FLOATS * Float.BYTES, GL33.GL_DYNAMIC_DRAW);
+            GL33.glBindBuffer(GL33.GL_UNIFORM_BUFFER, 0);
+        }
+
+        void bind() {
+            GL33.glBindBufferBase(GL33.GL_UNIFORM_BUFFER, BINDING, buffer);
+            if (grade.version() != uploaded) {
+                data.clear();
+                grade.write(data);
+                data.flip();
+                GL33.glBufferSubData(GL33.GL_UNIFORM_BUFFER, 0L, data);
+                uploaded = grade.version();
+            }
+        }
+
+        void dispose() {
+            GL33.glDeleteBuffers(buffer);
+            MemoryUtil.memFree(data);
+        }
+    }
+}
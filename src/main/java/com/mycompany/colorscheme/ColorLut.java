@@ -0,0 +1,242 @@
+package com.mycompany.colorscheme;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Tabla 3D de colores (LUT): una cadena de PaletteTransform evaluada una sola vez sobre una
+// rejilla de size x size x size colores RGB (17, 33 o 65 son los tamaños habituales) y
+// aplicada después a arreglos de colores con interpolación trilineal o tetraédrica. Aplicar la
+// tabla cuesta lo mismo sea cual sea la cadena, y el cuerpo del ciclo no tiene ramas (solo
+// min/max y selecciones), igual que la conversión masiva de ColorSpaces.
+//
+// Se lee y escribe en formato .cube (Adobe/Resolve): LUT_3D_SIZE y una línea "r g b" por
+// punto, con el rojo variando más rápido. Solo se admite el dominio 0..1 (DOMAIN_MIN/MAX y
+// LUT_3D_INPUT_RANGE).
+public final class ColorLut {
+
+    public enum Interpolation { TRILINEAR, TETRAHEDRAL }
+
+    private static final int CHUNK = 16 * 1024; // Colores por tarea hoja
+
+    private final int size;
+    private final float[] table; // r, g, b por punto; índice (b * size + g) * size + r
+
+    private ColorLut(int size, float[] table) {
+        this.size = size;
+        this.table = table;
+    }
+
+    // Evalúa la cadena en cada punto de la rejilla
+    public static ColorLut bake(PaletteTransform transform, int size) {
+        if (size < 2 || size > 256) {
+            throw new IllegalArgumentException("Tamaño de LUT no válido: " + size);
+        }
+        int points = size * size * size;
+        PaletteTransform.Block block = new PaletteTransform.Block(points);
+        float step = 1.0f / (size - 1);
+        for (int b = 0, i = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++, i++) {
+                    block.red()[i] = r * step;
+                    block.green()[i] = g * step;
+                    block.blue()[i] = b * step;
+                }
+            }
+        }
+        transform.apply(block);
+        float[] table = new float[3 * points];
+        for (int i = 0; i < points; i++) {
+            table[3 * i] = block.red()[i];
+            table[3 * i + 1] = block.green()[i];
+            table[3 * i + 2] = block.blue()[i];
+        }
+        return new ColorLut(size, table);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Aplica la tabla a todos los colores del bloque usando el pool dado
+    public void apply(PaletteTransform.Block block, Interpolation interpolation, ForkJoinPool pool) {
+        pool.invoke(new Chunk(block, interpolation, 0, block.size()));
+    }
+
+    public void apply(PaletteTransform.Block block, Interpolation interpolation) {
+        apply(block, interpolation, ForkJoinPool.commonPool());
+    }
+
+    // Aplica la tabla en [from, to) sobre arreglos por componente, secuencialmente
+    public void apply(float[] r, float[] g, float[] b, int from, int to, Interpolation interpolation) {
+        if (interpolation == Interpolation.TETRAHEDRAL) {
+            tetrahedral(r, g, b, from, to);
+        } else {
+            trilinear(r, g, b, from, to);
+        }
+    }
+
+    private void trilinear(float[] red, float[] green, float[] blue, int from, int to) {
+        final float[] t = table;
+        final int last = size - 1;
+        final int dx = 3, dy = 3 * size, dz = 3 * size * size;
+        for (int i = from; i < to; i++) {
+            float x = Math.max(0.0f, Math.min(1.0f, red[i])) * last;
+            float y = Math.max(0.0f, Math.min(1.0f, green[i])) * last;
+            float z = Math.max(0.0f, Math.min(1.0f, blue[i])) * last;
+            int ix = Math.min((int) x, last - 1);
+            int iy = Math.min((int) y, last - 1);
+            int iz = Math.min((int) z, last - 1);
+            float fx = x - ix, fy = y - iy, fz = z - iz;
+            int p = ix * dx + iy * dy + iz * dz;
+
+            // Peso de cada una de las ocho esquinas de la celda
+            float gx = 1.0f - fx, gy = 1.0f - fy, gz = 1.0f - fz;
+            float w000 = gx * gy * gz, w100 = fx * gy * gz, w010 = gx * fy * gz, w110 = fx * fy * gz;
+            float w001 = gx * gy * fz, w101 = fx * gy * fz, w011 = gx * fy * fz, w111 = fx * fy * fz;
+            red[i] = corners(t, p, dx, dy, dz, w000, w100, w010, w110, w001, w101, w011, w111);
+            green[i] = corners(t, p + 1, dx, dy, dz, w000, w100, w010, w110, w001, w101, w011, w111);
+            blue[i] = corners(t, p + 2, dx, dy, dz, w000, w100, w010, w110, w001, w101, w011, w111);
+        }
+    }
+
+    private static float corners(float[] t, int p, int dx, int dy, int dz,
+                                 float w000, float w100, float w010, float w110,
+                                 float w001, float w101, float w011, float w111) {
+        return w000 * t[p] + w100 * t[p + dx] + w010 * t[p + dy] + w110 * t[p + dx + dy]
+                + w001 * t[p + dz] + w101 * t[p + dx + dz] + w011 * t[p + dy + dz] + w111 * t[p + dx + dy + dz];
+    }
+
+    // Divide la celda en seis tetraedros según el orden de fx, fy y fz y mezcla solo sus cuatro
+    // vértices: (0,0,0), el que avanza en el eje mayor, el que avanza en los dos mayores y
+    // (1,1,1). Las selecciones de eje se resuelven con comparaciones, sin saltos.
+    private void tetrahedral(float[] red, float[] green, float[] blue, int from, int to) {
+        final float[] t = table;
+        final int last = size - 1;
+        final int dx = 3, dy = 3 * size, dz = 3 * size * size;
+        for (int i = from; i < to; i++) {
+            float x = Math.max(0.0f, Math.min(1.0f, red[i])) * last;
+            float y = Math.max(0.0f, Math.min(1.0f, green[i])) * last;
+            float z = Math.max(0.0f, Math.min(1.0f, blue[i])) * last;
+            int ix = Math.min((int) x, last - 1);
+            int iy = Math.min((int) y, last - 1);
+            int iz = Math.min((int) z, last - 1);
+            float fx = x - ix, fy = y - iy, fz = z - iz;
+            int p = ix * dx + iy * dy + iz * dz;
+
+            boolean xy = fx >= fy, yz = fy >= fz, xz = fx >= fz;
+            float max = Math.max(fx, Math.max(fy, fz));
+            float min = Math.min(fx, Math.min(fy, fz));
+            float mid = fx + fy + fz - max - min;
+            // Desplazamiento del eje mayor y del segundo
+            int first = xy && xz ? dx : (!xy && yz ? dy : dz);
+            int second = xy && xz ? (yz ? dy : dz) : (!xy && yz ? (xz ? dx : dz) : (xy ? dx : dy));
+            int p1 = p + first;
+            int p2 = p1 + second;
+            int p3 = p + dx + dy + dz;
+            float w0 = 1.0f - max, w1 = max - mid, w2 = mid - min;
+
+            red[i] = w0 * t[p] + w1 * t[p1] + w2 * t[p2] + min * t[p3];
+            green[i] = w0 * t[p + 1] + w1 * t[p1 + 1] + w2 * t[p2 + 1] + min * t[p3 + 1];
+            blue[i] = w0 * t[p + 2] + w1 * t[p1 + 2] + w2 * t[p2 + 2] + min * t[p3 + 2];
+        }
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PaletteTransform.Block block;
+        private final Interpolation interpolation;
+        private final int from;
+        private final int to;
+
+        Chunk(PaletteTransform.Block block, Interpolation interpolation, int from, int to) {
+            this.block = block;
+            this.interpolation = interpolation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                apply(block.red(), block.green(), block.blue(), from, to, interpolation);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(block, interpolation, from, mid), new Chunk(block, interpolation, mid, to));
+        }
+    }
+
+    // ---- Formato .cube ----
+
+    public void write(Path path, String title) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("TITLE \"" + title.replace('"', '\'') + "\"\n");
+            out.write("LUT_3D_SIZE " + size + "\n");
+            for (int i = 0; i < table.length; i += 3) {
+                out.write(String.format(Locale.ROOT, "%.6f %.6f %.6f%n", table[i], table[i + 1], table[i + 2]));
+            }
+        }
+    }
+
+    public static ColorLut read(Path path) throws IOException {
+        int size = 0;
+        float[] table = null;
+        int count = 0;
+        int number = 0;
+        for (String text : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            number++;
+            String line = text.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("TITLE")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            try {
+                if ("LUT_3D_SIZE".equals(parts[0])) {
+                    size = Integer.parseInt(parts[1]);
+                    if (size < 2 || size > 256) {
+                        throw new IOException("Tamaño de LUT no válido: " + size);
+                    }
+                    table = new float[3 * size * size * size];
+                } else if ("DOMAIN_MIN".equals(parts[0]) || "DOMAIN_MAX".equals(parts[0])) {
+                    float expected = "DOMAIN_MIN".equals(parts[0]) ? 0.0f : 1.0f;
+                    for (int c = 1; c <= 3; c++) {
+                        if (Float.parseFloat(parts[c]) != expected) {
+                            throw new IOException("Solo se admite el dominio 0..1");
+                        }
+                    }
+                } else if ("LUT_3D_INPUT_RANGE".equals(parts[0])) {
+                    if (Float.parseFloat(parts[1]) != 0.0f || Float.parseFloat(parts[2]) != 1.0f) {
+                        throw new IOException("Solo se admite el rango de entrada 0..1");
+                    }
+                } else if ("LUT_1D_SIZE".equals(parts[0])) {
+                    throw new IOException("Las LUT 1D no están soportadas");
+                } else if (Character.isLetter(parts[0].charAt(0))) {
+                    continue; // Otras palabras clave
+                } else {
+                    if (table == null) {
+                        throw new IOException("Datos antes de LUT_3D_SIZE");
+                    }
+                    if (count == table.length) {
+                        throw new IOException("Sobran puntos");
+                    }
+                    table[count++] = Float.parseFloat(parts[0]);
+                    table[count++] = Float.parseFloat(parts[1]);
+                    table[count++] = Float.parseFloat(parts[2]);
+                }
+            } catch (IOException | RuntimeException e) {
+                throw new IOException(path + ":" + number + ": " + e.getMessage(), e);
+            }
+        }
+        if (table == null || count != table.length) {
+            throw new IOException(path + ": faltan puntos (" + count / 3 + " de " + size * size * size + ")");
+        }
+        return new ColorLut(size, table);
+    }
+}
@@ -0,0 +1,523 @@
+package com.mycompany.colorscheme;
+
+import java.nio.FloatBuffer;
+
+// Conversiones entre espacios de color. Todos los componentes van de 0 a 1 (también el tono),
+// salvo en CIELAB (L de 0 a 100, a y b aprox. de -128 a 127, iluminante D65) y en OKLab (L de
+// 0 a 1, a y b aprox. de -0.4 a 0.4). Para estos dos el RGB se toma como sRGB con gamma.
+//
+// Hay dos familias:
+// - Conversión de un color con float[] (la que usa la interfaz); devuelve un arreglo nuevo o
+//   escribe en uno dado (para no asignar memoria en cada cuadro).
+// - Conversión masiva sobre estructuras de arreglos (un arreglo o FloatBuffer por componente)
+//   con salidas provistas por quien llama. No asigna memoria dentro del ciclo y el cuerpo no
+//   tiene ramas (solo min/max y selecciones), para que el JIT pueda vectorizarlo.
+//
+// La versión masiva coincide con la de un color dentro de TOLERANCE por componente.
+public final class ColorSpaces {
+
+    // Diferencia máxima por componente entre la conversión masiva y la de un color
+    public static final float TOLERANCE = 1e-5f;
+
+    private ColorSpaces() {
+    }
+
+    public static float[] rgbToCmyk(float[] rgb) {
+        return rgbToCmyk(rgb, new float[4]);
+    }
+
+    public static float[] rgbToCmyk(float[] rgb, float[] cmyk) {
+        float r = rgb[0], g = rgb[1], b = rgb[2];
+        float k = 1 - Math.max(r, Math.max(g, b));
+        if (k >= 1) {
+            // Negro puro: evita dividir entre cero
+            cmyk[0] = cmyk[1] = cmyk[2] = 0;
+            cmyk[3] = 1;
+            return cmyk;
+        }
+        cmyk[0] = (1 - r - k) / (1 - k);
+        cmyk[1] = (1 - g - k) / (1 - k);
+        cmyk[2] = (1 - b - k) / (1 - k);
+        cmyk[3] = k;
+        return cmyk;
+    }
+
+    public static float[] cmykToRgb(float[] cmyk) {
+        return cmykToRgb(cmyk, new float[3]);
+    }
+
+    public static float[] cmykToRgb(float[] cmyk, float[] rgb) {
+        float c = cmyk[0], m = cmyk[1], y = cmyk[2], k = cmyk[3];
+        rgb[0] = (1 - c) * (1 - k);
+        rgb[1] = (1 - m) * (1 - k);
+        rgb[2] = (1 - y) * (1 - k);
+        return rgb;
+    }
+
+    public static float[] rgbToHsl(float[] rgb) {
+        return rgbToHsl(rgb, new float[3]);
+    }
+
+    public static float[] rgbToHsl(float[] rgb, float[] hsl) {
+        float r = rgb[0], g = rgb[1], b = rgb[2];
+        float max = Math.max(r, Math.max(g, b));
+        float min = Math.min(r, Math.min(g, b));
+        float h = 0, s = 0, l = (max + min) / 2;
+
+        if (max != min) {
+            float d = max - min;
+            s = l > 0.5f ? d / (2 - max - min) : d / (max + min);
+            if (max == r) {
+                h = (g - b) / d + (g < b ? 6 : 0);
+            } else if (max == g) {
+                h = (b - r) / d + 2;
+            } else if (max == b) {
+                h = (r - g) / d + 4;
+            }
+            h /= 6;
+        }
+
+        hsl[0] = h;
+        hsl[1] = s;
+        hsl[2] = l;
+        return hsl;
+    }
+
+    public static float[] hslToRgb(float[] hsl) {
+        return hslToRgb(hsl, new float[3]);
+    }
+
+    public static float[] hslToRgb(float[] hsl, float[] rgb) {
+        float h = hsl[0], s = hsl[1], l = hsl[2];
+        float r, g, b;
+
+        if (s == 0) {
+            r = g = b = l; // Escala de grises
+        } else {
+            float q = l < 0.5f ? l * (1 + s) : l + s - l * s;
+            float p = 2 * l - q;
+            r = hueToRgb(p, q, h + 1 / 3f);
+            g = hueToRgb(p, q, h);
+            b = hueToRgb(p, q, h - 1 / 3f);
+        }
+
+        rgb[0] = r;
+        rgb[1] = g;
+        rgb[2] = b;
+        return rgb;
+    }
+
+    private static float hueToRgb(float p, float q, float t) {
+        if (t < 0) t += 1;
+        if (t > 1) t -= 1;
+        if (t < 1 / 6f) return p + (q - p) * 6 * t;
+        if (t < 1 / 2f) return q;
+        if (t < 2 / 3f) return p + (q - p) * (2 / 3f - t) * 6;
+        return p;
+    }
+
+    public static float[] rgbToHsv(float[] rgb) {
+        return rgbToHsv(rgb, new float[3]);
+    }
+
+    public static float[] rgbToHsv(float[] rgb, float[] hsv) {
+        float r = rgb[0], g = rgb[1], b = rgb[2];
+        float max = Math.max(r, Math.max(g, b));
+        float min = Math.min(r, Math.min(g, b));
+        float h = 0, s = 0, v = max;
+
+        float d = max - min;
+        s = max == 0 ? 0 : d / max;
+
+        if (max != min) {
+            if (max == r) {
+                h = (g - b) / d + (g < b ? 6 : 0);
+            } else if (max == g) {
+                h = (b - r) / d + 2;
+            } else if (max == b) {
+                h = (r - g) / d + 4;
+            }
+            h /= 6;
+        }
+
+        hsv[0] = h;
+        hsv[1] = s;
+        hsv[2] = v;
+        return hsv;
+    }
+
+    public static float[] hsvToRgb(float[] hsv) {
+        return hsvToRgb(hsv, new float[3]);
+    }
+
+    public static float[] hsvToRgb(float[] hsv, float[] rgb) {
+        float h = hsv[0], s = hsv[1], v = hsv[2];
+        float r = 0, g = 0, b = 0;
+
+        int i = (int) (h * 6);
+        float f = h * 6 - i;
+        float p = v * (1 - s);
+        float q = v * (1 - f * s);
+        float t = v * (1 - (1 - f) * s);
+
+        switch (i % 6) {
+            case 0:
+                r = v;
+                g = t;
+                b = p;
+                break;
+            case 1:
+                r = q;
+                g = v;
+                b = p;
+                break;
+            case 2:
+                r = p;
+                g = v;
+                b = t;
+                break;
+            case 3:
+                r = p;
+                g = q;
+                b = v;
+                break;
+            case 4:
+                r = t;
+                g = p;
+                b = v;
+                break;
+            case 5:
+                r = v;
+                g = p;
+                b = q;
+                break;
+        }
+
+        rgb[0] = r;
+        rgb[1] = g;
+        rgb[2] = b;
+        return rgb;
+    }
+
+    // ---- CIELAB y OKLab ----
+
+    public static float[] rgbToLab(float[] rgb) {
+        return rgbToLab(rgb, new float[3]);
+    }
+
+    public static float[] rgbToLab(float[] rgb, float[] lab) {
+        float r = toLinear(rgb[0]), g = toLinear(rgb[1]), b = toLinear(rgb[2]);
+        float fx = labF((0.4124564f * r + 0.3575761f * g + 0.1804375f * b) / WHITE_X);
+        float fy = labF(0.2126729f * r + 0.7151522f * g + 0.0721750f * b);
+        float fz = labF((0.0193339f * r + 0.1191920f * g + 0.9503041f * b) / WHITE_Z);
+        lab[0] = 116 * fy - 16;
+        lab[1] = 500 * (fx - fy);
+        lab[2] = 200 * (fy - fz);
+        return lab;
+    }
+
+    public static float[] labToRgb(float[] lab) {
+        return labToRgb(lab, new float[3]);
+    }
+
+    // Los colores fuera de la gama sRGB se limitan a [0, 1]
+    public static float[] labToRgb(float[] lab, float[] rgb) {
+        float fy = (lab[0] + 16) / 116;
+        float x = WHITE_X * labFInverse(fy + lab[1] / 500);
+        float y = labFInverse(fy);
+        float z = WHITE_Z * labFInverse(fy - lab[2] / 200);
+        rgb[0] = fromLinear(3.2404542f * x - 1.5371385f * y - 0.4985314f * z);
+        rgb[1] = fromLinear(-0.9692660f * x + 1.8760108f * y + 0.0415560f * z);
+        rgb[2] = fromLinear(0.0556434f * x - 0.2040259f * y + 1.0572252f * z);
+        return rgb;
+    }
+
+    public static float[] rgbToOklab(float[] rgb) {
+        return rgbToOklab(rgb, new float[3]);
+    }
+
+    public static float[] rgbToOklab(float[] rgb, float[] lab) {
+        float r = toLinear(rgb[0]), g = toLinear(rgb[1]), b = toLinear(rgb[2]);
+        float l = (float) Math.cbrt(0.4122214708f * r + 0.5363325363f * g + 0.0514459929f * b);
+        float m = (float) Math.cbrt(0.2119034982f * r + 0.6806995451f * g + 0.1073969566f * b);
+        float s = (float) Math.cbrt(0.0883024619f * r + 0.2817188376f * g + 0.6299787005f * b);
+        lab[0] = 0.2104542553f * l + 0.7936177850f * m - 0.0040720468f * s;
+        lab[1] = 1.9779984951f * l - 2.4285922050f * m + 0.4505937099f * s;
+        lab[2] = 0.0259040371f * l + 0.7827717662f * m - 0.8086757660f * s;
+        return lab;
+    }
+
+    public static float[] oklabToRgb(float[] lab) {
+        return oklabToRgb(lab, new float[3]);
+    }
+
+    // Los colores fuera de la gama sRGB se limitan a [0, 1]
+    public static float[] oklabToRgb(float[] lab, float[] rgb) {
+        float l = lab[0] + 0.3963377774f * lab[1] + 0.2158037573f * lab[2];
+        float m = lab[0] - 0.1055613458f * lab[1] - 0.0638541728f * lab[2];
+        float s = lab[0] - 0.0894841775f * lab[1] - 1.2914855480f * lab[2];
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+        rgb[0] = fromLinear(4.0767416621f * l - 3.3077115913f * m + 0.2309699292f * s);
+        rgb[1] = fromLinear(-1.2684380046f * l + 2.6097574011f * m - 0.3413193965f * s);
+        rgb[2] = fromLinear(-0.0041960863f * l - 0.7034186147f * m + 1.7076147010f * s);
+        return rgb;
+    }
+
+    // ---- Conversión masiva sobre arreglos: procesa [offset, offset + length) ----
+
+    public static void rgbToCmyk(float[] r, float[] g, float[] b,
+                                 float[] c, float[] m, float[] y, float[] k, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float black = 1 - max(r[i], g[i], b[i]);
+            float scale = inkScale(black);
+            c[i] = (1 - r[i] - black) * scale;
+            m[i] = (1 - g[i] - black) * scale;
+            y[i] = (1 - b[i] - black) * scale;
+            k[i] = black;
+        }
+    }
+
+    public static void cmykToRgb(float[] c, float[] m, float[] y, float[] k,
+                                 float[] r, float[] g, float[] b, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float white = 1 - k[i];
+            r[i] = (1 - c[i]) * white;
+            g[i] = (1 - m[i]) * white;
+            b[i] = (1 - y[i]) * white;
+        }
+    }
+
+    public static void rgbToHsl(float[] r, float[] g, float[] b,
+                                float[] h, float[] s, float[] l, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float red = r[i], green = g[i], blue = b[i];
+            float max = max(red, green, blue);
+            float min = min(red, green, blue);
+            h[i] = hue(red, green, blue, max, min);
+            s[i] = hslSaturation(max, min);
+            l[i] = (max + min) / 2;
+        }
+    }
+
+    public static void hslToRgb(float[] h, float[] s, float[] l,
+                                float[] r, float[] g, float[] b, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float hue = h[i], saturation = s[i], lightness = l[i];
+            float q = lightness < 0.5f ? lightness * (1 + saturation) : lightness + saturation - lightness * saturation;
+            float p = 2 * lightness - q;
+            r[i] = hueChannel(p, q, hue + 1 / 3f);
+            g[i] = hueChannel(p, q, hue);
+            b[i] = hueChannel(p, q, hue - 1 / 3f);
+        }
+    }
+
+    public static void rgbToHsv(float[] r, float[] g, float[] b,
+                                float[] h, float[] s, float[] v, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float red = r[i], green = g[i], blue = b[i];
+            float max = max(red, green, blue);
+            float min = min(red, green, blue);
+            h[i] = hue(red, green, blue, max, min);
+            s[i] = hsvSaturation(max, min);
+            v[i] = max;
+        }
+    }
+
+    public static void hsvToRgb(float[] h, float[] s, float[] v,
+                                float[] r, float[] g, float[] b, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float hue = h[i], saturation = s[i], value = v[i];
+            r[i] = hsvChannel(5, hue, saturation, value);
+            g[i] = hsvChannel(3, hue, saturation, value);
+            b[i] = hsvChannel(1, hue, saturation, value);
+        }
+    }
+
+    public static void rgbToLab(float[] r, float[] g, float[] b,
+                                float[] l, float[] a, float[] bb, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float red = toLinear(r[i]), green = toLinear(g[i]), blue = toLinear(b[i]);
+            float fx = labF((0.4124564f * red + 0.3575761f * green + 0.1804375f * blue) / WHITE_X);
+            float fy = labF(0.2126729f * red + 0.7151522f * green + 0.0721750f * blue);
+            float fz = labF((0.0193339f * red + 0.1191920f * green + 0.9503041f * blue) / WHITE_Z);
+            l[i] = 116 * fy - 16;
+            a[i] = 500 * (fx - fy);
+            bb[i] = 200 * (fy - fz);
+        }
+    }
+
+    public static void rgbToOklab(float[] r, float[] g, float[] b,
+                                  float[] l, float[] a, float[] bb, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float red = toLinear(r[i]), green = toLinear(g[i]), blue = toLinear(b[i]);
+            float lc = (float) Math.cbrt(0.4122214708f * red + 0.5363325363f * green + 0.0514459929f * blue);
+            float mc = (float) Math.cbrt(0.2119034982f * red + 0.6806995451f * green + 0.1073969566f * blue);
+            float sc = (float) Math.cbrt(0.0883024619f * red + 0.2817188376f * green + 0.6299787005f * blue);
+            l[i] = 0.2104542553f * lc + 0.7936177850f * mc - 0.0040720468f * sc;
+            a[i] = 1.9779984951f * lc - 2.4285922050f * mc + 0.4505937099f * sc;
+            bb[i] = 0.0259040371f * lc + 0.7827717662f * mc - 0.8086757660f * sc;
+        }
+    }
+
+    // ---- Conversión masiva sobre FloatBuffer (por ejemplo, memoria directa) ----
+    // Se procesan 'count' elementos desde la posición actual de cada búfer, sin moverla.
+
+    public static void rgbToCmyk(FloatBuffer r, FloatBuffer g, FloatBuffer b,
+                                 FloatBuffer c, FloatBuffer m, FloatBuffer y, FloatBuffer k, int count) {
+        int ri = r.position(), gi = g.position(), bi = b.position();
+        int ci = c.position(), mi = m.position(), yi = y.position(), ki = k.position();
+        for (int i = 0; i < count; i++) {
+            float red = r.get(ri + i), green = g.get(gi + i), blue = b.get(bi + i);
+            float black = 1 - max(red, green, blue);
+            float scale = inkScale(black);
+            c.put(ci + i, (1 - red - black) * scale);
+            m.put(mi + i, (1 - green - black) * scale);
+            y.put(yi + i, (1 - blue - black) * scale);
+            k.put(ki + i, black);
+        }
+    }
+
+    public static void cmykToRgb(FloatBuffer c, FloatBuffer m, FloatBuffer y, FloatBuffer k,
+                                 FloatBuffer r, FloatBuffer g, FloatBuffer b, int count) {
+        int ci = c.position(), mi = m.position(), yi = y.position(), ki = k.position();
+        int ri = r.position(), gi = g.position(), bi = b.position();
+        for (int i = 0; i < count; i++) {
+            float white = 1 - k.get(ki + i);
+            r.put(ri + i, (1 - c.get(ci + i)) * white);
+            g.put(gi + i, (1 - m.get(mi + i)) * white);
+            b.put(bi + i, (1 - y.get(yi + i)) * white);
+        }
+    }
+
+    public static void rgbToHsl(FloatBuffer r, FloatBuffer g, FloatBuffer b,
+                                FloatBuffer h, FloatBuffer s, FloatBuffer l, int count) {
+        int ri = r.position(), gi = g.position(), bi = b.position();
+        int hi = h.position(), si = s.position(), li = l.position();
+        for (int i = 0; i < count; i++) {
+            float red = r.get(ri + i), green = g.get(gi + i), blue = b.get(bi + i);
+            float max = max(red, green, blue);
+            float min = min(red, green, blue);
+            h.put(hi + i, hue(red, green, blue, max, min));
+            s.put(si + i, hslSaturation(max, min));
+            l.put(li + i, (max + min) / 2);
+        }
+    }
+
+    public static void hslToRgb(FloatBuffer h, FloatBuffer s, FloatBuffer l,
+                                FloatBuffer r, FloatBuffer g, FloatBuffer b, int count) {
+        int hi = h.position(), si = s.position(), li = l.position();
+        int ri = r.position(), gi = g.position(), bi = b.position();
+        for (int i = 0; i < count; i++) {
+            float hue = h.get(hi + i), saturation = s.get(si + i), lightness = l.get(li + i);
+            float q = lightness < 0.5f ? lightness * (1 + saturation) : lightness + saturation - lightness * saturation;
+            float p = 2 * lightness - q;
+            r.put(ri + i, hueChannel(p, q, hue + 1 / 3f));
+            g.put(gi + i, hueChannel(p, q, hue));
+            b.put(bi + i, hueChannel(p, q, hue - 1 / 3f));
+        }
+    }
+
+    public static void rgbToHsv(FloatBuffer r, FloatBuffer g, FloatBuffer b,
+                                FloatBuffer h, FloatBuffer s, FloatBuffer v, int count) {
+        int ri = r.position(), gi = g.position(), bi = b.position();
+        int hi = h.position(), si = s.position(), vi = v.position();
+        for (int i = 0; i < count; i++) {
+            float red = r.get(ri + i), green = g.get(gi + i), blue = b.get(bi + i);
+            float max = max(red, green, blue);
+            float min = min(red, green, blue);
+            h.put(hi + i, hue(red, green, blue, max, min));
+            s.put(si + i, hsvSaturation(max, min));
+            v.put(vi + i, max);
+        }
+    }
+
+    public static void hsvToRgb(FloatBuffer h, FloatBuffer s, FloatBuffer v,
+                                FloatBuffer r, FloatBuffer g, FloatBuffer b, int count) {
+        int hi = h.position(), si = s.position(), vi = v.position();
+        int ri = r.position(), gi = g.position(), bi = b.position();
+        for (int i = 0; i < count; i++) {
+            float hue = h.get(hi + i), saturation = s.get(si + i), value = v.get(vi + i);
+            r.put(ri + i, hsvChannel(5, hue, saturation, value));
+            g.put(gi + i, hsvChannel(3, hue, saturation, value));
+            b.put(bi + i, hsvChannel(1, hue, saturation, value));
+        }
+    }
+
+    // ---- Núcleos sin ramas compartidos por las conversiones masivas ----
+
+    // Blanco de referencia D65 (Y = 1)
+    private static final float WHITE_X = 0.95047f;
+    private static final float WHITE_Z = 1.08883f;
+    private static final float LAB_EPSILON = 216 / 24389f; // (6/29)^3
+
+    // sRGB con gamma a lineal, y al revés (limitando a [0, 1])
+    static float toLinear(float c) {
+        return c <= 0.04045f ? c / 12.92f : (float) Math.pow((c + 0.055f) / 1.055f, 2.4);
+    }
+
+    static float fromLinear(float c) {
+        c = Math.max(0.0f, Math.min(1.0f, c));
+        return c <= 0.0031308f ? 12.92f * c : 1.055f * (float) Math.pow(c, 1 / 2.4) - 0.055f;
+    }
+
+    static float labF(float t) {
+        return t > LAB_EPSILON ? (float) Math.cbrt(t) : t * (24389 / 3132f) + 4 / 29f;
+    }
+
+    static float labFInverse(float t) {
+        return t > 6 / 29f ? t * t * t : (t - 4 / 29f) * (3132 / 24389f);
+    }
+
+    static float max(float a, float b, float c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    static float min(float a, float b, float c) {
+        return Math.min(a, Math.min(b, c));
+    }
+
+    // 1 / (1 - k), o 0 con negro puro (en lugar de dividir entre cero)
+    static float inkScale(float black) {
+        float white = 1 - black;
+        return white > 0 ? 1 / white : 0;
+    }
+
+    // Tono en [0, 1); 0 para los grises
+    static float hue(float r, float g, float b, float max, float min) {
+        float d = max - min;
+        float safe = d > 0 ? d : 1;
+        float fromRed = (g - b) / safe + (g < b ? 6 : 0);
+        float fromGreen = (b - r) / safe + 2;
+        float fromBlue = (r - g) / safe + 4;
+        float h = max == r ? fromRed : (max == g ? fromGreen : fromBlue);
+        return d > 0 ? h / 6 : 0;
+    }
+
+    static float hslSaturation(float max, float min) {
+        float d = max - min;
+        float l = (max + min) / 2;
+        float denominator = l > 0.5f ? 2 - max - min : max + min;
+        return d > 0 ? d / denominator : 0;
+    }
+
+    static float hsvSaturation(float max, float min) {
+        return max > 0 ? (max - min) / max : 0;
+    }
+
+    // Equivalente a hueToRgb: la rampa por tramos se escribe como min/max en lugar de ifs
+    static float hueChannel(float p, float q, float t) {
+        t -= (float) Math.floor(t);
+        float ramp = Math.max(0.0f, Math.min(1.0f, Math.min(6 * t, 4 - 6 * t)));
+        return p + (q - p) * ramp;
+    }
+
+    // Canal de HSV a RGB (n = 5 rojo, 3 verde, 1 azul) sin el switch por sector
+    static float hsvChannel(int n, float h, float s, float v) {
+        float k = n + 6 * h;
+        k -= 6 * (float) Math.floor(k / 6);
+        float ramp = Math.max(0.0f, Math.min(1.0f, Math.min(k, 4 - k)));
+        return v - v * s * ramp;
+    }
+}
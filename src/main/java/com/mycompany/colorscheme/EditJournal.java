@@ -0,0 +1,225 @@
+package com.mycompany.colorscheme;
+
+import java.util.Arrays;
+
+// Historial de deshacer/rehacer de las ediciones de figuras. Cada paso guarda, en arreglos
+// primitivos que crecen según hace falta, las posiciones de las figuras que tocó, las columnas
+// del FigureStore que cambió (una máscara de bits) y el valor anterior y el nuevo de cada
+// columna por figura. No se copian figuras ni escenas.
+//
+// Una edición continua (arrastrar una barra) es un solo paso: edit() con la misma clave que
+// el paso abierto no hace nada, los valores anteriores se copian al empezar y los nuevos
+// recién al cerrar el paso con close(), así que arrastrar no cuesta nada por cuadro.
+//
+// Los pasos más viejos se descartan cuando el historial pasa de 'budget' bytes. Las posiciones
+// dejan de valer si se agregan, quitan o reordenan figuras; en ese caso el historial se vacía.
+final class EditJournal {
+
+    static final int COLOR = 1 << FigureStore.RED | 1 << FigureStore.GREEN | 1 << FigureStore.BLUE;
+    static final int GRADE = 1 << FigureStore.GRADE_HUE | 1 << FigureStore.GRADE_SATURATION
+            | 1 << FigureStore.GRADE_LIGHTNESS | 1 << FigureStore.GRADE_INK;
+
+    private final FigureStore figures;
+    private final long budget;
+
+    // Datos de todos los pasos, seguidos
+    private int[] slots = new int[1024];
+    private float[] before = new float[1024];
+    private float[] after = new float[1024];
+    private int slotsUsed = 0;
+    private int valuesUsed = 0;
+
+    // Por paso: dónde empiezan sus posiciones y valores, cuántas figuras y qué columnas
+    private int[] stepSlots = new int[64];
+    private int[] stepValues = new int[64];
+    private int[] stepCount = new int[64];
+    private int[] stepFields = new int[64];
+    private int steps = 0;
+    private int applied = 0; // Los pasos [applied, steps) se pueden rehacer
+    private int layout;
+
+    private Object openKey = null; // Clave del paso abierto (el último), o null
+
+    EditJournal(FigureStore figures, long budget) {
+        this.figures = figures;
+        this.budget = budget;
+        this.layout = figures.layoutCount();
+    }
+
+    // Máscara de una columna
+    static int field(int column) {
+        return 1 << column;
+    }
+
+    // Anuncia que se van a cambiar las columnas 'fields' de 'count' posiciones de 'slots'.
+    // Si el paso abierto tiene la misma clave se sigue con él; si no, se abre uno nuevo y se
+    // copian los valores actuales. Hay que llamarlo antes de hacer el cambio.
+    void edit(Object key, int fields, int[] slots, int count) {
+        validate();
+        if (openKey != null && openKey.equals(key) && stepFields[steps - 1] == fields && stepCount[steps - 1] == count) {
+            return;
+        }
+        close();
+        if (count == 0) {
+            return;
+        }
+        // Un paso nuevo descarta lo que se podía rehacer
+        if (applied < steps) {
+            slotsUsed = stepSlots[applied];
+            valuesUsed = stepValues[applied];
+            steps = applied;
+        }
+        int values = count * Integer.bitCount(fields);
+        ensureStep();
+        ensureData(count, values);
+        stepSlots[steps] = slotsUsed;
+        stepValues[steps] = valuesUsed;
+        stepCount[steps] = count;
+        stepFields[steps] = fields;
+        System.arraycopy(slots, 0, this.slots, slotsUsed, count);
+        figures.copyValues(fields, slots, 0, count, before, valuesUsed);
+        slotsUsed += count;
+        valuesUsed += values;
+        steps++;
+        applied = steps;
+        openKey = key;
+    }
+
+    // Cierra el paso abierto copiando los valores nuevos; si nada cambió se descarta
+    void close() {
+        validate();
+        if (openKey == null) {
+            return;
+        }
+        openKey = null;
+        int step = steps - 1;
+        figures.copyValues(stepFields[step], slots, stepSlots[step], stepCount[step], after, stepValues[step]);
+        int from = stepValues[step];
+        boolean changed = false;
+        for (int i = from; i < valuesUsed && !changed; i++) {
+            changed = before[i] != after[i];
+        }
+        if (!changed) {
+            slotsUsed = stepSlots[step];
+            valuesUsed = from;
+            steps = applied = step;
+            return;
+        }
+        evict();
+    }
+
+    boolean canUndo() {
+        validate();
+        return applied > 0;
+    }
+
+    boolean canRedo() {
+        validate();
+        return applied < steps && openKey == null;
+    }
+
+    boolean undo() {
+        close();
+        if (!canUndo()) {
+            return false;
+        }
+        applied--;
+        figures.writeValues(stepFields[applied], slots, stepSlots[applied], stepCount[applied], before, stepValues[applied]);
+        return true;
+    }
+
+    boolean redo() {
+        close();
+        if (!canRedo()) {
+            return false;
+        }
+        figures.writeValues(stepFields[applied], slots, stepSlots[applied], stepCount[applied], after, stepValues[applied]);
+        applied++;
+        return true;
+    }
+
+    void clear() {
+        steps = applied = 0;
+        slotsUsed = valuesUsed = 0;
+        openKey = null;
+        if (before.length > 1024) {
+            // Devuelve la memoria de una edición grande
+            slots = new int[1024];
+            before = new float[1024];
+            after = new float[1024];
+        }
+    }
+
+    int steps() { return steps; }
+    int redoSteps() { return steps - applied; }
+    long budget() { return budget; }
+
+    // Memoria ocupada por los pasos guardados (no la capacidad reservada)
+    long bytes() {
+        return (long) slotsUsed * Integer.BYTES + 2L * valuesUsed * Float.BYTES + (long) steps * 4 * Integer.BYTES;
+    }
+
+    // Descarta los pasos más viejos hasta entrar en el presupuesto (todos, si el último
+    // solo ya no entra)
+    private void evict() {
+        if (bytes() <= budget) {
+            return;
+        }
+        int drop = 0;
+        long freed = 0;
+        long excess = bytes() - budget;
+        while (drop < steps && freed < excess) {
+            freed += (long) stepCount[drop] * Integer.BYTES
+                    + 2L * stepCount[drop] * Integer.bitCount(stepFields[drop]) * Float.BYTES + 4 * Integer.BYTES;
+            drop++;
+        }
+        if (drop == steps) {
+            clear();
+            return;
+        }
+        int slotShift = stepSlots[drop];
+        int valueShift = stepValues[drop];
+        System.arraycopy(slots, slotShift, slots, 0, slotsUsed - slotShift);
+        System.arraycopy(before, valueShift, before, 0, valuesUsed - valueShift);
+        System.arraycopy(after, valueShift, after, 0, valuesUsed - valueShift);
+        slotsUsed -= slotShift;
+        valuesUsed -= valueShift;
+        for (int i = drop; i < steps; i++) {
+            stepSlots[i - drop] = stepSlots[i] - slotShift;
+            stepValues[i - drop] = stepValues[i] - valueShift;
+            stepCount[i - drop] = stepCount[i];
+            stepFields[i - drop] = stepFields[i];
+        }
+        steps -= drop;
+        applied -= drop;
+    }
+
+    private void ensureStep() {
+        if (steps == stepSlots.length) {
+            int capacity = steps * 2;
+            stepSlots = Arrays.copyOf(stepSlots, capacity);
+            stepValues = Arrays.copyOf(stepValues, capacity);
+            stepCount = Arrays.copyOf(stepCount, capacity);
+            stepFields = Arrays.copyOf(stepFields, capacity);
+        }
+    }
+
+    private void ensureData(int count, int values) {
+        if (slotsUsed + count > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(slots.length * 2, slotsUsed + count));
+        }
+        if (valuesUsed + values > before.length) {
+            int capacity = Math.max(before.length * 2, valuesUsed + values);
+            before = Arrays.copyOf(before, capacity);
+            after = Arrays.copyOf(after, capacity);
+        }
+    }
+
+    private void validate() {
+        int current = figures.layoutCount();
+        if (current != layout) {
+            layout = current;
+            clear();
+        }
+    }
+}
@@ -8,14 +8,30 @@ import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.system.MemoryUtil;
+import imgui.ImColor;
+import imgui.ImDrawList;
 import imgui.ImGui;
 import imgui.ImGuiIO;
 import imgui.flag.ImGuiConfigFlags;
+import imgui.flag.ImGuiTreeNodeFlags;
 import imgui.gl3.ImGuiImplGl3;
 import imgui.glfw.ImGuiImplGlfw;
+import imgui.type.ImBoolean;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 
 public class FigurasColoresOpenGL {
 
@@ -23,21 +39,179 @@ public class FigurasColoresOpenGL {
     private int width = 800;
     private int height = 600;
     private String selectedScheme = "RGB";
+    private String schemeLabel = "Perfil de color seleccionado: RGB";
+
+    // Conversiones de color de la interfaz y arreglos de trabajo de las barras, para que un
+    // cuadro sin cambios no convierta colores ni asigne memoria
+    private static final String[] RGB_LABELS = {"Rojo", "Verde", "Azul"};
+    private static final String[] CMYK_LABELS = {"Cian", "Magenta", "Amarillo", "Negro"};
+    private static final String[] HSL_LABELS = {"Tono (H)", "Saturación (S)", "Luminosidad (L)"};
+    private static final String[] HSV_LABELS = {"Tono (H)", "Saturación (S)", "Valor (V)"};
+    private final ColorCache colorCache = new ColorCache(1024);
+    private final float[] sliderValue = new float[1];
+    private final float[] sliderColor = new float[4];
+    private final float[] figureGrade = new float[4];
+    private final float[] pickerColor = new float[3];
 
     // ImGui
     private final ImGuiImplGlfw imGuiGlfw = new ImGuiImplGlfw();
     private final ImGuiImplGl3 imGuiGl3 = new ImGuiImplGl3();
 
     // Figuras
-    private List<Figure> figures = new ArrayList<>();
-    private Figure selectedFigure = null;
+    // Figuras en columnas (-Dcolorscheme.offheap=true para guardarlas en búferes directos)
+    private final boolean offHeap = Boolean.getBoolean("colorscheme.offheap");
+    private FigureStore figures = new FigureStore();
+    private final SpatialIndex pickIndex = new SpatialIndex();
+
+    // Selección múltiple: clic elige una figura (con Mayús se agrega o se quita); arrastrar
+    // fuera de ImGui selecciona con un rectángulo o con un lazo (con Mayús se agrega). Las
+    // barras muestran la figura principal y sus cambios se aplican a toda la selección.
+    private static final int MAX_OUTLINES = 2000; // Cajas de selección dibujadas como mucho
+    private static final float DRAG_THRESHOLD = 3.0f; // Píxeles para distinguir arrastre de clic
+    private Selection selection;
+    private Outliner outliner;
+
+    // Deshacer/rehacer (Ctrl+Z, Ctrl+Y o Ctrl+Mayús+Z); el historial ocupa como mucho
+    // -Dcolorscheme.undo.budget=MB (64 por omisión)
+    private EditJournal journal;
+    private final BitSet marked = new BitSet();
+    private final ImBoolean lassoMode = new ImBoolean(false);
+    private boolean dragging = false;
+    private boolean dragAdds = false;
+    private float dragStartX;
+    private float dragStartY;
+    private float dragX;
+    private float dragY;
+    private float[] lasso = new float[256]; // Puntos del lazo en píxeles de la ventana
+    private int lassoPoints = 0;
+    private final float[] outlineBounds = new float[4];
+
+    // Renderizado: "batch" (VBO/VAO en perfil core) o "legacy" (glBegin/glEnd en perfil de compatibilidad)
+    private final String rendererMode = System.getProperty("colorscheme.renderer", "batch");
+    private final boolean legacyRenderer = "legacy".equals(rendererMode);
+    private Renderer renderer;
+
+    // Captura de cuadros opcional: -Dcolorscheme.capture=raw|png|y4m
+    private FrameCapture capture;
+
+    // Escena guardada al cerrar (-Dcolorscheme.scene=archivo); las escenas de estrés no se guardan
+    private final Path scenePath = Paths.get(System.getProperty("colorscheme.scene", "escena.fgsc"));
+
+    // Recarga en caliente: con -Dcolorscheme.watch=true la escena abierta sigue los cambios de
+    // su archivo (y no se guarda al cerrar, para no pisar lo que se editó afuera)
+    private final boolean watchScene = Boolean.getBoolean("colorscheme.watch");
+    private SceneWatcher watcher;
+    private SceneWatcher.Reload shownReload; // Aplicada, pendiente de llegar a un cuadro
+    private long reloadStart;
+    private long reloadApplied;
+
+    // Simulación con paso fijo en su propio hilo (-Dcolorscheme.tickrate=N, 120 por omisión);
+    // con -Dcolorscheme.animate=true todas las figuras giran desde el inicio
+    private Simulation simulation;
+    private final Simulation.Animation animation = new Simulation.Animation();
+    private final float[] animationSpin = {90.0f};
+    private final float[] animationAmplitude = {0.0f, 0.0f};
+    private final float[] animationPeriod = {2.0f};
+    private final float[] animationColor = {1.0f, 1.0f, 1.0f};
+    private final ImBoolean animationColorEnabled = new ImBoolean(false);
+
+    // Sincronización vertical: -Dcolorscheme.vsync=on|off|adaptive ("on" por omisión)
+    private String vsyncMode = System.getProperty("colorscheme.vsync", "on");
+
+    // Perfilador de cuadros: -Dcolorscheme.profile=true lo enciende desde el inicio y
+    // -Dcolorscheme.profile.output=archivo.csv|archivo.jsonl además escribe cada cuadro
+    private FrameProfiler profiler;
+    private final ImBoolean profilerEnabled = new ImBoolean(false);
+    private final float[] profilerPlot = new float[FrameProfiler.HISTORY];
+
+    // Modo por eventos: si nada cambió ni se anima, se espera con glfwWaitEventsTimeout en
+    // lugar de redibujar (-Dcolorscheme.idle=false lo desactiva). Con -Dcolorscheme.damage=true
+    // la escena se dibuja en un búfer persistente y solo se redibujan las regiones que cambiaron.
+    // -Dcolorscheme.idle.stats=true muestra al salir los cuadros, las esperas y la CPU media.
+    private static final int SETTLE_FRAMES = 3; // Cuadros tras un evento para que ImGui se asiente
+    private static final double IDLE_TIMEOUT = 0.5; // Segundos
+    private final ImBoolean idleMode = new ImBoolean(!"false".equals(System.getProperty("colorscheme.idle")));
+    private final ImBoolean damageMode = new ImBoolean(Boolean.getBoolean("colorscheme.damage"));
+    private final boolean idleStats = Boolean.getBoolean("colorscheme.idle.stats");
+    private int pendingFrames = SETTLE_FRAMES;
+    private long renderedChanges = -1;
+    private int renderedGrade = -1; // Versión del ajuste de color de la escena del último cuadro
+    private long renderedFrames = 0;
+    private long idleWaits = 0;
+    private final SceneDamage damage = new SceneDamage();
+    private OffscreenTarget sceneTarget;
+    private final UsageMonitor usage = new UsageMonitor(1.0);
+
+    // Tareas que otros hilos dejan para el hilo de render; se ejecutan al inicio de cada cuadro
+    private final Queue<Runnable> renderThreadTasks = new ConcurrentLinkedQueue<>();
+
+    // Transformación global de la paleta. Con los renderizadores de shaders se ve en vivo como
+    // un ColorGrade (solo cambia un bloque de uniformes); "Aplicar" la guarda en los colores.
+    private final float[] paletteHueShift = {0.0f};
+    private final float[] paletteSaturation = {1.0f};
+    private final float[] paletteLightness = {1.0f};
+    private final float[] paletteCmykDesaturate = {0.0f};
+    private final float[] paletteInkLimit = {1.0f, 1.0f, 1.0f, 1.0f};
+    private boolean paletteHsv = false;
+    private final ColorGrade colorGrade = new ColorGrade();
+    private CompletableFuture<Void> paletteJob = null;
+    private String paletteError = null; // Motivo del último fallo al aplicar, para el panel
+    private String captureError = null; // Error del codificador de la captura, para el panel
+    private static final Object PALETTE_EDIT = new Object(); // Clave del historial
+    private static final Object FIGURE_GRADE_EDIT = new Object();
+    // Paleta de marca opcional (-Dcolorscheme.palette=archivo.gpl) a la que se ajustan los colores
+    private final PaletteMapper brandPalette = PaletteMapper.fromProperties();
+    private final String brandPaletteLabel = brandPalette == null ? null
+            : "Ajustar a la paleta (" + brandPalette.size() + " colores)";
+
+    // Textos de los paneles; se vuelven a formatear solo cuando cambian sus valores
+    private final StatsLabel captureLabel = new StatsLabel("Captura: %d cuadros (%d escritos), cola %d (máx. %d)", 4);
+    private final StatsLabel captureDropLabel = new StatsLabel("Descartados: %d por cola llena, %d por presupuesto, %d por tamaño; %.3f ms/cuadro", 4);
+    private final StatsLabel historyLabel = new StatsLabel("%d pasos (%d para rehacer), %.1f de %d MB", 4);
+    private final StatsLabel applyingLabel = new StatsLabel("Aplicando a %d figuras...", 1);
+    private final StatsLabel simulationLabel = new StatsLabel("Simulación: paso %d, %d animaciones, %.3f ms por publicación", 3);
+    private final StatsLabel snapshotLabel = new StatsLabel("Instantáneas: %d publicadas, %d sin leer; %d pasos descartados", 3);
+    private final StatsLabel framesLabel = new StatsLabel("Cuadros dibujados: %d, esperas sin dibujar: %d", 2);
+    private final StatsLabel damageLabel = new StatsLabel("Último cuadro: %d regiones, %.1f%% de la ventana", 2);
+    private final StatsLabel cpuLabel = new StatsLabel("CPU del proceso: %.1f%% de un núcleo", 1);
+    private final StatsLabel powerLabel = new StatsLabel("Potencia del paquete (RAPL): %.1f W", 1);
+    private final StatsLabel frameTimeLabel = new StatsLabel("%.2f ms/cuadro (%.0f fps)", 2);
+    private final StatsLabel cpuSectionsLabel = new StatsLabel("CPU (ms, prom. 60): actualizar %.3f  figuras %.3f  ImGui %.3f  swap %.3f", 4);
+    private final StatsLabel gpuLabel = new StatsLabel("GPU figuras: %.3f ms", 1);
+    private final StatsLabel lastFrameLabel = new StatsLabel("Último cuadro: %d llamadas de dibujo, %d vértices, %d bytes asignados", 3);
 
     public void run() {
         try {
             init();
             loop();
+            saveScene();
+            // Se cierra aquí y no en finally para que un error del codificador termine el
+            // programa con ese error en lugar de perderse
+            FrameCapture finished = capture;
+            capture = null;
+            if (finished != null) {
+                finished.close();
+            }
         } finally {
             // Liberar recursos
+            if (watcher != null) {
+                watcher.stop();
+            }
+            if (simulation != null) {
+                simulation.close();
+            }
+            if (profiler != null) {
+                profiler.dispose();
+            }
+            if (sceneTarget != null) {
+                sceneTarget.dispose();
+            }
+            if (capture != null) {
+                capture.close();
+            }
+            if (renderer != null) {
+                renderer.dispose();
+            }
             imGuiGl3.dispose();
             imGuiGlfw.dispose();
             ImGui.destroyContext();
@@ -56,6 +230,13 @@ public class FigurasColoresOpenGL {
         GLFW.glfwDefaultWindowHints();
         GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
         GLFW.glfwWindowHint(GLFW.GLFW_RESIZABLE, GLFW.GLFW_TRUE);
+        if (!legacyRenderer) {
+            // El renderizador por lotes usa un contexto core 3.3 (también disponible en Mesa llvmpipe)
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+        }
     
         // Crear la ventana
         window = GLFW.glfwCreateWindow(width, height, "Esquemas de colores aplicado a figuras", MemoryUtil.NULL, MemoryUtil.NULL);
@@ -67,8 +248,10 @@ public class FigurasColoresOpenGL {
         GLFWVidMode vidMode = GLFW.glfwGetVideoMode(GLFW.glfwGetPrimaryMonitor());
         GLFW.glfwSetWindowPos(window, (vidMode.width() - width) / 2, (vidMode.height() - height) / 2);
     
-        // Maximizar la ventana
-        GLFW.glfwMaximizeWindow(window);
+        // Maximizar la ventana (al capturar se conserva el tamaño inicial, que es el de los cuadros)
+        if (System.getProperty("colorscheme.capture") == null) {
+            GLFW.glfwMaximizeWindow(window);
+        }
     
         // Configurar callbacks
         GLFW.glfwSetFramebufferSizeCallback(window, new GLFWFramebufferSizeCallback() {
@@ -77,6 +260,7 @@ public class FigurasColoresOpenGL {
                 FigurasColoresOpenGL.this.width = width;
                 FigurasColoresOpenGL.this.height = height;
                 GL30.glViewport(0, 0, width, height);
+                requestFrames();
             }
         });
     
@@ -86,20 +270,49 @@ public class FigurasColoresOpenGL {
                 if (key == GLFW.GLFW_KEY_ESCAPE && action == GLFW.GLFW_RELEASE) {
                     GLFW.glfwSetWindowShouldClose(window, true);
                 }
+                boolean ctrl = (mods & GLFW.GLFW_MOD_CONTROL) != 0;
+                if (ctrl && action != GLFW.GLFW_RELEASE && !ImGui.getIO().getWantTextInput()) {
+                    boolean shift = (mods & GLFW.GLFW_MOD_SHIFT) != 0;
+                    if (key == GLFW.GLFW_KEY_Z && !shift) {
+                        journal.undo();
+                    } else if (key == GLFW.GLFW_KEY_Y || key == GLFW.GLFW_KEY_Z) {
+                        journal.redo();
+                    }
+                }
+                requestFrames();
             }
         });
     
         GLFW.glfwSetMouseButtonCallback(window, new GLFWMouseButtonCallback() {
             @Override
             public void invoke(long window, int button, int action, int mods) {
-                if (button == GLFW.GLFW_MOUSE_BUTTON_LEFT && action == GLFW.GLFW_PRESS) {
+                if (button == GLFW.GLFW_MOUSE_BUTTON_LEFT) {
                     double[] xPos = new double[1];
                     double[] yPos = new double[1];
                     GLFW.glfwGetCursorPos(window, xPos, yPos);
-                    selectFigure((float) xPos[0], (float) yPos[0]);
+                    boolean shift = (mods & GLFW.GLFW_MOD_SHIFT) != 0;
+                    if (action == GLFW.GLFW_PRESS && !ImGui.getIO().getWantCaptureMouse()) {
+                        beginDrag((float) xPos[0], (float) yPos[0], shift);
+                    } else if (action == GLFW.GLFW_RELEASE && dragging) {
+                        endDrag((float) xPos[0], (float) yPos[0], shift);
+                    }
                 }
+                requestFrames();
             }
         });
+
+        // Cualquier otra entrada también obliga a dibujar (ImGui encadena estas funciones)
+        GLFW.glfwSetCursorPosCallback(window, (w, x, y) -> {
+            if (dragging) {
+                dragTo((float) x, (float) y);
+            }
+            requestFrames();
+        });
+        GLFW.glfwSetScrollCallback(window, (w, dx, dy) -> requestFrames());
+        GLFW.glfwSetCharCallback(window, (w, codepoint) -> requestFrames());
+        GLFW.glfwSetCursorEnterCallback(window, (w, entered) -> requestFrames());
+        GLFW.glfwSetWindowFocusCallback(window, (w, focused) -> requestFrames());
+        GLFW.glfwSetWindowRefreshCallback(window, w -> requestFrames());
     
         // Hacer la ventana visible
         GLFW.glfwShowWindow(window);
@@ -108,14 +321,24 @@ public class FigurasColoresOpenGL {
         GLFW.glfwMakeContextCurrent(window);
         GL.createCapabilities();
     
-        // Habilitar VSync
-        GLFW.glfwSwapInterval(1);
+        // Sincronización vertical
+        setVsync(vsyncMode);
     
         // Configurar el viewport
         GL30.glViewport(0, 0, width, height);
     
         // Establecer el color de fondo (blanco)
         GL30.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
+
+        if ("instanced".equals(rendererMode)) {
+            renderer = new InstancedRenderer(colorGrade);
+        } else if (legacyRenderer) {
+            renderer = new LegacyRenderer();
+        } else {
+            renderer = new BatchRenderer(colorGrade);
+        }
+        startCapture();
+        startProfiler();
     
         // Inicializar ImGui
         // Inicializar ImGui
@@ -124,43 +347,92 @@ ImGuiIO io = ImGui.getIO();
 io.addConfigFlags(ImGuiConfigFlags.NavEnableKeyboard); // Habilitar navegación con teclado
 imGuiGlfw.init(window, true);
 imGuiGl3.init("#version 330");
-        // Crear figuras
-        
-            // Inicializar GLFW y crear la ventana (código existente)
-        
-            // Crear figuras
-            figures.add(new Figure("Rectángulo", new float[]{-0.8f, -0.8f, 0.4f, 0.4f}, new float[]{0.0f, 0.0f, 0.0f}));
-            figures.add(new Figure("Círculo", new float[]{0.0f, 0.0f, 0.2f}, new float[]{0.0f, 0.0f, 0.0f}));
-            figures.add(new Figure("Triángulo", new float[]{0.4f, -0.8f, 0.4f, -0.4f, 0.8f, -0.8f}, new float[]{0.0f, 0.0f, 0.0f}));
-        
-           // Pentágono (5 vértices)
-    float[] pentagonVertices = new float[10];
-    float pentagonRadius = 0.2f;
-    float pentagonCenterX = -0.5f; // Mover el pentágono a la izquierda
-    float pentagonCenterY = 0.5f;  // Mover el pentágono hacia arriba
-    for (int i = 0; i < 5; i++) {
-        double angle = 2 * Math.PI * i / 5;
-        pentagonVertices[2 * i] = pentagonCenterX + (float) (Math.cos(angle) * pentagonRadius);
-        pentagonVertices[2 * i + 1] = pentagonCenterY + (float) (Math.sin(angle) * pentagonRadius);
-    }
-    figures.add(new Figure("Pentágono", pentagonVertices, new float[]{0.0f, 0.0f, 0.0f}));
-
-    // Hexágono (6 vértices)
-    float[] hexagonVertices = new float[12];
-    float hexagonRadius = 0.2f;
-    float hexagonCenterX = 0.5f; // Mover el hexágono a la derecha
-    float hexagonCenterY = 0.5f; // Mover el hexágono hacia arriba
-    for (int i = 0; i < 6; i++) {
-        double angle = 2 * Math.PI * i / 6;
-        hexagonVertices[2 * i] = hexagonCenterX + (float) (Math.cos(angle) * hexagonRadius);
-        hexagonVertices[2 * i + 1] = hexagonCenterY + (float) (Math.sin(angle) * hexagonRadius);
-    }
-    figures.add(new Figure("Hexágono", hexagonVertices, new float[]{0.0f, 0.0f, 0.0f}));}
+        // Crear figuras (escena de estrés opcional con -Dcolorscheme.stress=N); si no, se abre la
+        // escena guardada o, la primera vez, la escena predeterminada
+        int stressCount = Integer.getInteger("colorscheme.stress", 0);
+        if (stressCount > 0) {
+            figures = SceneFactory.stressScene(stressCount, 42L, offHeap);
+        } else if (Files.exists(scenePath)) {
+            try {
+                figures = SceneFile.readAll(scenePath, offHeap);
+                if (watchScene) {
+                    startWatcher();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo abrir la escena " + scenePath + ": " + e.getMessage());
+                figures = SceneFactory.defaultScene();
+            }
+        } else {
+            figures = SceneFactory.defaultScene();
+        }
+        pickIndex.insertAll(figures);
+        selection = new Selection(figures);
+        outliner = new Outliner(figures, selection);
+        journal = new EditJournal(figures, Long.getLong("colorscheme.undo.budget", 64L) << 20);
+
+        simulation = new Simulation(Integer.getInteger("colorscheme.tickrate", 120));
+        if (Boolean.getBoolean("colorscheme.animate")) {
+            Random random = new Random(7L);
+            Simulation.Animation spin = new Simulation.Animation();
+            for (Figure figure : figures) {
+                spin.spin = random.nextFloat() * 180.0f - 90.0f;
+                simulation.animate(figure, spin);
+            }
+        }
+        simulation.start();
+    }
+
+    // "on" espera al refresco, "off" no espera y "adaptive" espera salvo que el cuadro llegue
+    // tarde (si el controlador no lo soporta se usa "on")
+    private void setVsync(String mode) {
+        int interval;
+        if ("off".equals(mode)) {
+            interval = 0;
+        } else if ("adaptive".equals(mode)) {
+            boolean tear = GLFW.glfwExtensionSupported("WGL_EXT_swap_control_tear")
+                    || GLFW.glfwExtensionSupported("GLX_EXT_swap_control_tear");
+            if (!tear) {
+                System.err.println("VSync adaptativo no disponible; se usa VSync normal");
+            }
+            interval = tear ? -1 : 1;
+        } else {
+            interval = 1;
+        }
+        GLFW.glfwSwapInterval(interval);
+        vsyncMode = mode;
+    }
 
     private void loop() {
         // Bucle principal
         while (!GLFW.glfwWindowShouldClose(window)) {
             try {
+                if (usage.sample()) {
+                    requestFrames(1); // Para mostrar la medición nueva
+                }
+                if (idleMode.get() && !needsFrame()) {
+                    // Nada que mostrar: esperar eventos sin dibujar
+                    idleWaits++;
+                    GLFW.glfwWaitEventsTimeout(IDLE_TIMEOUT);
+                    continue;
+                }
+                if (pendingFrames > 0) {
+                    pendingFrames--;
+                }
+                renderedFrames++;
+
+                profiler.beginFrame();
+
+                // Aplicar los resultados que dejaron otros hilos
+                profiler.begin(FrameProfiler.UPDATE);
+                runRenderThreadTasks();
+
+                // Tomar el último estado de la simulación (si hay uno nuevo)
+                Simulation.Snapshot snapshot = simulation.acquire();
+                if (snapshot != null) {
+                    snapshot.applyTo();
+                }
+                profiler.end(FrameProfiler.UPDATE);
+
                 // Limpiar el buffer de color
                 GL30.glClear(GL30.GL_COLOR_BUFFER_BIT | GL30.GL_DEPTH_BUFFER_BIT);
 
@@ -169,34 +441,204 @@ imGuiGl3.init("#version 330");
                 ImGui.newFrame();
 
                 // Dibujar las figuras
+                profiler.begin(FrameProfiler.DRAW);
+                profiler.beginGpu();
                 drawFigures();
+                profiler.endGpu();
+                profiler.end(FrameProfiler.DRAW);
+
+                // Capturar la escena (sin la interfaz) de forma asíncrona
+                if (capture != null) {
+                    capture.capture(width, height);
+                }
 
                 // Dibujar la interfaz de ImGui
+                profiler.begin(FrameProfiler.IMGUI);
                 drawImGui();
+                outliner.draw();
 
                 // Renderizar ImGui
                 ImGui.render();
                 imGuiGl3.renderDrawData(ImGui.getDrawData());
+                profiler.end(FrameProfiler.IMGUI);
 
                 // Intercambiar los buffers
+                profiler.begin(FrameProfiler.SWAP);
                 GLFW.glfwSwapBuffers(window);
+                if (shownReload != null) {
+                    reportReload();
+                }
 
                 // Poll de eventos
                 GLFW.glfwPollEvents();
+                profiler.end(FrameProfiler.SWAP);
+                profiler.endFrame();
             } catch (Exception e) {
                 e.printStackTrace();
                 break; // Salir del bucle si ocurre un error
             }
         }
+        if (idleStats) {
+            System.err.printf("Cuadros dibujados: %d, esperas sin dibujar: %d, CPU media: %.1f%% de un núcleo%n",
+                    renderedFrames, idleWaits, usage.getAverageCpuPercent());
+        }
+    }
+
+    // Después de un evento se dibujan unos cuadros más para que ImGui termine de reaccionar
+    private void requestFrames() {
+        requestFrames(SETTLE_FRAMES);
+    }
+
+    private void requestFrames(int frames) {
+        pendingFrames = Math.max(pendingFrames, frames);
+    }
+
+    private boolean needsFrame() {
+        return pendingFrames > 0
+                || figures.changeCount() != renderedChanges
+                || colorGrade.version() != renderedGrade
+                || !renderThreadTasks.isEmpty()
+                || simulation.getAnimationCount() > 0
+                || capture != null;
+    }
+
+    // Para otros hilos: deja la tarea y despierta al hilo de render si está esperando eventos
+    private void postToRenderThread(Runnable task) {
+        renderThreadTasks.add(task);
+        GLFW.glfwPostEmptyEvent();
+    }
+
+    // Propiedades de la captura:
+    //   colorscheme.capture=raw|png|y4m    formato (sin la propiedad no se captura)
+    //   colorscheme.capture.output=...     archivo (raw, y4m) o directorio (png); "captura" por omisión
+    //   colorscheme.capture.budget=ms      costo máximo por cuadro en el hilo de render (1.0)
+    //   colorscheme.capture.fps=N          cuadros por segundo declarados en el video (60)
+    // Se captura al tamaño inicial del framebuffer (la ventana no se maximiza); si la ventana
+    // cambia de tamaño los cuadros se descartan.
+    private void startCapture() {
+        String format = System.getProperty("colorscheme.capture");
+        if (format == null) {
+            return;
+        }
+        int[] fbWidth = new int[1];
+        int[] fbHeight = new int[1];
+        GLFW.glfwGetFramebufferSize(window, fbWidth, fbHeight);
+        width = fbWidth[0];
+        height = fbHeight[0];
+        GL30.glViewport(0, 0, width, height);
+
+        FrameCapture.Format captureFormat = FrameCapture.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        String output = System.getProperty("colorscheme.capture.output",
+                captureFormat == FrameCapture.Format.PNG ? "captura" : "captura." + format.toLowerCase(Locale.ROOT));
+        double budget = Double.parseDouble(System.getProperty("colorscheme.capture.budget", "1.0"));
+        int fps = Integer.getInteger("colorscheme.capture.fps", 60);
+        try {
+            capture = new FrameCapture(width, height, captureFormat, new File(output), budget, fps);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo iniciar la captura en " + output, e);
+        }
+    }
+
+    private void startProfiler() {
+        profiler = new FrameProfiler();
+        String output = System.getProperty("colorscheme.profile.output");
+        if (output != null) {
+            try {
+                profiler.streamTo(Paths.get(output));
+            } catch (IOException e) {
+                throw new RuntimeException("No se pudo abrir el archivo de perfil " + output, e);
+            }
+        }
+        profilerEnabled.set(output != null || Boolean.getBoolean("colorscheme.profile"));
+        profiler.setEnabled(profilerEnabled.get());
+    }
+
+    private void startWatcher() throws IOException {
+        // El vigilante compara contra su propia copia del archivo: la escena viva cambia con la
+        // interfaz y solo se toca en este hilo
+        watcher = new SceneWatcher(scenePath, SceneFile.readAll(scenePath, false),
+                reload -> postToRenderThread(() -> applyReload(reload)));
+        watcher.start();
+    }
+
+    private void applyReload(SceneWatcher.Reload reload) {
+        reloadStart = System.nanoTime();
+        reload.diff.apply(figures, pickIndex);
+        reloadApplied = System.nanoTime();
+        shownReload = reload;
+    }
+
+    // Se llama después de presentar el cuadro que ya incluye la recarga
+    private void reportReload() {
+        SceneWatcher.Reload reload = shownReload;
+        shownReload = null;
+        long shown = System.nanoTime();
+        System.err.printf("Recarga de %s: +%d -%d ~%d figuras; %.1f ms hasta el cuadro "
+                        + "(lectura %.1f, diferencias %.1f, espera %.1f, aplicar %.1f, cuadro %.1f)%n",
+                scenePath, reload.diff.addedCount(), reload.diff.removedCount(), reload.diff.modifiedCount(),
+                (shown - reload.detected) / 1e6, (reload.parsed - reload.detected) / 1e6,
+                (reload.diffed - reload.parsed) / 1e6, (reloadStart - reload.diffed) / 1e6,
+                (reloadApplied - reloadStart) / 1e6, (shown - reloadApplied) / 1e6);
+    }
+
+    private void saveScene() {
+        if (watchScene) {
+            return;
+        }
+        if (Integer.getInteger("colorscheme.stress", 0) > 0) {
+            return;
+        }
+        try {
+            SceneFile.write(scenePath, figures);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la escena en " + scenePath + ": " + e.getMessage());
+        }
+    }
+
+    private void runRenderThreadTasks() {
+        Runnable task;
+        while ((task = renderThreadTasks.poll()) != null) {
+            task.run();
+        }
     }
 
     private void drawFigures() {
-        for (Figure figure : figures) {
-            figure.draw();
-            if (figure == selectedFigure) {
-                figure.drawBorder(); // Dibujar borde si está seleccionada
+        renderedChanges = figures.changeCount();
+        boolean gradeChanged = colorGrade.version() != renderedGrade;
+        renderedGrade = colorGrade.version();
+        if (!damageMode.get()) {
+            if (sceneTarget != null) {
+                sceneTarget.dispose();
+                sceneTarget = null;
+            }
+            renderer.render(figures, selection.primary());
+            return;
+        }
+
+        // Escena persistente: solo se redibujan (con tijera) las regiones dañadas y se copia entera
+        if (sceneTarget == null || sceneTarget.getWidth() != width || sceneTarget.getHeight() != height) {
+            if (sceneTarget != null) {
+                sceneTarget.dispose();
             }
+            sceneTarget = new OffscreenTarget(width, height);
+            damage.invalidateAll();
+        }
+        // El ajuste de la escena cambia el color de todo sin cambiar ninguna figura
+        if (gradeChanged) {
+            damage.invalidateAll();
+        }
+        // Una sola pasada con la tijera en la caja de todas las regiones dañadas
+        if (damage.collect(figures, selection.primary(), width, height)) {
+            sceneTarget.bind();
+            GL30.glEnable(GL30.GL_SCISSOR_TEST);
+            GL30.glScissor(damage.x(0), damage.y(0), damage.width(0), damage.height(0));
+            GL30.glClear(GL30.GL_COLOR_BUFFER_BIT);
+            renderer.render(figures, selection.primary());
+            GL30.glDisable(GL30.GL_SCISSOR_TEST);
+            sceneTarget.unbind();
+            GL30.glViewport(0, 0, width, height);
         }
+        sceneTarget.blitToDefault();
     }
 
     private void drawImGui() {
@@ -205,144 +647,27 @@ imGuiGl3.init("#version 330");
         ImGui.begin("Paleta de colores y perfiles");
     
         // Mostrar la paleta de colores RGB solo si hay una figura seleccionada
+        drawSelection();
+        Figure selectedFigure = selection.primary();
         if (selectedFigure != null) {
-            float[] color = selectedFigure.getColor();
-    
-            // Paleta de colores RGB
-            ImGui.text("Paleta de colores RGB:");
-            if (ImGui.colorPicker3("Color RGB", color)) {
-                selectedFigure.setColor(color); // Actualizar el color de la figura
-            }
-    
-            // Separador visual
-            ImGui.separator();
-    
-            // Mostrar barras de desplazamiento para el perfil seleccionado
-            ImGui.text("Perfil de color seleccionado: " + selectedScheme);
-            switch (selectedScheme) {
-                case "RGB":
-                    // Barras de desplazamiento para RGB
-                    float[] red = {color[0]}; // Usar un array para almacenar el valor del slider
-                    float[] green = {color[1]};
-                    float[] blue = {color[2]};
-    
-                    if (ImGui.sliderFloat("Rojo", red, 0, 1, "%.2f", 0)) {
-                        color[0] = red[0]; // Actualizar el componente rojo
-                        selectedFigure.setColor(color);
-                    }
-                    if (ImGui.sliderFloat("Verde", green, 0, 1, "%.2f", 0)) {
-                        color[1] = green[0]; // Actualizar el componente verde
-                        selectedFigure.setColor(color);
-                    }
-                    if (ImGui.sliderFloat("Azul", blue, 0, 1, "%.2f", 0)) {
-                        color[2] = blue[0]; // Actualizar el componente azul
-                        selectedFigure.setColor(color);
-                    }
-                    break;
-    
-                case "CMYK":
-                    // Convertir RGB a CMYK
-                    float[] cmyk = rgbToCmyk(color);
-                    float[] cyan = {cmyk[0]};
-                    float[] magenta = {cmyk[1]};
-                    float[] yellow = {cmyk[2]};
-                    float[] black = {cmyk[3]};
-    
-                    if (ImGui.sliderFloat("Cian", cyan, 0, 1, "%.2f", 0)) {
-                        cmyk[0] = cyan[0]; // Actualizar solo el componente Cian
-                        selectedFigure.setColor(cmykToRgb(new float[]{cmyk[0], magenta[0], yellow[0], black[0]}));
-                    }
-                    if (ImGui.sliderFloat("Magenta", magenta, 0, 1, "%.2f", 0)) {
-                        cmyk[1] = magenta[0]; // Actualizar solo el componente Magenta
-                        selectedFigure.setColor(cmykToRgb(new float[]{cyan[0], cmyk[1], yellow[0], black[0]}));
-                    }
-                    if (ImGui.sliderFloat("Amarillo", yellow, 0, 1, "%.2f", 0)) {
-                        cmyk[2] = yellow[0]; // Actualizar solo el componente Amarillo
-                        selectedFigure.setColor(cmykToRgb(new float[]{cyan[0], magenta[0], cmyk[2], black[0]}));
-                    }
-                    if (ImGui.sliderFloat("Negro", black, 0, 1, "%.2f", 0)) {
-                        cmyk[3] = black[0]; // Actualizar solo el componente Negro
-                        selectedFigure.setColor(cmykToRgb(new float[]{cyan[0], magenta[0], yellow[0], cmyk[3]}));
-                    }
-                    break;
-    
-                case "HSL":
-                    // Convertir RGB a HSL
-                    float[] hsl = rgbToHsl(color);
-                    float[] hue = {hsl[0]};
-                    float[] saturation = {hsl[1]};
-                    float[] lightness = {hsl[2]};
-    
-                    if (ImGui.sliderFloat("Tono (H)", hue, 0, 1, "%.2f", 0)) {
-                        hsl[0] = hue[0];
-                        selectedFigure.setColor(hslToRgb(new float[]{hsl[0], hsl[1], hsl[2]}));
-                    }
-                    if (ImGui.sliderFloat("Saturación (S)", saturation, 0, 1, "%.2f", 0)) {
-                        hsl[1] = saturation[0];
-                        selectedFigure.setColor(hslToRgb(new float[]{hsl[0], hsl[1], hsl[2]}));
-                    }
-                    if (ImGui.sliderFloat("Luminosidad (L)", lightness, 0, 1, "%.2f", 0)) {
-                        hsl[2] = lightness[0];
-                        selectedFigure.setColor(hslToRgb(new float[]{hsl[0], hsl[1], hsl[2]}));
-                    }
-                    break;
-    
-                case "HSV":
-                    // Convertir RGB a HSV
-                    float[] hsv = rgbToHsv(color);
-                    float[] h = {hsv[0]};
-                    float[] s = {hsv[1]};
-                    float[] v = {hsv[2]};
-    
-                    if (ImGui.sliderFloat("Tono (H)", h, 0, 1, "%.2f", 0)) {
-                        hsv[0] = h[0];
-                        selectedFigure.setColor(hsvToRgb(new float[]{hsv[0], hsv[1], hsv[2]}));
-                    }
-                    if (ImGui.sliderFloat("Saturación (S)", s, 0, 1, "%.2f", 0)) {
-                        hsv[1] = s[0];
-                        selectedFigure.setColor(hsvToRgb(new float[]{hsv[0], hsv[1], hsv[2]}));
-                    }
-                    if (ImGui.sliderFloat("Valor (V)", v, 0, 1, "%.2f", 0)) {
-                        hsv[2] = v[0];
-                        selectedFigure.setColor(hsvToRgb(new float[]{hsv[0], hsv[1], hsv[2]}));
-                    }
-                    break;
+            // Los grupos plegados no construyen sus controles
+            if (ImGui.collapsingHeader("Color", ImGuiTreeNodeFlags.DefaultOpen)) {
+                drawColor(selectedFigure);
             }
-    
-            // Separador visual
-            ImGui.separator();
-    
-            // Controles para transformaciones
-            ImGui.text("Transformaciones:");
-            float[] rotation = {selectedFigure.getRotation()};
-            if (ImGui.sliderFloat("Rotación", rotation, -360.0f, 360.0f, "%.2f", 0)) {
-                selectedFigure.setRotation(rotation[0]);
+            if (ImGui.collapsingHeader("Ajuste de color de la figura")) {
+                drawFigureGrade(selectedFigure);
             }
-    
-            float[] biasX = {selectedFigure.getBiasX()};
-            float[] biasY = {selectedFigure.getBiasY()};
-            if (ImGui.sliderFloat("Sesgado X", biasX, -1.0f, 1.0f, "%.2f", 0)) {
-                selectedFigure.setBiasX(biasX[0]);
+            if (ImGui.collapsingHeader("Transformaciones", ImGuiTreeNodeFlags.DefaultOpen)) {
+                transformSlider("Rotación", FigureStore.ROTATION, -360.0f, 360.0f);
+                transformSlider("Sesgado X", FigureStore.BIAS_X, -1.0f, 1.0f);
+                transformSlider("Sesgado Y", FigureStore.BIAS_Y, -1.0f, 1.0f);
+                transformSlider("Traslación X", FigureStore.TRANSLATE_X, -1.0f, 1.0f);
+                transformSlider("Traslación Y", FigureStore.TRANSLATE_Y, -1.0f, 1.0f);
+                transformSlider("Escala X", FigureStore.SCALE_X, 0.1f, 2.0f);
+                transformSlider("Escala Y", FigureStore.SCALE_Y, 0.1f, 2.0f);
             }
-            if (ImGui.sliderFloat("Sesgado Y", biasY, -1.0f, 1.0f, "%.2f", 0)) {
-                selectedFigure.setBiasY(biasY[0]);
-            }
-            float[] translateX = {selectedFigure.getTranslateX()};
-            float[] translateY = {selectedFigure.getTranslateY()};
-            if (ImGui.sliderFloat("Traslación X", translateX, -1.0f, 1.0f, "%.2f", 0)) {
-                selectedFigure.setTranslateX(translateX[0]);
-            }
-            if (ImGui.sliderFloat("Traslación Y", translateY, -1.0f, 1.0f, "%.2f", 0)) {
-                selectedFigure.setTranslateY(translateY[0]);
-            }
-    
-            float[] scaleX = {selectedFigure.getScaleX()};
-            float[] scaleY = {selectedFigure.getScaleY()};
-            if (ImGui.sliderFloat("Escala X", scaleX, 0.1f, 2.0f, "%.2f", 0)) {
-                selectedFigure.setScaleX(scaleX[0]);
-            }
-            if (ImGui.sliderFloat("Escala Y", scaleY, 0.1f, 2.0f, "%.2f", 0)) {
-                selectedFigure.setScaleY(scaleY[0]);
+            if (ImGui.collapsingHeader("Animación")) {
+                drawAnimation();
             }
         }
     
@@ -350,469 +675,483 @@ imGuiGl3.init("#version 330");
         ImGui.separator();
         ImGui.text("Seleccionar perfil de color:");
         if (ImGui.button("RGB")) {
-            selectedScheme = "RGB";
+            setScheme("RGB");
         }
         if (ImGui.button("CMYK")) {
-            selectedScheme = "CMYK";
+            setScheme("CMYK");
         }
         if (ImGui.button("HSL")) {
-            selectedScheme = "HSL";
+            setScheme("HSL");
         }
         if (ImGui.button("HSV")) {
-            selectedScheme = "HSV";
+            setScheme("HSV");
+        }
+
+        drawPaletteTransform();
+        drawHistory();
+        drawTiming();
+        drawProfiler();
+        drawIdleStats();
+
+        if (capture != null) {
+            ImGui.separator();
+            ImGui.textUnformatted(captureLabel.set(0, capture.getCaptured()).set(1, capture.getEncoded())
+                    .set(2, capture.getQueueDepth()).set(3, capture.getMaxQueueDepth()).text());
+            ImGui.textUnformatted(captureDropLabel.set(0, capture.getDroppedQueue()).set(1, capture.getDroppedBudget())
+                    .set(2, capture.getDroppedResize()).set(3, capture.getAverageCostMillis()).text());
+            if (capture.getFailure() != null) {
+                if (captureError == null) {
+                    captureError = "Captura detenida: " + capture.getFailure().getMessage();
+                }
+                ImGui.textUnformatted(captureError);
+            }
         }
     
         ImGui.end();
-    }
-    // Métodos de conversión de color (simplificados)
-    private float[] rgbToCmyk(float[] rgb) {
-        float r = rgb[0], g = rgb[1], b = rgb[2];
-        float k = 1 - Math.max(r, Math.max(g, b));
-        float c = (1 - r - k) / (1 - k);
-        float m = (1 - g - k) / (1 - k);
-        float y = (1 - b - k) / (1 - k);
-        return new float[]{c, m, y, k};
-    }
 
-    private float[] cmykToRgb(float[] cmyk) {
-        float c = cmyk[0], m = cmyk[1], y = cmyk[2], k = cmyk[3];
-        float r = (1 - c) * (1 - k);
-        float g = (1 - m) * (1 - k);
-        float b = (1 - y) * (1 - k);
-        return new float[]{r, g, b};
+        // Soltar la barra (o el selector) termina el paso del historial
+        if (!ImGui.isAnyItemActive()) {
+            journal.close();
+        }
     }
 
-    private float[] rgbToHsl(float[] rgb) {
-        float r = rgb[0], g = rgb[1], b = rgb[2];
-        float max = Math.max(r, Math.max(g, b));
-        float min = Math.min(r, Math.min(g, b));
-        float h = 0, s = 0, l = (max + min) / 2;
-
-        if (max != min) {
-            float d = max - min;
-            s = l > 0.5f ? d / (2 - max - min) : d / (max + min);
-            if (max == r) {
-                h = (g - b) / d + (g < b ? 6 : 0);
-            } else if (max == g) {
-                h = (b - r) / d + 2;
-            } else if (max == b) {
-                h = (r - g) / d + 4;
-            }
-            h /= 6;
+    private void drawHistory() {
+        ImGui.separator();
+        if (ImGui.button("Deshacer")) {
+            journal.undo();
         }
-
-        return new float[]{h, s, l};
+        ImGui.sameLine();
+        if (ImGui.button("Rehacer")) {
+            journal.redo();
+        }
+        ImGui.sameLine();
+        ImGui.textUnformatted(historyLabel.set(0, journal.steps()).set(1, journal.redoSteps())
+                .set(2, journal.bytes() / (double) (1 << 20)).set(3, journal.budget() >> 20).text());
     }
 
-    private float[] hslToRgb(float[] hsl) {
-        float h = hsl[0], s = hsl[1], l = hsl[2];
-        float r, g, b;
+    // Transformación de la paleta de toda la escena. Mientras se mueven las barras la aplica el
+    // shader; al aplicarla se calcula en paralelo fuera del hilo de render y los colores nuevos
+    // se escriben todos juntos entre dos cuadros (el ajuste del shader vuelve a cero a la vez).
+    // Las barras quedan deshabilitadas mientras tanto: el ajuste que vuelve a cero es el que
+    // se está aplicando.
+    private void drawPaletteTransform() {
+        ImGui.separator();
+        ImGui.text("Transformación global de paleta:");
+        boolean applying = paletteJob != null && !paletteJob.isDone();
+        ImGui.beginDisabled(applying);
+        if (ImGui.radioButton("HSL", !paletteHsv)) {
+            paletteHsv = false;
+        }
+        ImGui.sameLine();
+        if (ImGui.radioButton("HSV", paletteHsv)) {
+            paletteHsv = true;
+        }
+        ImGui.sliderFloat("Desplazar tono", paletteHueShift, -180.0f, 180.0f, "%.0f", 0);
+        ImGui.sliderFloat("Escalar saturación", paletteSaturation, 0.0f, 2.0f, "%.2f", 0);
+        ImGui.sliderFloat(paletteHsv ? "Escalar valor" : "Escalar luminosidad", paletteLightness, 0.0f, 2.0f, "%.2f", 0);
+        ImGui.sliderFloat("Desaturar en CMYK", paletteCmykDesaturate, 0.0f, 1.0f, "%.2f", 0);
+        ImGui.sliderFloat4("Límite de tinta CMYK", paletteInkLimit, 0.0f, 1.0f, "%.2f", 0);
+        ImGui.endDisabled();
+        colorGrade.set(paletteHsv ? PaletteTransform.Space.HSV : PaletteTransform.Space.HSL,
+                paletteHueShift[0], paletteSaturation[0], paletteLightness[0], paletteCmykDesaturate[0]);
+        colorGrade.setInkLimit(paletteInkLimit[0], paletteInkLimit[1], paletteInkLimit[2], paletteInkLimit[3]);
+        if (legacyRenderer) {
+            ImGui.textDisabled("(sin vista previa con el renderizador legacy)");
+        }
 
-        if (s == 0) {
-            r = g = b = l; // Escala de grises
+        if (applying) {
+            ImGui.textUnformatted(applyingLabel.set(0, figures.size()).text());
         } else {
-            float q = l < 0.5f ? l * (1 + s) : l + s - l * s;
-            float p = 2 * l - q;
-            r = hueToRgb(p, q, h + 1 / 3f);
-            g = hueToRgb(p, q, h);
-            b = hueToRgb(p, q, h - 1 / 3f);
+            if (ImGui.button("Aplicar a toda la escena") && !colorGrade.isIdentity()) {
+                applyPaletteJob(colorGrade.toTransform(), this::resetPaletteTransform);
+            }
+            if (brandPalette != null && ImGui.button(brandPaletteLabel)) {
+                applyPaletteJob(new PaletteTransform(brandPalette.snap()), null);
+            }
+            if (paletteError != null) {
+                ImGui.textUnformatted(paletteError);
+            }
         }
-
-        return new float[]{r, g, b};
     }
 
-    private float hueToRgb(float p, float q, float t) {
-        if (t < 0) t += 1;
-        if (t > 1) t -= 1;
-        if (t < 1 / 6f) return p + (q - p) * 6 * t;
-        if (t < 1 / 2f) return q;
-        if (t < 2 / 3f) return p + (q - p) * (2 / 3f - t) * 6;
-        return p;
+    private void resetPaletteTransform() {
+        paletteHueShift[0] = 0.0f;
+        paletteSaturation[0] = 1.0f;
+        paletteLightness[0] = 1.0f;
+        paletteCmykDesaturate[0] = 0.0f;
+        Arrays.fill(paletteInkLimit, 1.0f);
+        colorGrade.reset();
     }
 
-    private float[] rgbToHsv(float[] rgb) {
-        float r = rgb[0], g = rgb[1], b = rgb[2];
-        float max = Math.max(r, Math.max(g, b));
-        float min = Math.min(r, Math.min(g, b));
-        float h = 0, s = 0, v = max;
-
-        float d = max - min;
-        s = max == 0 ? 0 : d / max;
+    // 'written' (puede ser null) se ejecuta en el hilo de render justo después de escribir
+    // los colores nuevos
+    private void applyPaletteJob(PaletteTransform transform, Runnable written) {
+        paletteError = null;
+        // Los colores nuevos se escriben todos juntos en el hilo de render: es un solo paso, que
+        // guarda solo las figuras que se escriben (las recoloreadas mientras tanto se quedan con
+        // su color nuevo). Si se agregaron o quitaron figuras el resultado ya no sirve y se
+        // vuelve a calcular sobre la escena actual.
+        paletteJob = transform.applyToScene(figures, ForkJoinPool.commonPool(), write -> postToRenderThread(() -> {
+            if (write.isStale()) {
+                applyPaletteJob(transform, written);
+                write.discard();
+                return;
+            }
+            journal.edit(PALETTE_EDIT, EditJournal.COLOR, write.slots(), write.count());
+            write.write();
+            journal.close();
+            if (written != null) {
+                written.run();
+            }
+        }));
+        paletteJob.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            System.err.println("No se pudieron aplicar los colores a la escena: " + message);
+            postToRenderThread(() -> paletteError = "No se pudieron aplicar los colores: " + message);
+            return null;
+        });
+    }
 
-        if (max != min) {
-            if (max == r) {
-                h = (g - b) / d + (g < b ? 6 : 0);
-            } else if (max == g) {
-                h = (b - r) / d + 2;
-            } else if (max == b) {
-                h = (r - g) / d + 4;
+    // Animación de la figura seleccionada; la avanza el hilo de simulación
+    private void drawAnimation() {
+        ImGui.separator();
+        ImGui.text("Animación:");
+        ImGui.sliderFloat("Giro (grados/s)", animationSpin, -360.0f, 360.0f, "%.0f", 0);
+        ImGui.sliderFloat2("Vaivén X/Y", animationAmplitude, 0.0f, 0.5f, "%.2f", 0);
+        ImGui.sliderFloat("Periodo (s)", animationPeriod, 0.1f, 10.0f, "%.1f", 0);
+        ImGui.checkbox("Transición de color", animationColorEnabled);
+        if (animationColorEnabled.get()) {
+            ImGui.colorEdit3("Color destino", animationColor);
+        }
+        if (ImGui.button("Animar")) {
+            animation.spin = animationSpin[0];
+            animation.amplitudeX = animationAmplitude[0];
+            animation.amplitudeY = animationAmplitude[1];
+            animation.period = animationPeriod[0];
+            animation.colorPeriod = animationPeriod[0];
+            animation.targetColor = animationColorEnabled.get() ? animationColor : null;
+            int[] slots = selection.slots();
+            for (int i = 0, n = selection.size(); i < n; i++) {
+                simulation.animate(figures.get(slots[i]), animation);
             }
-            h /= 6;
         }
+        ImGui.sameLine();
+        if (ImGui.button("Detener")) {
+            int[] slots = selection.slots();
+            for (int i = 0, n = selection.size(); i < n; i++) {
+                simulation.stop(figures.get(slots[i]));
+            }
+        }
+    }
 
-        return new float[]{h, s, v};
+    private void drawTiming() {
+        ImGui.separator();
+        ImGui.text("Sincronización vertical:");
+        if (ImGui.radioButton("Activa", "on".equals(vsyncMode))) {
+            setVsync("on");
+        }
+        ImGui.sameLine();
+        if (ImGui.radioButton("Desactivada", "off".equals(vsyncMode))) {
+            setVsync("off");
+        }
+        ImGui.sameLine();
+        if (ImGui.radioButton("Adaptativa", "adaptive".equals(vsyncMode))) {
+            setVsync("adaptive");
+        }
+        ImGui.textUnformatted(simulationLabel.set(0, simulation.getTick()).set(1, simulation.getAnimationCount())
+                .set(2, simulation.getAveragePublishMillis()).text());
+        ImGui.textUnformatted(snapshotLabel.set(0, simulation.getPublished()).set(1, simulation.getOverwritten())
+                .set(2, simulation.getDroppedSteps()).text());
+        if (ImGui.button("Detener todas las animaciones")) {
+            simulation.stopAll();
+        }
     }
 
-    private float[] hsvToRgb(float[] hsv) {
-        float h = hsv[0], s = hsv[1], v = hsv[2];
-        float r = 0, g = 0, b = 0;
+    private void drawColor(Figure selectedFigure) {
+        // Paleta de colores RGB
+        ImGui.text("Paleta de colores RGB:");
+        System.arraycopy(colorCache.get(selectedFigure, PaletteTransform.Space.RGB), 0, pickerColor, 0, 3);
+        if (ImGui.colorPicker3("Color RGB", pickerColor)) {
+            journal.edit("Color RGB", EditJournal.COLOR, selection.slots(), selection.size());
+            if (selection.size() > 1) {
+                figures.recolor(selection.slots(), selection.size(), new PaletteTransform(
+                        PaletteTransform.setComponent(PaletteTransform.Space.RGB, 0, pickerColor[0]),
+                        PaletteTransform.setComponent(PaletteTransform.Space.RGB, 1, pickerColor[1]),
+                        PaletteTransform.setComponent(PaletteTransform.Space.RGB, 2, pickerColor[2])));
+            }
+            colorCache.setRgb(selectedFigure, pickerColor); // Actualizar el color de la figura
+        }
 
-        int i = (int) (h * 6);
-        float f = h * 6 - i;
-        float p = v * (1 - s);
-        float q = v * (1 - f * s);
-        float t = v * (1 - (1 - f) * s);
+        // Separador visual
+        ImGui.separator();
 
-        switch (i % 6) {
-            case 0:
-                r = v;
-                g = t;
-                b = p;
+        // Mostrar barras de desplazamiento para el perfil seleccionado
+        ImGui.text(schemeLabel);
+        switch (selectedScheme) {
+            case "RGB":
+                drawColorSliders(PaletteTransform.Space.RGB, RGB_LABELS);
                 break;
-            case 1:
-                r = q;
-                g = v;
-                b = p;
+            case "CMYK":
+                drawColorSliders(PaletteTransform.Space.CMYK, CMYK_LABELS);
                 break;
-            case 2:
-                r = p;
-                g = v;
-                b = t;
+            case "HSL":
+                drawColorSliders(PaletteTransform.Space.HSL, HSL_LABELS);
                 break;
-            case 3:
-                r = p;
-                g = q;
-                b = v;
-                break;
-            case 4:
-                r = t;
-                g = p;
-                b = v;
-                break;
-            case 5:
-                r = v;
-                g = p;
-                b = q;
+            case "HSV":
+                drawColorSliders(PaletteTransform.Space.HSV, HSV_LABELS);
                 break;
         }
+    }
 
-        return new float[]{r, g, b};
+    private void setScheme(String scheme) {
+        if (!scheme.equals(selectedScheme)) {
+            selectedScheme = scheme;
+            schemeLabel = "Perfil de color seleccionado: " + scheme;
+            requestFrames();
+        }
     }
 
-    private void selectFigure(float x, float y) {
-        // Convertir coordenadas de pantalla a coordenadas de OpenGL
-        float glX = (x / width) * 2 - 1;
-        float glY = 1 - (y / height) * 2;
+    // Una barra por componente del espacio, con los valores del caché de color
+    private void drawColorSliders(PaletteTransform.Space space, String[] labels) {
+        Figure selectedFigure = selection.primary();
+        float[] components = colorCache.get(selectedFigure, space);
+        for (int i = 0; i < labels.length; i++) {
+            if (slider(labels[i], components[i], 0.0f, 1.0f)) {
+                journal.edit(labels[i], EditJournal.COLOR, selection.slots(), selection.size());
+                if (selection.size() > 1) {
+                    // Se fija el componente en toda la selección; la principal pasa después por
+                    // el caché para conservar sus componentes sin error de ida y vuelta
+                    System.arraycopy(components, 0, sliderColor, 0, labels.length);
+                    sliderColor[i] = sliderValue[0];
+                    figures.recolor(selection.slots(), selection.size(),
+                            new PaletteTransform(PaletteTransform.setComponent(space, i, sliderValue[0])));
+                    colorCache.setAll(selectedFigure, space, sliderColor);
+                    components = colorCache.get(selectedFigure, space);
+                } else {
+                    colorCache.set(selectedFigure, space, i, sliderValue[0]);
+                }
+            }
+        }
+    }
 
-        for (Figure figure : figures) {
-            if (figure.contains(glX, glY)) {
-                selectedFigure = figure;
-                break;
+    // Barra de un valor de la transformación; con varias figuras seleccionadas, el cambio de la
+    // principal se suma a todas en una sola pasada en paralelo
+    private void transformSlider(String label, int column, float min, float max) {
+        Figure selectedFigure = selection.primary();
+        float old = figures.get(column, selectedFigure.slot);
+        if (slider(label, old, min, max)) {
+            journal.edit(label, EditJournal.field(column), selection.slots(), selection.size());
+            if (selection.size() > 1) {
+                figures.offsetTransformValue(column, selection.slots(), selection.size(), sliderValue[0] - old);
+            } else {
+                figures.setTransformValue(column, selectedFigure.slot, sliderValue[0]);
             }
         }
     }
 
-    public static void main(String[] args) {
-        new FigurasColoresOpenGL().run();
+    // Ajuste de la figura que se suma al de la escena al dibujar; el color guardado no cambia.
+    // Con varias figuras seleccionadas todas toman el ajuste de la principal
+    private void drawFigureGrade(Figure selectedFigure) {
+        figureGrade[0] = selectedFigure.getGradeHue();
+        figureGrade[1] = selectedFigure.getGradeSaturation();
+        figureGrade[2] = selectedFigure.getGradeLightness();
+        figureGrade[3] = selectedFigure.getGradeInk();
+        boolean changed = slider("Tono de la figura", figureGrade[0], -180.0f, 180.0f);
+        figureGrade[0] = sliderValue[0];
+        changed |= slider("Saturación de la figura", figureGrade[1], 0.0f, 2.0f);
+        figureGrade[1] = sliderValue[0];
+        changed |= slider("Luminosidad de la figura", figureGrade[2], 0.0f, 2.0f);
+        figureGrade[2] = sliderValue[0];
+        changed |= slider("Tinta de la figura", figureGrade[3], 0.0f, 1.0f);
+        figureGrade[3] = sliderValue[0];
+        if (changed) {
+            journal.edit(FIGURE_GRADE_EDIT, EditJournal.GRADE, selection.slots(), selection.size());
+            for (int i = 0; i < selection.size(); i++) {
+                figures.setGrade(selection.slots()[i], figureGrade[0], figureGrade[1], figureGrade[2], figureGrade[3]);
+            }
+        }
+        if (legacyRenderer) {
+            ImGui.textDisabled("(sin vista previa con el renderizador legacy)");
+        }
     }
 
-    private static class Figure {
-        private String name;
-        private float[] shape;
-        private float[] color;
-    
-        // Transformaciones
-        private float rotation = 0.0f; // Ángulo de rotación en grados
-        private float scaleX = 1.0f;   // Factor de escalado en X
-        private float scaleY = 1.0f;   // Factor de escalado en Y
-        private float translateX = 0.0f; // Traslación en X
-        private float translateY = 0.0f; // Traslación en Y
-        private float biasX = 0.0f; // Sesgado en X
-        private float biasY = 0.0f; // Sesgado en Y  
-    
-        public Figure(String name, float[] shape, float[] color) {
-            this.name = name;
-            this.shape = shape;
-            this.color = color;
+    // Barra de un valor sobre el arreglo de trabajo compartido; el valor nuevo queda en sliderValue[0]
+    private boolean slider(String label, float value, float min, float max) {
+        sliderValue[0] = value;
+        return ImGui.sliderFloat(label, sliderValue, min, max, "%.2f", 0);
+    }
+
+    private void drawIdleStats() {
+        ImGui.separator();
+        ImGui.checkbox("Dibujar solo cuando hay cambios", idleMode);
+        ImGui.checkbox("Redibujar solo las regiones dañadas", damageMode);
+        ImGui.textUnformatted(framesLabel.set(0, renderedFrames).set(1, idleWaits).text());
+        if (damageMode.get() && sceneTarget != null) {
+            ImGui.textUnformatted(damageLabel.set(0, damage.regionCount()).set(1, 100.0f * damage.coverage()).text());
         }
-    
-        // Getters y setters para las transformaciones
-        public float getRotation() { return rotation; }
-        public void setRotation(float rotation) { this.rotation = rotation; }
-    
-        public float getScaleX() { return scaleX; }
-        public void setScaleX(float scaleX) { this.scaleX = scaleX; }
-    
-        public float getScaleY() { return scaleY; }
-        public void setScaleY(float scaleY) { this.scaleY = scaleY; }
-    
-        public float getTranslateX() { return translateX; }
-        public void setTranslateX(float translateX) { this.translateX = translateX; }
-    
-        public float getTranslateY() { return translateY; }
-        public void setTranslateY(float translateY) { this.translateY = translateY; }
-    
-        public float getBiasX() { return biasX; }
-        public void setBiasX(float biasX) { this.biasX = biasX; }
-        
-        public float getBiasY() { return biasY; }
-        public void setBiasY(float biasY) { this.biasY = biasY; }
-
-        private void applyCustomSkew(float biasX, float biasY) {
-            // Identificar los vértices de la cara que se anclará
-            float anchorX1 = 0.0f, anchorY1 = 0.0f;
-            float anchorX2 = 0.0f, anchorY2 = 0.0f;
-        
-            if (shape.length == 4) { // Rectángulo
-                // Anclar el borde izquierdo (x, y) a (x, y + height)
-                anchorX1 = shape[0];
-                anchorY1 = shape[1];
-                anchorX2 = shape[0];
-                anchorY2 = shape[1] + shape[3];
-            } else if (shape.length == 6) { // Triángulo
-                // Anclar el borde izquierdo (primer vértice) al segundo vértice
-                anchorX1 = shape[0];
-                anchorY1 = shape[1];
-                anchorX2 = shape[2];
-                anchorY2 = shape[3];
-            } else if (shape.length == 12) { // Hexágono
-                // Anclar el primer borde superior (vértices 0 y 1)
-                anchorX1 = shape[0];
-                anchorY1 = shape[1];
-                anchorX2 = shape[2];
-                anchorY2 = shape[3];
-            } else if (shape.length == 10) { // Pentágono
-                // Anclar el primer borde superior (vértices 0 y 1)
-                anchorX1 = shape[0];
-                anchorY1 = shape[1];
-                anchorX2 = shape[2];
-                anchorY2 = shape[3];
-            }
-        
-            // Calcular el punto medio del borde anclado
-            float anchorMidX = (anchorX1 + anchorX2) / 2;
-            float anchorMidY = (anchorY1 + anchorY2) / 2;
-        
-            // Aplicar transformaciones relativas al borde anclado
-            GL30.glTranslatef(anchorMidX, anchorMidY, 0.0f); // Mover al punto medio del borde anclado
-        
-            // Matriz de sesgado (skew)
-            float[] skewMatrix = {
-                1.0f, biasY, 0.0f, 0.0f, // Sesgado en Y (afecta a X)
-                biasX, 1.0f, 0.0f, 0.0f, // Sesgado en X (afecta a Y)
-                0.0f, 0.0f, 1.0f, 0.0f,
-                0.0f, 0.0f, 0.0f, 1.0f
-            };
-        
-            // Multiplicar la matriz de sesgado con la matriz actual
-            GL30.glMultMatrixf(skewMatrix);
-        
-            // Restaurar la posición original
-            GL30.glTranslatef(-anchorMidX, -anchorMidY, 0.0f);
-        }
-
-        private float[] calculateCentroid() {
-            float cx = 0.0f, cy = 0.0f;
-            int points = shape.length / 2;
-            for (int i = 0; i < points; i++) {
-                cx += shape[2 * i];
-                cy += shape[2 * i + 1];
-            }
-            return new float[]{cx / points, cy / points};
+        ImGui.textUnformatted(cpuLabel.set(0, usage.getCpuPercent()).text());
+        ImGui.textUnformatted(usage.hasPower()
+                ? powerLabel.set(0, usage.getWatts()).text()
+                : "Potencia: sin acceso a RAPL");
+    }
+
+    private void drawProfiler() {
+        ImGui.separator();
+        if (ImGui.checkbox("Perfilador de cuadros", profilerEnabled)) {
+            profiler.setEnabled(profilerEnabled.get());
         }
-    
-        public void draw() {
-            GL30.glPushMatrix(); // Guardar la matriz actual
-        
-            // 1. Escalado
-            GL30.glScalef(scaleX, scaleY, 1.0f);
-        
-            // 2. Rotación alrededor del centroide
-            float[] centroid = calculateCentroid(); // Calcular el centroide de la figura
-            GL30.glTranslatef(centroid[0], centroid[1], 0.0f); // Trasladar al centroide
-            GL30.glRotatef(rotation, 0.0f, 0.0f, 1.0f); // Rotar
-            GL30.glTranslatef(-centroid[0], -centroid[1], 0.0f); // Trasladar de vuelta
-        
-            // 3. Sesgado (relativo al borde anclado)
-            applyCustomSkew(biasX, biasY);
-        
-            // 4. Traslación final
-            GL30.glTranslatef(translateX, translateY, 0.0f);
-        
-            // Dibujar la figura basada en su forma
-            if (shape.length == 4) { // Rectángulo
-                drawRectangle(shape[0], shape[1], shape[2], shape[3], color);
-            } else if (shape.length == 3) { // Círculo
-                drawCircle(shape[0], shape[1], shape[2], color);
-            } else if (shape.length == 6) { // Triángulo
-                drawTriangle(shape[0], shape[1], shape[2], shape[3], shape[4], shape[5], color);
-            } else if (shape.length == 10) { // Pentágono
-                drawPolygon(shape, color, 5); // Dibujar pentágono
-            } else if (shape.length == 12) { // Hexágono
-                drawPolygon(shape, color, 6); // Dibujar hexágono
-            }
-        
-            GL30.glPopMatrix(); // Restaurar la matriz original
-        
-            // Verificar errores de OpenGL
-            int error = GL30.glGetError();
-            if (error != GL30.GL_NO_ERROR) {
-                System.err.println("OpenGL Error: " + error);
-            }
-        }
-
-        private void applyBias(float biasX, float biasY) {
-            // Matriz de sesgado (skew) en X e Y
-            float[] skewMatrix = {
-                1.0f, biasY, 0.0f, 0.0f, // Sesgado en Y (afecta a X)
-                biasX, 1.0f, 0.0f, 0.0f, // Sesgado en X (afecta a Y)
-                0.0f, 0.0f, 1.0f, 0.0f,
-                0.0f, 0.0f, 0.0f, 1.0f
-            };
-        
-            // Aplicar la matriz de sesgado
-            GL30.glMultMatrixf(skewMatrix);
-        }
-        
-        private void applyBias(float bias) {
-            // Matriz de sesgado (skew) en el eje X
-            float[] skewMatrix = {
-                1.0f, bias, 0.0f, 0.0f,
-                0.0f, 1.0f, 0.0f, 0.0f,
-                0.0f, 0.0f, 1.0f, 0.0f,
-                0.0f, 0.0f, 0.0f, 1.0f
-            };
-        
-            // Aplicar la matriz de sesgado
-            GL30.glMultMatrixf(skewMatrix);
-        }
-
-        private static void drawPolygon(float[] vertices, float[] color, int sides) {
-            GL30.glBegin(GL30.GL_POLYGON);
-            GL30.glColor3f(color[0], color[1], color[2]);
-            for (int i = 0; i < sides; i++) {
-                GL30.glVertex2f(vertices[2 * i], vertices[2 * i + 1]);
-            }
-            GL30.glEnd();
+        if (!profiler.isEnabled() || profiler.size() == 0) {
+            return;
         }
-    
-        // Métodos para dibujar el borde y verificar si contiene un punto
-        public void drawBorder() {
-            float[] borderColor = {1.0f, 0.0f, 0.0f}; // Borde rojo
-            if (shape.length == 4) { // Rectángulo
-                drawRectangleBorder(shape[0], shape[1], shape[2], shape[3], borderColor);
-            } else if (shape.length == 3) { // Círculo
-                drawCircleBorder(shape[0], shape[1], shape[2], borderColor);
-            } else if (shape.length == 6) { // Triángulo
-                drawTriangleBorder(shape[0], shape[1], shape[2], shape[3], shape[4], shape[5], borderColor);
-            }
+        int count = profiler.copyFrameMillis(profilerPlot);
+        float average = profiler.average(-1, 60);
+        ImGui.plotHistogram("##cuadros", profilerPlot, count, 0,
+                frameTimeLabel.set(0, average).set(1, 1000.0f / average).text(), 0.0f, 2 * average, 0.0f, 80.0f);
+        ImGui.textUnformatted(cpuSectionsLabel.set(0, profiler.average(FrameProfiler.UPDATE, 60))
+                .set(1, profiler.average(FrameProfiler.DRAW, 60)).set(2, profiler.average(FrameProfiler.IMGUI, 60))
+                .set(3, profiler.average(FrameProfiler.SWAP, 60)).text());
+        ImGui.textUnformatted(profiler.hasGpuTimers()
+                ? gpuLabel.set(0, profiler.average(FrameProfiler.SECTIONS, 60)).text()
+                : "GPU: sin consultas de tiempo");
+        int last = profiler.size() - 1;
+        ImGui.textUnformatted(lastFrameLabel.set(0, profiler.drawCalls(last)).set(1, profiler.vertices(last))
+                .set(2, profiler.allocatedBytes(last)).text());
+        if (ImGui.button("Exportar CSV")) {
+            exportProfile("perfil.csv");
         }
-    
-        public boolean contains(float x, float y) {
-            if (shape.length == 4) { // Rectángulo
-                return x >= shape[0] && x <= shape[0] + shape[2] &&
-                       y >= shape[1] && y <= shape[1] + shape[3];
-            } else if (shape.length == 3) { // Círculo
-                float dx = x - shape[0];
-                float dy = y - shape[1];
-                return dx * dx + dy * dy <= shape[2] * shape[2];
-            } else if (shape.length == 6) { // Triángulo
-                float x1 = shape[0], y1 = shape[1];
-                float x2 = shape[2], y2 = shape[3];
-                float x3 = shape[4], y3 = shape[5];
-        
-                float areaTotal = Math.abs((x2 - x1) * (y3 - y1) - (x3 - x1) * (y2 - y1)) / 2.0f;
-                float area1 = Math.abs((x1 - x) * (y2 - y) - (x2 - x) * (y1 - y)) / 2.0f;
-                float area2 = Math.abs((x2 - x) * (y3 - y) - (x3 - x) * (y2 - y)) / 2.0f;
-                float area3 = Math.abs((x3 - x) * (y1 - y) - (x1 - x) * (y3 - y)) / 2.0f;
-        
-                float areaSum = area1 + area2 + area3;
-                return Math.abs(areaSum - areaTotal) < 0.0001f; // Tolerancia para errores de precisión
-            } else if (shape.length == 10 || shape.length == 12) { // Pentágono o Hexágono
-                // Usar un algoritmo de punto en polígono (por ejemplo, ray casting)
-                int intersectCount = 0;
-                for (int i = 0, j = shape.length / 2 - 1; i < shape.length / 2; j = i++) {
-                    float xi = shape[2 * i], yi = shape[2 * i + 1];
-                    float xj = shape[2 * j], yj = shape[2 * j + 1];
-        
-                    if (((yi > y) != (yj > y)) &&
-                        (x < (xj - xi) * (y - yi) / (yj - yi) + xi)) {
-                        intersectCount++;
-                    }
-                }
-                return (intersectCount % 2) == 1;
-            }
-            return false;
+        ImGui.sameLine();
+        if (ImGui.button("Exportar JSONL")) {
+            exportProfile("perfil.jsonl");
         }
-    
-        public float[] getColor() {
-            return color;
+    }
+
+    private void exportProfile(String file) {
+        try {
+            profiler.export(Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("No se pudo exportar el perfil a " + file + ": " + e.getMessage());
         }
-    
-        public void setColor(float[] color) {
-            this.color = color;
+    }
+
+    private void beginDrag(float x, float y, boolean add) {
+        dragging = true;
+        dragAdds = add;
+        dragStartX = dragX = x;
+        dragStartY = dragY = y;
+        lassoPoints = 0;
+        addLassoPoint(x, y);
+    }
+
+    private void dragTo(float x, float y) {
+        dragX = x;
+        dragY = y;
+        if (lassoMode.get()) {
+            float lastX = lasso[2 * lassoPoints - 2], lastY = lasso[2 * lassoPoints - 1];
+            if (Math.abs(x - lastX) + Math.abs(y - lastY) >= DRAG_THRESHOLD) {
+                addLassoPoint(x, y);
+            }
         }
     }
-    private static void drawRectangle(float x, float y, float width, float height, float[] color) {
-        GL30.glBegin(GL30.GL_QUADS);
-        GL30.glColor3f(color[0], color[1], color[2]);
-        GL30.glVertex2f(x, y);
-        GL30.glVertex2f(x + width, y);
-        GL30.glVertex2f(x + width, y + height);
-        GL30.glVertex2f(x, y + height);
-        GL30.glEnd();
+
+    private void addLassoPoint(float x, float y) {
+        if (2 * lassoPoints + 2 > lasso.length) {
+            lasso = Arrays.copyOf(lasso, lasso.length * 2);
+        }
+        lasso[2 * lassoPoints] = x;
+        lasso[2 * lassoPoints + 1] = y;
+        lassoPoints++;
     }
 
-    private static void drawCircle(float x, float y, float radius, float[] color) {
-        int segments = 100;
-        GL30.glBegin(GL30.GL_TRIANGLE_FAN);
-        GL30.glColor3f(color[0], color[1], color[2]);
-        GL30.glVertex2f(x, y); // Centro del círculo
-        for (int i = 0; i <= segments; i++) {
-            double angle = 2.0 * Math.PI * i / segments;
-            GL30.glVertex2f(x + (float) (Math.cos(angle) * radius), y + (float) (Math.sin(angle) * radius));
+    private void endDrag(float x, float y, boolean add) {
+        dragging = false;
+        if (Math.abs(x - dragStartX) < DRAG_THRESHOLD && Math.abs(y - dragStartY) < DRAG_THRESHOLD) {
+            selectFigure(x, y, add);
+            return;
         }
-        GL30.glEnd();
+        marked.clear();
+        if (lassoMode.get()) {
+            addLassoPoint(x, y);
+            // El lazo se pasa a coordenadas de la escena en el mismo arreglo
+            for (int i = 0; i < lassoPoints; i++) {
+                lasso[2 * i] = toSceneX(lasso[2 * i]);
+                lasso[2 * i + 1] = toSceneY(lasso[2 * i + 1]);
+            }
+            pickIndex.selectLasso(lasso, lassoPoints, marked);
+            lassoPoints = 0;
+        } else {
+            pickIndex.selectBox(toSceneX(Math.min(x, dragStartX)), toSceneY(Math.max(y, dragStartY)),
+                    toSceneX(Math.max(x, dragStartX)), toSceneY(Math.min(y, dragStartY)), marked);
+        }
+        selection.set(marked, add || dragAdds);
     }
 
-    private static void drawTriangle(float x1, float y1, float x2, float y2, float x3, float y3, float[] color) {
-        GL30.glBegin(GL30.GL_TRIANGLES);
-        GL30.glColor3f(color[0], color[1], color[2]);
-        GL30.glVertex2f(x1, y1);
-        GL30.glVertex2f(x2, y2);
-        GL30.glVertex2f(x3, y3);
-        GL30.glEnd();
+    private void selectFigure(float x, float y, boolean add) {
+        Figure figure = pickIndex.pick(toSceneX(x), toSceneY(y));
+        if (add) {
+            selection.toggle(figure);
+        } else if (figure != null) {
+            selection.select(figure);
+        }
     }
 
-    private static void drawRectangleBorder(float x, float y, float width, float height, float[] color) {
-        GL30.glBegin(GL30.GL_LINE_LOOP);
-        GL30.glColor3f(color[0], color[1], color[2]);
-        GL30.glVertex2f(x, y);
-        GL30.glVertex2f(x + width, y);
-        GL30.glVertex2f(x + width, y + height);
-        GL30.glVertex2f(x, y + height);
-        GL30.glEnd();
+    // Coordenadas de pantalla a coordenadas de OpenGL
+    private float toSceneX(float x) {
+        return (x / width) * 2 - 1;
     }
 
-    private static void drawCircleBorder(float x, float y, float radius, float[] color) {
-        int segments = 100;
-        GL30.glBegin(GL30.GL_LINE_LOOP);
-        GL30.glColor3f(color[0], color[1], color[2]);
-        for (int i = 0; i <= segments; i++) {
-            double angle = 2.0 * Math.PI * i / segments;
-            GL30.glVertex2f(x + (float) (Math.cos(angle) * radius), y + (float) (Math.sin(angle) * radius));
+    private float toSceneY(float y) {
+        return 1 - (y / height) * 2;
+    }
+
+    private void drawSelection() {
+        if (ImGui.button("Seleccionar todo")) {
+            marked.clear();
+            marked.set(0, figures.size());
+            selection.set(marked, false);
+        }
+        ImGui.sameLine();
+        if (ImGui.button("Limpiar selección")) {
+            selection.clear();
+        }
+        ImGui.sameLine();
+        ImGui.checkbox("Lazo", lassoMode);
+        ImGui.separator();
+
+        // Cajas de las figuras seleccionadas (hasta MAX_OUTLINES) y el arrastre en curso
+        ImDrawList overlay = ImGui.getBackgroundDrawList();
+        int outline = ImColor.intToColor(255, 160, 0, 200);
+        int[] slots = selection.slots();
+        for (int i = 0, n = Math.min(selection.size(), MAX_OUTLINES); i < n; i++) {
+            figures.get(slots[i]).getWorldBounds(outlineBounds);
+            overlay.addRect(toWindowX(outlineBounds[0]), toWindowY(outlineBounds[3]),
+                    toWindowX(outlineBounds[2]), toWindowY(outlineBounds[1]), outline);
+        }
+        if (dragging) {
+            int color = ImColor.intToColor(0, 120, 255, 255);
+            if (lassoMode.get()) {
+                for (int i = 1; i < lassoPoints; i++) {
+                    overlay.addLine(lasso[2 * i - 2], lasso[2 * i - 1], lasso[2 * i], lasso[2 * i + 1], color);
+                }
+                overlay.addLine(lasso[2 * lassoPoints - 2], lasso[2 * lassoPoints - 1], dragX, dragY, color);
+            } else {
+                overlay.addRect(Math.min(dragStartX, dragX), Math.min(dragStartY, dragY),
+                        Math.max(dragStartX, dragX), Math.max(dragStartY, dragY), color);
+            }
         }
-        GL30.glEnd();
     }
 
-    private static void drawTriangleBorder(float x1, float y1, float x2, float y2, float x3, float y3, float[] color) {
-        GL30.glBegin(GL30.GL_LINE_LOOP);
-        GL30.glColor3f(color[0], color[1], color[2]);
-        GL30.glVertex2f(x1, y1);
-        GL30.glVertex2f(x2, y2);
-        GL30.glVertex2f(x3, y3);
-        GL30.glEnd();
+    private float toWindowX(float x) {
+        return (x + 1) * 0.5f * width;
+    }
 
+    private float toWindowY(float y) {
+        return (1 - y) * 0.5f * height;
     }
+
+    public static void main(String[] args) {
+        new FigurasColoresOpenGL().run();
+    }
+
     
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL30;
+
+class Figure {
+
+    // Los datos viven en un FigureStore; la figura es solo su posición en él. Una figura creada
+    // con el constructor público tiene un almacén propio de una posición y se reenlaza al
+    // agregarla a otro almacén.
+    FigureStore store;
+    int slot;
+
+    // Matriz para glMultMatrixf en el modo inmediato (solo hilo de render)
+    private static final float[] GL_MATRIX = new float[16];
+    private static final Transform2D GL_TRANSFORM = new Transform2D();
+
+    public Figure(String name, float[] shape, float[] color) {
+        this.store = new FigureStore(1, false);
+        this.slot = store.add(name, shape, color);
+        store.bind(slot, this);
+    }
+
+    Figure(FigureStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    public long getId() { return store.id(slot); }
+    public void setId(long id) { store.setId(slot, id); }
+
+    public String getName() { return store.name(slot); }
+    public int getVersion() { return store.version(slot); }
+    public int getColorVersion() { return store.colorVersion(slot); }
+
+    // Copia de la forma; los recorridos frecuentes usan getShapeLength() y getShape(i)
+    public float[] getShape() { return store.shapeCopy(slot); }
+    public int getShapeLength() { return store.shapeLength(slot); }
+    public float getShape(int i) { return store.shape(slot, i); }
+
+    // Getters y setters para las transformaciones
+    public float getRotation() { return store.get(FigureStore.ROTATION, slot); }
+    public void setRotation(float rotation) { store.setTransformValue(FigureStore.ROTATION, slot, rotation); }
+
+    public float getScaleX() { return store.get(FigureStore.SCALE_X, slot); }
+    public void setScaleX(float scaleX) { store.setTransformValue(FigureStore.SCALE_X, slot, scaleX); }
+
+    public float getScaleY() { return store.get(FigureStore.SCALE_Y, slot); }
+    public void setScaleY(float scaleY) { store.setTransformValue(FigureStore.SCALE_Y, slot, scaleY); }
+
+    public float getTranslateX() { return store.get(FigureStore.TRANSLATE_X, slot); }
+    public void setTranslateX(float translateX) { store.setTransformValue(FigureStore.TRANSLATE_X, slot, translateX); }
+
+    public float getTranslateY() { return store.get(FigureStore.TRANSLATE_Y, slot); }
+    public void setTranslateY(float translateY) { store.setTransformValue(FigureStore.TRANSLATE_Y, slot, translateY); }
+
+    public float getBiasX() { return store.get(FigureStore.BIAS_X, slot); }
+    public void setBiasX(float biasX) { store.setTransformValue(FigureStore.BIAS_X, slot, biasX); }
+
+    public float getBiasY() { return store.get(FigureStore.BIAS_Y, slot); }
+    public void setBiasY(float biasY) { store.setTransformValue(FigureStore.BIAS_Y, slot, biasY); }
+
+    void attachIndex(SpatialIndex index, int proxyId) {
+        store.attachIndex(slot, index, proxyId);
+    }
+
+    int getProxyId() { return store.proxyId(slot); }
+
+    // Caja envolvente en coordenadas de la escena {minX, minY, maxX, maxY}: las cuatro
+    // esquinas de la caja local pasadas por la transformación
+    public void getWorldBounds(float[] out) {
+        FigureStore s = store;
+        int i = slot;
+        s.updateTransform(i);
+        float a = s.get(FigureStore.A, i), b = s.get(FigureStore.B, i);
+        float c = s.get(FigureStore.C, i), d = s.get(FigureStore.D, i);
+        float tx = s.get(FigureStore.TX, i), ty = s.get(FigureStore.TY, i);
+        float minX = s.get(FigureStore.MIN_X, i), minY = s.get(FigureStore.MIN_Y, i);
+        float maxX = s.get(FigureStore.MAX_X, i), maxY = s.get(FigureStore.MAX_Y, i);
+        float x0 = a * minX + c * minY + tx, y0 = b * minX + d * minY + ty;
+        float x1 = a * maxX + c * minY + tx, y1 = b * maxX + d * minY + ty;
+        float x2 = a * maxX + c * maxY + tx, y2 = b * maxX + d * maxY + ty;
+        float x3 = a * minX + c * maxY + tx, y3 = b * minX + d * maxY + ty;
+        out[0] = Math.min(Math.min(x0, x1), Math.min(x2, x3));
+        out[1] = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+        out[2] = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+        out[3] = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+    }
+
+    // Copia en 'out' la transformación compartida por el renderizado y la selección
+    public void getTransform(Transform2D out) {
+        store.updateTransform(slot);
+        out.set(store.get(FigureStore.A, slot), store.get(FigureStore.B, slot),
+                store.get(FigureStore.C, slot), store.get(FigureStore.D, slot),
+                store.get(FigureStore.TX, slot), store.get(FigureStore.TY, slot));
+    }
+
+    float[] calculateCentroid() {
+        return new float[]{store.get(FigureStore.CENTROID_X, slot), store.get(FigureStore.CENTROID_Y, slot)};
+    }
+
+    // Los círculos usan los segmentos que elige 'tessellation' según su tamaño en pantalla
+    public void draw(TessellationCache tessellation) {
+        GL30.glPushMatrix(); // Guardar la matriz actual
+
+        // Escalado, rotación, sesgado y traslación ya combinados en una sola matriz
+        getTransform(GL_TRANSFORM);
+        GL_TRANSFORM.toGlMatrix(GL_MATRIX);
+        GL30.glMultMatrixf(GL_MATRIX);
+    
+        // Dibujar la figura basada en su forma (copias: el modo inmediato es solo la referencia)
+        float[] shape = getShape();
+        float[] color = getColor();
+        if (shape.length == 4) { // Rectángulo
+            drawRectangle(shape[0], shape[1], shape[2], shape[3], color);
+        } else if (shape.length == 3) { // Círculo
+            drawCircle(shape[0], shape[1], shape[2], color, tessellation.circleSegments(this));
+        } else if (shape.length == 6) { // Triángulo
+            drawTriangle(shape[0], shape[1], shape[2], shape[3], shape[4], shape[5], color);
+        } else if (shape.length == 10) { // Pentágono
+            drawPolygon(shape, color, 5); // Dibujar pentágono
+        } else if (shape.length == 12) { // Hexágono
+            drawPolygon(shape, color, 6); // Dibujar hexágono
+        }
+    
+        GL30.glPopMatrix(); // Restaurar la matriz original
+    }
+
+    private static void drawPolygon(float[] vertices, float[] color, int sides) {
+        GL30.glBegin(GL30.GL_POLYGON);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        for (int i = 0; i < sides; i++) {
+            GL30.glVertex2f(vertices[2 * i], vertices[2 * i + 1]);
+        }
+        GL30.glEnd();
+    }
+
+    // Métodos para dibujar el borde y verificar si contiene un punto
+    public void drawBorder(TessellationCache tessellation) {
+        float[] borderColor = {1.0f, 0.0f, 0.0f}; // Borde rojo
+        float[] shape = getShape();
+        if (shape.length == 4) { // Rectángulo
+            drawRectangleBorder(shape[0], shape[1], shape[2], shape[3], borderColor);
+        } else if (shape.length == 3) { // Círculo
+            drawCircleBorder(shape[0], shape[1], shape[2], borderColor, tessellation.circleSegments(this));
+        } else if (shape.length == 6) { // Triángulo
+            drawTriangleBorder(shape[0], shape[1], shape[2], shape[3], shape[4], shape[5], borderColor);
+        }
+    }
+
+    // Prueba de contención con un punto de la escena: se lleva al espacio local de la
+    // figura con la transformación inversa y se compara contra la forma original
+    public boolean hitTest(float x, float y) {
+        FigureStore s = store;
+        int i = slot;
+        s.updateTransform(i);
+        float a = s.get(FigureStore.A, i), b = s.get(FigureStore.B, i);
+        float c = s.get(FigureStore.C, i), d = s.get(FigureStore.D, i);
+        float px = x - s.get(FigureStore.TX, i), py = y - s.get(FigureStore.TY, i);
+        // Con determinante cero el resultado no es finito y ninguna figura lo contiene
+        float det = a * d - b * c;
+        return contains((d * px - c * py) / det, (a * py - b * px) / det);
+    }
+
+    public boolean contains(float x, float y) {
+        FigureStore s = store;
+        int i0 = slot;
+        int length = s.shapeLength(i0);
+        if (length == 4) { // Rectángulo
+            return x >= s.shape(i0, 0) && x <= s.shape(i0, 0) + s.shape(i0, 2) &&
+                   y >= s.shape(i0, 1) && y <= s.shape(i0, 1) + s.shape(i0, 3);
+        } else if (length == 3) { // Círculo
+            float dx = x - s.shape(i0, 0);
+            float dy = y - s.shape(i0, 1);
+            float radius = s.shape(i0, 2);
+            return dx * dx + dy * dy <= radius * radius;
+        } else if (length == 6) { // Triángulo
+            float x1 = s.shape(i0, 0), y1 = s.shape(i0, 1);
+            float x2 = s.shape(i0, 2), y2 = s.shape(i0, 3);
+            float x3 = s.shape(i0, 4), y3 = s.shape(i0, 5);
+    
+            float areaTotal = Math.abs((x2 - x1) * (y3 - y1) - (x3 - x1) * (y2 - y1)) / 2.0f;
+            float area1 = Math.abs((x1 - x) * (y2 - y) - (x2 - x) * (y1 - y)) / 2.0f;
+            float area2 = Math.abs((x2 - x) * (y3 - y) - (x3 - x) * (y2 - y)) / 2.0f;
+            float area3 = Math.abs((x3 - x) * (y1 - y) - (x1 - x) * (y3 - y)) / 2.0f;
+    
+            float areaSum = area1 + area2 + area3;
+            // Tolerancia relativa al área: una tolerancia absoluta aceptaba puntos fuera de triángulos pequeños
+            return Math.abs(areaSum - areaTotal) <= areaTotal * 0.0001f;
+        } else if (length == 10 || length == 12) { // Pentágono o Hexágono
+            // Usar un algoritmo de punto en polígono (por ejemplo, ray casting)
+            int intersectCount = 0;
+            for (int i = 0, j = length / 2 - 1; i < length / 2; j = i++) {
+                float xi = s.shape(i0, 2 * i), yi = s.shape(i0, 2 * i + 1);
+                float xj = s.shape(i0, 2 * j), yj = s.shape(i0, 2 * j + 1);
+    
+                if (((yi > y) != (yj > y)) &&
+                    (x < (xj - xi) * (y - yi) / (yj - yi) + xi)) {
+                    intersectCount++;
+                }
+            }
+            return (intersectCount % 2) == 1;
+        }
+        return false;
+    }
+
+    // Copia del color; los recorridos frecuentes usan getRed(), getGreen() y getBlue()
+    public float[] getColor() {
+        return new float[]{getRed(), getGreen(), getBlue()};
+    }
+
+    public float getRed() { return store.get(FigureStore.RED, slot); }
+    public float getGreen() { return store.get(FigureStore.GREEN, slot); }
+    public float getBlue() { return store.get(FigureStore.BLUE, slot); }
+
+    public void setColor(float[] color) {
+        store.setColor(slot, color[0], color[1], color[2]);
+    }
+
+    public void setColor(float r, float g, float b) {
+        store.setColor(slot, r, g, b);
+    }
+
+    public float getGradeHue() { return store.get(FigureStore.GRADE_HUE, slot); }
+    public float getGradeSaturation() { return store.get(FigureStore.GRADE_SATURATION, slot); }
+    public float getGradeLightness() { return store.get(FigureStore.GRADE_LIGHTNESS, slot); }
+    public float getGradeInk() { return store.get(FigureStore.GRADE_INK, slot); }
+
+    public void setGrade(float hue, float saturation, float lightness, float ink) {
+        store.setGrade(slot, hue, saturation, lightness, ink);
+    }
+
+    private static void drawRectangle(float x, float y, float width, float height, float[] color) {
+        GL30.glBegin(GL30.GL_QUADS);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        GL30.glVertex2f(x, y);
+        GL30.glVertex2f(x + width, y);
+        GL30.glVertex2f(x + width, y + height);
+        GL30.glVertex2f(x, y + height);
+        GL30.glEnd();
+    }
+
+    private static void drawCircle(float x, float y, float radius, float[] color, int segments) {
+        float[] unit = TessellationCache.unitCircle(segments);
+        GL30.glBegin(GL30.GL_TRIANGLE_FAN);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        GL30.glVertex2f(x, y); // Centro del círculo
+        for (int i = 0; i <= segments; i++) {
+            GL30.glVertex2f(x + unit[2 * i] * radius, y + unit[2 * i + 1] * radius);
+        }
+        GL30.glEnd();
+    }
+
+    private static void drawTriangle(float x1, float y1, float x2, float y2, float x3, float y3, float[] color) {
+        GL30.glBegin(GL30.GL_TRIANGLES);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        GL30.glVertex2f(x1, y1);
+        GL30.glVertex2f(x2, y2);
+        GL30.glVertex2f(x3, y3);
+        GL30.glEnd();
+    }
+
+    private static void drawRectangleBorder(float x, float y, float width, float height, float[] color) {
+        GL30.glBegin(GL30.GL_LINE_LOOP);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        GL30.glVertex2f(x, y);
+        GL30.glVertex2f(x + width, y);
+        GL30.glVertex2f(x + width, y + height);
+        GL30.glVertex2f(x, y + height);
+        GL30.glEnd();
+    }
+
+    private static void drawCircleBorder(float x, float y, float radius, float[] color, int segments) {
+        float[] unit = TessellationCache.unitCircle(segments);
+        GL30.glBegin(GL30.GL_LINE_LOOP);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        for (int i = 0; i < segments; i++) {
+            GL30.glVertex2f(x + unit[2 * i] * radius, y + unit[2 * i + 1] * radius);
+        }
+        GL30.glEnd();
+    }
+
+    private static void drawTriangleBorder(float x1, float y1, float x2, float y2, float x3, float y3, float[] color) {
+        GL30.glBegin(GL30.GL_LINE_LOOP);
+        GL30.glColor3f(color[0], color[1], color[2]);
+        GL30.glVertex2f(x1, y1);
+        GL30.glVertex2f(x2, y2);
+        GL30.glVertex2f(x3, y3);
+        GL30.glEnd();
+
+    }
+}
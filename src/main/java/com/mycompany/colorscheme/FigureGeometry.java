@@ -0,0 +1,127 @@
+package com.mycompany.colorscheme;
+
+import java.nio.FloatBuffer;
+
+// Teselado de figuras en triángulos ya transformados (x, y, r, g, b por vértice).
+// No depende de OpenGL, así que también sirve para medir el costo de CPU por cuadro.
+// Los círculos usan los segmentos que elige el TessellationCache del renderizador.
+final class FigureGeometry {
+
+    static final int FLOATS_PER_VERTEX = 5;
+
+    private FigureGeometry() {
+    }
+
+    // Número de vértices (GL_TRIANGLES) que ocupa el relleno de la figura
+    static int fillVertexCount(Figure figure, TessellationCache tessellation) {
+        int length = figure.getShapeLength();
+        if (length == 4) { // Rectángulo
+            return 6;
+        } else if (length == 3) { // Círculo
+            return tessellation.circleSegments(figure) * 3;
+        } else if (length == 6) { // Triángulo
+            return 3;
+        } else if (length == 10 || length == 12) { // Pentágono o Hexágono
+            return (length / 2 - 2) * 3;
+        }
+        return 0;
+    }
+
+    // Número de vértices (GL_LINES) del contorno de la figura
+    static int borderVertexCount(Figure figure, TessellationCache tessellation) {
+        int length = figure.getShapeLength();
+        if (length == 4) {
+            return 8;
+        } else if (length == 3) {
+            return tessellation.circleSegments(figure) * 2;
+        } else if (length == 6 || length == 10 || length == 12) {
+            return length;
+        }
+        return 0;
+    }
+
+    // Escribe el relleno de la figura aplicando la transformación m
+    static void writeFill(Figure figure, Transform2D m, TessellationCache tessellation, FloatBuffer out) {
+        int length = figure.getShapeLength();
+        float r = figure.getRed(), g = figure.getGreen(), b = figure.getBlue();
+        if (length == 4) { // Rectángulo
+            float x = figure.getShape(0), y = figure.getShape(1), w = figure.getShape(2), h = figure.getShape(3);
+            vertex(out, m, x, y, r, g, b);
+            vertex(out, m, x + w, y, r, g, b);
+            vertex(out, m, x + w, y + h, r, g, b);
+            vertex(out, m, x, y, r, g, b);
+            vertex(out, m, x + w, y + h, r, g, b);
+            vertex(out, m, x, y + h, r, g, b);
+        } else if (length == 3) { // Círculo
+            float cx = figure.getShape(0), cy = figure.getShape(1), radius = figure.getShape(2);
+            int segments = tessellation.circleSegments(figure);
+            float[] unit = TessellationCache.unitCircle(segments);
+            float prevX = cx + radius, prevY = cy;
+            for (int i = 1; i <= segments; i++) {
+                float x = cx + unit[2 * i] * radius;
+                float y = cy + unit[2 * i + 1] * radius;
+                vertex(out, m, cx, cy, r, g, b);
+                vertex(out, m, prevX, prevY, r, g, b);
+                vertex(out, m, x, y, r, g, b);
+                prevX = x;
+                prevY = y;
+            }
+        } else if (length == 6) { // Triángulo
+            vertex(out, m, figure.getShape(0), figure.getShape(1), r, g, b);
+            vertex(out, m, figure.getShape(2), figure.getShape(3), r, g, b);
+            vertex(out, m, figure.getShape(4), figure.getShape(5), r, g, b);
+        } else if (length == 10 || length == 12) { // Polígono convexo en abanico
+            int sides = length / 2;
+            float x0 = figure.getShape(0), y0 = figure.getShape(1);
+            for (int i = 1; i < sides - 1; i++) {
+                vertex(out, m, x0, y0, r, g, b);
+                vertex(out, m, figure.getShape(2 * i), figure.getShape(2 * i + 1), r, g, b);
+                vertex(out, m, figure.getShape(2 * i + 2), figure.getShape(2 * i + 3), r, g, b);
+            }
+        }
+    }
+
+    // Escribe el contorno de la figura como pares de segmentos
+    static void writeBorder(Figure figure, Transform2D m, TessellationCache tessellation, float[] color, FloatBuffer out) {
+        float[] shape = figure.getShape(); // Solo para la figura seleccionada
+        if (shape.length == 4) {
+            float x = shape[0], y = shape[1], w = shape[2], h = shape[3];
+            segment(out, m, x, y, x + w, y, color);
+            segment(out, m, x + w, y, x + w, y + h, color);
+            segment(out, m, x + w, y + h, x, y + h, color);
+            segment(out, m, x, y + h, x, y, color);
+        } else if (shape.length == 3) {
+            float cx = shape[0], cy = shape[1], radius = shape[2];
+            int segments = tessellation.circleSegments(figure);
+            float[] unit = TessellationCache.unitCircle(segments);
+            float prevX = cx + radius, prevY = cy;
+            for (int i = 1; i <= segments; i++) {
+                float x = cx + unit[2 * i] * radius;
+                float y = cy + unit[2 * i + 1] * radius;
+                segment(out, m, prevX, prevY, x, y, color);
+                prevX = x;
+                prevY = y;
+            }
+        } else if (shape.length == 6 || shape.length == 10 || shape.length == 12) {
+            int points = shape.length / 2;
+            for (int i = 0, j = points - 1; i < points; j = i++) {
+                segment(out, m, shape[2 * j], shape[2 * j + 1], shape[2 * i], shape[2 * i + 1], color);
+            }
+        }
+    }
+
+    private static void segment(FloatBuffer out, Transform2D m, float x1, float y1, float x2, float y2, float[] color) {
+        vertex(out, m, x1, y1, color);
+        vertex(out, m, x2, y2, color);
+    }
+
+    private static void vertex(FloatBuffer out, Transform2D m, float x, float y, float[] color) {
+        vertex(out, m, x, y, color[0], color[1], color[2]);
+    }
+
+    private static void vertex(FloatBuffer out, Transform2D m, float x, float y, float r, float g, float b) {
+        out.put(m.transformX(x, y));
+        out.put(m.transformY(x, y));
+        out.put(r).put(g).put(b);
+    }
+}
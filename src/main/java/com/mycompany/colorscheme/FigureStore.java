@@ -0,0 +1,762 @@
+package com.mycompany.colorscheme;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Almacén de figuras en estructura de arreglos: una columna float por cada valor de la figura
+// (transformación, color, centroide, caja local y la matriz afín ya calculada) y un solo
+// arreglo de vértices con todas las formas. Las columnas pueden vivir fuera del heap (búferes
+// directos) y pasarse tal cual a OpenGL.
+//
+// Las figuras son manejadores livianos (almacén + posición) que se crean al pedirlos y se
+// reutilizan, así que la identidad de cada figura se conserva mientras esté en el almacén.
+final class FigureStore extends AbstractList<Figure> implements RandomAccess {
+
+    // Columnas
+    static final int ROTATION = 0;
+    static final int SCALE_X = 1;
+    static final int SCALE_Y = 2;
+    static final int TRANSLATE_X = 3;
+    static final int TRANSLATE_Y = 4;
+    static final int BIAS_X = 5;
+    static final int BIAS_Y = 6;
+    static final int RED = 7;
+    static final int GREEN = 8;
+    static final int BLUE = 9;
+    static final int CENTROID_X = 10;
+    static final int CENTROID_Y = 11;
+    static final int MIN_X = 12;
+    static final int MIN_Y = 13;
+    static final int MAX_X = 14;
+    static final int MAX_Y = 15;
+    static final int A = 16; // Matriz afín: x' = a*x + c*y + tx, y' = b*x + d*y + ty
+    static final int B = 17;
+    static final int C = 18;
+    static final int D = 19;
+    static final int TX = 20;
+    static final int TY = 21;
+    // Ajuste de color de la figura, se suma al de la escena al dibujar: tono en grados,
+    // factores de saturación y luminosidad y tope de tinta CMYK (solo para la GPU, no se
+    // guardan en el archivo de escena)
+    static final int GRADE_HUE = 22;
+    static final int GRADE_SATURATION = 23;
+    static final int GRADE_LIGHTNESS = 24;
+    static final int GRADE_INK = 25;
+    static final int COLUMNS = 26;
+
+    private final boolean direct;
+    private int capacity;
+    private int size = 0;
+    private long changes = 0; // Cualquier cambio de datos o de orden (para saber si hay que redibujar)
+
+    private final FloatBuffer[] columns = new FloatBuffer[COLUMNS];
+    private FloatBuffer vertices;
+    private int verticesUsed = 0;
+    private int verticesGarbage = 0; // Vértices de figuras quitadas, recuperados al compactar
+
+    private int[] shapeOffset;
+    private int[] shapeLength;
+    private int[] version;
+    private int[] colorVersion; // Solo cambia con setColor (para los cachés de conversión de color)
+    private boolean[] dirty;
+    private long[] ids;
+    private String[] names;
+    private SpatialIndex[] indexes;
+    private int[] proxyIds;
+    private Figure[] handles;
+
+    // Segmentos de círculo elegidos por un TessellationCache, válidos mientras no cambien la
+    // versión de la figura ni el sello del caché (0 = sin calcular)
+    private int[] lodSegments;
+    private int[] lodVersion;
+    private int[] lodStamp;
+
+    FigureStore() {
+        this(16, false);
+    }
+
+    // direct: columnas y vértices en búferes directos (fuera del heap)
+    FigureStore(int capacity, boolean direct) {
+        this.direct = direct;
+        this.capacity = Math.max(1, capacity);
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c] = allocate(this.capacity);
+        }
+        vertices = allocate(this.capacity * 6);
+        shapeOffset = new int[this.capacity];
+        shapeLength = new int[this.capacity];
+        version = new int[this.capacity];
+        colorVersion = new int[this.capacity];
+        dirty = new boolean[this.capacity];
+        ids = new long[this.capacity];
+        names = new String[this.capacity];
+        indexes = new SpatialIndex[this.capacity];
+        proxyIds = new int[this.capacity];
+        handles = new Figure[this.capacity];
+        lodSegments = new int[this.capacity];
+        lodVersion = new int[this.capacity];
+        lodStamp = new int[this.capacity];
+    }
+
+    private FloatBuffer allocate(int floats) {
+        if (direct) {
+            return ByteBuffer.allocateDirect(floats * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        return FloatBuffer.allocate(floats);
+    }
+
+    boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Figure get(int slot) {
+        checkSlot(slot);
+        Figure handle = handles[slot];
+        if (handle == null) {
+            handle = new Figure(this, slot);
+            handles[slot] = handle;
+        }
+        return handle;
+    }
+
+    // Registra el manejador de una posición (lo usa el constructor público de Figure)
+    void bind(int slot, Figure handle) {
+        handles[slot] = handle;
+    }
+
+    // Agrega una figura nueva al final sin crear su manejador. Solo hay geometría, selección
+    // y mallas para círculos, rectángulos, triángulos, pentágonos y hexágonos: cualquier otra
+    // forma se rechaza aquí en vez de quedar sin dibujar.
+    int add(String name, float[] shape, float[] color) {
+        int length = shape.length;
+        if (length != 3 && length != 4 && length != 6 && length != 10 && length != 12) {
+            throw new IllegalArgumentException("Forma no válida (" + length + " valores): " + name);
+        }
+        int slot = size;
+        ensureCapacity(size + 1);
+        size++;
+        init(slot, name, shape);
+        columns[RED].put(slot, color[0]);
+        columns[GREEN].put(slot, color[1]);
+        columns[BLUE].put(slot, color[2]);
+        modCount++;
+        changes++;
+        return slot;
+    }
+
+    // Copia la figura al almacén y la reenlaza a su nueva posición. Si venía de otro almacén,
+    // allí queda una copia con un manejador nuevo.
+    @Override
+    public void add(int slot, Figure figure) {
+        if (slot < 0 || slot > size) {
+            throw new IndexOutOfBoundsException("Posición " + slot + " de " + size);
+        }
+        if (figure.store == this) {
+            throw new IllegalStateException("La figura ya está en este almacén: " + figure.getName());
+        }
+        FigureStore from = figure.store;
+        int fromSlot = figure.slot;
+        ensureCapacity(size + 1);
+        shift(slot, 1);
+        size++;
+
+        init(slot, from.names[fromSlot], from.shapeCopy(fromSlot));
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c].put(slot, from.columns[c].get(fromSlot));
+        }
+        dirty[slot] = from.dirty[fromSlot];
+        version[slot] = from.version[fromSlot];
+        colorVersion[slot] = from.colorVersion[fromSlot];
+        ids[slot] = from.ids[fromSlot];
+        indexes[slot] = from.indexes[fromSlot];
+        proxyIds[slot] = from.proxyIds[fromSlot];
+
+        from.handles[fromSlot] = null;
+        from.indexes[fromSlot] = null;
+        from.proxyIds[fromSlot] = -1;
+        figure.store = this;
+        figure.slot = slot;
+        handles[slot] = figure;
+        modCount++;
+        changes++;
+    }
+
+    // Quita la figura; su manejador pasa a un almacén propio, así que sigue siendo válido
+    // (por ejemplo, para deshacer)
+    @Override
+    public Figure remove(int slot) {
+        checkSlot(slot);
+        Figure figure = get(slot);
+        if (indexes[slot] != null) {
+            indexes[slot].remove(figure);
+        }
+        new FigureStore(1, false).add(figure);
+
+        verticesGarbage += shapeLength[slot];
+        shift(slot + 1, -1);
+        size--;
+        handles[size] = null;
+        names[size] = null;
+        indexes[size] = null;
+        modCount++;
+        changes++;
+        if (verticesGarbage > verticesUsed / 2) {
+            compactVertices();
+        }
+        return figure;
+    }
+
+    // Quita de una vez las figuras de las posiciones marcadas, en una sola pasada (quitarlas
+    // una por una con remove movería el resto del almacén cada vez). Como en remove, los
+    // manejadores ya creados pasan a un almacén propio y siguen siendo válidos.
+    void removeSlots(BitSet marked) {
+        int write = marked.nextSetBit(0);
+        if (write < 0 || write >= size) {
+            return;
+        }
+        int removed = 0;
+        int slot = write;
+        while (slot >= 0 && slot < size) {
+            if (indexes[slot] != null) {
+                indexes[slot].remove(get(slot));
+            }
+            if (handles[slot] != null) {
+                new FigureStore(1, false).add(handles[slot]);
+            }
+            verticesGarbage += shapeLength[slot];
+            removed++;
+            // Tramo de figuras que se quedan hasta la próxima marcada
+            int keep = slot + 1;
+            int next = marked.nextSetBit(keep);
+            int end = next < 0 || next > size ? size : next;
+            moveRange(keep, write, end - keep);
+            write += end - keep;
+            slot = next;
+        }
+        Arrays.fill(names, write, size, null);
+        Arrays.fill(handles, write, size, null);
+        Arrays.fill(indexes, write, size, null);
+        size = write;
+        modCount++;
+        changes++;
+        if (removed > 0 && verticesGarbage > verticesUsed / 2) {
+            compactVertices();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            if (indexes[slot] != null) {
+                indexes[slot].remove(get(slot));
+            }
+            if (handles[slot] != null) {
+                new FigureStore(1, false).add(handles[slot]);
+            }
+        }
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(handles, 0, size, null);
+        Arrays.fill(indexes, 0, size, null);
+        size = 0;
+        verticesUsed = 0;
+        verticesGarbage = 0;
+        modCount++;
+        changes++;
+    }
+
+    private void init(int slot, String name, float[] shape) {
+        names[slot] = name;
+        ids[slot] = -1;
+        version[slot] = 0;
+        colorVersion[slot] = 0;
+        dirty[slot] = true;
+        indexes[slot] = null;
+        proxyIds[slot] = -1;
+        handles[slot] = null;
+        lodStamp[slot] = 0;
+
+        if (verticesUsed + shape.length > vertices.capacity()) {
+            vertices = grow(vertices, Math.max(verticesUsed + shape.length, vertices.capacity() * 2), verticesUsed);
+        }
+        shapeOffset[slot] = verticesUsed;
+        shapeLength[slot] = shape.length;
+        for (float value : shape) {
+            vertices.put(verticesUsed++, value);
+        }
+
+        set(ROTATION, slot, 0.0f);
+        set(SCALE_X, slot, 1.0f);
+        set(SCALE_Y, slot, 1.0f);
+        set(TRANSLATE_X, slot, 0.0f);
+        set(TRANSLATE_Y, slot, 0.0f);
+        set(BIAS_X, slot, 0.0f);
+        set(BIAS_Y, slot, 0.0f);
+        set(GRADE_HUE, slot, 0.0f);
+        set(GRADE_SATURATION, slot, 1.0f);
+        set(GRADE_LIGHTNESS, slot, 1.0f);
+        set(GRADE_INK, slot, 1.0f);
+
+        // La forma no cambia, así que el centroide y la caja local se calculan una sola vez
+        int points = shape.length / 2;
+        float cx = 0.0f, cy = 0.0f;
+        for (int i = 0; i < points; i++) {
+            cx += shape[2 * i];
+            cy += shape[2 * i + 1];
+        }
+        set(CENTROID_X, slot, cx / points);
+        set(CENTROID_Y, slot, cy / points);
+        computeLocalBounds(slot, shape);
+    }
+
+    private void computeLocalBounds(int slot, float[] shape) {
+        float minX, minY, maxX, maxY;
+        if (shape.length == 3) { // Círculo
+            minX = shape[0] - shape[2];
+            minY = shape[1] - shape[2];
+            maxX = shape[0] + shape[2];
+            maxY = shape[1] + shape[2];
+        } else if (shape.length == 4) { // Rectángulo
+            minX = Math.min(shape[0], shape[0] + shape[2]);
+            minY = Math.min(shape[1], shape[1] + shape[3]);
+            maxX = Math.max(shape[0], shape[0] + shape[2]);
+            maxY = Math.max(shape[1], shape[1] + shape[3]);
+        } else {
+            minX = minY = Float.POSITIVE_INFINITY;
+            maxX = maxY = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i + 1 < shape.length; i += 2) {
+                minX = Math.min(minX, shape[i]);
+                minY = Math.min(minY, shape[i + 1]);
+                maxX = Math.max(maxX, shape[i]);
+                maxY = Math.max(maxY, shape[i + 1]);
+            }
+        }
+        set(MIN_X, slot, minX);
+        set(MIN_Y, slot, minY);
+        set(MAX_X, slot, maxX);
+        set(MAX_Y, slot, maxY);
+    }
+
+    // Mueve las posiciones [from, size) en 'delta' (+1 o -1) y actualiza los manejadores
+    private void shift(int from, int delta) {
+        moveRange(from, from + delta, size - from);
+    }
+
+    // Mueve 'count' posiciones desde 'from' a 'to' y actualiza los manejadores
+    private void moveRange(int from, int to, int count) {
+        if (count <= 0 || from == to) {
+            return;
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            move(columns[c], from, to, count);
+        }
+        System.arraycopy(shapeOffset, from, shapeOffset, to, count);
+        System.arraycopy(shapeLength, from, shapeLength, to, count);
+        System.arraycopy(version, from, version, to, count);
+        System.arraycopy(colorVersion, from, colorVersion, to, count);
+        System.arraycopy(dirty, from, dirty, to, count);
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(names, from, names, to, count);
+        System.arraycopy(indexes, from, indexes, to, count);
+        System.arraycopy(proxyIds, from, proxyIds, to, count);
+        System.arraycopy(handles, from, handles, to, count);
+        System.arraycopy(lodSegments, from, lodSegments, to, count);
+        System.arraycopy(lodVersion, from, lodVersion, to, count);
+        System.arraycopy(lodStamp, from, lodStamp, to, count);
+        for (int slot = to; slot < to + count; slot++) {
+            if (handles[slot] != null) {
+                handles[slot].slot = slot;
+            }
+        }
+    }
+
+    private static void move(FloatBuffer buffer, int from, int to, int count) {
+        FloatBuffer source = buffer.duplicate();
+        source.limit(from + count).position(from);
+        FloatBuffer target = buffer.duplicate();
+        target.position(to);
+        target.put(source);
+    }
+
+    private void compactVertices() {
+        FloatBuffer compacted = allocate(Math.max(16, verticesUsed - verticesGarbage));
+        int used = 0;
+        for (int slot = 0; slot < size; slot++) {
+            int offset = shapeOffset[slot];
+            shapeOffset[slot] = used;
+            for (int i = 0; i < shapeLength[slot]; i++) {
+                compacted.put(used++, vertices.get(offset + i));
+            }
+        }
+        vertices = compacted;
+        verticesUsed = used;
+        verticesGarbage = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity * 2);
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c] = grow(columns[c], newCapacity, size);
+        }
+        shapeOffset = Arrays.copyOf(shapeOffset, newCapacity);
+        shapeLength = Arrays.copyOf(shapeLength, newCapacity);
+        version = Arrays.copyOf(version, newCapacity);
+        colorVersion = Arrays.copyOf(colorVersion, newCapacity);
+        dirty = Arrays.copyOf(dirty, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        indexes = Arrays.copyOf(indexes, newCapacity);
+        proxyIds = Arrays.copyOf(proxyIds, newCapacity);
+        handles = Arrays.copyOf(handles, newCapacity);
+        lodSegments = Arrays.copyOf(lodSegments, newCapacity);
+        lodVersion = Arrays.copyOf(lodVersion, newCapacity);
+        lodStamp = Arrays.copyOf(lodStamp, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private FloatBuffer grow(FloatBuffer buffer, int floats, int used) {
+        FloatBuffer grown = allocate(floats);
+        FloatBuffer source = buffer.duplicate();
+        source.limit(used).position(0);
+        grown.put(source);
+        grown.clear();
+        return grown;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Figura " + slot + " de " + size);
+        }
+    }
+
+    // ---- Acceso por posición (usado por Figure y por los recorridos masivos) ----
+
+    float get(int column, int slot) {
+        return columns[column].get(slot);
+    }
+
+    void set(int column, int slot, float value) {
+        columns[column].put(slot, value);
+    }
+
+    // Vista de una columna con las figuras actuales (posición 0, límite size); si el almacén es
+    // directo se puede pasar a glBufferData. Deja de ser válida si el almacén crece.
+    FloatBuffer column(int column) {
+        FloatBuffer view = columns[column].duplicate();
+        view.limit(size).position(0);
+        return view;
+    }
+
+    // Vista del arreglo de vértices; la forma de cada figura empieza en shapeOffset(slot)
+    FloatBuffer vertexArena() {
+        FloatBuffer view = vertices.duplicate();
+        view.limit(verticesUsed).position(0);
+        return view;
+    }
+
+    int shapeOffset(int slot) { return shapeOffset[slot]; }
+    int shapeLength(int slot) { return shapeLength[slot]; }
+
+    float shape(int slot, int i) {
+        return vertices.get(shapeOffset[slot] + i);
+    }
+
+    float[] shapeCopy(int slot) {
+        float[] shape = new float[shapeLength[slot]];
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = vertices.get(shapeOffset[slot] + i);
+        }
+        return shape;
+    }
+
+    String name(int slot) { return names[slot]; }
+    long id(int slot) { return ids[slot]; }
+    void setId(int slot, long id) { ids[slot] = id; }
+    int version(int slot) { return version[slot]; }
+    int colorVersion(int slot) { return colorVersion[slot]; }
+    long changeCount() { return changes; }
+
+    // Cambia solo cuando se agregan, quitan o reordenan figuras (las posiciones se mueven)
+    int layoutCount() { return modCount; }
+
+    int cachedSegments(int slot, int stamp) {
+        return lodStamp[slot] == stamp && lodVersion[slot] == version[slot] ? lodSegments[slot] : 0;
+    }
+
+    void cacheSegments(int slot, int stamp, int segments) {
+        lodSegments[slot] = segments;
+        lodVersion[slot] = version[slot];
+        lodStamp[slot] = stamp;
+    }
+
+    void setColor(int slot, float r, float g, float b) {
+        columns[RED].put(slot, r);
+        columns[GREEN].put(slot, g);
+        columns[BLUE].put(slot, b);
+        version[slot]++;
+        colorVersion[slot]++;
+        changes++;
+    }
+
+    // No cambia colorVersion: el color guardado es el mismo, el ajuste se aplica al dibujar
+    void setGrade(int slot, float hue, float saturation, float lightness, float ink) {
+        columns[GRADE_HUE].put(slot, hue);
+        columns[GRADE_SATURATION].put(slot, saturation);
+        columns[GRADE_LIGHTNESS].put(slot, lightness);
+        columns[GRADE_INK].put(slot, ink);
+        version[slot]++;
+        changes++;
+    }
+
+    void setTransformValue(int column, int slot, float value) {
+        columns[column].put(slot, value);
+        if (!dirty[slot] && indexes[slot] != null) {
+            indexes[slot].markMoved(get(slot));
+        }
+        dirty[slot] = true;
+        version[slot]++;
+        changes++;
+    }
+
+    // ---- Ediciones en bloque: 'count' posiciones de 'slots', en paralelo por tramos ----
+
+    private static final int BULK_CHUNK = 8 * 1024; // Posiciones por tarea hoja
+
+    private interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private static final class Bulk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeAction action;
+        private final int from;
+        private final int to;
+
+        Bulk(RangeAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BULK_CHUNK) {
+                action.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Bulk(action, from, mid), new Bulk(action, mid, to));
+        }
+    }
+
+    private static void forEachRange(int count, RangeAction action) {
+        if (count <= BULK_CHUNK) {
+            action.run(0, count);
+        } else {
+            ForkJoinPool.commonPool().invoke(new Bulk(action, 0, count));
+        }
+    }
+
+    // Suma 'delta' a un valor de la transformación de cada figura
+    void offsetTransformValue(final int column, final int[] slots, int count, final float delta) {
+        // El índice espacial no es seguro entre hilos: se avisa antes, en este hilo
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            if (!dirty[slot] && indexes[slot] != null) {
+                indexes[slot].markMoved(get(slot));
+            }
+        }
+        final FloatBuffer values = columns[column];
+        forEachRange(count, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int slot = slots[i];
+                values.put(slot, values.get(slot) + delta);
+                dirty[slot] = true;
+                version[slot]++;
+            }
+        });
+        changes++;
+    }
+
+    // Aplica la transformación de paleta a los colores de las figuras
+    void recolor(final int[] slots, int count, PaletteTransform transform) {
+        final PaletteTransform.Block block = new PaletteTransform.Block(count);
+        final FloatBuffer red = columns[RED], green = columns[GREEN], blue = columns[BLUE];
+        final float[] r = block.red(), g = block.green(), b = block.blue();
+        forEachRange(count, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int slot = slots[i];
+                r[i] = red.get(slot);
+                g[i] = green.get(slot);
+                b[i] = blue.get(slot);
+            }
+        });
+        transform.apply(block);
+        forEachRange(count, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int slot = slots[i];
+                red.put(slot, r[i]);
+                green.put(slot, g[i]);
+                blue.put(slot, b[i]);
+                version[slot]++;
+                colorVersion[slot]++;
+            }
+        });
+        changes++;
+    }
+
+    // Copia los valores de las columnas marcadas en 'fields' (bit c = columna c) de las 'count'
+    // posiciones de 'slots' desde 'first'; quedan seguidos por figura en 'out' desde 'offset',
+    // columna menor primero
+    void copyValues(final int fields, final int[] slots, final int first, int count, final float[] out, final int offset) {
+        final int[] selected = columnsOf(fields);
+        forEachRange(count, (from, to) -> {
+            for (int i = from, o = offset + from * selected.length; i < to; i++) {
+                int slot = slots[first + i];
+                for (int column : selected) {
+                    out[o++] = columns[column].get(slot);
+                }
+            }
+        });
+    }
+
+    // Escribe valores con el formato de copyValues, con los mismos efectos que setColor,
+    // setGrade y setTransformValue
+    void writeValues(final int fields, final int[] slots, final int first, int count, final float[] values, final int offset) {
+        final int[] selected = columnsOf(fields);
+        final boolean color = (fields & (1 << RED | 1 << GREEN | 1 << BLUE)) != 0;
+        final boolean transform = (fields & ((1 << RED) - 1)) != 0; // Columnas antes de RED
+        if (transform) {
+            // El índice espacial no es seguro entre hilos: se avisa antes, en este hilo
+            for (int i = 0; i < count; i++) {
+                int slot = slots[first + i];
+                if (!dirty[slot] && indexes[slot] != null) {
+                    indexes[slot].markMoved(get(slot));
+                }
+            }
+        }
+        forEachRange(count, (from, to) -> {
+            for (int i = from, v = offset + from * selected.length; i < to; i++) {
+                int slot = slots[first + i];
+                for (int column : selected) {
+                    columns[column].put(slot, values[v++]);
+                }
+                version[slot]++;
+                if (color) {
+                    colorVersion[slot]++;
+                }
+                if (transform) {
+                    dirty[slot] = true;
+                }
+            }
+        });
+        changes++;
+    }
+
+    private static int[] columnsOf(int fields) {
+        int[] selected = new int[Integer.bitCount(fields)];
+        for (int i = 0, rest = fields; rest != 0; rest &= rest - 1) {
+            selected[i++] = Integer.numberOfTrailingZeros(rest);
+        }
+        return selected;
+    }
+
+    void attachIndex(int slot, SpatialIndex index, int proxyId) {
+        indexes[slot] = index;
+        proxyIds[slot] = proxyId;
+    }
+
+    int proxyId(int slot) { return proxyIds[slot]; }
+
+    // Recalcula la matriz afín si algún valor de la transformación cambió. Misma composición
+    // que aplicaba la pila de matrices en draw(): escala, rotación alrededor del centroide,
+    // sesgado relativo al borde anclado y traslación final. Se compone en variables locales,
+    // con las mismas operaciones que Transform2D.multiply, para no crear un objeto por figura
+    // en cada cuadro con animación.
+    void updateTransform(int slot) {
+        if (!dirty[slot]) {
+            return;
+        }
+        float a = get(SCALE_X, slot), b = 0.0f, c = 0.0f, d = get(SCALE_Y, slot), tx = 0.0f, ty = 0.0f;
+
+        float cx = get(CENTROID_X, slot), cy = get(CENTROID_Y, slot);
+        tx += a * cx + c * cy;
+        ty += b * cx + d * cy;
+        double radians = Math.toRadians(get(ROTATION, slot));
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float ma = a, mb = b, mc = c, md = d;
+        a = ma * cos + mc * sin;
+        b = mb * cos + md * sin;
+        c = ma * -sin + mc * cos;
+        d = mb * -sin + md * cos;
+        tx += a * -cx + c * -cy;
+        ty += b * -cx + d * -cy;
+
+        float anchorX = anchorMidX(slot);
+        float anchorY = anchorMidY(slot);
+        tx += a * anchorX + c * anchorY;
+        ty += b * anchorX + d * anchorY;
+        float biasX = get(BIAS_X, slot), biasY = get(BIAS_Y, slot);
+        ma = a;
+        mb = b;
+        mc = c;
+        md = d;
+        a = ma + mc * biasY;
+        b = mb + md * biasY;
+        c = ma * biasX + mc;
+        d = mb * biasX + md;
+        tx += a * -anchorX + c * -anchorY;
+        ty += b * -anchorX + d * -anchorY;
+
+        float translateX = get(TRANSLATE_X, slot), translateY = get(TRANSLATE_Y, slot);
+        tx += a * translateX + c * translateY;
+        ty += b * translateX + d * translateY;
+
+        set(A, slot, a);
+        set(B, slot, b);
+        set(C, slot, c);
+        set(D, slot, d);
+        set(TX, slot, tx);
+        set(TY, slot, ty);
+        dirty[slot] = false;
+    }
+
+    // Punto medio del borde anclado: el borde izquierdo en el rectángulo y el primer
+    // borde (vértices 0 y 1) en triángulos, pentágonos y hexágonos
+    private float anchorMidX(int slot) {
+        int length = shapeLength[slot];
+        if (length == 4) {
+            return shape(slot, 0);
+        } else if (length == 6 || length == 10 || length == 12) {
+            return (shape(slot, 0) + shape(slot, 2)) / 2;
+        }
+        return 0.0f;
+    }
+
+    private float anchorMidY(int slot) {
+        int length = shapeLength[slot];
+        if (length == 4) {
+            return shape(slot, 1) + shape(slot, 3) / 2;
+        } else if (length == 6 || length == 10 || length == 12) {
+            return (shape(slot, 1) + shape(slot, 3)) / 2;
+        }
+        return 0.0f;
+    }
+}
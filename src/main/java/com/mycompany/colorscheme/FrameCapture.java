@@ -0,0 +1,340 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Captura continua de cuadros sin detener el hilo de render. Cada cuadro se lee con
+// glReadPixels a un PBO de un anillo (copia asíncrona en la GPU); RING - 1 cuadros después
+// ese PBO ya está listo, se mapea, se copia a un búfer libre del pool y se entrega por una
+// cola acotada al hilo codificador, que escribe RGBA crudo, PNG o video Y4M.
+//
+// Si la cola o el pool están llenos el cuadro se descarta en lugar de esperar. Además, si el
+// costo medio de capture() en el hilo de render supera el presupuesto, se omite la lectura
+// del cuadro siguiente. Los cuadros con otro tamaño de framebuffer (la ventana cambió de
+// tamaño) tampoco se leen. Los tres casos se cuentan por separado.
+//
+// Si el codificador falla (disco lleno, directorio sin permiso, error de ImageIO) guarda el
+// error y termina; desde ahí capture() ya no lee cuadros, el panel muestra getFailure() y
+// close() lo vuelve a lanzar, para que una captura rota no parezca solo una lenta.
+class FrameCapture {
+
+    private static final int RING = 3;
+    private static final int QUEUE_CAPACITY = 8;
+
+    enum Format { RAW, PNG, Y4M }
+
+    private final int width;
+    private final int height;
+    private final int frameBytes;
+    private final long budgetNanos;
+
+    // Anillo de PBO; slotFrame es el número de cuadro pendiente en cada uno (-1 si está libre)
+    private final int[] pbos = new int[RING];
+    private final long[] slotFrame = new long[RING];
+    private int next = 0;
+    private long frameNumber = 0;
+    private double averageCostNanos = 0;
+    private boolean skipNext = false;
+
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread encoderThread;
+    private final Encoder encoder;
+    private volatile boolean stopping = false;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong encoded = new AtomicLong();
+    private final AtomicLong droppedQueue = new AtomicLong();
+    private final AtomicLong droppedBudget = new AtomicLong();
+    private final AtomicLong droppedResize = new AtomicLong();
+    private int maxQueueDepth = 0;
+
+    FrameCapture(int width, int height, Format format, File output, double budgetMillis, int fps) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.frameBytes = width * height * 4;
+        this.budgetNanos = (long) (budgetMillis * 1e6);
+
+        switch (format) {
+            case PNG:
+                encoder = new PngEncoder(output, width, height);
+                break;
+            case Y4M:
+                encoder = new Y4mEncoder(output, width, height, fps);
+                break;
+            default:
+                encoder = new RawEncoder(output);
+                break;
+        }
+
+        for (int i = 0; i < RING; i++) {
+            pbos[i] = GL33.glGenBuffers();
+            GL33.glBindBuffer(GL33.GL_PIXEL_PACK_BUFFER, pbos[i]);
+            GL33.glBufferData(GL33.GL_PIXEL_PACK_BUFFER, frameBytes, GL33.GL_STREAM_READ);
+            slotFrame[i] = -1;
+        }
+        GL33.glBindBuffer(GL33.GL_PIXEL_PACK_BUFFER, 0);
+        for (int i = 0; i < QUEUE_CAPACITY; i++) {
+            freeBuffers.add(MemoryUtil.memAlloc(frameBytes));
+        }
+
+        encoderThread = new Thread(this::encodeLoop, "frame-capture-encoder");
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+    }
+
+    // Llamar en el hilo de render con el framebuffer a capturar ya dibujado
+    void capture(int framebufferWidth, int framebufferHeight) {
+        if (failure.get() != null) {
+            return; // El codificador ya no escribe: no tiene sentido seguir leyendo cuadros
+        }
+        long start = System.nanoTime();
+        frameNumber++;
+
+        // El PBO más antiguo del anillo se lee primero para liberar su lugar
+        int slot = next;
+        next = (next + 1) % RING;
+        if (slotFrame[slot] >= 0) {
+            drain(slot);
+        }
+
+        if (framebufferWidth != width || framebufferHeight != height) {
+            skipNext = false; // Una omisión pendiente por presupuesto se cumple con este cuadro
+            droppedResize.incrementAndGet();
+        } else if (skipNext) {
+            skipNext = false;
+            droppedBudget.incrementAndGet();
+        } else {
+            GL33.glBindBuffer(GL33.GL_PIXEL_PACK_BUFFER, pbos[slot]);
+            GL33.glPixelStorei(GL33.GL_PACK_ALIGNMENT, 1);
+            GL33.glReadPixels(0, 0, width, height, GL33.GL_RGBA, GL33.GL_UNSIGNED_BYTE, 0L);
+            GL33.glBindBuffer(GL33.GL_PIXEL_PACK_BUFFER, 0);
+            slotFrame[slot] = frameNumber;
+        }
+
+        long cost = System.nanoTime() - start;
+        averageCostNanos = averageCostNanos * 0.9 + cost * 0.1;
+        if (averageCostNanos > budgetNanos) {
+            skipNext = true;
+        }
+    }
+
+    // Mapea el PBO (ya completado en la GPU) y pasa una copia al codificador
+    private void drain(int slot) {
+        slotFrame[slot] = -1;
+        ByteBuffer target = freeBuffers.poll();
+        if (target == null) {
+            droppedQueue.incrementAndGet(); // El codificador va atrasado
+            return;
+        }
+        GL33.glBindBuffer(GL33.GL_PIXEL_PACK_BUFFER, pbos[slot]);
+        ByteBuffer mapped = GL33.glMapBufferRange(GL33.GL_PIXEL_PACK_BUFFER, 0, frameBytes, GL33.GL_MAP_READ_BIT);
+        if (mapped != null) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress(mapped), MemoryUtil.memAddress(target), frameBytes);
+            GL33.glUnmapBuffer(GL33.GL_PIXEL_PACK_BUFFER);
+        }
+        GL33.glBindBuffer(GL33.GL_PIXEL_PACK_BUFFER, 0);
+        if (mapped == null) {
+            freeBuffers.add(target);
+            droppedQueue.incrementAndGet();
+            return;
+        }
+        target.clear();
+        queue.add(target); // Nunca se llena: hay tantos búferes como lugares en la cola
+        captured.incrementAndGet();
+        maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+    }
+
+    private void encodeLoop() {
+        try {
+            while (true) {
+                ByteBuffer frame = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    encoder.write(frame);
+                    encoded.incrementAndGet();
+                } finally {
+                    frame.clear();
+                    freeBuffers.add(frame);
+                }
+            }
+        } catch (IOException e) {
+            failure.set(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getQueueDepth() { return queue.size(); }
+    int getMaxQueueDepth() { return maxQueueDepth; }
+    long getCaptured() { return captured.get(); }
+    long getEncoded() { return encoded.get(); }
+    long getDroppedQueue() { return droppedQueue.get(); }
+    long getDroppedBudget() { return droppedBudget.get(); }
+    long getDroppedResize() { return droppedResize.get(); }
+    double getAverageCostMillis() { return averageCostNanos / 1e6; }
+    IOException getFailure() { return failure.get(); }
+
+    // Vacía los PBO pendientes, espera al codificador y libera todo. Hilo de render. Si el
+    // codificador falló, o falla al cerrar, lanza ese error después de liberar.
+    void close() {
+        if (failure.get() == null) {
+            for (int i = 0; i < RING; i++) {
+                int slot = (next + i) % RING;
+                if (slotFrame[slot] >= 0) {
+                    drain(slot);
+                }
+            }
+        }
+        stopping = true;
+        try {
+            encoderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            encoder.close();
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            for (int pbo : pbos) {
+                GL33.glDeleteBuffers(pbo);
+            }
+            ByteBuffer buffer;
+            while ((buffer = freeBuffers.poll()) != null) {
+                MemoryUtil.memFree(buffer);
+            }
+            while ((buffer = queue.poll()) != null) {
+                MemoryUtil.memFree(buffer);
+            }
+        }
+        IOException error = failure.get();
+        if (error != null) {
+            throw new RuntimeException("Error al escribir la captura", error);
+        }
+    }
+
+    // ---- Codificadores; reciben RGBA con la fila 0 abajo, como glReadPixels ----
+
+    private interface Encoder {
+        void write(ByteBuffer rgba) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    // Cuadros RGBA crudos uno tras otro en un solo archivo
+    private static final class RawEncoder implements Encoder {
+        private final FileChannel channel;
+
+        RawEncoder(File output) throws IOException {
+            channel = new FileOutputStream(output).getChannel();
+        }
+
+        public void write(ByteBuffer rgba) throws IOException {
+            while (rgba.hasRemaining()) {
+                channel.write(rgba);
+            }
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Un PNG por cuadro en el directorio de salida
+    private static final class PngEncoder implements Encoder {
+        private final File directory;
+        private final int width;
+        private final int height;
+        private final BufferedImage image;
+        private final int[] argb;
+        private long index = 0;
+
+        PngEncoder(File directory, int width, int height) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("No se pudo crear el directorio " + directory);
+            }
+            this.directory = directory;
+            this.width = width;
+            this.height = height;
+            this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            this.argb = new int[width * height];
+        }
+
+        public void write(ByteBuffer rgba) throws IOException {
+            image.setRGB(0, 0, width, height, GlPixels.fromGlRgba(rgba, width, height, argb), 0, width);
+            ImageIO.write(image, "png", new File(directory, String.format("cuadro_%06d.png", index++)));
+        }
+
+        public void close() {
+        }
+    }
+
+    // Video YUV4MPEG2 sin compresión (4:4:4), legible por ffmpeg y mpv
+    private static final class Y4mEncoder implements Encoder {
+        private final FileChannel channel;
+        private final int width;
+        private final int height;
+        private final ByteBuffer planes;
+        private final ByteBuffer frameHeader = ByteBuffer.wrap("FRAME\n".getBytes(StandardCharsets.US_ASCII));
+
+        Y4mEncoder(File output, int width, int height, int fps) throws IOException {
+            this.channel = new FileOutputStream(output).getChannel();
+            this.width = width;
+            this.height = height;
+            this.planes = ByteBuffer.allocateDirect(width * height * 3);
+            String header = "YUV4MPEG2 W" + width + " H" + height + " F" + fps + ":1 Ip A1:1 C444\n";
+            writeFully(ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        public void write(ByteBuffer rgba) throws IOException {
+            // RGB a YCbCr BT.601 de rango limitado, filas de arriba hacia abajo
+            int pixels = width * height;
+            int start = rgba.position();
+            for (int y = 0; y < height; y++) {
+                int src = start + (height - 1 - y) * width * 4;
+                int dst = y * width;
+                for (int x = 0; x < width; x++, src += 4) {
+                    int r = rgba.get(src) & 0xFF, g = rgba.get(src + 1) & 0xFF, b = rgba.get(src + 2) & 0xFF;
+                    planes.put(dst + x, (byte) ((66 * r + 129 * g + 25 * b + 128 >> 8) + 16));
+                    planes.put(pixels + dst + x, (byte) ((-38 * r - 74 * g + 112 * b + 128 >> 8) + 128));
+                    planes.put(2 * pixels + dst + x, (byte) ((112 * r - 94 * g - 18 * b + 128 >> 8) + 128));
+                }
+            }
+            frameHeader.rewind();
+            writeFully(frameHeader);
+            planes.clear();
+            writeFully(planes);
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL33;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Tiempos por cuadro del hilo de render: secciones de CPU con System.nanoTime (actualización,
+// dibujo de figuras, ImGui e intercambio de búferes), tiempo de GPU del dibujo con consultas
+// GL_TIME_ELAPSED, llamadas de dibujo, vértices y bytes asignados por el hilo en el cuadro.
+// Guarda los últimos HISTORY cuadros y, si se pide, escribe cada cuadro en CSV o JSON lines.
+//
+// Apagado, cada llamada es solo la comprobación de 'enabled'. Los renderizadores cuentan sus
+// llamadas de dibujo con countDraw(), que es estático para no pasar el perfilador por todos.
+final class FrameProfiler {
+
+    // Secciones de CPU
+    static final int UPDATE = 0;
+    static final int DRAW = 1;
+    static final int IMGUI = 2;
+    static final int SWAP = 3;
+    static final int SECTIONS = 4;
+
+    static final int HISTORY = 240;
+    private static final int QUERIES = 4; // Consultas en vuelo; el resultado se lee QUERIES cuadros después
+
+    private static final String CSV_HEADER =
+            "frame,frame_ms,update_ms,draw_ms,imgui_ms,swap_ms,gpu_ms,draw_calls,vertices,alloc_bytes";
+
+    // Contadores del cuadro actual (solo hilo de render)
+    private static boolean enabled = false;
+    private static int drawCalls = 0;
+    private static long vertices = 0;
+
+    static void countDraw(long vertexCount) {
+        if (enabled) {
+            drawCalls++;
+            vertices += vertexCount;
+        }
+    }
+
+    // Historial circular en columnas
+    private final float[] frameMillis = new float[HISTORY];
+    private final float[][] sectionMillis = new float[SECTIONS][HISTORY];
+    private final float[] gpuMillis = new float[HISTORY];
+    private final int[] frameDrawCalls = new int[HISTORY];
+    private final long[] frameVertices = new long[HISTORY];
+    private final long[] frameAllocated = new long[HISTORY];
+    private final long[] frameNumber = new long[HISTORY];
+    private int head = 0;  // Próxima posición a escribir
+    private int filled = 0;
+    private long frame = 0;
+
+    private long frameStart;
+    private final long[] sectionStart = new long[SECTIONS];
+    private final long[] sectionNanos = new long[SECTIONS];
+    private long allocatedStart;
+
+    // Consultas de tiempo de GPU
+    private final boolean gpuTimers;
+    private final int[] queries = new int[QUERIES];
+    private final long[] queryFrame = new long[QUERIES];
+    private int query = 0;
+    private boolean queryActive = false;
+
+    // Bytes asignados por hilo (solo en JVMs que lo exponen)
+    private final com.sun.management.ThreadMXBean allocations;
+    private final long threadId = Thread.currentThread().getId();
+
+    private Writer output;
+    private boolean jsonLines;
+
+    // Crear en el hilo de render con el contexto GL ya activo
+    FrameProfiler() {
+        gpuTimers = GL.getCapabilities().OpenGL33 || GL.getCapabilities().GL_ARB_timer_query;
+        if (gpuTimers) {
+            GL33.glGenQueries(queries);
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            queryFrame[i] = -1;
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            allocations = (com.sun.management.ThreadMXBean) threads;
+            allocations.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocations = null;
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    boolean hasGpuTimers() {
+        return gpuTimers;
+    }
+
+    // Escribe cada cuadro en 'path' (JSON lines si termina en .jsonl, CSV si no)
+    void streamTo(Path path) throws IOException {
+        closeOutput();
+        jsonLines = path.toString().endsWith(".jsonl");
+        output = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        if (!jsonLines) {
+            output.write(CSV_HEADER);
+            output.write('\n');
+        }
+    }
+
+    void beginFrame() {
+        if (!enabled) {
+            return;
+        }
+        frameStart = System.nanoTime();
+        for (int i = 0; i < SECTIONS; i++) {
+            sectionNanos[i] = 0;
+        }
+        drawCalls = 0;
+        vertices = 0;
+        allocatedStart = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+    }
+
+    void begin(int section) {
+        if (enabled) {
+            sectionStart[section] = System.nanoTime();
+        }
+    }
+
+    void end(int section) {
+        if (enabled) {
+            sectionNanos[section] += System.nanoTime() - sectionStart[section];
+        }
+    }
+
+    // Rodea el dibujo de las figuras; solo puede haber una consulta activa a la vez
+    void beginGpu() {
+        if (!enabled || !gpuTimers) {
+            return;
+        }
+        collectGpu(query);
+        GL33.glBeginQuery(GL33.GL_TIME_ELAPSED, queries[query]);
+        queryFrame[query] = frame;
+        queryActive = true;
+    }
+
+    void endGpu() {
+        if (queryActive) {
+            GL33.glEndQuery(GL33.GL_TIME_ELAPSED);
+            query = (query + 1) % QUERIES;
+            queryActive = false;
+        }
+    }
+
+    void endFrame() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        int slot = head;
+        frameNumber[slot] = frame;
+        frameMillis[slot] = (now - frameStart) / 1e6f;
+        for (int i = 0; i < SECTIONS; i++) {
+            sectionMillis[i][slot] = sectionNanos[i] / 1e6f;
+        }
+        gpuMillis[slot] = Float.NaN; // Se completa cuando llegue el resultado de la consulta
+        frameDrawCalls[slot] = drawCalls;
+        frameVertices[slot] = vertices;
+        frameAllocated[slot] = allocations != null ? allocations.getThreadAllocatedBytes(threadId) - allocatedStart : -1;
+        head = (head + 1) % HISTORY;
+        filled = Math.min(filled + 1, HISTORY);
+
+        // El cuadro que sale se escribe con el retraso de las consultas, para tener su GPU
+        if (output != null && filled > QUERIES) {
+            writeRow((slot - QUERIES + HISTORY) % HISTORY);
+        }
+        frame++;
+    }
+
+    // Lee (sin esperar) el resultado de la consulta, si está disponible
+    private void collectGpu(int index) {
+        long owner = queryFrame[index];
+        if (owner < 0) {
+            return;
+        }
+        queryFrame[index] = -1;
+        if (GL33.glGetQueryObjecti(queries[index], GL33.GL_QUERY_RESULT_AVAILABLE) == GL33.GL_FALSE) {
+            return; // Demasiado atrasada; el cuadro queda sin tiempo de GPU
+        }
+        long nanos = GL33.glGetQueryObjecti64(queries[index], GL33.GL_QUERY_RESULT);
+        int slot = slotOf(owner);
+        if (slot >= 0) {
+            gpuMillis[slot] = nanos / 1e6f;
+        }
+    }
+
+    // Posición del historial de un cuadro ya cerrado (el último cerrado es frame - 1)
+    private int slotOf(long number) {
+        long age = frame - number;
+        if (age < 1 || age > filled) {
+            return -1;
+        }
+        return (int) ((head - age + HISTORY) % HISTORY);
+    }
+
+    // ---- Consulta del historial (índice 0 = cuadro más viejo) ----
+
+    int size() {
+        return filled;
+    }
+
+    private int index(int i) {
+        return (head - filled + i + HISTORY) % HISTORY;
+    }
+
+    float frameMillis(int i) { return frameMillis[index(i)]; }
+    float sectionMillis(int section, int i) { return sectionMillis[section][index(i)]; }
+    float gpuMillis(int i) { return gpuMillis[index(i)]; }
+    int drawCalls(int i) { return frameDrawCalls[index(i)]; }
+    long vertices(int i) { return frameVertices[index(i)]; }
+    long allocatedBytes(int i) { return frameAllocated[index(i)]; }
+
+    // Copia los tiempos de cuadro en orden para ImGui.plotHistogram
+    int copyFrameMillis(float[] out) {
+        for (int i = 0; i < filled; i++) {
+            out[i] = frameMillis[index(i)];
+        }
+        return filled;
+    }
+
+    // Promedio de los últimos 'count' cuadros de una sección; -1 = cuadro completo, SECTIONS = GPU
+    float average(int section, int count) {
+        int n = Math.min(count, filled);
+        double sum = 0;
+        int used = 0;
+        for (int i = filled - n; i < filled; i++) {
+            float value = section < 0 ? frameMillis(i) : section == SECTIONS ? gpuMillis(i) : sectionMillis(section, i);
+            if (!Float.isNaN(value)) {
+                sum += value;
+                used++;
+            }
+        }
+        return used == 0 ? Float.NaN : (float) (sum / used);
+    }
+
+    // Escribe todo el historial
+    void export(Path path) throws IOException {
+        boolean json = path.toString().endsWith(".jsonl");
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (!json) {
+                out.write(CSV_HEADER);
+                out.write('\n');
+            }
+            for (int i = 0; i < filled; i++) {
+                out.write(format(index(i), json));
+                out.write('\n');
+            }
+        }
+    }
+
+    private void writeRow(int slot) {
+        try {
+            output.write(format(slot, jsonLines));
+            output.write('\n');
+        } catch (IOException e) {
+            System.err.println("No se pudo escribir el perfil: " + e.getMessage());
+            closeOutput();
+        }
+    }
+
+    private String format(int slot, boolean json) {
+        float[] s = {sectionMillis[UPDATE][slot], sectionMillis[DRAW][slot], sectionMillis[IMGUI][slot], sectionMillis[SWAP][slot]};
+        if (json) {
+            return String.format(Locale.ROOT,
+                    "{\"frame\":%d,\"frame_ms\":%.4f,\"update_ms\":%.4f,\"draw_ms\":%.4f,\"imgui_ms\":%.4f,"
+                            + "\"swap_ms\":%.4f,\"gpu_ms\":%s,\"draw_calls\":%d,\"vertices\":%d,\"alloc_bytes\":%d}",
+                    frameNumber[slot], frameMillis[slot], s[0], s[1], s[2], s[3],
+                    Float.isNaN(gpuMillis[slot]) ? "null" : String.format(Locale.ROOT, "%.4f", gpuMillis[slot]),
+                    frameDrawCalls[slot], frameVertices[slot], frameAllocated[slot]);
+        }
+        return String.format(Locale.ROOT, "%d,%.4f,%.4f,%.4f,%.4f,%.4f,%s,%d,%d,%d",
+                frameNumber[slot], frameMillis[slot], s[0], s[1], s[2], s[3],
+                Float.isNaN(gpuMillis[slot]) ? "" : String.format(Locale.ROOT, "%.4f", gpuMillis[slot]),
+                frameDrawCalls[slot], frameVertices[slot], frameAllocated[slot]);
+    }
+
+    private void closeOutput() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                System.err.println("No se pudo cerrar el perfil: " + e.getMessage());
+            }
+            output = null;
+        }
+    }
+
+    void dispose() {
+        closeOutput();
+        if (gpuTimers) {
+            GL33.glDeleteQueries(queries);
+        }
+        enabled = false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.mycompany.colorscheme;
+
+import java.nio.ByteBuffer;
+
+// Conversión entre el formato de glReadPixels (RGBA, fila 0 abajo) y el ARGB de
+// SoftwareRenderer (fila 0 arriba).
+final class GlPixels {
+
+    private GlPixels() {
+    }
+
+    static int[] fromGlRgba(ByteBuffer rgba, int width, int height) {
+        return fromGlRgba(rgba, width, height, new int[width * height]);
+    }
+
+    // Igual, pero en un arreglo existente (para reutilizar búferes)
+    static int[] fromGlRgba(ByteBuffer rgba, int width, int height, int[] argb) {
+        int start = rgba.position();
+        for (int y = 0; y < height; y++) {
+            int src = start + (height - 1 - y) * width * 4;
+            int dst = y * width;
+            for (int x = 0; x < width; x++, src += 4) {
+                argb[dst + x] = (rgba.get(src + 3) & 0xFF) << 24
+                        | (rgba.get(src) & 0xFF) << 16
+                        | (rgba.get(src + 1) & 0xFF) << 8
+                        | (rgba.get(src + 2) & 0xFF);
+            }
+        }
+        return argb;
+    }
+
+    // Escribe los píxeles con la misma distribución que glReadPixels, desde la posición actual
+    static void toGlRgba(int[] argb, int width, int height, ByteBuffer out) {
+        for (int y = height - 1; y >= 0; y--) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[row + x];
+                out.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel).put((byte) (pixel >>> 24));
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+// Modo sin pantalla: crea un contexto core 3.3 en una ventana oculta, dibuja la escena en un
+// FBO del tamaño pedido y lee cada cuadro con glReadPixels a un búfer directo reutilizado.
+// Cada cuadro es una variante de la paleta (el tono se desplaza 360/variantes grados por
+// variante). El desplazamiento es un ColorGrade: con OpenGL lo aplica el shader, así que
+// cambiar de variante solo sube un bloque de uniformes; SoftwareRenderer aplica en Java la
+// misma cadena (con el ajuste propio de cada figura). Al final informa cuadros por segundo
+// para dimensionar granjas de render.
+//
+// Uso: HeadlessRenderer [ancho] [alto] [variantes] [salida]
+// Con 'salida' se escriben los cuadros RGBA crudos uno tras otro ("-" para la salida estándar).
+//
+// Propiedades:
+//   colorscheme.stress=N          escena de estrés con N figuras en lugar de la predeterminada
+//   colorscheme.renderer=...      batch (predeterminado), instanced o software; con software
+//                                 se usa SoftwareRenderer y no se necesita OpenGL
+//   colorscheme.context=...       native (predeterminado), egl u osmesa; con Mesa, egl u
+//                                 osmesa evitan depender del servidor X (o usar Xvfb con native)
+public class HeadlessRenderer {
+
+    public static void main(String[] args) throws IOException {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 1920;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 1080;
+        int variants = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        String output = args.length > 3 ? args[3] : null;
+
+        String mode = System.getProperty("colorscheme.renderer", "batch");
+        if ("software".equals(mode)) {
+            try (WritableByteChannel channel = openOutput(output)) {
+                render(width, height, variants, channel, mode);
+            }
+            return;
+        }
+
+        if (!GLFW.glfwInit()) {
+            throw new IllegalStateException("No se pudo inicializar GLFW");
+        }
+        long window = MemoryUtil.NULL;
+        try {
+            window = createContext();
+            try (WritableByteChannel channel = openOutput(output)) {
+                render(width, height, variants, channel, mode);
+            }
+        } finally {
+            if (window != MemoryUtil.NULL) {
+                GLFW.glfwDestroyWindow(window);
+            }
+            GLFW.glfwTerminate();
+        }
+    }
+
+    static long createContext() {
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+        GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
+        GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+        GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+
+        String api = System.getProperty("colorscheme.context", "native");
+        if ("egl".equals(api)) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, GLFW.GLFW_EGL_CONTEXT_API);
+        } else if ("osmesa".equals(api)) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, GLFW.GLFW_OSMESA_CONTEXT_API);
+        } else if (!"native".equals(api)) {
+            throw new IllegalStateException("Contexto desconocido: " + api);
+        }
+
+        // La ventana nunca se muestra; el tamaño real de render lo fija el FBO
+        long window = GLFW.glfwCreateWindow(16, 16, "Render sin pantalla", MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL) {
+            throw new RuntimeException("No se pudo crear el contexto OpenGL (" + api + ")");
+        }
+        GLFW.glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        GLFW.glfwSwapInterval(0);
+        return window;
+    }
+
+    private static WritableByteChannel openOutput(String output) throws IOException {
+        if (output == null) {
+            return null;
+        }
+        if ("-".equals(output)) {
+            return Channels.newChannel(System.out);
+        }
+        return new FileOutputStream(output).getChannel();
+    }
+
+    private static void render(int width, int height, int variants, WritableByteChannel channel, String mode)
+            throws IOException {
+        int stress = Integer.getInteger("colorscheme.stress", 0);
+        List<Figure> figures = stress > 0 ? SceneFactory.stressScene(stress, 42L) : SceneFactory.defaultScene();
+        int count = figures.size();
+
+        SoftwareRenderer software = null;
+        OffscreenTarget target = null;
+        ByteBuffer softwarePixels = null;
+        ColorGrade grade = new ColorGrade();
+        Renderer renderer;
+        if ("software".equals(mode)) {
+            software = new SoftwareRenderer(width, height, Runtime.getRuntime().availableProcessors(), grade);
+            softwarePixels = MemoryUtil.memAlloc(width * height * 4);
+            renderer = software;
+        } else {
+            target = new OffscreenTarget(width, height);
+            target.bind();
+            GL33.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+            renderer = "instanced".equals(mode) ? new InstancedRenderer(grade) : new BatchRenderer(grade);
+        }
+        try {
+
+            long bytes = 0;
+            long readNanos = 0;
+            long start = System.nanoTime();
+            for (int v = 0; v < variants; v++) {
+                grade.set(PaletteTransform.Space.HSL, 360.0f * v / variants, 1.0f, 1.0f, 0.0f);
+
+                if (target != null) {
+                    GL33.glClear(GL33.GL_COLOR_BUFFER_BIT);
+                }
+                renderer.render(figures, null);
+
+                long readStart = System.nanoTime();
+                ByteBuffer pixels;
+                if (target != null) {
+                    pixels = target.readPixels();
+                } else {
+                    softwarePixels.clear();
+                    GlPixels.toGlRgba(software.getPixels(), width, height, softwarePixels);
+                    pixels = (ByteBuffer) softwarePixels.flip();
+                }
+                readNanos += System.nanoTime() - readStart;
+                bytes += pixels.remaining();
+                if (channel != null) {
+                    while (pixels.hasRemaining()) {
+                        channel.write(pixels);
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            double fps = variants * 1e9 / elapsed;
+            System.err.printf("Figuras: %d, resolución: %dx%d, variantes: %d, renderizador: %s%n",
+                    count, width, height, variants, mode);
+            System.err.printf("%.1f cuadros/s, %.3f ms/cuadro (%.3f ms en la lectura), %.1f MB/s leídos%n",
+                    fps, 1000.0 / fps, readNanos / 1e6 / variants, bytes / (elapsed / 1e9) / (1024.0 * 1024.0));
+        } finally {
+            renderer.dispose();
+            if (target != null) {
+                target.unbind();
+                target.dispose();
+            }
+            if (softwarePixels != null) {
+                MemoryUtil.memFree(softwarePixels);
+            }
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Renderizado instanciado: una malla unitaria por tipo de primitiva (círculo, cuadrilátero,
+// triángulo, pentágono y hexágono regulares) y un búfer de instancias con el color y la
+// transformación afín de cada figura. Los pentágonos y hexágonos que no son imagen afín de uno
+// regular no caben en la malla unitaria: van como abanico de triángulos a un búfer de vértices
+// aparte (cada vértice lleva los mismos datos que una instancia) que se dibuja con una sola
+// llamada más. Se hace un glDrawArraysInstanced por tipo; para que las
+// figuras de distinto tipo se tapen en el orden de la escena, como en los otros renderizadores,
+// cada instancia lleva su posición en la escena como profundidad (hace falta un búfer de
+// profundidad de 24 bits: alcanza para unos 8 millones de figuras). Los círculos se reparten
+// en varios niveles de detalle según los segmentos que pida el TessellationCache.
+//
+// Los búferes de instancias se conservan entre cuadros y solo crecen: al editar o animar se
+// suben con glBufferSubData solo las figuras cuya versión cambió. Agregar, quitar o reordenar
+// figuras, o que un círculo cambie de nivel de detalle, rehace la distribución completa.
+// El ajuste de color de la escena (ColorGrade) lo aplica el fragment shader, junto con el
+// ajuste propio de cada figura, que va en el búfer de instancias.
+class InstancedRenderer implements Renderer {
+
+    private static final String VERTEX_SHADER =
+            "#version 330 core\n"
+            + "layout(location = 0) in vec2 aPos;\n"
+            + "layout(location = 1) in vec3 iColor;\n"
+            + "layout(location = 2) in vec4 iLinear;\n"
+            + "layout(location = 3) in vec3 iTranslate;   // traslación y posición en la escena\n"
+            + "layout(location = 4) in vec4 iGrade;\n"
+            + "uniform float uDepthStep;\n"
+            + "out vec3 vColor;\n"
+            + "flat out vec4 vGrade;\n"
+            + "void main() {\n"
+            + "    vColor = iColor;\n"
+            + "    vGrade = iGrade;\n"
+            + "    vec2 p = mat2(iLinear.xy, iLinear.zw) * aPos + iTranslate.xy;\n"
+            + "    gl_Position = vec4(p, 1.0 - (iTranslate.z + 1.0) * uDepthStep, 1.0);\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "#version 330 core\n"
+            + ColorGrade.GLSL
+            + "in vec3 vColor;\n"
+            + "flat in vec4 vGrade;\n"
+            + "uniform bool uGraded;\n"
+            + "out vec4 fragColor;\n"
+            + "void main() {\n"
+            + "    fragColor = vec4(uGraded ? grade(vColor, vGrade) : vColor, 1.0);\n"
+            + "}\n";
+
+    // Tipos de primitiva
+    private static final int QUAD = 0;
+    private static final int TRIANGLE = 1;
+    private static final int PENTAGON = 2;
+    private static final int HEXAGON = 3;
+    private static final int CIRCLE = 4; // Primer nivel de círculo; CIRCLE + i usa CIRCLE_LEVELS[i] segmentos
+    private static final int[] CIRCLE_LEVELS = {8, 16, 32, 64, TessellationCache.MAX_SEGMENTS};
+    private static final int KINDS = CIRCLE + CIRCLE_LEVELS.length;
+    private static final int POLYGON = KINDS; // Polígono irregular, sin malla unitaria
+
+    // Color (3), matriz lineal (4), traslación (2), posición en la escena (1), ajuste (4)
+    private static final int FLOATS_PER_INSTANCE = 14;
+    private static final int INSTANCE_STRIDE = FLOATS_PER_INSTANCE * Float.BYTES;
+    // Vértice de un polígono irregular: posición en la forma (2) y los datos de una instancia
+    private static final int FLOATS_PER_VERTEX = 2 + FLOATS_PER_INSTANCE;
+    private static final int VERTEX_STRIDE = FLOATS_PER_VERTEX * Float.BYTES;
+    // Error admitido al reconocer un polígono regular, relativo a su tamaño
+    private static final float REGULAR_TOLERANCE = 1e-4f;
+    private static final float[] BORDER_COLOR = {1.0f, 0.0f, 0.0f}; // Borde rojo
+
+    private final int program;
+    private final ColorGrade.Uniforms gradeUniforms;
+    private final int gradedLocation;
+    private final int depthStepLocation;
+    private final int meshVbo;
+    private final int[] vao = new int[KINDS];
+    private final int[] instanceVbo = new int[KINDS];
+    private final int[] instanceCount = new int[KINDS];
+    private final int[] instanceCapacity = new int[KINDS]; // Instancias que caben en cada búfer
+    private final int borderVao;
+    private final int borderVbo;
+    private final int polygonVao;
+    private final int polygonVbo;
+    private int polygonVertices = 0;
+    private int polygonCapacity = 0; // Vértices que caben en polygonVbo
+    private final int polygonBorderVao;
+    private final int polygonBorderVbo;
+
+    // Rango de la malla unitaria de cada tipo dentro de meshVbo (relleno y contorno)
+    private final int[] fillFirst = new int[KINDS];
+    private final int[] fillCount = new int[KINDS];
+    private final int[] outlineFirst = new int[KINDS];
+    private final int[] outlineCount = new int[KINDS];
+
+    private FloatBuffer scratch = MemoryUtil.memAllocFloat(1024);
+    private final Transform2D instance = new Transform2D();
+    private final TessellationCache tessellation = new TessellationCache(800, 600);
+    private final int[] viewport = new int[4];
+    private int uploadedStamp = 0; // Sello del caché con el que se eligieron los niveles subidos
+    private final float[] shape = new float[12]; // Forma de la figura actual (máximo hexágono)
+    private final float[] fit = new float[6]; // Ajuste afín del polígono regular a la forma
+
+    // Estado subido, para volver a subir solo las figuras que cambiaron: figura, versión, tipo
+    // y posición dentro del búfer de su tipo (para los polígonos irregulares, primer vértice).
+    // Los arreglos solo crecen.
+    private Figure[] uploadedFigures = new Figure[0];
+    private int[] uploadedVersions = new int[0];
+    private byte[] kinds = new byte[0];
+    private int[] instanceIndex = new int[0];
+    private int uploadedCount = 0;
+
+    InstancedRenderer() {
+        this(new ColorGrade());
+    }
+
+    // 'grade' es el ajuste de color de toda la escena; se aplica en el shader al relleno,
+    // con el de cada figura, no al borde de la selección
+    InstancedRenderer(ColorGrade grade) {
+        program = Shaders.link(VERTEX_SHADER, FRAGMENT_SHADER);
+        gradeUniforms = new ColorGrade.Uniforms(grade, program);
+        gradedLocation = GL33.glGetUniformLocation(program, "uGraded");
+        depthStepLocation = GL33.glGetUniformLocation(program, "uDepthStep");
+
+        meshVbo = GL33.glGenBuffers();
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, meshVbo);
+        FloatBuffer mesh = buildUnitMeshes();
+        GL33.glBufferData(GL33.GL_ARRAY_BUFFER, mesh, GL33.GL_STATIC_DRAW);
+        MemoryUtil.memFree(mesh);
+
+        for (int kind = 0; kind < KINDS; kind++) {
+            vao[kind] = GL33.glGenVertexArrays();
+            instanceVbo[kind] = GL33.glGenBuffers();
+            configureAttributes(vao[kind], instanceVbo[kind]);
+        }
+        borderVao = GL33.glGenVertexArrays();
+        borderVbo = GL33.glGenBuffers();
+        configureAttributes(borderVao, borderVbo);
+        polygonVao = GL33.glGenVertexArrays();
+        polygonVbo = GL33.glGenBuffers();
+        configurePolygonAttributes(polygonVao, polygonVbo);
+        polygonBorderVao = GL33.glGenVertexArrays();
+        polygonBorderVbo = GL33.glGenBuffers();
+        configurePolygonAttributes(polygonBorderVao, polygonBorderVbo);
+    }
+
+    private void configureAttributes(int vertexArray, int instanceBuffer) {
+        GL33.glBindVertexArray(vertexArray);
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, meshVbo);
+        GL33.glEnableVertexAttribArray(0);
+        GL33.glVertexAttribPointer(0, 2, GL33.GL_FLOAT, false, 2 * Float.BYTES, 0L);
+
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, instanceBuffer);
+        GL33.glEnableVertexAttribArray(1);
+        GL33.glVertexAttribPointer(1, 3, GL33.GL_FLOAT, false, INSTANCE_STRIDE, 0L);
+        GL33.glVertexAttribDivisor(1, 1);
+        GL33.glEnableVertexAttribArray(2);
+        GL33.glVertexAttribPointer(2, 4, GL33.GL_FLOAT, false, INSTANCE_STRIDE, 3L * Float.BYTES);
+        GL33.glVertexAttribDivisor(2, 1);
+        GL33.glEnableVertexAttribArray(3);
+        GL33.glVertexAttribPointer(3, 3, GL33.GL_FLOAT, false, INSTANCE_STRIDE, 7L * Float.BYTES);
+        GL33.glVertexAttribDivisor(3, 1);
+        GL33.glEnableVertexAttribArray(4);
+        GL33.glVertexAttribPointer(4, 4, GL33.GL_FLOAT, false, INSTANCE_STRIDE, 10L * Float.BYTES);
+        GL33.glVertexAttribDivisor(4, 1);
+        GL33.glBindVertexArray(0);
+    }
+
+    // Los polígonos irregulares usan el mismo shader con todo por vértice (divisor 0)
+    private static void configurePolygonAttributes(int vertexArray, int vertexBuffer) {
+        GL33.glBindVertexArray(vertexArray);
+        GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, vertexBuffer);
+        GL33.glEnableVertexAttribArray(0);
+        GL33.glVertexAttribPointer(0, 2, GL33.GL_FLOAT, false, VERTEX_STRIDE, 0L);
+        GL33.glEnableVertexAttribArray(1);
+        GL33.glVertexAttribPointer(1, 3, GL33.GL_FLOAT, false, VERTEX_STRIDE, 2L * Float.BYTES);
+        GL33.glEnableVertexAttribArray(2);
+        GL33.glVertexAttribPointer(2, 4, GL33.GL_FLOAT, false, VERTEX_STRIDE, 5L * Float.BYTES);
+        GL33.glEnableVertexAttribArray(3);
+        GL33.glVertexAttribPointer(3, 3, GL33.GL_FLOAT, false, VERTEX_STRIDE, 9L * Float.BYTES);
+        GL33.glEnableVertexAttribArray(4);
+        GL33.glVertexAttribPointer(4, 4, GL33.GL_FLOAT, false, VERTEX_STRIDE, 12L * Float.BYTES);
+        GL33.glBindVertexArray(0);
+    }
+
+    // Mallas unitarias: relleno en GL_TRIANGLES y contorno en GL_LINE_LOOP
+    private FloatBuffer buildUnitMeshes() {
+        int circles = 0;
+        for (int segments : CIRCLE_LEVELS) {
+            circles += 4 * segments;
+        }
+        FloatBuffer mesh = MemoryUtil.memAllocFloat(2 * (circles + 6 + 4 + 3 + 3 + 9 + 5 + 12 + 6));
+        int vertex = 0;
+
+        // Círculos de radio 1 centrados en el origen, uno por nivel de detalle
+        for (int level = 0; level < CIRCLE_LEVELS.length; level++) {
+            int kind = CIRCLE + level;
+            int segments = CIRCLE_LEVELS[level];
+            float[] unit = TessellationCache.unitCircle(segments);
+            fillFirst[kind] = vertex;
+            for (int i = 0; i < segments; i++) {
+                mesh.put(0.0f).put(0.0f);
+                mesh.put(unit[2 * i]).put(unit[2 * i + 1]);
+                mesh.put(unit[2 * i + 2]).put(unit[2 * i + 3]);
+            }
+            vertex += fillCount[kind] = 3 * segments;
+            outlineFirst[kind] = vertex;
+            mesh.put(unit, 0, 2 * segments);
+            vertex += outlineCount[kind] = segments;
+        }
+
+        // Cuadrado [0, 1] x [0, 1]
+        fillFirst[QUAD] = vertex;
+        mesh.put(0.0f).put(0.0f).put(1.0f).put(0.0f).put(1.0f).put(1.0f);
+        mesh.put(0.0f).put(0.0f).put(1.0f).put(1.0f).put(0.0f).put(1.0f);
+        vertex += fillCount[QUAD] = 6;
+        outlineFirst[QUAD] = vertex;
+        mesh.put(0.0f).put(0.0f).put(1.0f).put(0.0f).put(1.0f).put(1.0f).put(0.0f).put(1.0f);
+        vertex += outlineCount[QUAD] = 4;
+
+        // Triángulo (0, 0), (1, 0), (0, 1)
+        fillFirst[TRIANGLE] = vertex;
+        mesh.put(0.0f).put(0.0f).put(1.0f).put(0.0f).put(0.0f).put(1.0f);
+        vertex += fillCount[TRIANGLE] = 3;
+        outlineFirst[TRIANGLE] = vertex;
+        mesh.put(0.0f).put(0.0f).put(1.0f).put(0.0f).put(0.0f).put(1.0f);
+        vertex += outlineCount[TRIANGLE] = 3;
+
+        // Polígonos regulares de radio 1 con el primer vértice en (1, 0)
+        for (int kind = PENTAGON; kind <= HEXAGON; kind++) {
+            int sides = sidesOf(kind);
+            fillFirst[kind] = vertex;
+            for (int i = 1; i < sides - 1; i++) {
+                putUnitCircle(mesh, 0, sides);
+                putUnitCircle(mesh, i, sides);
+                putUnitCircle(mesh, i + 1, sides);
+            }
+            vertex += fillCount[kind] = 3 * (sides - 2);
+            outlineFirst[kind] = vertex;
+            for (int i = 0; i < sides; i++) {
+                putUnitCircle(mesh, i, sides);
+            }
+            vertex += outlineCount[kind] = sides;
+        }
+        mesh.flip();
+        return mesh;
+    }
+
+    private static void putUnitCircle(FloatBuffer mesh, int i, int segments) {
+        double angle = 2.0 * Math.PI * i / segments;
+        mesh.put((float) Math.cos(angle)).put((float) Math.sin(angle));
+    }
+
+    private static int sidesOf(int kind) {
+        return kind == PENTAGON ? 5 : 6;
+    }
+
+    // Vértices que ocupa la figura en el búfer de polígonos irregulares (abanico de triángulos)
+    private static int polygonFillCount(Figure figure) {
+        return 3 * (figure.getShapeLength() / 2 - 2);
+    }
+
+    // Instancias (o vértices, para los polígonos irregulares) que ocupa la figura en su búfer
+    private static int unitsOf(Figure figure, int kind) {
+        return kind == POLYGON ? polygonFillCount(figure) : 1;
+    }
+
+    private static int floatsOf(int kind) {
+        return kind == POLYGON ? FLOATS_PER_VERTEX : FLOATS_PER_INSTANCE;
+    }
+
+    private void loadShape(Figure figure) {
+        for (int i = 0, n = figure.getShapeLength(); i < n; i++) {
+            shape[i] = figure.getShape(i);
+        }
+    }
+
+    private int kindOf(Figure figure) {
+        int length = figure.getShapeLength();
+        if (length == 3) {
+            int segments = tessellation.circleSegments(figure);
+            int level = 0;
+            while (level < CIRCLE_LEVELS.length - 1 && CIRCLE_LEVELS[level] < segments) {
+                level++;
+            }
+            return CIRCLE + level;
+        } else if (length == 4) {
+            return QUAD;
+        } else if (length == 6) {
+            return TRIANGLE;
+        } else if (length == 10 || length == 12) {
+            int kind = length == 10 ? PENTAGON : HEXAGON;
+            loadShape(figure);
+            return isAffineRegular(shape, sidesOf(kind)) ? kind : POLYGON;
+        }
+        // FigureStore solo acepta las formas de arriba
+        throw new IllegalStateException("Forma sin malla (" + length + " valores): " + figure.getName());
+    }
+
+    // Ajusta el polígono regular con el centro y los dos primeros vértices y comprueba que
+    // el ajuste pase por todos los demás
+    private boolean isAffineRegular(float[] shape, int sides) {
+        fitRegular(shape, sides);
+        float a = fit[0], b = fit[1], c = fit[2], d = fit[3];
+        float tolerance = REGULAR_TOLERANCE * Math.max(Math.max(Math.abs(a), Math.abs(b)), Math.max(Math.abs(c), Math.abs(d)));
+        for (int i = 2; i < sides; i++) {
+            double angle = 2.0 * Math.PI * i / sides;
+            float cos = (float) Math.cos(angle);
+            float sin = (float) Math.sin(angle);
+            if (Math.abs(fit[4] + a * cos + c * sin - shape[2 * i]) > tolerance
+                    || Math.abs(fit[5] + b * cos + d * sin - shape[2 * i + 1]) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Deja en 'fit' (a, b, c, d, tx, ty) la transformación que lleva el polígono regular de
+    // radio 1 con el primer vértice en (1, 0) al centro y los dos primeros vértices de la forma
+    private void fitRegular(float[] shape, int sides) {
+        float cx = 0.0f, cy = 0.0f;
+        for (int i = 0; i < sides; i++) {
+            cx += shape[2 * i];
+            cy += shape[2 * i + 1];
+        }
+        cx /= sides;
+        cy /= sides;
+        double angle = 2.0 * Math.PI / sides;
+        float cos = (float) Math.cos(angle);
+        float sin = (float) Math.sin(angle);
+        float a = shape[0] - cx, b = shape[1] - cy;
+        fit[0] = a;
+        fit[1] = b;
+        fit[2] = (shape[2] - cx - cos * a) / sin;
+        fit[3] = (shape[3] - cy - cos * b) / sin;
+        fit[4] = cx;
+        fit[5] = cy;
+    }
+
+    @Override
+    public void render(List<Figure> figures, Figure selected) {
+        GL33.glGetIntegerv(GL33.GL_VIEWPORT, viewport);
+        tessellation.setViewport(viewport[2], viewport[3]);
+
+        GL33.glUseProgram(program);
+        gradeUniforms.bind();
+        GL33.glUniform1i(gradedLocation, 1);
+        if (layoutChanged(figures)) {
+            rebuild(figures);
+        } else {
+            uploadDirty(figures);
+        }
+
+        // Cada tipo se dibuja en una sola llamada; la profundidad (posición en la escena)
+        // deja encima la figura que va después, como en los otros renderizadores. glClear
+        // respeta la tijera, así que en el modo de daño solo se limpia la región dibujada.
+        GL33.glUniform1f(depthStepLocation, 2.0f / (uploadedCount + 1));
+        GL33.glClear(GL33.GL_DEPTH_BUFFER_BIT);
+        GL33.glEnable(GL33.GL_DEPTH_TEST);
+        GL33.glDepthFunc(GL33.GL_LESS);
+        for (int kind = 0; kind < KINDS; kind++) {
+            if (instanceCount[kind] > 0) {
+                GL33.glBindVertexArray(vao[kind]);
+                GL33.glDrawArraysInstanced(GL33.GL_TRIANGLES, fillFirst[kind], fillCount[kind], instanceCount[kind]);
+                FrameProfiler.countDraw((long) fillCount[kind] * instanceCount[kind]);
+            }
+        }
+        if (polygonVertices > 0) {
+            GL33.glBindVertexArray(polygonVao);
+            GL33.glDrawArrays(GL33.GL_TRIANGLES, 0, polygonVertices);
+            FrameProfiler.countDraw(polygonVertices);
+        }
+        GL33.glDisable(GL33.GL_DEPTH_TEST);
+
+        int selectedKind = selected == null ? -1 : kindOf(selected);
+        if (selectedKind == POLYGON) {
+            GL33.glUniform1i(gradedLocation, 0);
+            scratch.clear();
+            int sides = selected.getShapeLength() / 2;
+            ensureScratch(sides * FLOATS_PER_VERTEX);
+            writeOutline(selected, BORDER_COLOR[0], BORDER_COLOR[1], BORDER_COLOR[2]);
+            scratch.flip();
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, polygonBorderVbo);
+            GL33.glBufferData(GL33.GL_ARRAY_BUFFER, scratch, GL33.GL_STREAM_DRAW);
+            GL33.glBindVertexArray(polygonBorderVao);
+            GL33.glDrawArrays(GL33.GL_LINE_LOOP, 0, sides);
+            FrameProfiler.countDraw(sides);
+        } else if (selectedKind >= 0) {
+            GL33.glUniform1i(gradedLocation, 0);
+            scratch.clear();
+            writeInstance(selected, selectedKind, 0, BORDER_COLOR[0], BORDER_COLOR[1], BORDER_COLOR[2]);
+            scratch.flip();
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, borderVbo);
+            GL33.glBufferData(GL33.GL_ARRAY_BUFFER, scratch, GL33.GL_STREAM_DRAW);
+            GL33.glBindVertexArray(borderVao);
+            GL33.glDrawArraysInstanced(GL33.GL_LINE_LOOP, outlineFirst[selectedKind], outlineCount[selectedKind], 1);
+            FrameProfiler.countDraw(outlineCount[selectedKind]);
+        }
+        GL33.glBindVertexArray(0);
+        GL33.glUseProgram(0);
+    }
+
+    // La distribución cambia si se agregan, quitan o reordenan figuras o si cambia el detalle
+    // de los círculos (otro viewport)
+    private boolean layoutChanged(List<Figure> figures) {
+        int size = figures.size();
+        if (size != uploadedCount || tessellation.stamp() != uploadedStamp) {
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (figures.get(i) != uploadedFigures[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Reparte las figuras por tipo, en el orden de la escena, y sube todos los búferes. Los
+    // arreglos y los búferes de instancias solo crecen.
+    private void rebuild(List<Figure> figures) {
+        int size = figures.size();
+        if (uploadedFigures.length < size) {
+            int capacity = Math.max(size, uploadedFigures.length * 2);
+            uploadedFigures = new Figure[capacity];
+            uploadedVersions = new int[capacity];
+            kinds = new byte[capacity];
+            instanceIndex = new int[capacity];
+        } else {
+            Arrays.fill(uploadedFigures, size, uploadedCount, null);
+        }
+        uploadedCount = size;
+        uploadedStamp = tessellation.stamp();
+        Arrays.fill(instanceCount, 0);
+        polygonVertices = 0;
+        for (int i = 0; i < size; i++) {
+            Figure figure = figures.get(i);
+            int kind = kindOf(figure);
+            uploadedFigures[i] = figure;
+            uploadedVersions[i] = figure.getVersion();
+            kinds[i] = (byte) kind;
+            if (kind == POLYGON) {
+                instanceIndex[i] = polygonVertices;
+                polygonVertices += polygonFillCount(figure);
+            } else {
+                instanceIndex[i] = instanceCount[kind]++;
+            }
+        }
+
+        for (int kind = 0; kind < KINDS; kind++) {
+            if (instanceCount[kind] == 0) {
+                continue;
+            }
+            scratch.clear();
+            ensureScratch(instanceCount[kind] * FLOATS_PER_INSTANCE);
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == kind) {
+                    writeInstance(uploadedFigures[i], kind, i);
+                }
+            }
+            scratch.flip();
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, instanceVbo[kind]);
+            if (instanceCount[kind] > instanceCapacity[kind]) {
+                instanceCapacity[kind] = Math.max(instanceCount[kind], instanceCapacity[kind] * 2);
+            }
+            // Se reemplaza el almacenamiento completo para no esperar a que la GPU termine con el anterior
+            GL33.glBufferData(GL33.GL_ARRAY_BUFFER, (long) instanceCapacity[kind] * INSTANCE_STRIDE, GL33.GL_DYNAMIC_DRAW);
+            GL33.glBufferSubData(GL33.GL_ARRAY_BUFFER, 0L, scratch);
+        }
+
+        if (polygonVertices > 0) {
+            scratch.clear();
+            ensureScratch(polygonVertices * FLOATS_PER_VERTEX);
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == POLYGON) {
+                    writeInstance(uploadedFigures[i], POLYGON, i);
+                }
+            }
+            scratch.flip();
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, polygonVbo);
+            if (polygonVertices > polygonCapacity) {
+                polygonCapacity = Math.max(polygonVertices, polygonCapacity * 2);
+            }
+            GL33.glBufferData(GL33.GL_ARRAY_BUFFER, (long) polygonCapacity * VERTEX_STRIDE, GL33.GL_DYNAMIC_DRAW);
+            GL33.glBufferSubData(GL33.GL_ARRAY_BUFFER, 0L, scratch);
+        }
+    }
+
+    // Sube solo las figuras cuya versión cambió, juntando en una copia las que quedan seguidas
+    // en el búfer de su tipo. Si una cambia de tipo (otro nivel de círculo, o un polígono que
+    // deja de ser regular o pasa a serlo) se rehace todo.
+    private void uploadDirty(List<Figure> figures) {
+        int size = uploadedCount;
+        int runKind = -1;
+        int runFirst = 0;
+        int runNext = 0;
+        for (int i = 0; i < size; i++) {
+            Figure figure = uploadedFigures[i];
+            if (figure.getVersion() == uploadedVersions[i]) {
+                continue;
+            }
+            int kind = kinds[i];
+            if (kindOf(figure) != kind) {
+                rebuild(figures);
+                return;
+            }
+            uploadedVersions[i] = figure.getVersion();
+            if (kind != runKind || instanceIndex[i] != runNext) {
+                flush(runKind, runFirst);
+                runKind = kind;
+                runFirst = instanceIndex[i];
+                runNext = runFirst;
+                scratch.clear();
+            }
+            int units = unitsOf(figure, kind);
+            ensureScratch((runNext - runFirst + units) * floatsOf(kind));
+            writeInstance(figure, kind, i);
+            runNext += units;
+        }
+        flush(runKind, runFirst);
+    }
+
+    private void flush(int kind, int first) {
+        if (kind < 0 || scratch.position() == 0) {
+            return;
+        }
+        scratch.flip();
+        if (kind == POLYGON) {
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, polygonVbo);
+            GL33.glBufferSubData(GL33.GL_ARRAY_BUFFER, (long) first * VERTEX_STRIDE, scratch);
+        } else {
+            GL33.glBindBuffer(GL33.GL_ARRAY_BUFFER, instanceVbo[kind]);
+            GL33.glBufferSubData(GL33.GL_ARRAY_BUFFER, (long) first * INSTANCE_STRIDE, scratch);
+        }
+        scratch.clear();
+    }
+
+    // Deja espacio para 'floats' valores sin perder lo ya escrito en scratch
+    private void ensureScratch(int floats) {
+        if (scratch.capacity() < floats) {
+            int position = scratch.position();
+            scratch = MemoryUtil.memRealloc(scratch, Math.max(floats, scratch.capacity() * 2));
+            scratch.clear().position(position);
+        }
+    }
+
+    private void writeInstance(Figure figure, int kind, int index) {
+        writeInstance(figure, kind, index, figure.getRed(), figure.getGreen(), figure.getBlue());
+    }
+
+    // Instancia = matriz de la figura * transformación que lleva la malla unitaria a la forma;
+    // 'index' es la posición en la escena, de la que sale la profundidad. Un polígono
+    // irregular se escribe como abanico desde el primer vértice, igual que en FigureGeometry,
+    // con los vértices de la forma y la matriz de la figura sin más.
+    private void writeInstance(Figure figure, int kind, int index, float r, float g, float b) {
+        figure.getTransform(instance);
+        loadShape(figure);
+        if (kind == POLYGON) {
+            for (int i = 1, sides = figure.getShapeLength() / 2; i < sides - 1; i++) {
+                writeVertex(figure, 0, index, r, g, b);
+                writeVertex(figure, i, index, r, g, b);
+                writeVertex(figure, i + 1, index, r, g, b);
+            }
+            return;
+        }
+        shapeMatrix(shape, kind, instance);
+        writeData(figure, index, r, g, b);
+    }
+
+    // Contorno de un polígono irregular, para GL_LINE_LOOP
+    private void writeOutline(Figure figure, float r, float g, float b) {
+        figure.getTransform(instance);
+        loadShape(figure);
+        for (int i = 0, sides = figure.getShapeLength() / 2; i < sides; i++) {
+            writeVertex(figure, i, 0, r, g, b);
+        }
+    }
+
+    private void writeVertex(Figure figure, int vertex, int index, float r, float g, float b) {
+        scratch.put(shape[2 * vertex]).put(shape[2 * vertex + 1]);
+        writeData(figure, index, r, g, b);
+    }
+
+    private void writeData(Figure figure, int index, float r, float g, float b) {
+        scratch.put(r).put(g).put(b);
+        scratch.put(instance.getA()).put(instance.getB()).put(instance.getC()).put(instance.getD());
+        scratch.put(instance.getTx()).put(instance.getTy()).put(index);
+        ColorGrade.writeFigure(figure, scratch);
+    }
+
+    // Multiplica m por la transformación de la malla unitaria a las coordenadas de la forma.
+    // Los pentágonos y hexágonos llegan aquí solo si isAffineRegular los reconoció.
+    private void shapeMatrix(float[] shape, int kind, Transform2D m) {
+        if (kind >= CIRCLE) {
+            m.multiply(shape[2], 0.0f, 0.0f, shape[2], shape[0], shape[1]);
+            return;
+        }
+        switch (kind) {
+            case QUAD:
+                m.multiply(shape[2], 0.0f, 0.0f, shape[3], shape[0], shape[1]);
+                break;
+            case TRIANGLE:
+                m.multiply(shape[2] - shape[0], shape[3] - shape[1], shape[4] - shape[0], shape[5] - shape[1], shape[0], shape[1]);
+                break;
+            default:
+                fitRegular(shape, sidesOf(kind));
+                m.multiply(fit[0], fit[1], fit[2], fit[3], fit[4], fit[5]);
+                break;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for (int kind = 0; kind < KINDS; kind++) {
+            GL33.glDeleteBuffers(instanceVbo[kind]);
+            GL33.glDeleteVertexArrays(vao[kind]);
+        }
+        GL33.glDeleteBuffers(borderVbo);
+        GL33.glDeleteVertexArrays(borderVao);
+        GL33.glDeleteBuffers(polygonVbo);
+        GL33.glDeleteVertexArrays(polygonVao);
+        GL33.glDeleteBuffers(polygonBorderVbo);
+        GL33.glDeleteVertexArrays(polygonBorderVao);
+        GL33.glDeleteBuffers(meshVbo);
+        GL33.glDeleteProgram(program);
+        gradeUniforms.dispose();
+        MemoryUtil.memFree(scratch);
+    }
+}
@@ -0,0 +1,72 @@
+package com.mycompany.colorscheme;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histograma de latencias de tamaño fijo, seguro entre hilos: cubetas logarítmicas con
+// SUB_BUCKETS subdivisiones lineales por potencia de dos (como HdrHistogram), así que la
+// memoria no depende de cuántos valores se registran y cada percentil tiene un error relativo
+// menor que 1/SUB_BUCKETS. El máximo se guarda exacto.
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // 32: error menor que 3,2 %
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if (value < 0) {
+            throw new IllegalStateException("Latencia negativa: " + value);
+        }
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        long previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+            // Otro hilo cambió el máximo; se vuelve a comparar
+        }
+    }
+
+    long count() { return count.get(); }
+
+    long max() { return max.get(); }
+
+    // Percentil por el método del rango más cercano: el mayor valor de la cubeta que lo
+    // contiene (sin pasar del máximo registrado), o 0 si no hay valores
+    long percentile(double p) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(max.get(), highestOf(bucket));
+            }
+        }
+        return max.get();
+    }
+
+    // Los valores menores que SUB_BUCKETS tienen cubeta propia; el resto se agrupa por sus
+    // SUB_BITS + 1 bits más altos
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long mantissa = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
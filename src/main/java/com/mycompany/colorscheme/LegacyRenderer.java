@@ -0,0 +1,36 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL30;
+
+import java.util.List;
+
+// Modo inmediato original: Figure.draw() y Figure.drawBorder() por figura
+class LegacyRenderer implements Renderer {
+
+    private final TessellationCache tessellation = new TessellationCache(800, 600);
+    private final int[] viewport = new int[4];
+
+    @Override
+    public void render(List<Figure> figures, Figure selected) {
+        GL30.glGetIntegerv(GL30.GL_VIEWPORT, viewport);
+        tessellation.setViewport(viewport[2], viewport[3]);
+        for (Figure figure : figures) {
+            figure.draw(tessellation);
+            // Un glBegin/glEnd por figura; se cuentan los vértices de la versión triangulada
+            FrameProfiler.countDraw(FigureGeometry.fillVertexCount(figure, tessellation));
+            if (figure == selected) {
+                figure.drawBorder(tessellation); // Dibujar borde si está seleccionada
+            }
+        }
+
+        // Verificar errores de OpenGL una vez por cuadro (no después de cada figura)
+        int error = GL30.glGetError();
+        if (error != GL30.GL_NO_ERROR) {
+            System.err.println("OpenGL Error: " + error);
+        }
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
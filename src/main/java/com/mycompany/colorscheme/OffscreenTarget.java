@@ -0,0 +1,86 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+// Framebuffer fuera de pantalla (FBO con un renderbuffer RGBA8 y uno de profundidad, que usa
+// InstancedRenderer para conservar el orden de la escena) y un búfer directo reutilizado para
+// leer los píxeles con glReadPixels sin asignar memoria por cuadro.
+class OffscreenTarget {
+
+    private final int width;
+    private final int height;
+    private final int framebuffer;
+    private final int colorBuffer;
+    private final int depthBuffer;
+    private final ByteBuffer pixels;
+
+    OffscreenTarget(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        colorBuffer = GL33.glGenRenderbuffers();
+        GL33.glBindRenderbuffer(GL33.GL_RENDERBUFFER, colorBuffer);
+        GL33.glRenderbufferStorage(GL33.GL_RENDERBUFFER, GL33.GL_RGBA8, width, height);
+        depthBuffer = GL33.glGenRenderbuffers();
+        GL33.glBindRenderbuffer(GL33.GL_RENDERBUFFER, depthBuffer);
+        GL33.glRenderbufferStorage(GL33.GL_RENDERBUFFER, GL33.GL_DEPTH_COMPONENT24, width, height);
+        GL33.glBindRenderbuffer(GL33.GL_RENDERBUFFER, 0);
+
+        framebuffer = GL33.glGenFramebuffers();
+        GL33.glBindFramebuffer(GL33.GL_FRAMEBUFFER, framebuffer);
+        GL33.glFramebufferRenderbuffer(GL33.GL_FRAMEBUFFER, GL33.GL_COLOR_ATTACHMENT0, GL33.GL_RENDERBUFFER, colorBuffer);
+        GL33.glFramebufferRenderbuffer(GL33.GL_FRAMEBUFFER, GL33.GL_DEPTH_ATTACHMENT, GL33.GL_RENDERBUFFER, depthBuffer);
+        int status = GL33.glCheckFramebufferStatus(GL33.GL_FRAMEBUFFER);
+        GL33.glBindFramebuffer(GL33.GL_FRAMEBUFFER, 0);
+        if (status != GL33.GL_FRAMEBUFFER_COMPLETE) {
+            GL33.glDeleteFramebuffers(framebuffer);
+            GL33.glDeleteRenderbuffers(colorBuffer);
+            GL33.glDeleteRenderbuffers(depthBuffer);
+            throw new IllegalStateException("Framebuffer incompleto: 0x" + Integer.toHexString(status));
+        }
+
+        pixels = MemoryUtil.memAlloc(width * height * 4);
+    }
+
+    int getWidth() { return width; }
+    int getHeight() { return height; }
+
+    // Dirige el dibujo al FBO con el viewport de su tamaño
+    void bind() {
+        GL33.glBindFramebuffer(GL33.GL_FRAMEBUFFER, framebuffer);
+        GL33.glViewport(0, 0, width, height);
+    }
+
+    void unbind() {
+        GL33.glBindFramebuffer(GL33.GL_FRAMEBUFFER, 0);
+    }
+
+    // Copia todo el FBO al framebuffer de la ventana (mismo tamaño)
+    void blitToDefault() {
+        GL33.glBindFramebuffer(GL33.GL_READ_FRAMEBUFFER, framebuffer);
+        GL33.glBindFramebuffer(GL33.GL_DRAW_FRAMEBUFFER, 0);
+        GL33.glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL33.GL_COLOR_BUFFER_BIT, GL33.GL_NEAREST);
+        GL33.glBindFramebuffer(GL33.GL_FRAMEBUFFER, 0);
+    }
+
+    // Lee el FBO en el búfer reutilizado (RGBA, filas de abajo hacia arriba). El búfer
+    // devuelto es válido hasta la siguiente lectura.
+    ByteBuffer readPixels() {
+        GL33.glBindFramebuffer(GL33.GL_READ_FRAMEBUFFER, framebuffer);
+        GL33.glReadBuffer(GL33.GL_COLOR_ATTACHMENT0);
+        GL33.glPixelStorei(GL33.GL_PACK_ALIGNMENT, 1);
+        pixels.clear();
+        GL33.glReadPixels(0, 0, width, height, GL33.GL_RGBA, GL33.GL_UNSIGNED_BYTE, pixels);
+        return pixels;
+    }
+
+    void dispose() {
+        GL33.glDeleteFramebuffers(framebuffer);
+        GL33.glDeleteRenderbuffers(colorBuffer);
+        GL33.glDeleteRenderbuffers(depthBuffer);
+        MemoryUtil.memFree(pixels);
+    }
+}
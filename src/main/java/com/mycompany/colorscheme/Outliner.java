@@ -0,0 +1,93 @@
+package com.mycompany.colorscheme;
+
+import imgui.ImGui;
+import imgui.ImGuiIO;
+import imgui.ImGuiListClipper;
+import imgui.callback.ImListClipperCallback;
+import imgui.flag.ImGuiCond;
+
+// Lista de todas las figuras de la escena en una ventana de ImGui. Con ImGuiListClipper solo
+// se construyen las filas visibles, así que el costo por cuadro no depende de cuántas figuras
+// haya. Las etiquetas ("nombre #posición") se crean la primera vez que una fila se ve y se
+// guardan hasta que cambian las posiciones de las figuras.
+//
+// Clic elige la figura; Ctrl o Mayús + clic la agrega o la quita de la selección.
+final class Outliner {
+
+    private final FigureStore figures;
+    private final Selection selection;
+    private String[] labels = new String[0];
+    private int layout = -1;
+    private boolean scrollToPrimary = false;
+    private String countLabel = "";
+    private int countedSize = -1;
+    private int countedSelected = -1;
+
+    // Se crea una sola vez para no asignar memoria en cada cuadro
+    private final ImListClipperCallback row = new ImListClipperCallback() {
+        @Override
+        public void accept(int slot) {
+            drawRow(slot);
+        }
+    };
+
+    Outliner(FigureStore figures, Selection selection) {
+        this.figures = figures;
+        this.selection = selection;
+    }
+
+    void draw() {
+        ImGui.setNextWindowSize(320, 600, ImGuiCond.FirstUseEver);
+        ImGui.begin("Figuras");
+        int size = figures.size();
+        int selected = selection.size();
+        if (size != countedSize || selected != countedSelected) {
+            countedSize = size;
+            countedSelected = selected;
+            countLabel = size + " figuras, " + selected + " seleccionadas";
+        }
+        ImGui.textUnformatted(countLabel);
+        if (ImGui.button("Ir a la principal")) {
+            scrollToPrimary = true;
+        }
+
+        ImGui.beginChild("filas");
+        if (scrollToPrimary) {
+            Figure primary = selection.primary();
+            if (primary != null) {
+                ImGui.setScrollY(primary.slot * ImGui.getTextLineHeightWithSpacing());
+            }
+            scrollToPrimary = false;
+        }
+        ImGuiListClipper.forEach(size, row);
+        ImGui.endChild();
+        ImGui.end();
+    }
+
+    private void drawRow(int slot) {
+        if (ImGui.selectable(label(slot), selection.containsSlot(slot))) {
+            ImGuiIO io = ImGui.getIO();
+            if (io.getKeyCtrl() || io.getKeyShift()) {
+                selection.toggle(figures.get(slot));
+            } else {
+                selection.select(figures.get(slot));
+            }
+        }
+    }
+
+    private String label(int slot) {
+        int current = figures.layoutCount();
+        if (current != layout || labels.length < figures.size()) {
+            // Las posiciones cambiaron: las etiquetas viejas ya no corresponden
+            layout = current;
+            labels = new String[figures.size()];
+        }
+        String label = labels[slot];
+        if (label == null) {
+            String name = figures.name(slot);
+            label = (name != null ? name : "Figura") + " #" + slot;
+            labels[slot] = label;
+        }
+        return label;
+    }
+}
@@ -0,0 +1,335 @@
+package com.mycompany.colorscheme;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+// Ajuste de colores a una paleta fija: cada color se reemplaza por la entrada de la paleta más
+// cercana en un espacio perceptual (CIELAB u OKLab, distancia euclidiana). Las entradas se
+// guardan en un árbol k-d implícito: el arreglo de puntos queda ordenado de forma que la
+// mediana de cada tramo es el nodo y sus mitades son los subárboles, sin objetos por nodo.
+// Los tramos de hasta LEAF puntos se recorren por fuerza bruta.
+//
+// El árbol no cambia después de construirlo, así que se puede consultar desde varios hilos.
+//
+// La paleta se lee de un archivo .gpl de GIMP ("r g b nombre" de 0 a 255) o de uno con un
+// color hexadecimal (#rrggbb) por línea.
+public final class PaletteMapper {
+
+    public enum Metric { LAB, OKLAB }
+
+    private static final int LEAF = 8;
+    private static final int PIXEL_CACHE = 4096; // Entradas del caché de mapArgb (potencia de 2)
+
+    private final Metric metric;
+    private final int size;
+    private final float[] rgb;          // r, g, b de cada entrada, en el orden original
+    private final float[] x, y, z;      // Puntos en el espacio de la métrica, en el orden del árbol
+    private final int[] entry;          // Entrada original de cada punto del árbol
+    private final byte[] axis;          // Eje de corte de cada nodo (índice de la mediana)
+
+    // 'rgb' lleva los componentes de cada entrada seguidos (r0, g0, b0, r1, ...)
+    public PaletteMapper(float[] rgb, Metric metric) {
+        if (rgb.length == 0 || rgb.length % 3 != 0) {
+            throw new IllegalArgumentException("La paleta necesita tres componentes por color");
+        }
+        this.metric = metric;
+        this.size = rgb.length / 3;
+        this.rgb = rgb.clone();
+        this.x = new float[size];
+        this.y = new float[size];
+        this.z = new float[size];
+        this.entry = new int[size];
+        this.axis = new byte[size];
+        float[] color = new float[3];
+        float[] point = new float[3];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(rgb, 3 * i, color, 0, 3);
+            toMetric(color, point);
+            x[i] = point[0];
+            y[i] = point[1];
+            z[i] = point[2];
+            entry[i] = i;
+        }
+        build(0, size);
+    }
+
+    public static PaletteMapper read(Path path, Metric metric) throws IOException {
+        List<float[]> colors = new ArrayList<>();
+        int number = 0;
+        for (String text : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            number++;
+            String line = text.trim();
+            String[] parts = line.split("\\s+");
+            try {
+                if (parts[0].matches("#?[0-9a-fA-F]{6}")) {
+                    int value = Integer.parseInt(parts[0].substring(parts[0].length() - 6), 16);
+                    colors.add(new float[]{(value >> 16 & 0xFF) / 255.0f, (value >> 8 & 0xFF) / 255.0f, (value & 0xFF) / 255.0f});
+                } else if (parts.length >= 3 && parts[0].matches("\\d+")) {
+                    colors.add(new float[]{channel(parts[0]), channel(parts[1]), channel(parts[2])});
+                }
+                // El resto (encabezado de GIMP, comentarios, líneas vacías) se ignora
+            } catch (RuntimeException e) {
+                throw new IOException(path + ":" + number + ": " + e.getMessage(), e);
+            }
+        }
+        if (colors.isEmpty()) {
+            throw new IOException(path + ": la paleta no tiene colores");
+        }
+        float[] rgb = new float[3 * colors.size()];
+        for (int i = 0; i < colors.size(); i++) {
+            System.arraycopy(colors.get(i), 0, rgb, 3 * i, 3);
+        }
+        return new PaletteMapper(rgb, metric);
+    }
+
+    // Paleta de -Dcolorscheme.palette=archivo (null si no hay), medida en el espacio de
+    // -Dcolorscheme.palette.metric=oklab|lab (oklab por omisión)
+    static PaletteMapper fromProperties() {
+        String file = System.getProperty("colorscheme.palette");
+        if (file == null) {
+            return null;
+        }
+        Metric metric = Metric.valueOf(System.getProperty("colorscheme.palette.metric", "oklab").toUpperCase(Locale.ROOT));
+        try {
+            return read(Paths.get(file), metric);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer la paleta " + file, e);
+        }
+    }
+
+    private static float channel(String text) {
+        int value = Integer.parseInt(text);
+        if (value > 255) {
+            throw new IllegalStateException("Componente fuera de rango: " + text);
+        }
+        return value / 255.0f;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Metric metric() {
+        return metric;
+    }
+
+    // Color RGB de una entrada de la paleta
+    public float[] color(int index, float[] out) {
+        System.arraycopy(rgb, 3 * index, out, 0, 3);
+        return out;
+    }
+
+    // ---- Construcción ----
+
+    private void build(int from, int to) {
+        if (to - from <= LEAF) {
+            return;
+        }
+        // Corta por el eje de mayor extensión en este tramo
+        float[][] coordinates = {x, y, z};
+        int widest = 0;
+        float widestSpread = -1;
+        for (int a = 0; a < 3; a++) {
+            float[] values = coordinates[a];
+            float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = a;
+            }
+        }
+        int mid = (from + to) >>> 1;
+        select(coordinates[widest], from, to - 1, mid);
+        axis[mid] = (byte) widest;
+        build(from, mid);
+        build(mid + 1, to);
+    }
+
+    // Quickselect: deja en 'k' el punto que iría ahí con el tramo ordenado por 'values'
+    private void select(float[] values, int left, int right, int k) {
+        while (left < right) {
+            float pivot = values[(left + right) >>> 1];
+            int i = left, j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        float t = x[i]; x[i] = x[j]; x[j] = t;
+        t = y[i]; y[i] = y[j]; y[j] = t;
+        t = z[i]; z[i] = z[j]; z[j] = t;
+        int e = entry[i]; entry[i] = entry[j]; entry[j] = e;
+    }
+
+    // ---- Búsqueda ----
+
+    // Estado de una consulta; cada hilo usa el suyo
+    private static final class Search {
+        float qx, qy, qz;
+        float best;
+        int bestPoint;
+        final float[] color = new float[3];
+        final float[] point = new float[3];
+    }
+
+    // Índice de la entrada más cercana al color RGB dado
+    public int nearest(float r, float g, float b) {
+        return entry[nearest(new Search(), r, g, b)];
+    }
+
+    // Lo mismo recorriendo toda la paleta; sirve de referencia para el árbol
+    public int nearestBruteForce(float r, float g, float b) {
+        float[] point = toMetric(new float[]{r, g, b}, new float[3]);
+        int best = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            float dx = x[i] - point[0], dy = y[i] - point[1], dz = z[i] - point[2];
+            float distance = dx * dx + dy * dy + dz * dz;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return entry[best];
+    }
+
+    private int nearest(Search search, float r, float g, float b) {
+        search.color[0] = r;
+        search.color[1] = g;
+        search.color[2] = b;
+        toMetric(search.color, search.point);
+        search.qx = search.point[0];
+        search.qy = search.point[1];
+        search.qz = search.point[2];
+        search.best = Float.POSITIVE_INFINITY;
+        search.bestPoint = 0;
+        search(search, 0, size);
+        return search.bestPoint;
+    }
+
+    private void search(Search s, int from, int to) {
+        if (to - from <= LEAF) {
+            for (int i = from; i < to; i++) {
+                visit(s, i);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        visit(s, mid);
+        int a = axis[mid];
+        float delta = a == 0 ? s.qx - x[mid] : a == 1 ? s.qy - y[mid] : s.qz - z[mid];
+        // Primero el lado de la consulta; el otro solo si el plano de corte está más cerca
+        // que el mejor punto encontrado
+        if (delta < 0) {
+            search(s, from, mid);
+            if (delta * delta < s.best) {
+                search(s, mid + 1, to);
+            }
+        } else {
+            search(s, mid + 1, to);
+            if (delta * delta < s.best) {
+                search(s, from, mid);
+            }
+        }
+    }
+
+    private void visit(Search s, int i) {
+        float dx = x[i] - s.qx, dy = y[i] - s.qy, dz = z[i] - s.qz;
+        float distance = dx * dx + dy * dy + dz * dz;
+        if (distance < s.best) {
+            s.best = distance;
+            s.bestPoint = i;
+        }
+    }
+
+    private float[] toMetric(float[] color, float[] out) {
+        return metric == Metric.LAB ? ColorSpaces.rgbToLab(color, out) : ColorSpaces.rgbToOklab(color, out);
+    }
+
+    // ---- Ajuste en bloque ----
+
+    // Operación en RGB para usar en una PaletteTransform (al final de una cadena, con
+    // FigureStore.recolor o con applyToScene)
+    public PaletteTransform.Operation snap() {
+        return new PaletteTransform.Operation() {
+            public PaletteTransform.Space space() { return PaletteTransform.Space.RGB; }
+
+            public void adjust(float[] r, float[] g, float[] b, float[] unused, int from, int to) {
+                map(r, g, b, from, to);
+            }
+
+            @Override
+            public String toString() { return "snap(" + metric + ", " + size + " colores)"; }
+        };
+    }
+
+    // Reemplaza cada color de [from, to) por su entrada más cercana, secuencialmente
+    public void map(float[] r, float[] g, float[] b, int from, int to) {
+        Search search = new Search();
+        for (int i = from; i < to; i++) {
+            int e = entry[nearest(search, r[i], g[i], b[i])];
+            r[i] = rgb[3 * e];
+            g[i] = rgb[3 * e + 1];
+            b[i] = rgb[3 * e + 2];
+        }
+    }
+
+    // Todo el bloque, en paralelo por tramos como PaletteTransform
+    public void map(PaletteTransform.Block block, ForkJoinPool pool) {
+        new PaletteTransform(snap()).apply(block, pool);
+    }
+
+    public void map(PaletteTransform.Block block) {
+        map(block, ForkJoinPool.commonPool());
+    }
+
+    // Píxeles ARGB (por ejemplo, una imagen renderizada fuera de pantalla). El alfa se
+    // conserva. Una imagen tiene pocos colores distintos repetidos en muchos píxeles, así que
+    // cada llamada guarda los últimos resultados en un caché de correspondencia directa.
+    public void mapArgb(int[] argb, int offset, int length) {
+        int[] keys = new int[PIXEL_CACHE];
+        int[] values = new int[PIXEL_CACHE];
+        Arrays.fill(keys, -1);
+        Search search = new Search();
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int pixel = argb[i];
+            int color = pixel & 0xFFFFFF;
+            int slot = (color * 0x9E3779B1) >>> (32 - Integer.numberOfTrailingZeros(PIXEL_CACHE));
+            if (keys[slot] != color) {
+                int e = entry[nearest(search, (color >> 16) / 255.0f, (color >> 8 & 0xFF) / 255.0f, (color & 0xFF) / 255.0f)];
+                keys[slot] = color;
+                values[slot] = Math.round(rgb[3 * e] * 255) << 16 | Math.round(rgb[3 * e + 1] * 255) << 8
+                        | Math.round(rgb[3 * e + 2] * 255);
+            }
+            argb[i] = pixel & 0xFF000000 | values[slot];
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.mycompany.colorscheme;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+// Transformación de paleta para toda la escena: una cadena de operaciones de color (en RGB,
+// HSL, HSV o CMYK) que se aplica a todos los colores en paralelo con fork-join, por tramos
+// del arreglo. Las operaciones consecutivas en el mismo espacio comparten una sola conversión
+// de ida y vuelta.
+public final class PaletteTransform {
+
+    public enum Space { RGB, HSL, HSV, CMYK }
+
+    // Ajuste sobre los componentes de un espacio; x, y, z, w son (h, s, l), (h, s, v),
+    // (c, m, y, k) o (r, g, b, -) según el espacio
+    public interface Operation {
+        Space space();
+
+        void adjust(float[] x, float[] y, float[] z, float[] w, int from, int to);
+    }
+
+    // Colores en estructura de arreglos, más espacio de trabajo para las conversiones
+    public static final class Block {
+        final float[] r, g, b;
+        final float[] t0, t1, t2, t3;
+
+        public Block(int size) {
+            this(new float[size], new float[size], new float[size]);
+        }
+
+        public Block(float[] r, float[] g, float[] b) {
+            this.r = r;
+            this.g = g;
+            this.b = b;
+            this.t0 = new float[r.length];
+            this.t1 = new float[r.length];
+            this.t2 = new float[r.length];
+            this.t3 = new float[r.length];
+        }
+
+        public int size() { return r.length; }
+        public float[] red() { return r; }
+        public float[] green() { return g; }
+        public float[] blue() { return b; }
+    }
+
+    private static final int CHUNK = 16 * 1024; // Colores por tarea hoja
+
+    private final Operation[] operations;
+
+    public PaletteTransform(Operation... operations) {
+        this.operations = operations.clone();
+    }
+
+    public PaletteTransform(List<Operation> operations) {
+        this.operations = operations.toArray(new Operation[0]);
+    }
+
+    // Aplica la cadena a todos los colores del bloque usando el pool dado
+    public void apply(Block block, ForkJoinPool pool) {
+        pool.invoke(new Chunk(block, 0, block.size()));
+    }
+
+    public void apply(Block block) {
+        apply(block, ForkJoinPool.commonPool());
+    }
+
+    // Aplica la cadena en un rango, secuencialmente
+    void applyRange(Block block, int from, int to) {
+        int i = 0;
+        while (i < operations.length) {
+            Space space = operations[i].space();
+            int end = i;
+            while (end < operations.length && operations[end].space() == space) {
+                end++;
+            }
+            applyRun(block, space, i, end, from, to);
+            i = end;
+        }
+    }
+
+    private void applyRun(Block block, Space space, int first, int last, int from, int to) {
+        int length = to - from;
+        switch (space) {
+            case RGB:
+                for (int i = first; i < last; i++) {
+                    operations[i].adjust(block.r, block.g, block.b, block.t3, from, to);
+                }
+                break;
+            case HSL:
+                ColorSpaces.rgbToHsl(block.r, block.g, block.b, block.t0, block.t1, block.t2, from, length);
+                for (int i = first; i < last; i++) {
+                    operations[i].adjust(block.t0, block.t1, block.t2, block.t3, from, to);
+                }
+                ColorSpaces.hslToRgb(block.t0, block.t1, block.t2, block.r, block.g, block.b, from, length);
+                break;
+            case HSV:
+                ColorSpaces.rgbToHsv(block.r, block.g, block.b, block.t0, block.t1, block.t2, from, length);
+                for (int i = first; i < last; i++) {
+                    operations[i].adjust(block.t0, block.t1, block.t2, block.t3, from, to);
+                }
+                ColorSpaces.hsvToRgb(block.t0, block.t1, block.t2, block.r, block.g, block.b, from, length);
+                break;
+            case CMYK:
+                ColorSpaces.rgbToCmyk(block.r, block.g, block.b, block.t0, block.t1, block.t2, block.t3, from, length);
+                for (int i = first; i < last; i++) {
+                    operations[i].adjust(block.t0, block.t1, block.t2, block.t3, from, to);
+                }
+                ColorSpaces.cmykToRgb(block.t0, block.t1, block.t2, block.t3, block.r, block.g, block.b, from, length);
+                break;
+        }
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Block block;
+        private final int from;
+        private final int to;
+
+        Chunk(Block block, int from, int to) {
+            this.block = block;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                applyRange(block, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(block, from, mid), new Chunk(block, mid, to));
+        }
+    }
+
+    // Recolorea la escena fuera del hilo de render. Los colores se copian en el hilo que
+    // llama (el de render), se transforman en el pool y el resultado se entrega a 'publish'
+    // como un SceneWrite que el hilo de render escribe entre cuadros de una sola vez, así que
+    // nunca dibuja una escena a medio recolorear. Cualquier falla en el pool, también un Error
+    // como OutOfMemoryError, termina el futuro en lugar de dejarlo pendiente para siempre.
+    CompletableFuture<Void> applyToScene(FigureStore figures, ForkJoinPool pool, Consumer<SceneWrite> publish) {
+        final SceneWrite result = new SceneWrite(figures);
+        pool.execute(() -> {
+            try {
+                apply(result.block, pool);
+                publish.accept(result);
+            } catch (Throwable e) {
+                result.done.completeExceptionally(e);
+            }
+        });
+        return result.done;
+    }
+
+    // Resultado de applyToScene. Entre la copia y la escritura la escena pudo cambiar: las
+    // figuras recoloreadas mientras tanto (barras, selector, animación, recarga) conservan su
+    // color nuevo en lugar de pisarlo con el resultado, y si se agregaron, quitaron o
+    // reordenaron figuras las posiciones copiadas ya no valen y el resultado no se puede
+    // escribir (isStale); quien publica decide si lo descarta o lo vuelve a calcular.
+    static final class SceneWrite {
+        private final FigureStore figures;
+        private final int layout;
+        private final int[] versions;
+        private final Block block;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private int[] slots = null;
+
+        private SceneWrite(FigureStore figures) {
+            this.figures = figures;
+            this.layout = figures.layoutCount();
+            int size = figures.size();
+            this.versions = new int[size];
+            this.block = new Block(size);
+            for (int i = 0; i < size; i++) {
+                versions[i] = figures.colorVersion(i);
+                block.r[i] = figures.get(FigureStore.RED, i);
+                block.g[i] = figures.get(FigureStore.GREEN, i);
+                block.b[i] = figures.get(FigureStore.BLUE, i);
+            }
+        }
+
+        boolean isStale() {
+            return figures.layoutCount() != layout;
+        }
+
+        // Posiciones que write() va a escribir: las figuras cuyo color no cambió desde la
+        // copia. Solo en el hilo de render y con !isStale().
+        int[] slots() {
+            if (slots == null) {
+                if (isStale()) {
+                    throw new IllegalStateException("La escena cambió de distribución desde la copia");
+                }
+                int count = 0;
+                slots = new int[versions.length];
+                for (int i = 0; i < versions.length; i++) {
+                    if (figures.colorVersion(i) == versions[i]) {
+                        slots[count++] = i;
+                    }
+                }
+                slots = Arrays.copyOf(slots, count);
+            }
+            return slots;
+        }
+
+        int count() {
+            return slots().length;
+        }
+
+        void write() {
+            for (int slot : slots()) {
+                figures.setColor(slot, block.r[slot], block.g[slot], block.b[slot]);
+            }
+            done.complete(null);
+        }
+
+        // Termina la tarea sin escribir nada
+        void discard() {
+            done.complete(null);
+        }
+    }
+
+    // ---- Operaciones ----
+
+    // Desplaza el tono en grados (HSL)
+    public static Operation hueShiftHsl(float degrees) {
+        return hueShift(Space.HSL, degrees);
+    }
+
+    // Desplaza el tono en grados (HSV)
+    public static Operation hueShiftHsv(float degrees) {
+        return hueShift(Space.HSV, degrees);
+    }
+
+    private static Operation hueShift(final Space space, final float degrees) {
+        final float shift = degrees / 360.0f;
+        return new Operation() {
+            public Space space() { return space; }
+
+            public void adjust(float[] h, float[] s, float[] l, float[] w, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    float hue = h[i] + shift;
+                    h[i] = hue - (float) Math.floor(hue);
+                }
+            }
+
+            @Override
+            public String toString() { return "hueShift(" + space + ", " + degrees + ")"; }
+        };
+    }
+
+    // Multiplica un componente (0, 1, 2 o 3) del espacio dado y lo limita a [0, 1]
+    public static Operation scale(final Space space, final int component, final float factor) {
+        return new Operation() {
+            public Space space() { return space; }
+
+            public void adjust(float[] x, float[] y, float[] z, float[] w, int from, int to) {
+                float[] values = component == 0 ? x : component == 1 ? y : component == 2 ? z : w;
+                for (int i = from; i < to; i++) {
+                    values[i] = Math.max(0.0f, Math.min(1.0f, values[i] * factor));
+                }
+            }
+
+            @Override
+            public String toString() { return "scale(" + space + ", " + component + ", " + factor + ")"; }
+        };
+    }
+
+    // Fija un componente (0, 1, 2 o 3) del espacio dado en el mismo valor para todos los colores
+    public static Operation setComponent(final Space space, final int component, final float value) {
+        return new Operation() {
+            public Space space() { return space; }
+
+            public void adjust(float[] x, float[] y, float[] z, float[] w, int from, int to) {
+                float[] values = component == 0 ? x : component == 1 ? y : component == 2 ? z : w;
+                Arrays.fill(values, from, to, value);
+            }
+
+            @Override
+            public String toString() { return "setComponent(" + space + ", " + component + ", " + value + ")"; }
+        };
+    }
+
+    public static Operation saturationScaleHsl(float factor) {
+        return scale(Space.HSL, 1, factor);
+    }
+
+    public static Operation lightnessScaleHsl(float factor) {
+        return scale(Space.HSL, 2, factor);
+    }
+
+    public static Operation saturationScaleHsv(float factor) {
+        return scale(Space.HSV, 1, factor);
+    }
+
+    public static Operation valueScaleHsv(float factor) {
+        return scale(Space.HSV, 2, factor);
+    }
+
+    // Desatura en CMYK: acerca cian, magenta y amarillo a su promedio
+    public static Operation desaturateCmyk(final float amount) {
+        return new Operation() {
+            public Space space() { return Space.CMYK; }
+
+            public void adjust(float[] c, float[] m, float[] y, float[] k, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    float gray = (c[i] + m[i] + y[i]) / 3;
+                    c[i] += (gray - c[i]) * amount;
+                    m[i] += (gray - m[i]) * amount;
+                    y[i] += (gray - y[i]) * amount;
+                }
+            }
+
+            @Override
+            public String toString() { return "desaturateCmyk(" + amount + ")"; }
+        };
+    }
+
+    // Limita la cantidad de cada tinta CMYK (1 = sin límite)
+    public static Operation inkLimitCmyk(final float cyan, final float magenta, final float yellow, final float black) {
+        return new Operation() {
+            public Space space() { return Space.CMYK; }
+
+            public void adjust(float[] c, float[] m, float[] y, float[] k, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    c[i] = Math.min(c[i], cyan);
+                    m[i] = Math.min(m[i], magenta);
+                    y[i] = Math.min(y[i], yellow);
+                    k[i] = Math.min(k[i], black);
+                }
+            }
+
+            @Override
+            public String toString() { return "inkLimitCmyk(" + cyan + ", " + magenta + ", " + yellow + ", " + black + ")"; }
+        };
+    }
+
+    // Multiplica cada canal RGB
+    public static Operation rgbScale(final float red, final float green, final float blue) {
+        return new Operation() {
+            public Space space() { return Space.RGB; }
+
+            public void adjust(float[] r, float[] g, float[] b, float[] unused, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    r[i] = Math.max(0.0f, Math.min(1.0f, r[i] * red));
+                    g[i] = Math.max(0.0f, Math.min(1.0f, g[i] * green));
+                    b[i] = Math.max(0.0f, Math.min(1.0f, b[i] * blue));
+                }
+            }
+
+            @Override
+            public String toString() { return "rgbScale(" + red + ", " + green + ", " + blue + ")"; }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "PaletteTransform" + Arrays.toString(operations);
+    }
+}
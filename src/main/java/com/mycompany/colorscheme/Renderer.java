@@ -0,0 +1,13 @@
+package com.mycompany.colorscheme;
+
+import java.util.List;
+
+// Dibuja una escena completa; 'selected' (puede ser null) se dibuja además con su borde.
+// Las implementaciones de OpenGL dibujan en el framebuffer actual; SoftwareRenderer en un
+// arreglo de píxeles propio.
+interface Renderer {
+
+    void render(List<Figure> figures, Figure selected);
+
+    void dispose();
+}
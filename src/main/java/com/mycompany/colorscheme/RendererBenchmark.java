@@ -0,0 +1,111 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.List;
+
+// Compara cuadros por segundo entre Figure.draw() (legacy), el renderizador por lotes, el
+// instanciado y el rasterizador de software sobre la misma escena de estrés. Cada modo usa
+// su propia ventana oculta.
+//
+// Uso: RendererBenchmark [figuras] [cuadros] [animar]
+// Con "animar" se rota cada figura en cada cuadro, lo que obliga a volver a subir la escena.
+public class RendererBenchmark {
+
+    private static final String[] MODES = {"legacy", "batch", "instanced", "software"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        boolean animate = args.length > 2 && "animar".equals(args[2]);
+
+        if (!GLFW.glfwInit()) {
+            throw new IllegalStateException("No se pudo inicializar GLFW");
+        }
+        try {
+            System.out.printf("Figuras: %d, cuadros: %d, animar: %b%n", count, frames, animate);
+            System.out.printf("Vértices de relleno por cuadro a 800x600: %d%n", fillVertices(count));
+            for (String mode : MODES) {
+                double fps = measure(mode, count, frames, animate);
+                System.out.printf("%-10s %10.1f fps %10.3f ms/cuadro%n", mode, fps, 1000.0 / fps);
+            }
+        } finally {
+            GLFW.glfwTerminate();
+        }
+    }
+
+    private static double measure(String mode, int count, int frames, boolean animate) {
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        if (!"legacy".equals(mode)) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+        }
+        long window = GLFW.glfwCreateWindow(800, 600, "Benchmark " + mode, MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL) {
+            throw new RuntimeException("No se pudo crear la ventana GLFW para el modo " + mode);
+        }
+        GLFW.glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        GLFW.glfwSwapInterval(0); // Sin VSync para medir el costo real
+
+        List<Figure> figures = SceneFactory.stressScene(count, 42L);
+        Renderer renderer = createRenderer(mode);
+        try {
+            // Cuadros de calentamiento para el JIT y la primera subida de datos
+            int warmup = Math.max(1, frames / 10);
+            for (int i = 0; i < warmup; i++) {
+                frame(figures, renderer, animate);
+            }
+            GL30.glFinish();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                frame(figures, renderer, animate);
+                GLFW.glfwSwapBuffers(window);
+            }
+            GL30.glFinish();
+            long elapsed = System.nanoTime() - start;
+            return frames * 1e9 / elapsed;
+        } finally {
+            renderer.dispose();
+            GLFW.glfwDestroyWindow(window);
+        }
+    }
+
+    // Vértices de la escena con los segmentos de círculo que elige el TessellationCache
+    private static long fillVertices(int count) {
+        TessellationCache tessellation = new TessellationCache(800, 600);
+        long vertices = 0;
+        for (Figure figure : SceneFactory.stressScene(count, 42L)) {
+            vertices += FigureGeometry.fillVertexCount(figure, tessellation);
+        }
+        return vertices;
+    }
+
+    private static Renderer createRenderer(String mode) {
+        if ("batch".equals(mode)) {
+            return new BatchRenderer();
+        } else if ("instanced".equals(mode)) {
+            return new InstancedRenderer();
+        } else if ("software".equals(mode)) {
+            return new SoftwareRenderer(800, 600, Runtime.getRuntime().availableProcessors());
+        }
+        return new LegacyRenderer();
+    }
+
+    private static void frame(List<Figure> figures, Renderer renderer, boolean animate) {
+        if (animate) {
+            for (Figure figure : figures) {
+                figure.setRotation(figure.getRotation() + 1.0f);
+            }
+        }
+        GL30.glClear(GL30.GL_COLOR_BUFFER_BIT);
+        renderer.render(figures, null);
+    }
+}
@@ -0,0 +1,187 @@
+package com.mycompany.colorscheme;
+
+import java.util.Arrays;
+
+// Regiones de la ventana que cambiaron desde el último cuadro. Compara la versión de cada
+// figura con la del cuadro anterior y marca la caja anterior y la nueva de las que cambiaron
+// (también la de la selección anterior y la nueva). Si cambian la cantidad o el orden de las
+// figuras, o hay demasiadas regiones, se redibuja todo. Las regiones se juntan al final en la
+// caja que las contiene, para dibujar la escena una sola vez con la tijera en esa caja: una
+// pasada por región repetiría todo el trabajo de vértices por cada una.
+//
+// Los rectángulos están en píxeles con el origen abajo a la izquierda, como glScissor.
+final class SceneDamage {
+
+    static final int MAX_RECTS = 8;
+    private static final int MARGIN = 2; // Píxeles extra para el borde de la selección
+
+    private Figure[] known = new Figure[0];
+    private int[] versions = new int[0];
+    private float[] bounds = new float[0]; // minX, minY, maxX, maxY por figura
+    private long changeCount = -1;
+    private Figure selected;
+    private boolean all = true;
+    private int width;
+    private int height;
+
+    private final int[] rects = new int[4 * MAX_RECTS]; // x, y, ancho, alto
+    private int rectCount = 0;
+    private int regionCount = 0; // Regiones antes de juntarlas
+    private final float[] scratch = new float[4];
+
+    // Para el siguiente cuadro (por ejemplo, porque se recreó el búfer de la escena)
+    void invalidateAll() {
+        all = true;
+    }
+
+    // Calcula las regiones dañadas; devuelve false si no hay nada que redibujar
+    boolean collect(FigureStore figures, Figure selectedFigure, int width, int height) {
+        rectCount = 0;
+        regionCount = 0;
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            all = true;
+        }
+        if (!all && figures.changeCount() == changeCount && selectedFigure == selected) {
+            return false;
+        }
+        if (!all && !sameLayout(figures)) {
+            all = true;
+        }
+
+        if (all) {
+            remember(figures);
+            addRect(0, 0, width, height);
+        } else {
+            for (int i = 0; i < known.length && !all; i++) {
+                Figure figure = known[i];
+                if (figure.getVersion() != versions[i]) {
+                    addBounds(i);
+                    versions[i] = figure.getVersion();
+                    figure.getWorldBounds(scratch);
+                    System.arraycopy(scratch, 0, bounds, 4 * i, 4);
+                    addBounds(i);
+                }
+            }
+            if (selectedFigure != selected) {
+                addSelection(selected);
+                addSelection(selectedFigure);
+            }
+            if (all) {
+                remember(figures);
+                rectCount = 0;
+                addRect(0, 0, width, height);
+            }
+        }
+        all = false;
+        changeCount = figures.changeCount();
+        selected = selectedFigure;
+        regionCount = rectCount;
+        mergeRects();
+        return rectCount > 0;
+    }
+
+    // Deja una sola región: la caja que contiene a todas
+    private void mergeRects() {
+        for (int i = 1; i < rectCount; i++) {
+            int r = 4 * i;
+            int x1 = Math.max(rects[0] + rects[2], rects[r] + rects[r + 2]);
+            int y1 = Math.max(rects[1] + rects[3], rects[r + 1] + rects[r + 3]);
+            rects[0] = Math.min(rects[0], rects[r]);
+            rects[1] = Math.min(rects[1], rects[r + 1]);
+            rects[2] = x1 - rects[0];
+            rects[3] = y1 - rects[1];
+        }
+        rectCount = Math.min(rectCount, 1);
+    }
+
+    // Regiones dañadas en el último cuadro, antes de juntarlas en una
+    int regionCount() { return regionCount; }
+
+    int rectCount() { return rectCount; }
+    int x(int i) { return rects[4 * i]; }
+    int y(int i) { return rects[4 * i + 1]; }
+    int width(int i) { return rects[4 * i + 2]; }
+    int height(int i) { return rects[4 * i + 3]; }
+
+    // Fracción de la ventana que se redibuja en este cuadro
+    float coverage() {
+        long area = 0;
+        for (int i = 0; i < rectCount; i++) {
+            area += (long) width(i) * height(i);
+        }
+        return width == 0 || height == 0 ? 0.0f : Math.min(1.0f, (float) area / ((long) width * height));
+    }
+
+    private boolean sameLayout(FigureStore figures) {
+        if (figures.size() != known.length) {
+            return false;
+        }
+        for (int i = 0; i < known.length; i++) {
+            if (figures.get(i) != known[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remember(FigureStore figures) {
+        int size = figures.size();
+        known = figures.toArray(new Figure[size]);
+        versions = Arrays.copyOf(versions, size);
+        bounds = Arrays.copyOf(bounds, 4 * size);
+        for (int i = 0; i < size; i++) {
+            versions[i] = known[i].getVersion();
+            known[i].getWorldBounds(scratch);
+            System.arraycopy(scratch, 0, bounds, 4 * i, 4);
+        }
+    }
+
+    private void addSelection(Figure figure) {
+        if (figure != null && figure.slot < known.length && known[figure.slot] == figure) {
+            addBounds(figure.slot);
+        }
+    }
+
+    // Caja guardada de la figura i, llevada a píxeles
+    private void addBounds(int i) {
+        int b = 4 * i;
+        int x0 = (int) Math.floor((bounds[b] + 1.0f) * 0.5f * width) - MARGIN;
+        int y0 = (int) Math.floor((bounds[b + 1] + 1.0f) * 0.5f * height) - MARGIN;
+        int x1 = (int) Math.ceil((bounds[b + 2] + 1.0f) * 0.5f * width) + MARGIN;
+        int y1 = (int) Math.ceil((bounds[b + 3] + 1.0f) * 0.5f * height) + MARGIN;
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(width, x1);
+        y1 = Math.min(height, y1);
+        if (x1 > x0 && y1 > y0) {
+            addRect(x0, y0, x1 - x0, y1 - y0);
+        }
+    }
+
+    // Une el rectángulo con uno que lo toque; si no hay lugar, todo pasa a ser una sola región
+    private void addRect(int x, int y, int w, int h) {
+        for (int i = 0; i < rectCount; i++) {
+            int r = 4 * i;
+            if (x <= rects[r] + rects[r + 2] && rects[r] <= x + w && y <= rects[r + 1] + rects[r + 3] && rects[r + 1] <= y + h) {
+                int x1 = Math.max(x + w, rects[r] + rects[r + 2]);
+                int y1 = Math.max(y + h, rects[r + 1] + rects[r + 3]);
+                rects[r] = Math.min(x, rects[r]);
+                rects[r + 1] = Math.min(y, rects[r + 1]);
+                rects[r + 2] = x1 - rects[r];
+                rects[r + 3] = y1 - rects[r + 1];
+                return;
+            }
+        }
+        if (rectCount == MAX_RECTS) {
+            all = true;
+            return;
+        }
+        int r = 4 * rectCount++;
+        rects[r] = x;
+        rects[r + 1] = y;
+        rects[r + 2] = w;
+        rects[r + 3] = h;
+    }
+}
@@ -0,0 +1,220 @@
+package com.mycompany.colorscheme;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Diferencias entre dos versiones de una escena, por id estable de figura: figuras agregadas,
+// quitadas y modificadas. Se calcula fuera del hilo de render (no toca la escena viva) y
+// después apply() lleva solo esos cambios a la escena viva en el hilo de render.
+//
+// Un cambio de color o de transformación modifica la figura en su lugar; un cambio de nombre o
+// de forma se trata como quitarla y agregarla de nuevo (la forma vive en el arreglo de vértices).
+final class SceneDiff {
+
+    private static final int[] VALUE_COLUMNS = {
+            FigureStore.RED, FigureStore.GREEN, FigureStore.BLUE,
+            FigureStore.ROTATION, FigureStore.SCALE_X, FigureStore.SCALE_Y,
+            FigureStore.TRANSLATE_X, FigureStore.TRANSLATE_Y, FigureStore.BIAS_X, FigureStore.BIAS_Y};
+
+    final FigureStore next;         // Versión nueva completa
+    final IdMap nextIds;            // id -> posición en 'next'
+    private final long[] removed;   // Ids que ya no están (o que se reemplazan)
+    private final int[] added;      // Posiciones en 'next' de las figuras nuevas (o reemplazadas)
+    private final int[] modified;   // Posiciones en 'next' de las figuras con otros valores
+    private int removedCount, addedCount, modifiedCount;
+
+    // Compara la versión nueva con la anterior ('previous' y su mapa de ids)
+    SceneDiff(FigureStore previous, IdMap previousIds, FigureStore next) {
+        this.next = next;
+        this.nextIds = new IdMap(next.size());
+        int[] addedSlots = new int[16];
+        int[] modifiedSlots = new int[16];
+        long[] removedIds = new long[16];
+        BitSet seen = new BitSet(previous.size());
+        for (int slot = 0; slot < next.size(); slot++) {
+            long id = next.id(slot);
+            if (id < 0 || nextIds.put(id, slot) >= 0) {
+                throw new IllegalStateException("Id de figura inválido o repetido: " + id);
+            }
+            int old = previousIds.get(id);
+            if (old < 0) {
+                addedSlots = append(addedSlots, addedCount++, slot);
+                continue;
+            }
+            seen.set(old);
+            if (!sameGeometry(previous, old, next, slot)) {
+                removedIds = append(removedIds, removedCount++, id);
+                addedSlots = append(addedSlots, addedCount++, slot);
+            } else if (!sameValues(previous, old, next, slot)) {
+                modifiedSlots = append(modifiedSlots, modifiedCount++, slot);
+            }
+        }
+        for (int old = seen.nextClearBit(0); old < previous.size(); old = seen.nextClearBit(old + 1)) {
+            removedIds = append(removedIds, removedCount++, previous.id(old));
+        }
+        this.removed = removedIds;
+        this.added = addedSlots;
+        this.modified = modifiedSlots;
+    }
+
+    int addedCount() { return addedCount; }
+    int removedCount() { return removedCount; }
+    int modifiedCount() { return modifiedCount; }
+
+    boolean isEmpty() {
+        return addedCount == 0 && removedCount == 0 && modifiedCount == 0;
+    }
+
+    // Aplica los cambios a la escena viva. Las figuras vivas se buscan por id; las que no
+    // están (por ejemplo, agregadas en la aplicación) no se tocan. Las figuras nuevas se
+    // agregan al final y al índice de selección; las quitadas salen de él al quitarlas.
+    void apply(FigureStore live, SpatialIndex index) {
+        IdMap liveIds = IdMap.of(live);
+
+        for (int i = 0; i < modifiedCount; i++) {
+            int from = modified[i];
+            int slot = liveIds.get(next.id(from));
+            if (slot < 0) {
+                continue;
+            }
+            if (live.get(FigureStore.RED, slot) != next.get(FigureStore.RED, from)
+                    || live.get(FigureStore.GREEN, slot) != next.get(FigureStore.GREEN, from)
+                    || live.get(FigureStore.BLUE, slot) != next.get(FigureStore.BLUE, from)) {
+                live.setColor(slot, next.get(FigureStore.RED, from), next.get(FigureStore.GREEN, from),
+                        next.get(FigureStore.BLUE, from));
+            }
+            for (int c = 3; c < VALUE_COLUMNS.length; c++) {
+                int column = VALUE_COLUMNS[c];
+                float value = next.get(column, from);
+                if (live.get(column, slot) != value) {
+                    live.setTransformValue(column, slot, value);
+                }
+            }
+        }
+
+        if (removedCount > 0) {
+            BitSet marked = new BitSet(live.size());
+            for (int i = 0; i < removedCount; i++) {
+                int slot = liveIds.get(removed[i]);
+                if (slot >= 0) {
+                    marked.set(slot);
+                }
+            }
+            live.removeSlots(marked);
+        }
+
+        float[] color = new float[3];
+        for (int i = 0; i < addedCount; i++) {
+            int from = added[i];
+            color[0] = next.get(FigureStore.RED, from);
+            color[1] = next.get(FigureStore.GREEN, from);
+            color[2] = next.get(FigureStore.BLUE, from);
+            int slot = live.add(next.name(from), next.shapeCopy(from), color);
+            live.setId(slot, next.id(from));
+            for (int c = 3; c < VALUE_COLUMNS.length; c++) {
+                live.setTransformValue(VALUE_COLUMNS[c], slot, next.get(VALUE_COLUMNS[c], from));
+            }
+            if (index != null) {
+                index.insert(live.get(slot));
+            }
+        }
+    }
+
+    private static boolean sameGeometry(FigureStore a, int slotA, FigureStore b, int slotB) {
+        int length = a.shapeLength(slotA);
+        if (length != b.shapeLength(slotB) || !a.name(slotA).equals(b.name(slotB))) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.shape(slotA, i) != b.shape(slotB, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameValues(FigureStore a, int slotA, FigureStore b, int slotB) {
+        for (int column : VALUE_COLUMNS) {
+            if (a.get(column, slotA) != b.get(column, slotB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private static long[] append(long[] array, int index, long value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    // Mapa id -> posición con direccionamiento abierto sobre arreglos primitivos (un HashMap
+    // con un millón de Long ocuparía varias veces más y sería más lento de llenar)
+    static final class IdMap {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        IdMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1L); // Los ids válidos no son negativos
+        }
+
+        // Ids de todas las figuras del almacén (las que no tienen id se omiten)
+        static IdMap of(FigureStore store) {
+            IdMap map = new IdMap(store.size());
+            for (int slot = 0; slot < store.size(); slot++) {
+                long id = store.id(slot);
+                if (id >= 0) {
+                    map.put(id, slot);
+                }
+            }
+            return map;
+        }
+
+        // Devuelve la posición anterior del id, o -1 si no estaba
+        int put(long id, int slot) {
+            int i = hash(id) & mask;
+            while (keys[i] != -1L) {
+                if (keys[i] == id) {
+                    int old = values[i];
+                    values[i] = slot;
+                    return old;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = id;
+            values[i] = slot;
+            return -1;
+        }
+
+        int get(long id) {
+            int i = hash(id) & mask;
+            while (keys[i] != -1L) {
+                if (keys[i] == id) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mycompany.colorscheme;
+
+import java.util.Random;
+
+// Escenas predefinidas: la escena inicial de la aplicación y escenas de estrés para medir rendimiento
+final class SceneFactory {
+
+    private SceneFactory() {
+    }
+
+    static FigureStore defaultScene() {
+        FigureStore figures = new FigureStore();
+        figures.add("Rectángulo", new float[]{-0.8f, -0.8f, 0.4f, 0.4f}, new float[]{0.0f, 0.0f, 0.0f});
+        figures.add("Círculo", new float[]{0.0f, 0.0f, 0.2f}, new float[]{0.0f, 0.0f, 0.0f});
+        figures.add("Triángulo", new float[]{0.4f, -0.8f, 0.4f, -0.4f, 0.8f, -0.8f}, new float[]{0.0f, 0.0f, 0.0f});
+
+        // Pentágono (5 vértices), movido a la izquierda y hacia arriba
+        figures.add("Pentágono", regularPolygon(5, -0.5f, 0.5f, 0.2f), new float[]{0.0f, 0.0f, 0.0f});
+
+        // Hexágono (6 vértices), movido a la derecha y hacia arriba
+        figures.add("Hexágono", regularPolygon(6, 0.5f, 0.5f, 0.2f), new float[]{0.0f, 0.0f, 0.0f});
+        return figures;
+    }
+
+    static FigureStore stressScene(int count, long seed) {
+        return stressScene(count, seed, false);
+    }
+
+    // Genera figuras pequeñas de los cinco tipos con colores y transformaciones aleatorias.
+    // La semilla fija permite comparar distintos renderizadores sobre la misma escena.
+    static FigureStore stressScene(int count, long seed, boolean direct) {
+        Random random = new Random(seed);
+        FigureStore figures = new FigureStore(count, direct);
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * 2 - 1;
+            float y = random.nextFloat() * 2 - 1;
+            float size = 0.005f + random.nextFloat() * 0.03f;
+            float[] color = {random.nextFloat(), random.nextFloat(), random.nextFloat()};
+
+            int slot;
+            switch (i % 5) {
+                case 0:
+                    slot = figures.add("Rectángulo " + i, new float[]{x, y, size, size * (0.5f + random.nextFloat())}, color);
+                    break;
+                case 1:
+                    slot = figures.add("Círculo " + i, new float[]{x, y, size / 2}, color);
+                    break;
+                case 2:
+                    slot = figures.add("Triángulo " + i, new float[]{x, y, x + size, y, x + size / 2, y + size}, color);
+                    break;
+                case 3:
+                    slot = figures.add("Pentágono " + i, regularPolygon(5, x, y, size / 2), color);
+                    break;
+                default:
+                    slot = figures.add("Hexágono " + i, regularPolygon(6, x, y, size / 2), color);
+                    break;
+            }
+            figures.setTransformValue(FigureStore.ROTATION, slot, random.nextFloat() * 360 - 180);
+            figures.setTransformValue(FigureStore.BIAS_X, slot, random.nextFloat() * 0.4f - 0.2f);
+        }
+        return figures;
+    }
+
+    static float[] regularPolygon(int sides, float centerX, float centerY, float radius) {
+        float[] vertices = new float[2 * sides];
+        for (int i = 0; i < sides; i++) {
+            double angle = 2 * Math.PI * i / sides;
+            vertices[2 * i] = centerX + (float) (Math.cos(angle) * radius);
+            vertices[2 * i + 1] = centerY + (float) (Math.sin(angle) * radius);
+        }
+        return vertices;
+    }
+}
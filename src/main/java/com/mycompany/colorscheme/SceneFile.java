@@ -0,0 +1,383 @@
+package com.mycompany.colorscheme;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Formato binario de escenas (little endian):
+//
+//   cabecera    MAGIC(4) VERSION(4) reservado(8)
+//   registros   id(8) largoNombre(2) nombre UTF-8, largoForma(2) forma(4 * n), color(4 * 3),
+//               rotación, escalaX, escalaY, traslaciónX, traslaciónY, sesgoX, sesgoY (4 * 7)
+//   segmentos   cantidad(8) segmentoAnterior(8) desplazamientos(8 * cantidad)
+//   cola        últimoSegmento(8) total(8) siguienteId(8) crc(4) MAGIC(4) VERSION(4)
+//
+// Cada escritura agrega después de la última cola sus registros, un segmento con sus
+// desplazamientos y una cola nueva; los segmentos forman una lista enlazada desde la cola.
+// Nada de lo ya escrito se sobrescribe: los registros y el segmento se fuerzan a disco antes
+// de escribir la cola, y el crc (de los tres campos y la posición de la cola) distingue una
+// cola completa de una cortada o de bytes sueltos. Si una escritura se interrumpe, la lectura
+// toma la última cola válida y el archivo queda como antes de esa escritura. La lectura mapea
+// el archivo y decodifica cada figura solo cuando se pide.
+final class SceneFile {
+
+    static final int MAGIC = 0x43534746; // "FGSC"
+    static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int TRAILER_BYTES = 36;
+    private static final int SCAN_BYTES = 1 << 16;
+    private static final int MAX_RECORD_BYTES = 8 + 2 + 0xFFFF + 2 + 4 * 0xFFFF + 4 * 10;
+
+    // Tamaño de las regiones mapeadas; se solapan en MAX_RECORD_BYTES para que ningún registro
+    // quede partido entre dos regiones
+    private static final long REGION_BYTES = 1L << 30;
+
+    private SceneFile() {
+    }
+
+    static void write(Path path, List<Figure> figures) throws IOException {
+        try (Writer writer = Writer.create(path)) {
+            for (Figure figure : figures) {
+                writer.write(figure);
+            }
+        }
+    }
+
+    static FigureStore readAll(Path path, boolean direct) throws IOException {
+        try (Reader reader = Reader.open(path)) {
+            FigureStore figures = new FigureStore(reader.size(), direct);
+            for (int i = 0; i < reader.size(); i++) {
+                reader.decode(i, figures);
+            }
+            return figures;
+        }
+    }
+
+    // Escritor secuencial: los registros se acumulan en un búfer directo que se vuelca con
+    // FileChannel.write. No se mapea para escribir porque un archivo mapeado no se puede
+    // recortar de forma segura al cerrar (el mapeo no se libera de forma determinista).
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+        private long previousSegment;
+        private long total;
+        private long nextId;
+        private long[] offsets = new long[1024];
+        private int count = 0;
+
+        private Writer(FileChannel channel, long position, long previousSegment, long total, long nextId) {
+            this.channel = channel;
+            this.position = position;
+            this.previousSegment = previousSegment;
+            this.total = total;
+            this.nextId = nextId;
+        }
+
+        static Writer create(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            Writer writer = new Writer(channel, 0, -1, 0, 0);
+            writer.buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+            return writer;
+        }
+
+        // Abre una escena existente para agregar figuras después de su última cola válida; lo
+        // que haya detrás (restos de una escritura interrumpida) se sobrescribe
+        static Writer append(Path path) throws IOException {
+            if (!Files.exists(path)) {
+                return create(path);
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                Trailer trailer = readTrailer(channel);
+                return new Writer(channel, trailer.end, trailer.segment, trailer.total, trailer.nextId);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void write(Figure figure) throws IOException {
+            if (figure.getId() < 0) {
+                figure.setId(nextId);
+            }
+            nextId = Math.max(nextId, figure.getId() + 1);
+
+            byte[] name = figure.getName().getBytes(StandardCharsets.UTF_8);
+            float[] shape = figure.getShape();
+            if (name.length > 0xFFFF || shape.length > 0xFFFF) {
+                throw new IllegalStateException("Figura demasiado grande para el formato: " + figure.getName());
+            }
+            int bytes = 8 + 2 + name.length + 2 + 4 * shape.length + 4 * 10;
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position + buffer.position();
+
+            buffer.putLong(figure.getId());
+            buffer.putShort((short) name.length).put(name);
+            buffer.putShort((short) shape.length);
+            for (float value : shape) {
+                buffer.putFloat(value);
+            }
+            buffer.putFloat(figure.getRed()).putFloat(figure.getGreen()).putFloat(figure.getBlue());
+            buffer.putFloat(figure.getRotation());
+            buffer.putFloat(figure.getScaleX()).putFloat(figure.getScaleY());
+            buffer.putFloat(figure.getTranslateX()).putFloat(figure.getTranslateY());
+            buffer.putFloat(figure.getBiasX()).putFloat(figure.getBiasY());
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        // Escribe el segmento de desplazamientos de esta sesión, lo fuerza a disco junto con los
+        // registros y recién entonces escribe y fuerza la cola nueva
+        @Override
+        public void close() throws IOException {
+            try {
+                long segment = position + buffer.position();
+                if (buffer.remaining() < 16) {
+                    flush();
+                    segment = position;
+                }
+                buffer.putLong(count).putLong(previousSegment);
+                for (int i = 0; i < count; i++) {
+                    if (buffer.remaining() < 8) {
+                        flush();
+                    }
+                    buffer.putLong(offsets[i]);
+                }
+                flush();
+                channel.force(false);
+
+                long tail = position;
+                buffer.putLong(segment).putLong(total + count).putLong(nextId);
+                buffer.putInt(checksum(buffer, 0, tail)).putInt(MAGIC).putInt(VERSION);
+                flush();
+                channel.force(false);
+                // Restos de una escritura interrumpida más larga que esta
+                channel.truncate(position);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Lector sobre el archivo mapeado. Abrir solo recorre la lista de segmentos; cada get(i)
+    // decodifica una figura nueva directamente desde el mapeo.
+    static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] regions;
+        private final int size;
+
+        // Por segmento (en orden de escritura): primer índice de figura y posición de sus desplazamientos
+        private final int[] segmentFirst;
+        private final long[] segmentOffsets;
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            Trailer trailer = readTrailer(channel);
+            long total = trailer.total;
+            if (total > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Demasiadas figuras en la escena: " + total);
+            }
+            size = (int) total;
+
+            long fileSize = channel.size();
+            int regionCount = (int) Math.max(1, (fileSize + REGION_BYTES - 1) / REGION_BYTES);
+            regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                long start = i * REGION_BYTES;
+                long length = Math.min(fileSize - start, REGION_BYTES + MAX_RECORD_BYTES);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                regions[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer header = regions[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IllegalStateException("Cabecera de escena inválida");
+            }
+
+            // Los segmentos se enlazan del último al primero
+            List<Long> segments = new ArrayList<>();
+            for (long segment = trailer.segment; segment >= 0; segment = getLong(segment + 8)) {
+                segments.add(segment);
+            }
+            segmentFirst = new int[segments.size()];
+            segmentOffsets = new long[segments.size()];
+            int first = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                long segment = segments.get(segments.size() - 1 - i);
+                segmentFirst[i] = first;
+                segmentOffsets[i] = segment + 16;
+                first += (int) getLong(segment);
+            }
+            if (first != size) {
+                throw new IllegalStateException("Tabla de desplazamientos inconsistente: " + first + " de " + size);
+            }
+        }
+
+        static Reader open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                return new Reader(channel);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        long id(int index) {
+            return getLong(offset(index));
+        }
+
+        // Decodifica una figura en un almacén propio
+        Figure get(int index) {
+            FigureStore store = new FigureStore(1, false);
+            return store.get(decode(index, store));
+        }
+
+        // Decodifica la figura al final del almacén sin crear su manejador
+        int decode(int index, FigureStore store) {
+            long offset = offset(index);
+            ByteBuffer region = regions[(int) (offset / REGION_BYTES)];
+            int p = (int) (offset % REGION_BYTES);
+
+            long id = region.getLong(p);
+            p += 8;
+            int nameLength = region.getShort(p) & 0xFFFF;
+            p += 2;
+            byte[] name = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                name[i] = region.get(p + i);
+            }
+            p += nameLength;
+            int shapeLength = region.getShort(p) & 0xFFFF;
+            p += 2;
+            float[] shape = new float[shapeLength];
+            for (int i = 0; i < shapeLength; i++, p += 4) {
+                shape[i] = region.getFloat(p);
+            }
+            float[] color = {region.getFloat(p), region.getFloat(p + 4), region.getFloat(p + 8)};
+            p += 12;
+
+            int slot = store.add(new String(name, StandardCharsets.UTF_8), shape, color);
+            store.setId(slot, id);
+            store.setTransformValue(FigureStore.ROTATION, slot, region.getFloat(p));
+            store.setTransformValue(FigureStore.SCALE_X, slot, region.getFloat(p + 4));
+            store.setTransformValue(FigureStore.SCALE_Y, slot, region.getFloat(p + 8));
+            store.setTransformValue(FigureStore.TRANSLATE_X, slot, region.getFloat(p + 12));
+            store.setTransformValue(FigureStore.TRANSLATE_Y, slot, region.getFloat(p + 16));
+            store.setTransformValue(FigureStore.BIAS_X, slot, region.getFloat(p + 20));
+            store.setTransformValue(FigureStore.BIAS_Y, slot, region.getFloat(p + 24));
+            return slot;
+        }
+
+        private long offset(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Figura " + index + " de " + size);
+            }
+            int segment = Arrays.binarySearch(segmentFirst, index);
+            if (segment < 0) {
+                segment = -segment - 2;
+            }
+            // Segmentos vacíos comparten primer índice; el último de ellos es el que tiene la figura
+            while (segment + 1 < segmentFirst.length && segmentFirst[segment + 1] == index) {
+                segment++;
+            }
+            return getLong(segmentOffsets[segment] + 8L * (index - segmentFirst[segment]));
+        }
+
+        private long getLong(long position) {
+            return regions[(int) (position / REGION_BYTES)].getLong((int) (position % REGION_BYTES));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class Trailer {
+        final long segment;
+        final long total;
+        final long nextId;
+        final long end; // posición siguiente a la cola
+
+        Trailer(ByteBuffer buffer, int at, long end) {
+            this.segment = buffer.getLong(at);
+            this.total = buffer.getLong(at + 8);
+            this.nextId = buffer.getLong(at + 16);
+            this.end = end;
+        }
+    }
+
+    // crc de los tres campos de una cola que empieza en 'at' y de su posición en el archivo
+    private static int checksum(ByteBuffer buffer, int at, long position) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < 24; i++) {
+            crc.update(buffer.get(at + i));
+        }
+        for (int i = 0; i < 64; i += 8) {
+            crc.update((int) (position >>> i));
+        }
+        return (int) crc.getValue();
+    }
+
+    // Busca desde el final la última cola válida; lo que la siga es una escritura interrumpida.
+    // Se lee por bloques que se solapan en una cola para no perder las que caen en el borde.
+    private static Trailer readTrailer(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES + TRAILER_BYTES) {
+            throw new IllegalStateException("Archivo de escena truncado");
+        }
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long end = size;
+        while (true) {
+            long start = Math.max(HEADER_BYTES, end - SCAN_BYTES);
+            block.clear().limit((int) (end - start));
+            while (block.hasRemaining()) {
+                if (channel.read(block, start + block.position()) < 0) {
+                    throw new IllegalStateException("Archivo de escena truncado");
+                }
+            }
+            for (int at = block.limit() - TRAILER_BYTES; at >= 0; at--) {
+                if (block.getInt(at + 32) == VERSION && block.getInt(at + 28) == MAGIC
+                        && block.getInt(at + 24) == checksum(block, at, start + at)) {
+                    return new Trailer(block, at, start + at + TRAILER_BYTES);
+                }
+            }
+            if (start == HEADER_BYTES) {
+                throw new IllegalStateException("Archivo de escena sin cola válida (truncado o de otra versión)");
+            }
+            end = start + TRAILER_BYTES - 1;
+        }
+    }
+}
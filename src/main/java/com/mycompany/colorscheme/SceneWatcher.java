@@ -0,0 +1,130 @@
+package com.mycompany.colorscheme;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Recarga en caliente de un archivo de escena: un hilo propio vigila el directorio con
+// WatchService y, cuando el archivo cambia, lo lee, calcula un SceneDiff contra la versión
+// anterior del archivo y lo entrega a 'publish' (que lo pasa al hilo de render). Así la
+// escena viva solo se toca en el hilo de render y solo en las figuras que cambiaron.
+//
+// Un editor suele generar varios eventos por guardado; se espera QUIET_MILLIS sin eventos
+// antes de leer. Si el archivo está a medio escribir (cola inválida) se espera el siguiente
+// evento. La latencia se mide desde el primer evento del guardado.
+final class SceneWatcher {
+
+    private static final long QUIET_MILLIS = 20;
+
+    // Una recarga lista para aplicar, con sus tiempos (System.nanoTime)
+    static final class Reload {
+        final SceneDiff diff;
+        final long detected;  // Primer evento del guardado
+        final long parsed;    // Archivo leído
+        final long diffed;    // Diferencias calculadas
+
+        Reload(SceneDiff diff, long detected, long parsed, long diffed) {
+            this.diff = diff;
+            this.detected = detected;
+            this.parsed = parsed;
+            this.diffed = diffed;
+        }
+    }
+
+    private final Path file;
+    private final Consumer<Reload> publish;
+    private final WatchService service;
+    private final Thread thread;
+    private FigureStore current;
+    private SceneDiff.IdMap currentIds;
+
+    // 'initial' es el contenido del archivo tal como se cargó en la escena viva; solo lo usa
+    // este hilo desde ahora
+    SceneWatcher(Path file, FigureStore initial, Consumer<Reload> publish) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.publish = publish;
+        this.current = initial;
+        this.currentIds = SceneDiff.IdMap.of(initial);
+        Path directory = this.file.getParent();
+        this.service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "scene-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        try {
+            service.close();
+        } catch (IOException e) {
+            System.err.println("No se pudo cerrar la vigilancia de " + file + ": " + e.getMessage());
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean touched = drain(key);
+                if (!touched) {
+                    continue;
+                }
+                long detected = System.nanoTime();
+                // Espera a que el guardado termine de generar eventos
+                while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+                reload(detected);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Fin de la vigilancia
+        }
+    }
+
+    // Consume los eventos de la clave y dice si alguno era del archivo vigilado
+    private boolean drain(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            touched |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || context instanceof Path && file.getFileName().equals(context);
+        }
+        key.reset();
+        return touched;
+    }
+
+    private void reload(long detected) {
+        FigureStore next;
+        try {
+            next = SceneFile.readAll(file, false);
+        } catch (IOException | RuntimeException | InternalError e) {
+            // A medio escribir o inválido: la próxima escritura genera otro evento. InternalError
+            // es lo que lanza la JVM si el archivo mapeado se recorta mientras se lee.
+            System.err.println("No se pudo recargar la escena " + file + ": " + e.getMessage());
+            return;
+        }
+        long parsed = System.nanoTime();
+        SceneDiff diff;
+        try {
+            diff = new SceneDiff(current, currentIds, next);
+        } catch (RuntimeException e) {
+            System.err.println("No se pudo recargar la escena " + file + ": " + e.getMessage());
+            return;
+        }
+        current = next;
+        currentIds = diff.nextIds;
+        if (!diff.isEmpty()) {
+            publish.accept(new Reload(diff, detected, parsed, System.nanoTime()));
+        }
+    }
+}
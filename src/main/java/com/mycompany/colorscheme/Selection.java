@@ -0,0 +1,137 @@
+package com.mycompany.colorscheme;
+
+import java.util.BitSet;
+
+// Selección múltiple: un BitSet con las posiciones de las figuras en el FigureStore, más una
+// figura principal (la última elegida con un clic), que es la que muestran las barras y la
+// que reciben los renderizadores como seleccionada.
+//
+// Las posiciones dejan de valer si se agregan, quitan o reordenan figuras; en ese caso la
+// selección se reduce a la figura principal, cuyo manejador sigue siendo válido.
+final class Selection {
+
+    private final FigureStore figures;
+    private final BitSet slots = new BitSet();
+    private Figure primary;
+    private int size = 0; // Se recalcula en cada cambio; cardinality() recorre todo el BitSet
+    private int layout;
+    private int[] array = new int[0]; // Posiciones en orden, recalculadas al cambiar
+    private boolean arrayValid = true;
+
+    Selection(FigureStore figures) {
+        this.figures = figures;
+        this.layout = figures.layoutCount();
+    }
+
+    Figure primary() {
+        validate();
+        return primary;
+    }
+
+    int size() {
+        validate();
+        return size;
+    }
+
+    boolean isEmpty() {
+        return primary() == null;
+    }
+
+    boolean contains(Figure figure) {
+        validate();
+        return figure.store == figures && slots.get(figure.slot);
+    }
+
+    // Igual que contains, por posición en el almacén (sin crear el manejador)
+    boolean containsSlot(int slot) {
+        validate();
+        return slots.get(slot);
+    }
+
+    void clear() {
+        slots.clear();
+        primary = null;
+        changed();
+    }
+
+    // Deja solo esta figura (o nada si es null)
+    void select(Figure figure) {
+        validate();
+        slots.clear();
+        primary = null;
+        if (figure != null && figure.store == figures) {
+            slots.set(figure.slot);
+            primary = figure;
+        }
+        changed();
+    }
+
+    // Agrega o quita la figura; si se agrega pasa a ser la principal
+    void toggle(Figure figure) {
+        validate();
+        if (figure == null || figure.store != figures) {
+            return;
+        }
+        if (slots.get(figure.slot)) {
+            slots.clear(figure.slot);
+            if (primary == figure) {
+                int first = slots.nextSetBit(0);
+                primary = first >= 0 ? figures.get(first) : null;
+            }
+        } else {
+            slots.set(figure.slot);
+            primary = figure;
+        }
+        changed();
+    }
+
+    // Reemplaza la selección por las posiciones marcadas (o las agrega, con 'add')
+    void set(BitSet marked, boolean add) {
+        validate();
+        if (!add) {
+            slots.clear();
+        }
+        slots.or(marked);
+        if (primary == null || !slots.get(primary.slot)) {
+            int first = slots.nextSetBit(0);
+            primary = first >= 0 ? figures.get(first) : null;
+        }
+        changed();
+    }
+
+    // Posiciones seleccionadas en orden creciente; el arreglo puede ser más largo que size()
+    // y no se debe modificar
+    int[] slots() {
+        validate();
+        if (!arrayValid) {
+            if (array.length < size) {
+                array = new int[size];
+            }
+            for (int i = 0, slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                array[i++] = slot;
+            }
+            arrayValid = true;
+        }
+        return array;
+    }
+
+    private void changed() {
+        size = slots.cardinality();
+        arrayValid = false;
+    }
+
+    private void validate() {
+        int current = figures.layoutCount();
+        if (current == layout) {
+            return;
+        }
+        layout = current;
+        slots.clear();
+        if (primary != null && primary.store == figures) {
+            slots.set(primary.slot);
+        } else {
+            primary = null;
+        }
+        changed();
+    }
+}
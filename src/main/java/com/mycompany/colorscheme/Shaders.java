@@ -0,0 +1,45 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.opengl.GL33;
+
+// Compilación y enlace de programas GLSL
+final class Shaders {
+
+    private Shaders() {
+    }
+
+    static int link(String vertexSource, String fragmentSource) {
+        int vertexShader = compile(GL33.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = compile(GL33.GL_FRAGMENT_SHADER, fragmentSource);
+
+        int program = GL33.glCreateProgram();
+        GL33.glAttachShader(program, vertexShader);
+        GL33.glAttachShader(program, fragmentShader);
+        GL33.glLinkProgram(program);
+
+        // Los shaders ya no hacen falta una vez enlazado el programa
+        GL33.glDetachShader(program, vertexShader);
+        GL33.glDetachShader(program, fragmentShader);
+        GL33.glDeleteShader(vertexShader);
+        GL33.glDeleteShader(fragmentShader);
+
+        if (GL33.glGetProgrami(program, GL33.GL_LINK_STATUS) == GL33.GL_FALSE) {
+            String log = GL33.glGetProgramInfoLog(program);
+            GL33.glDeleteProgram(program);
+            throw new IllegalStateException("No se pudo enlazar el programa de shaders: " + log);
+        }
+        return program;
+    }
+
+    private static int compile(int type, String source) {
+        int shader = GL33.glCreateShader(type);
+        GL33.glShaderSource(shader, source);
+        GL33.glCompileShader(shader);
+        if (GL33.glGetShaderi(shader, GL33.GL_COMPILE_STATUS) == GL33.GL_FALSE) {
+            String log = GL33.glGetShaderInfoLog(shader);
+            GL33.glDeleteShader(shader);
+            throw new IllegalStateException("No se pudo compilar el shader: " + log);
+        }
+        return shader;
+    }
+}
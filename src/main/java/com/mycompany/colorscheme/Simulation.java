@@ -0,0 +1,343 @@
+package com.mycompany.colorscheme;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// Hilo de simulación con paso fijo. Avanza las animaciones de las figuras (giro, vaivén de la
+// traslación y transición de color de ida y vuelta) a 'tickRate' pasos por segundo y, después
+// de cada tanda de pasos, publica el estado en un triple búfer. El hilo de render toma la
+// última instantánea al inicio del cuadro y la aplica a las figuras; así el hilo de
+// simulación nunca toca el FigureStore y ninguno de los dos espera al otro.
+//
+// Los pedidos del hilo de render (animar o detener una figura) llegan por una cola y se
+// procesan entre pasos.
+final class Simulation {
+
+    // Qué valores escribe cada animación
+    static final int SPIN = 1;
+    static final int OSCILLATE = 2;
+    static final int COLOR = 4;
+
+    private static final int MAX_STEPS = 8; // Pasos por tanda antes de descartar el atraso
+
+    // Parámetros de una animación; los valores base se toman de la figura al empezar
+    static final class Animation {
+        float spin;                   // Grados por segundo
+        float amplitudeX, amplitudeY; // Vaivén de la traslación
+        float period = 2.0f;          // Segundos por vaivén
+        float[] targetColor;          // Color de destino (null si no cambia de color)
+        float colorPeriod = 2.0f;     // Segundos por ida y vuelta del color
+
+        int mask() {
+            int mask = 0;
+            if (spin != 0.0f) {
+                mask |= SPIN;
+            }
+            if (amplitudeX != 0.0f || amplitudeY != 0.0f) {
+                mask |= OSCILLATE;
+            }
+            if (targetColor != null) {
+                mask |= COLOR;
+            }
+            return mask;
+        }
+    }
+
+    // Estado animado de un paso: por figura, qué valores cambian y (rotación, x, y, r, g, b)
+    static final class Snapshot {
+        int count;
+        Figure[] figures = new Figure[0];
+        int[] masks = new int[0];
+        float[] values = new float[0];
+        long tick;
+
+        private void ensureCapacity(int required) {
+            if (figures.length < required) {
+                int capacity = Math.max(required, figures.length * 2);
+                figures = Arrays.copyOf(figures, capacity);
+                masks = Arrays.copyOf(masks, capacity);
+                values = Arrays.copyOf(values, capacity * 6);
+            }
+        }
+
+        // Hilo de render
+        void applyTo() {
+            for (int i = 0; i < count; i++) {
+                Figure figure = figures[i];
+                int mask = masks[i];
+                int v = i * 6;
+                if ((mask & SPIN) != 0) {
+                    figure.setRotation(values[v]);
+                }
+                if ((mask & OSCILLATE) != 0) {
+                    figure.setTranslateX(values[v + 1]);
+                    figure.setTranslateY(values[v + 2]);
+                }
+                if ((mask & COLOR) != 0) {
+                    figure.setColor(values[v + 3], values[v + 4], values[v + 5]);
+                }
+            }
+        }
+    }
+
+    private final long stepNanos;
+    private final float step;
+    private final TripleBuffer<Snapshot> snapshots =
+            new TripleBuffer<>(new Snapshot(), new Snapshot(), new Snapshot());
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Animaciones en columnas (solo hilo de simulación)
+    private final Map<Figure, Integer> indexOf = new IdentityHashMap<>();
+    private int count = 0;
+    private Figure[] figures = new Figure[16];
+    private int[] masks = new int[16];
+    private double[] start = new double[16];
+    private float[] baseRotation = new float[16];
+    private float[] spin = new float[16];
+    private float[] baseX = new float[16];
+    private float[] baseY = new float[16];
+    private float[] amplitudeX = new float[16];
+    private float[] amplitudeY = new float[16];
+    private float[] omega = new float[16];
+    private float[] fromColor = new float[16 * 3];
+    private float[] toColor = new float[16 * 3];
+    private float[] colorOmega = new float[16];
+
+    private double time = 0.0;
+    private volatile long tick = 0;
+    private volatile long droppedSteps = 0;
+    private volatile double averagePublishMillis = 0.0;
+    private volatile int animationCount = 0;
+
+    Simulation(int tickRate) {
+        this.stepNanos = 1_000_000_000L / tickRate;
+        this.step = 1.0f / tickRate;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // Anima la figura (reemplaza su animación anterior). Hilo de render: los valores base
+    // se leen aquí, no en el hilo de simulación.
+    void animate(Figure figure, Animation animation) {
+        final int mask = animation.mask();
+        if (mask == 0) {
+            stop(figure);
+            return;
+        }
+        final float rotation = figure.getRotation();
+        final float x = figure.getTranslateX();
+        final float y = figure.getTranslateY();
+        final float[] color = figure.getColor();
+        final float spinSpeed = animation.spin;
+        final float ax = animation.amplitudeX;
+        final float ay = animation.amplitudeY;
+        final float w = (float) (2 * Math.PI / Math.max(0.01f, animation.period));
+        final float[] target = animation.targetColor == null ? color : animation.targetColor.clone();
+        final float cw = (float) (2 * Math.PI / Math.max(0.01f, animation.colorPeriod));
+        submit(() -> {
+            int i = slotOf(figure);
+            masks[i] = mask;
+            start[i] = time;
+            baseRotation[i] = rotation;
+            spin[i] = spinSpeed;
+            baseX[i] = x;
+            baseY[i] = y;
+            amplitudeX[i] = ax;
+            amplitudeY[i] = ay;
+            omega[i] = w;
+            System.arraycopy(color, 0, fromColor, i * 3, 3);
+            System.arraycopy(target, 0, toColor, i * 3, 3);
+            colorOmega[i] = cw;
+        });
+    }
+
+    void stop(final Figure figure) {
+        submit(() -> remove(figure));
+    }
+
+    void stopAll() {
+        submit(() -> {
+            Arrays.fill(figures, 0, count, null);
+            indexOf.clear();
+            count = 0;
+        });
+    }
+
+    private void submit(Runnable task) {
+        tasks.add(task);
+        LockSupport.unpark(thread);
+    }
+
+    // Última instantánea publicada, o null si no hay una nueva. Hilo de render.
+    Snapshot acquire() {
+        return snapshots.acquire();
+    }
+
+    long getTick() { return tick; }
+    int getAnimationCount() { return animationCount; }
+    long getPublished() { return snapshots.getPublished(); }
+    long getOverwritten() { return snapshots.getOverwritten(); }
+    long getDroppedSteps() { return droppedSteps; }
+    double getAveragePublishMillis() { return averagePublishMillis; }
+
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            runTasks();
+            if (count == 0) {
+                // Sin animaciones no hay nada que avanzar; se espera un pedido
+                animationCount = 0;
+                LockSupport.parkNanos(100_000_000L);
+                next = System.nanoTime();
+                continue;
+            }
+
+            long now = System.nanoTime();
+            int steps = 0;
+            while (now - next >= 0 && steps < MAX_STEPS) {
+                advance();
+                next += stepNanos;
+                steps++;
+            }
+            if (now - next >= 0) {
+                // Atraso mayor que MAX_STEPS pasos: se descarta para no entrar en espiral
+                long behind = (now - next) / stepNanos + 1;
+                droppedSteps += behind;
+                next += behind * stepNanos;
+            }
+            if (steps > 0) {
+                long publishStart = System.nanoTime();
+                publish();
+                averagePublishMillis = averagePublishMillis * 0.95 + (System.nanoTime() - publishStart) / 1e6 * 0.05;
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        animationCount = count;
+    }
+
+    private void advance() {
+        time += step;
+        tick++;
+    }
+
+    // Escribe el estado en el tiempo actual en el búfer trasero y lo publica
+    private void publish() {
+        Snapshot snapshot = snapshots.back();
+        snapshot.ensureCapacity(count);
+        snapshot.count = count;
+        snapshot.tick = tick;
+        Figure[] outFigures = snapshot.figures;
+        int[] outMasks = snapshot.masks;
+        float[] out = snapshot.values;
+        for (int i = 0; i < count; i++) {
+            int mask = masks[i];
+            float t = (float) (time - start[i]);
+            int v = i * 6;
+            outFigures[i] = figures[i];
+            outMasks[i] = mask;
+            if ((mask & SPIN) != 0) {
+                float angle = baseRotation[i] + spin[i] * t;
+                out[v] = angle - 360.0f * (float) Math.floor((angle + 180.0f) / 360.0f);
+            }
+            if ((mask & OSCILLATE) != 0) {
+                float wave = (float) Math.sin(omega[i] * t);
+                out[v + 1] = baseX[i] + amplitudeX[i] * wave;
+                out[v + 2] = baseY[i] + amplitudeY[i] * wave;
+            }
+            if ((mask & COLOR) != 0) {
+                float k = 0.5f - 0.5f * (float) Math.cos(colorOmega[i] * t);
+                int c = i * 3;
+                out[v + 3] = fromColor[c] + (toColor[c] - fromColor[c]) * k;
+                out[v + 4] = fromColor[c + 1] + (toColor[c + 1] - fromColor[c + 1]) * k;
+                out[v + 5] = fromColor[c + 2] + (toColor[c + 2] - fromColor[c + 2]) * k;
+            }
+        }
+        // No retener figuras quitadas en las posiciones que sobran
+        Arrays.fill(outFigures, count, outFigures.length, null);
+        snapshots.publish();
+    }
+
+    private int slotOf(Figure figure) {
+        Integer existing = indexOf.get(figure);
+        if (existing != null) {
+            return existing;
+        }
+        if (count == figures.length) {
+            int capacity = count * 2;
+            figures = Arrays.copyOf(figures, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            start = Arrays.copyOf(start, capacity);
+            baseRotation = Arrays.copyOf(baseRotation, capacity);
+            spin = Arrays.copyOf(spin, capacity);
+            baseX = Arrays.copyOf(baseX, capacity);
+            baseY = Arrays.copyOf(baseY, capacity);
+            amplitudeX = Arrays.copyOf(amplitudeX, capacity);
+            amplitudeY = Arrays.copyOf(amplitudeY, capacity);
+            omega = Arrays.copyOf(omega, capacity);
+            fromColor = Arrays.copyOf(fromColor, capacity * 3);
+            toColor = Arrays.copyOf(toColor, capacity * 3);
+            colorOmega = Arrays.copyOf(colorOmega, capacity);
+        }
+        int i = count++;
+        figures[i] = figure;
+        indexOf.put(figure, i);
+        return i;
+    }
+
+    // Quita la animación moviendo la última a su lugar
+    private void remove(Figure figure) {
+        Integer index = indexOf.remove(figure);
+        if (index == null) {
+            return;
+        }
+        int i = index;
+        int last = --count;
+        if (i != last) {
+            figures[i] = figures[last];
+            masks[i] = masks[last];
+            start[i] = start[last];
+            baseRotation[i] = baseRotation[last];
+            spin[i] = spin[last];
+            baseX[i] = baseX[last];
+            baseY[i] = baseY[last];
+            amplitudeX[i] = amplitudeX[last];
+            amplitudeY[i] = amplitudeY[last];
+            omega[i] = omega[last];
+            System.arraycopy(fromColor, last * 3, fromColor, i * 3, 3);
+            System.arraycopy(toColor, last * 3, toColor, i * 3, 3);
+            colorOmega[i] = colorOmega[last];
+            indexOf.put(figures[i], i);
+        }
+        figures[last] = null;
+    }
+}
@@ -0,0 +1,438 @@
+package com.mycompany.colorscheme;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Rasterizador por funciones de arista en Java puro, sin OpenGL. Usa los mismos triángulos
+// que BatchRenderer (FigureGeometry) y dibuja en un arreglo int[] ARGB con la fila 0 arriba.
+// Los triángulos se reparten en mosaicos de TILE x TILE píxeles y, con más de un hilo, cada
+// mosaico se rasteriza en paralelo respetando el orden de la escena dentro del mosaico.
+//
+// Aplica el ajuste de color de la escena y el de cada figura (ColorGrade) igual que el
+// fragment shader de los renderizadores de OpenGL, así que sirve de referencia para ellos.
+class SoftwareRenderer implements Renderer {
+
+    private static final int TILE = 64;
+    private static final int BORDER_ARGB = 0xFFFF0000; // Borde rojo
+    private static final int MAX_FIGURE_TRANSFORMS = 256;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final ForkJoinPool pool;
+    private int clearArgb = 0xFF000000;
+
+    // Triángulos del cuadro en coordenadas de píxel (x0, y0, x1, y1, x2, y2) y su color
+    private float[] triangles = new float[6 * 1024];
+    private int[] triangleColors = new int[1024];
+    private int triangleCount = 0;
+
+    // Índices de triángulos por mosaico, en orden de dibujo
+    private final int tilesX;
+    private final int tilesY;
+    private final int[][] tileTriangles;
+    private final int[] tileCounts;
+
+    private FloatBuffer scratch = FloatBuffer.allocate(1024);
+    private final Transform2D transform = new Transform2D();
+    private final TessellationCache tessellation;
+
+    // Colores de las figuras del cuadro ya ajustados y la cadena del ajuste de la escena
+    private final ColorGrade grade;
+    private PaletteTransform.Block colors = new PaletteTransform.Block(0);
+    private PaletteTransform sceneTransform;
+    private int sceneTransformVersion = -1;
+
+    // Cadenas de los ajustes propios, una por (tono, saturación, luminosidad, tinta), para no
+    // armar una por figura en cada cuadro. Se vacía si cambia el ajuste de la escena o si se
+    // llena (ajustes animados que no se repiten).
+    private final Map<GradeKey, PaletteTransform> figureTransforms = new HashMap<>();
+    private final GradeKey probe = new GradeKey();
+    private int figureTransformsVersion = -1;
+
+    SoftwareRenderer(int width, int height, int threads) {
+        this(width, height, threads, new ColorGrade());
+    }
+
+    // 'grade' es el ajuste de color de toda la escena; se aplica al relleno, no al borde de la
+    // selección
+    SoftwareRenderer(int width, int height, int threads, ColorGrade grade) {
+        this.grade = grade;
+        this.width = width;
+        this.height = height;
+        this.tessellation = new TessellationCache(width, height);
+        this.pixels = new int[width * height];
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.tilesX = (width + TILE - 1) / TILE;
+        this.tilesY = (height + TILE - 1) / TILE;
+        this.tileTriangles = new int[tilesX * tilesY][16];
+        this.tileCounts = new int[tilesX * tilesY];
+    }
+
+    int getWidth() { return width; }
+    int getHeight() { return height; }
+
+    // Píxeles ARGB del último cuadro, fila 0 arriba
+    int[] getPixels() { return pixels; }
+
+    void setClearColor(float r, float g, float b) {
+        clearArgb = argb(r, g, b);
+    }
+
+    @Override
+    public void render(List<Figure> figures, Figure selected) {
+        triangleCount = 0;
+        Arrays.fill(tileCounts, 0);
+        gradeColors(figures);
+        for (int i = 0, n = figures.size(); i < n; i++) {
+            collect(figures.get(i), argb(colors.r[i], colors.g[i], colors.b[i]));
+        }
+
+        Tiles tiles = new Tiles(0, tileCounts.length);
+        if (pool != null) {
+            pool.invoke(tiles);
+        } else {
+            tiles.compute();
+        }
+
+        if (selected != null) {
+            drawBorder(selected);
+        }
+    }
+
+    // Color de cada figura con el ajuste de la escena y el suyo, como grade() en el shader:
+    // la cadena de la escena se aplica a todas juntas y las que tienen ajuste propio se
+    // recalculan desde su color con la cadena combinada
+    private void gradeColors(List<Figure> figures) {
+        int count = figures.size();
+        if (colors.size() != count) {
+            colors = new PaletteTransform.Block(count);
+        }
+        for (int i = 0; i < count; i++) {
+            Figure figure = figures.get(i);
+            colors.r[i] = figure.getRed();
+            colors.g[i] = figure.getGreen();
+            colors.b[i] = figure.getBlue();
+        }
+        if (!grade.isIdentity()) {
+            if (sceneTransformVersion != grade.version()) {
+                sceneTransform = grade.toTransform();
+                sceneTransformVersion = grade.version();
+            }
+            if (pool != null) {
+                sceneTransform.apply(colors, pool);
+            } else {
+                sceneTransform.applyRange(colors, 0, count);
+            }
+        }
+        if (figureTransformsVersion != grade.version()) {
+            figureTransforms.clear();
+            figureTransformsVersion = grade.version();
+        }
+        PaletteTransform previous = null;
+        for (int i = 0; i < count; i++) {
+            Figure figure = figures.get(i);
+            if (!ColorGrade.isIdentity(figure)) {
+                colors.r[i] = figure.getRed();
+                colors.g[i] = figure.getGreen();
+                colors.b[i] = figure.getBlue();
+                // Figuras seguidas con el mismo ajuste (una selección editada junta) no buscan
+                PaletteTransform chain = previous != null && probe.matches(figure) ? previous : figureTransform(figure);
+                chain.applyRange(colors, i, i + 1);
+                previous = chain;
+            }
+        }
+    }
+
+    // Deja en 'probe' el ajuste de la figura y devuelve su cadena, armándola si no estaba
+    private PaletteTransform figureTransform(Figure figure) {
+        probe.set(figure);
+        PaletteTransform chain = figureTransforms.get(probe);
+        if (chain == null) {
+            if (figureTransforms.size() >= MAX_FIGURE_TRANSFORMS) {
+                figureTransforms.clear();
+            }
+            chain = grade.toTransform(probe.hue, probe.saturation, probe.lightness, probe.ink);
+            figureTransforms.put(probe.copy(), chain);
+        }
+        return chain;
+    }
+
+    // Ajuste propio de una figura como clave; se comparan los bits, como con == salvo NaN y -0
+    private static final class GradeKey {
+        float hue;
+        float saturation;
+        float lightness;
+        float ink;
+
+        void set(Figure figure) {
+            hue = figure.getGradeHue();
+            saturation = figure.getGradeSaturation();
+            lightness = figure.getGradeLightness();
+            ink = figure.getGradeInk();
+        }
+
+        boolean matches(Figure figure) {
+            return Float.floatToIntBits(hue) == Float.floatToIntBits(figure.getGradeHue())
+                    && Float.floatToIntBits(saturation) == Float.floatToIntBits(figure.getGradeSaturation())
+                    && Float.floatToIntBits(lightness) == Float.floatToIntBits(figure.getGradeLightness())
+                    && Float.floatToIntBits(ink) == Float.floatToIntBits(figure.getGradeInk());
+        }
+
+        GradeKey copy() {
+            GradeKey key = new GradeKey();
+            key.hue = hue;
+            key.saturation = saturation;
+            key.lightness = lightness;
+            key.ink = ink;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof GradeKey)) {
+                return false;
+            }
+            GradeKey key = (GradeKey) other;
+            return Float.floatToIntBits(hue) == Float.floatToIntBits(key.hue)
+                    && Float.floatToIntBits(saturation) == Float.floatToIntBits(key.saturation)
+                    && Float.floatToIntBits(lightness) == Float.floatToIntBits(key.lightness)
+                    && Float.floatToIntBits(ink) == Float.floatToIntBits(key.ink);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Float.floatToIntBits(hue);
+            hash = 31 * hash + Float.floatToIntBits(saturation);
+            hash = 31 * hash + Float.floatToIntBits(lightness);
+            return 31 * hash + Float.floatToIntBits(ink);
+        }
+    }
+
+    // Tesela la figura y reparte sus triángulos entre los mosaicos que toca
+    private void collect(Figure figure, int color) {
+        int vertices = FigureGeometry.fillVertexCount(figure, tessellation);
+        int floats = vertices * FigureGeometry.FLOATS_PER_VERTEX;
+        if (scratch.capacity() < floats) {
+            scratch = FloatBuffer.allocate(Math.max(floats, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        figure.getTransform(transform);
+        FigureGeometry.writeFill(figure, transform, tessellation, scratch);
+        float[] data = scratch.array();
+
+        for (int v = 0; v < vertices; v += 3) {
+            int base = v * FigureGeometry.FLOATS_PER_VERTEX;
+            float x0 = toPixelX(data[base]);
+            float y0 = toPixelY(data[base + 1]);
+            float x1 = toPixelX(data[base + 5]);
+            float y1 = toPixelY(data[base + 6]);
+            float x2 = toPixelX(data[base + 10]);
+            float y2 = toPixelY(data[base + 11]);
+
+            // Rango de píxeles cuyos centros puede cubrir el triángulo
+            int minX = Math.max(0, (int) Math.ceil(Math.min(x0, Math.min(x1, x2)) - 0.5f));
+            int maxX = Math.min(width - 1, (int) Math.floor(Math.max(x0, Math.max(x1, x2)) - 0.5f));
+            int minY = Math.max(0, (int) Math.ceil(Math.min(y0, Math.min(y1, y2)) - 0.5f));
+            int maxY = Math.min(height - 1, (int) Math.floor(Math.max(y0, Math.max(y1, y2)) - 0.5f));
+            if (minX > maxX || minY > maxY) {
+                continue; // Fuera de pantalla o sin centros de píxel
+            }
+
+            int index = addTriangle(x0, y0, x1, y1, x2, y2, color);
+            for (int ty = minY / TILE; ty <= maxY / TILE; ty++) {
+                for (int tx = minX / TILE; tx <= maxX / TILE; tx++) {
+                    bin(ty * tilesX + tx, index);
+                }
+            }
+        }
+    }
+
+    private int addTriangle(float x0, float y0, float x1, float y1, float x2, float y2, int color) {
+        if (triangleCount == triangleColors.length) {
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+            triangleColors = Arrays.copyOf(triangleColors, triangleColors.length * 2);
+        }
+        int base = triangleCount * 6;
+        triangles[base] = x0;
+        triangles[base + 1] = y0;
+        triangles[base + 2] = x1;
+        triangles[base + 3] = y1;
+        triangles[base + 4] = x2;
+        triangles[base + 5] = y2;
+        triangleColors[triangleCount] = color;
+        return triangleCount++;
+    }
+
+    private void bin(int tile, int triangle) {
+        int[] list = tileTriangles[tile];
+        if (tileCounts[tile] == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            tileTriangles[tile] = list;
+        }
+        list[tileCounts[tile]++] = triangle;
+    }
+
+    private final class Tiles extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Tiles(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (pool == null || to - from <= 2) {
+                for (int tile = from; tile < to; tile++) {
+                    rasterizeTile(tile);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Tiles(from, mid), new Tiles(mid, to));
+        }
+    }
+
+    private void rasterizeTile(int tile) {
+        int left = (tile % tilesX) * TILE;
+        int top = (tile / tilesX) * TILE;
+        int right = Math.min(width, left + TILE) - 1;
+        int bottom = Math.min(height, top + TILE) - 1;
+
+        for (int y = top; y <= bottom; y++) {
+            Arrays.fill(pixels, y * width + left, y * width + right + 1, clearArgb);
+        }
+        int[] list = tileTriangles[tile];
+        for (int i = 0, n = tileCounts[tile]; i < n; i++) {
+            int t = list[i];
+            rasterizeTriangle(t * 6, triangleColors[t], left, top, right, bottom);
+        }
+    }
+
+    // Cubre los píxeles del rectángulo [left, right] x [top, bottom] cuyo centro cae dentro
+    // del triángulo (aristas incluidas, para no dejar huecos entre triángulos vecinos)
+    private void rasterizeTriangle(int base, int color, int left, int top, int right, int bottom) {
+        float x0 = triangles[base], y0 = triangles[base + 1];
+        float x1 = triangles[base + 2], y1 = triangles[base + 3];
+        float x2 = triangles[base + 4], y2 = triangles[base + 5];
+
+        float area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+        if (area == 0.0f) {
+            return;
+        }
+        if (area < 0.0f) { // Orientación uniforme para que "dentro" sea siempre >= 0
+            float tx = x1, ty = y1;
+            x1 = x2;
+            y1 = y2;
+            x2 = tx;
+            y2 = ty;
+        }
+
+        int minX = Math.max(left, (int) Math.ceil(Math.min(x0, Math.min(x1, x2)) - 0.5f));
+        int maxX = Math.min(right, (int) Math.floor(Math.max(x0, Math.max(x1, x2)) - 0.5f));
+        int minY = Math.max(top, (int) Math.ceil(Math.min(y0, Math.min(y1, y2)) - 0.5f));
+        int maxY = Math.min(bottom, (int) Math.floor(Math.max(y0, Math.max(y1, y2)) - 0.5f));
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+
+        // Funciones de arista en el centro del primer píxel y sus incrementos por columna/fila
+        float px = minX + 0.5f, py = minY + 0.5f;
+        float e01 = (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0);
+        float e12 = (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+        float e20 = (x0 - x2) * (py - y2) - (y0 - y2) * (px - x2);
+        float dx01 = y0 - y1, dx12 = y1 - y2, dx20 = y2 - y0;
+        float dy01 = x1 - x0, dy12 = x2 - x1, dy20 = x0 - x2;
+
+        for (int y = minY; y <= maxY; y++) {
+            float w01 = e01, w12 = e12, w20 = e20;
+            int row = y * width;
+            for (int x = minX; x <= maxX; x++) {
+                if (w01 >= 0.0f && w12 >= 0.0f && w20 >= 0.0f) {
+                    pixels[row + x] = color;
+                }
+                w01 += dx01;
+                w12 += dx12;
+                w20 += dx20;
+            }
+            e01 += dy01;
+            e12 += dy12;
+            e20 += dy20;
+        }
+    }
+
+    // Contorno de la selección con líneas de un píxel (Bresenham)
+    private void drawBorder(Figure figure) {
+        int vertices = FigureGeometry.borderVertexCount(figure, tessellation);
+        int floats = vertices * FigureGeometry.FLOATS_PER_VERTEX;
+        if (scratch.capacity() < floats) {
+            scratch = FloatBuffer.allocate(floats);
+        }
+        scratch.clear();
+        figure.getTransform(transform);
+        FigureGeometry.writeBorder(figure, transform, tessellation, new float[]{1.0f, 0.0f, 0.0f}, scratch);
+        float[] data = scratch.array();
+        for (int v = 0; v < vertices; v += 2) {
+            int base = v * FigureGeometry.FLOATS_PER_VERTEX;
+            drawLine((int) Math.floor(toPixelX(data[base])), (int) Math.floor(toPixelY(data[base + 1])),
+                    (int) Math.floor(toPixelX(data[base + 5])), (int) Math.floor(toPixelY(data[base + 6])));
+        }
+    }
+
+    private void drawLine(int x0, int y0, int x1, int y1) {
+        int dx = Math.abs(x1 - x0), sx = x0 < x1 ? 1 : -1;
+        int dy = -Math.abs(y1 - y0), sy = y0 < y1 ? 1 : -1;
+        int error = dx + dy;
+        while (true) {
+            if (x0 >= 0 && x0 < width && y0 >= 0 && y0 < height) {
+                pixels[y0 * width + x0] = BORDER_ARGB;
+            }
+            if (x0 == x1 && y0 == y1) {
+                return;
+            }
+            int e2 = 2 * error;
+            if (e2 >= dy) {
+                error += dy;
+                x0 += sx;
+            }
+            if (e2 <= dx) {
+                error += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    // Coordenadas normalizadas (-1..1, y hacia arriba) a píxeles (y hacia abajo), como el viewport
+    private float toPixelX(float x) {
+        return (x + 1.0f) * 0.5f * width;
+    }
+
+    private float toPixelY(float y) {
+        return (1.0f - y) * 0.5f * height;
+    }
+
+    // Mismo redondeo que la conversión de GL a 8 bits por canal
+    static int argb(float r, float g, float b) {
+        return 0xFF000000 | (unorm8(r) << 16) | (unorm8(g) << 8) | unorm8(b);
+    }
+
+    private static int unorm8(float value) {
+        return Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 255.0f);
+    }
+
+    @Override
+    public void dispose() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
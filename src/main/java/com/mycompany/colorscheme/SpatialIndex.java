@@ -0,0 +1,595 @@
+package com.mycompany.colorscheme;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Índice espacial para la selección: árbol dinámico de cajas envolventes (AABB) sobre las
+// cajas ya transformadas de cada figura. Las cajas se guardan agrandadas con un margen, de
+// modo que un cambio pequeño de transformación no obliga a reinsertar la hoja. Los cambios
+// se acumulan cuando un setter de Figure marca la transformación y se aplican en la
+// siguiente consulta.
+class SpatialIndex {
+
+    private static final int NULL = -1;
+    private static final float MARGIN_FACTOR = 0.1f; // Margen relativo al tamaño de la caja
+    private static final float MIN_MARGIN = 0.0005f;
+
+    // Cada nodo ocupa cuatro posiciones contiguas en cada arreglo para que recorrer el árbol
+    // toque pocas líneas de caché:
+    //   boxes: minX, minY, maxX, maxY
+    //   links: padre, hijo 1, hijo 2, altura (0 en las hojas, -1 en los nodos libres)
+    private static final int PARENT = 0, CHILD1 = 1, CHILD2 = 2, HEIGHT = 3;
+
+    private int capacity = 16;
+    private float[] boxes = new float[capacity * 4];
+    private int[] links = new int[capacity * 4];
+    private Figure[] figures = new Figure[capacity];
+    // Orden de inserción (gana la primera figura de la lista); en los nodos internos, el menor
+    // de su subárbol, para descartar ramas que no pueden mejorar la figura ya encontrada
+    private int[] order = new int[capacity];
+
+    private int root = NULL;
+    private int freeList = 0;
+    private int nextOrder = 0;
+    private int[] stack = new int[64];
+    private int[] heap = new int[64];
+    private int[] subtree = new int[64];
+    private final float[] bounds = new float[4];
+
+    // Figuras cuya transformación cambió desde la última consulta, cada una una sola vez
+    // aunque se mueva en muchos cuadros sin consultas (animación, arrastrar una barra)
+    private final List<Figure> moved = new ArrayList<>();
+    private final BitSet queued = new BitSet(); // Hojas que ya están en 'moved'
+
+    SpatialIndex() {
+        linkFreeNodes(0);
+    }
+
+    private void linkFreeNodes(int from) {
+        for (int i = from; i < capacity; i++) {
+            links[4 * i + CHILD1] = i + 1 < capacity ? i + 1 : NULL;
+            links[4 * i + HEIGHT] = -1;
+        }
+    }
+
+    // Inserta todas las figuras. Con el árbol vacío se construye de arriba hacia abajo
+    // partiendo por la mediana, lo que da un árbol mejor que insertar una por una.
+    void insertAll(List<Figure> list) {
+        if (root != NULL || list.size() < 2) {
+            for (Figure figure : list) {
+                insert(figure);
+            }
+            return;
+        }
+        int[] leaves = new int[list.size()];
+        float[] centers = new float[2 * list.size()];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = createLeaf(list.get(i));
+            int box = 4 * leaves[i];
+            centers[2 * i] = boxes[box] + boxes[box + 2];
+            centers[2 * i + 1] = boxes[box + 1] + boxes[box + 3];
+        }
+        int[] items = new int[leaves.length];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+        }
+        root = build(items, 0, items.length, leaves, centers);
+        links[4 * root + PARENT] = NULL;
+    }
+
+    private int build(int[] items, int from, int to, int[] leaves, float[] centers) {
+        if (to - from == 1) {
+            return leaves[items[from]];
+        }
+        // Eje con mayor extensión de los centros
+        float minCx = Float.POSITIVE_INFINITY, minCy = Float.POSITIVE_INFINITY;
+        float maxCx = Float.NEGATIVE_INFINITY, maxCy = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            float cx = centers[2 * items[i]], cy = centers[2 * items[i] + 1];
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCy = Math.max(maxCy, cy);
+        }
+        int axis = maxCx - minCx >= maxCy - minCy ? 0 : 1;
+        int mid = (from + to) >>> 1;
+        select(items, from, to - 1, mid, centers, axis);
+
+        int left = build(items, from, mid, leaves, centers);
+        int right = build(items, mid, to, leaves, centers);
+        int node = allocateNode();
+        links[4 * node + CHILD1] = left;
+        links[4 * node + CHILD2] = right;
+        links[4 * left + PARENT] = node;
+        links[4 * right + PARENT] = node;
+        fitNode(node);
+        return node;
+    }
+
+    // Selección de Hoare: deja en 'k' el elemento que ocuparía esa posición ordenado por el eje
+    private static void select(int[] items, int lo, int hi, int k, float[] centers, int axis) {
+        while (lo < hi) {
+            float pivot = centers[2 * items[(lo + hi) >>> 1] + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (centers[2 * items[i] + axis] < pivot) {
+                    i++;
+                }
+                while (centers[2 * items[j] + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = items[i];
+                    items[i] = items[j];
+                    items[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    void insert(Figure figure) {
+        insertLeaf(createLeaf(figure));
+    }
+
+    private int createLeaf(Figure figure) {
+        figure.getWorldBounds(bounds);
+        int leaf = allocateNode();
+        setFatBounds(leaf, bounds);
+        figures[leaf] = figure;
+        order[leaf] = nextOrder++;
+        figure.attachIndex(this, leaf);
+        return leaf;
+    }
+
+    void remove(Figure figure) {
+        int leaf = figure.getProxyId();
+        if (leaf == NULL || figures[leaf] != figure) {
+            return;
+        }
+        removeLeaf(leaf);
+        freeNode(leaf);
+        figure.attachIndex(null, NULL);
+    }
+
+    void clear() {
+        for (int i = 0; i < capacity; i++) {
+            if (figures[i] != null) {
+                figures[i].attachIndex(null, NULL);
+            }
+        }
+        Arrays.fill(figures, null);
+        root = NULL;
+        freeList = 0;
+        nextOrder = 0;
+        moved.clear();
+        queued.clear();
+        linkFreeNodes(0);
+    }
+
+    // Llamado por Figure cuando cambia su transformación
+    void markMoved(Figure figure) {
+        int leaf = figure.getProxyId();
+        if (leaf == NULL || figures[leaf] != figure || queued.get(leaf)) {
+            return;
+        }
+        queued.set(leaf);
+        moved.add(figure);
+    }
+
+    // Figura bajo el punto (coordenadas de la escena) o null. Las cajas solo descartan
+    // candidatos; la prueba exacta la hace Figure.hitTest en el espacio local de la figura.
+    // Los nodos que contienen el punto se visitan de menor a mayor orden (un montículo por el
+    // menor orden de cada subárbol), así que la primera figura que pasa la prueba exacta es la
+    // respuesta y solo se prueban las que están antes en la lista.
+    Figure pick(float x, float y) {
+        flushMoved();
+        if (root == NULL || !containsPoint(root, x, y)) {
+            return null;
+        }
+        int size = 0;
+        heap[size++] = root;
+        while (size > 0) {
+            int node = heap[0];
+            heap[0] = heap[--size];
+            siftDown(size);
+            int link = 4 * node;
+            if (links[link + HEIGHT] == 0) {
+                if (figures[node].hitTest(x, y)) {
+                    return figures[node];
+                }
+                continue;
+            }
+            if (size + 2 > heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+            int c1 = links[link + CHILD1], c2 = links[link + CHILD2];
+            if (containsPoint(c1, x, y)) {
+                heap[size] = c1;
+                siftUp(size++);
+            }
+            if (containsPoint(c2, x, y)) {
+                heap[size] = c2;
+                siftUp(size++);
+            }
+        }
+        return null;
+    }
+
+    private boolean containsPoint(int node, float x, float y) {
+        int box = 4 * node;
+        return x >= boxes[box] && y >= boxes[box + 1] && x <= boxes[box + 2] && y <= boxes[box + 3];
+    }
+
+    // Montículo de mínimos sobre 'heap' por 'order'
+    private void siftUp(int at) {
+        int node = heap[at];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (order[heap[parent]] <= order[node]) {
+                break;
+            }
+            heap[at] = heap[parent];
+            at = parent;
+        }
+        heap[at] = node;
+    }
+
+    private void siftDown(int size) {
+        if (size == 0) {
+            return;
+        }
+        int node = heap[0];
+        int at = 0;
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order[heap[child + 1]] < order[heap[child]]) {
+                child++;
+            }
+            if (order[node] <= order[heap[child]]) {
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = node;
+    }
+
+    // Marca en 'out' la posición de cada figura cuya caja transformada queda entera dentro del
+    // rectángulo (coordenadas de la escena) y devuelve cuántas marcó. Si la caja agrandada de
+    // un nodo ya queda dentro, se marca todo el subárbol sin mirar cada figura.
+    int selectBox(float minX, float minY, float maxX, float maxY, BitSet out) {
+        return select(minX, minY, maxX, maxY, null, 0, out);
+    }
+
+    // Marca las figuras cuyo centro (el de su caja transformada) cae dentro del polígono
+    // (x0, y0, x1, y1, ...) de 'points' vértices
+    int selectLasso(float[] polygon, int points, BitSet out) {
+        if (points < 3) {
+            return 0;
+        }
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < points; i++) {
+            minX = Math.min(minX, polygon[2 * i]);
+            maxX = Math.max(maxX, polygon[2 * i]);
+            minY = Math.min(minY, polygon[2 * i + 1]);
+            maxY = Math.max(maxY, polygon[2 * i + 1]);
+        }
+        return select(minX, minY, maxX, maxY, polygon, points, out);
+    }
+
+    private int select(float minX, float minY, float maxX, float maxY, float[] polygon, int points, BitSet out) {
+        flushMoved();
+        if (root == NULL) {
+            return 0;
+        }
+        int count = 0;
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int box = 4 * node;
+            if (maxX < boxes[box] || maxY < boxes[box + 1] || minX > boxes[box + 2] || minY > boxes[box + 3]) {
+                continue;
+            }
+            boolean inside = boxes[box] >= minX && boxes[box + 1] >= minY
+                    && boxes[box + 2] <= maxX && boxes[box + 3] <= maxY;
+            if (links[box + HEIGHT] == 0) {
+                Figure figure = figures[node];
+                figure.getWorldBounds(bounds);
+                boolean hit = polygon == null
+                        ? inside || bounds[0] >= minX && bounds[1] >= minY && bounds[2] <= maxX && bounds[3] <= maxY
+                        : contains(polygon, points, (bounds[0] + bounds[2]) * 0.5f, (bounds[1] + bounds[3]) * 0.5f);
+                if (hit) {
+                    out.set(figure.slot);
+                    count++;
+                }
+            } else if (inside && polygon == null) {
+                count += markSubtree(node, out);
+            } else {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = links[box + CHILD1];
+                stack[top++] = links[box + CHILD2];
+            }
+        }
+        return count;
+    }
+
+    // Marca todas las hojas bajo 'node'
+    private int markSubtree(int node, BitSet out) {
+        int count = 0;
+        int top = 0;
+        subtree[top++] = node;
+        while (top > 0) {
+            int current = subtree[--top];
+            if (links[4 * current + HEIGHT] == 0) {
+                out.set(figures[current].slot);
+                count++;
+            } else {
+                if (top + 2 > subtree.length) {
+                    subtree = Arrays.copyOf(subtree, subtree.length * 2);
+                }
+                subtree[top++] = links[4 * current + CHILD1];
+                subtree[top++] = links[4 * current + CHILD2];
+            }
+        }
+        return count;
+    }
+
+    // Regla par-impar: el rayo horizontal desde el punto cruza el borde un número impar de veces
+    static boolean contains(float[] polygon, int points, float x, float y) {
+        boolean inside = false;
+        for (int i = 0, j = points - 1; i < points; j = i++) {
+            float xi = polygon[2 * i], yi = polygon[2 * i + 1];
+            float xj = polygon[2 * j], yj = polygon[2 * j + 1];
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private void flushMoved() {
+        for (int i = 0, n = moved.size(); i < n; i++) {
+            Figure figure = moved.get(i);
+            int leaf = figure.getProxyId();
+            if (leaf == NULL || figures[leaf] != figure) {
+                continue; // Ya no está en el índice
+            }
+            figure.getWorldBounds(bounds);
+            int box = 4 * leaf;
+            if (bounds[0] >= boxes[box] && bounds[1] >= boxes[box + 1]
+                    && bounds[2] <= boxes[box + 2] && bounds[3] <= boxes[box + 3]) {
+                continue; // Sigue dentro de la caja agrandada
+            }
+            removeLeaf(leaf);
+            setFatBounds(leaf, bounds);
+            insertLeaf(leaf);
+        }
+        moved.clear();
+        queued.clear();
+    }
+
+    private void setFatBounds(int node, float[] b) {
+        float marginX = Math.max(MIN_MARGIN, (b[2] - b[0]) * MARGIN_FACTOR);
+        float marginY = Math.max(MIN_MARGIN, (b[3] - b[1]) * MARGIN_FACTOR);
+        int box = 4 * node;
+        boxes[box] = b[0] - marginX;
+        boxes[box + 1] = b[1] - marginY;
+        boxes[box + 2] = b[2] + marginX;
+        boxes[box + 3] = b[3] + marginY;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            int oldCapacity = capacity;
+            capacity *= 2;
+            boxes = Arrays.copyOf(boxes, capacity * 4);
+            links = Arrays.copyOf(links, capacity * 4);
+            figures = Arrays.copyOf(figures, capacity);
+            order = Arrays.copyOf(order, capacity);
+            linkFreeNodes(oldCapacity);
+            freeList = oldCapacity;
+        }
+        int node = freeList;
+        int link = 4 * node;
+        freeList = links[link + CHILD1];
+        links[link + PARENT] = NULL;
+        links[link + CHILD1] = NULL;
+        links[link + CHILD2] = NULL;
+        links[link + HEIGHT] = 0;
+        figures[node] = null;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        links[4 * node + CHILD1] = freeList;
+        links[4 * node + HEIGHT] = -1;
+        figures[node] = null;
+        queued.clear(node);
+        freeList = node;
+    }
+
+    private float perimeter(int node) {
+        int box = 4 * node;
+        return 2.0f * ((boxes[box + 2] - boxes[box]) + (boxes[box + 3] - boxes[box + 1]));
+    }
+
+    private float combinedPerimeter(int node, int other) {
+        int a = 4 * node, b = 4 * other;
+        float width = Math.max(boxes[a + 2], boxes[b + 2]) - Math.min(boxes[a], boxes[b]);
+        float height = Math.max(boxes[a + 3], boxes[b + 3]) - Math.min(boxes[a + 1], boxes[b + 1]);
+        return 2.0f * (width + height);
+    }
+
+    // Inserción con la heurística de superficie: se baja por el hijo que menos agranda el árbol
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            links[4 * root + PARENT] = NULL;
+            return;
+        }
+
+        int index = root;
+        while (links[4 * index + HEIGHT] > 0) {
+            int c1 = links[4 * index + CHILD1];
+            int c2 = links[4 * index + CHILD2];
+
+            float area = perimeter(index);
+            float combined = combinedPerimeter(index, leaf);
+            float cost = 2.0f * combined;
+            float inheritance = 2.0f * (combined - area);
+
+            float cost1 = descendCost(c1, leaf) + inheritance;
+            float cost2 = descendCost(c2, leaf) + inheritance;
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? c1 : c2;
+        }
+
+        // Nuevo padre para la hoja y su hermana
+        int sibling = index;
+        int oldParent = links[4 * sibling + PARENT];
+        int newParent = allocateNode();
+        links[4 * newParent + PARENT] = oldParent;
+        links[4 * newParent + CHILD1] = sibling;
+        links[4 * newParent + CHILD2] = leaf;
+        links[4 * sibling + PARENT] = newParent;
+        links[4 * leaf + PARENT] = newParent;
+        fitNode(newParent);
+
+        if (oldParent != NULL) {
+            if (links[4 * oldParent + CHILD1] == sibling) {
+                links[4 * oldParent + CHILD1] = newParent;
+            } else {
+                links[4 * oldParent + CHILD2] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+
+        refitUpwards(oldParent);
+    }
+
+    private float descendCost(int child, int leaf) {
+        float combined = combinedPerimeter(child, leaf);
+        if (links[4 * child + HEIGHT] == 0) {
+            return combined;
+        }
+        return combined - perimeter(child);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int parentNode = links[4 * leaf + PARENT];
+        int grandParent = links[4 * parentNode + PARENT];
+        int sibling = links[4 * parentNode + CHILD1] == leaf
+                ? links[4 * parentNode + CHILD2] : links[4 * parentNode + CHILD1];
+
+        if (grandParent != NULL) {
+            if (links[4 * grandParent + CHILD1] == parentNode) {
+                links[4 * grandParent + CHILD1] = sibling;
+            } else {
+                links[4 * grandParent + CHILD2] = sibling;
+            }
+            links[4 * sibling + PARENT] = grandParent;
+            freeNode(parentNode);
+            refitUpwards(grandParent);
+        } else {
+            root = sibling;
+            links[4 * sibling + PARENT] = NULL;
+            freeNode(parentNode);
+        }
+    }
+
+    // Recalcula cajas y alturas desde el nodo hasta la raíz, rebalanceando en el camino
+    private void refitUpwards(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            fitNode(index);
+            index = links[4 * index + PARENT];
+        }
+    }
+
+    // Caja y altura de un nodo interno a partir de sus hijos
+    private void fitNode(int node) {
+        int link = 4 * node;
+        int a = 4 * links[link + CHILD1];
+        int b = 4 * links[link + CHILD2];
+        boxes[link] = Math.min(boxes[a], boxes[b]);
+        boxes[link + 1] = Math.min(boxes[a + 1], boxes[b + 1]);
+        boxes[link + 2] = Math.max(boxes[a + 2], boxes[b + 2]);
+        boxes[link + 3] = Math.max(boxes[a + 3], boxes[b + 3]);
+        links[link + HEIGHT] = 1 + Math.max(links[a + HEIGHT], links[b + HEIGHT]);
+        order[node] = Math.min(order[links[link + CHILD1]], order[links[link + CHILD2]]);
+    }
+
+    // Rotación para mantener el árbol balanceado; devuelve la nueva raíz del subárbol
+    private int balance(int a) {
+        if (links[4 * a + HEIGHT] < 2) {
+            return a;
+        }
+        int b = links[4 * a + CHILD1];
+        int c = links[4 * a + CHILD2];
+        int diff = links[4 * c + HEIGHT] - links[4 * b + HEIGHT];
+        if (diff > 1) {
+            return rotate(a, c, CHILD2);
+        }
+        if (diff < -1) {
+            return rotate(a, b, CHILD1);
+        }
+        return a;
+    }
+
+    // Sube el hijo alto 'up' (que estaba en la posición 'slot' de 'a') al lugar de 'a'
+    private int rotate(int a, int up, int slot) {
+        int f = links[4 * up + CHILD1];
+        int g = links[4 * up + CHILD2];
+        int aParent = links[4 * a + PARENT];
+
+        links[4 * up + CHILD1] = a;
+        links[4 * up + PARENT] = aParent;
+        links[4 * a + PARENT] = up;
+
+        if (aParent != NULL) {
+            if (links[4 * aParent + CHILD1] == a) {
+                links[4 * aParent + CHILD1] = up;
+            } else {
+                links[4 * aParent + CHILD2] = up;
+            }
+        } else {
+            root = up;
+        }
+
+        // El nieto más alto queda bajo 'up'; el otro ocupa el lugar que dejó 'up' en 'a'
+        int keep = links[4 * f + HEIGHT] > links[4 * g + HEIGHT] ? f : g;
+        int give = keep == f ? g : f;
+        links[4 * up + CHILD2] = keep;
+        links[4 * a + slot] = give;
+        links[4 * give + PARENT] = a;
+
+        fitNode(a);
+        fitNode(up);
+        return up;
+    }
+}
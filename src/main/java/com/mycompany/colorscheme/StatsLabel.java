@@ -0,0 +1,46 @@
+package com.mycompany.colorscheme;
+
+// Texto de un panel con valores que cambian (contadores, tiempos). Se arma con String.format
+// solo cuando cambió algún valor desde el último cuadro; mientras tanto se devuelve el mismo
+// String sin formatear ni asignar memoria.
+//
+// Uso: label.set(0, pasos).set(1, milisegundos).text()
+final class StatsLabel {
+
+    private final String format;
+    private final Object[] args;
+    private final long[] bits;      // Valor de cada argumento (los double como sus bits)
+    private String text = null;
+
+    StatsLabel(String format, int count) {
+        this.format = format;
+        this.args = new Object[count];
+        this.bits = new long[count];
+    }
+
+    StatsLabel set(int index, long value) {
+        if (!(args[index] instanceof Long) || bits[index] != value) {
+            bits[index] = value;
+            args[index] = value;
+            text = null;
+        }
+        return this;
+    }
+
+    StatsLabel set(int index, double value) {
+        long raw = Double.doubleToLongBits(value);
+        if (!(args[index] instanceof Double) || bits[index] != raw) {
+            bits[index] = raw;
+            args[index] = value;
+            text = null;
+        }
+        return this;
+    }
+
+    String text() {
+        if (text == null) {
+            text = String.format(format, args);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.colorscheme;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Teselado de círculos con nivel de detalle. Las tablas del círculo unitario (cos, sin) se
+// calculan una sola vez por número de segmentos; cada círculo usa tantos segmentos como hagan
+// falta para que la cuerda no se separe del arco más de TOLERANCE píxeles según su radio en
+// pantalla (después de la escala y el sesgado). La elección se guarda en el FigureStore y solo
+// se recalcula cuando cambia la figura o el tamaño del viewport.
+//
+// Cada renderizador tiene su propio caché con el tamaño de su viewport.
+final class TessellationCache {
+
+    static final int MIN_SEGMENTS = 8;
+    static final int MAX_SEGMENTS = 128;
+    static final int STEP = 4; // Se redondea a múltiplos de STEP para compartir tablas
+    private static final float TOLERANCE = 0.25f; // Píxeles
+
+    // CIRCLES[n] = n + 1 puntos (x0, y0, x1, y1, ...) con el último igual al primero
+    private static final float[][] CIRCLES = new float[MAX_SEGMENTS + 1][];
+
+    static {
+        for (int segments = STEP; segments <= MAX_SEGMENTS; segments += STEP) {
+            float[] table = new float[2 * (segments + 1)];
+            for (int i = 0; i < segments; i++) {
+                double angle = 2.0 * Math.PI * i / segments;
+                table[2 * i] = (float) Math.cos(angle);
+                table[2 * i + 1] = (float) Math.sin(angle);
+            }
+            table[2 * segments] = table[0];
+            table[2 * segments + 1] = table[1];
+            CIRCLES[segments] = table;
+        }
+    }
+
+    private static final AtomicInteger STAMPS = new AtomicInteger();
+
+    private float pixelsPerUnit = 0.0f;
+    private int stamp = STAMPS.incrementAndGet();
+
+    // Tabla del círculo unitario; 'segments' debe ser múltiplo de STEP y no mayor que MAX_SEGMENTS
+    static float[] unitCircle(int segments) {
+        float[] table = segments <= MAX_SEGMENTS ? CIRCLES[segments] : null;
+        if (table == null) {
+            throw new IllegalArgumentException("Número de segmentos sin tabla: " + segments);
+        }
+        return table;
+    }
+
+    TessellationCache(int width, int height) {
+        setViewport(width, height);
+    }
+
+    // Las coordenadas de la escena van de -1 a 1, así que una unidad mide medio viewport
+    void setViewport(int width, int height) {
+        float pixels = Math.max(width, height) / 2.0f;
+        if (pixels != pixelsPerUnit) {
+            pixelsPerUnit = pixels;
+            stamp = STAMPS.incrementAndGet();
+        }
+    }
+
+    // Cambia cada vez que cambia el viewport; sirve para saber si hay que volver a elegir
+    int stamp() {
+        return stamp;
+    }
+
+    // Segmentos para la figura si es un círculo (0 si no lo es)
+    int circleSegments(Figure figure) {
+        if (figure.getShapeLength() != 3) {
+            return 0;
+        }
+        FigureStore store = figure.store;
+        int slot = figure.slot;
+        int segments = store.cachedSegments(slot, stamp);
+        if (segments == 0) {
+            store.updateTransform(slot);
+            float a = store.get(FigureStore.A, slot), b = store.get(FigureStore.B, slot);
+            float c = store.get(FigureStore.C, slot), d = store.get(FigureStore.D, slot);
+            float scale = (float) Math.max(Math.sqrt(a * a + b * b), Math.sqrt(c * c + d * d));
+            segments = segmentsFor(store.shape(slot, 2) * scale * pixelsPerUnit);
+            store.cacheSegments(slot, stamp, segments);
+        }
+        return segments;
+    }
+
+    // Menor número de segmentos con error de cuerda r * (1 - cos(pi / n)) <= TOLERANCE
+    static int segmentsFor(float radiusPixels) {
+        if (radiusPixels <= TOLERANCE * 2) {
+            return MIN_SEGMENTS;
+        }
+        double exact = Math.PI / Math.acos(1.0 - TOLERANCE / radiusPixels);
+        int segments = (int) Math.ceil(exact / STEP) * STEP;
+        return Math.max(MIN_SEGMENTS, Math.min(MAX_SEGMENTS, segments));
+    }
+}
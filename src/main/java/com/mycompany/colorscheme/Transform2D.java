@@ -0,0 +1,101 @@
+package com.mycompany.colorscheme;
+
+// Transformación afín 2D (matriz 3x2):
+//   x' = a*x + c*y + tx
+//   y' = b*x + d*y + ty
+final class Transform2D {
+
+    private float a = 1.0f, b = 0.0f, c = 0.0f, d = 1.0f, tx = 0.0f, ty = 0.0f;
+
+    public float getA() { return a; }
+    public float getB() { return b; }
+    public float getC() { return c; }
+    public float getD() { return d; }
+    public float getTx() { return tx; }
+    public float getTy() { return ty; }
+
+    public void setIdentity() {
+        set(1.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f);
+    }
+
+    public void set(float a, float b, float c, float d, float tx, float ty) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.tx = tx;
+        this.ty = ty;
+    }
+
+    public void set(Transform2D other) {
+        set(other.a, other.b, other.c, other.d, other.tx, other.ty);
+    }
+
+    // this = this * n (n se aplica primero a los puntos)
+    public void multiply(float na, float nb, float nc, float nd, float ntx, float nty) {
+        float ma = a, mb = b, mc = c, md = d;
+        a = ma * na + mc * nb;
+        b = mb * na + md * nb;
+        c = ma * nc + mc * nd;
+        d = mb * nc + md * nd;
+        tx += ma * ntx + mc * nty;
+        ty += mb * ntx + md * nty;
+    }
+
+    public void multiply(Transform2D n) {
+        multiply(n.a, n.b, n.c, n.d, n.tx, n.ty);
+    }
+
+    public void translate(float x, float y) {
+        multiply(1.0f, 0.0f, 0.0f, 1.0f, x, y);
+    }
+
+    public void scale(float sx, float sy) {
+        multiply(sx, 0.0f, 0.0f, sy, 0.0f, 0.0f);
+    }
+
+    // Rotación en grados, en sentido antihorario como glRotatef
+    public void rotate(float degrees) {
+        double radians = Math.toRadians(degrees);
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        multiply(cos, sin, -sin, cos, 0.0f, 0.0f);
+    }
+
+    // Sesgado: x' = x + biasX*y, y' = biasY*x + y
+    public void skew(float biasX, float biasY) {
+        multiply(1.0f, biasY, biasX, 1.0f, 0.0f, 0.0f);
+    }
+
+    public float transformX(float x, float y) {
+        return a * x + c * y + tx;
+    }
+
+    public float transformY(float x, float y) {
+        return b * x + d * y + ty;
+    }
+
+    public float determinant() {
+        return a * d - b * c;
+    }
+
+    // Transformación inversa de un punto (del espacio de la escena al espacio local).
+    // Con determinante cero devuelve un valor no finito, que ninguna figura contiene.
+    public float inverseX(float x, float y) {
+        float px = x - tx, py = y - ty;
+        return (d * px - c * py) / determinant();
+    }
+
+    public float inverseY(float x, float y) {
+        float px = x - tx, py = y - ty;
+        return (a * py - b * px) / determinant();
+    }
+
+    // Matriz 4x4 por columnas para glLoadMatrixf/glMultMatrixf
+    public void toGlMatrix(float[] m) {
+        m[0] = a;  m[1] = b;  m[2] = 0.0f;  m[3] = 0.0f;
+        m[4] = c;  m[5] = d;  m[6] = 0.0f;  m[7] = 0.0f;
+        m[8] = 0.0f; m[9] = 0.0f; m[10] = 1.0f; m[11] = 0.0f;
+        m[12] = tx; m[13] = ty; m[14] = 0.0f; m[15] = 1.0f;
+    }
+}
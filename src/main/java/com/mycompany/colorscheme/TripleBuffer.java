@@ -0,0 +1,53 @@
+package com.mycompany.colorscheme;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Triple búfer sin bloqueos para un productor y un consumidor. El productor escribe siempre
+// en su búfer trasero y lo publica intercambiándolo con el del medio; el consumidor toma el
+// del medio solo si hay uno nuevo. Ninguno espera al otro: si el productor publica dos veces
+// antes de que el consumidor lea, la publicación más vieja se pierde (y se cuenta).
+final class TripleBuffer<T> {
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4; // El búfer del medio todavía no se leyó
+
+    private final Object[] buffers;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // Solo productor
+    private int front = 2; // Solo consumidor
+
+    private volatile long published = 0;
+    private volatile long overwritten = 0;
+
+    TripleBuffer(T first, T second, T third) {
+        buffers = new Object[]{first, second, third};
+    }
+
+    // Búfer donde escribe el productor; queda suyo hasta publish()
+    @SuppressWarnings("unchecked")
+    T back() {
+        return (T) buffers[back];
+    }
+
+    void publish() {
+        int previous = middle.getAndSet(back | FRESH);
+        if ((previous & FRESH) != 0) {
+            overwritten++;
+        }
+        published++;
+        back = previous & INDEX;
+    }
+
+    // El último búfer publicado, o null si no hubo uno nuevo desde la última llamada
+    @SuppressWarnings("unchecked")
+    T acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & INDEX;
+        return (T) buffers[front];
+    }
+
+    long getPublished() { return published; }
+    long getOverwritten() { return overwritten; }
+}
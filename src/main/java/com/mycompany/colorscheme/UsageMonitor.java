@@ -0,0 +1,95 @@
+package com.mycompany.colorscheme;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Uso de CPU del proceso (en porcentaje de un núcleo) y potencia del paquete de CPU, medidos
+// por intervalos. La potencia sale de los contadores RAPL de Linux
+// (/sys/class/powercap/intel-rapl:0/energy_uj) y solo está disponible si se pueden leer.
+final class UsageMonitor {
+
+    private static final Path RAPL_ENERGY = Paths.get("/sys/class/powercap/intel-rapl:0/energy_uj");
+    private static final Path RAPL_RANGE = Paths.get("/sys/class/powercap/intel-rapl:0/max_energy_range_uj");
+
+    private final com.sun.management.OperatingSystemMXBean os;
+    private final boolean rapl;
+    private final long raplRange;
+    private final long intervalNanos;
+
+    private final long startWall;
+    private final long startCpu;
+    private long lastWall;
+    private long lastCpu;
+    private long lastEnergy;
+    private double cpuPercent = Double.NaN;
+    private double watts = Double.NaN;
+
+    UsageMonitor(double intervalSeconds) {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        os = bean instanceof com.sun.management.OperatingSystemMXBean ? (com.sun.management.OperatingSystemMXBean) bean : null;
+        long energy = readLong(RAPL_ENERGY);
+        rapl = energy >= 0;
+        raplRange = rapl ? Math.max(0, readLong(RAPL_RANGE)) : 0;
+        intervalNanos = (long) (intervalSeconds * 1e9);
+        lastWall = startWall = System.nanoTime();
+        lastCpu = startCpu = processCpu();
+        lastEnergy = energy;
+    }
+
+    // Cierra el intervalo si ya pasó su duración (y devuelve true); barato de llamar en cada
+    // vuelta del bucle
+    boolean sample() {
+        long now = System.nanoTime();
+        long elapsed = now - lastWall;
+        if (elapsed < intervalNanos) {
+            return false;
+        }
+        long cpu = processCpu();
+        if (cpu >= 0 && lastCpu >= 0) {
+            cpuPercent = 100.0 * (cpu - lastCpu) / elapsed;
+        }
+        if (rapl) {
+            long energy = readLong(RAPL_ENERGY);
+            if (energy >= 0) {
+                long delta = energy - lastEnergy;
+                if (delta < 0) {
+                    delta += raplRange; // El contador dio la vuelta
+                }
+                watts = delta / 1e6 / (elapsed / 1e9);
+                lastEnergy = energy;
+            }
+        }
+        lastCpu = cpu;
+        lastWall = now;
+        return true;
+    }
+
+    double getCpuPercent() { return cpuPercent; }
+
+    // Desde que se creó el monitor
+    double getAverageCpuPercent() {
+        long cpu = processCpu();
+        long elapsed = System.nanoTime() - startWall;
+        return cpu < 0 || startCpu < 0 || elapsed <= 0 ? Double.NaN : 100.0 * (cpu - startCpu) / elapsed;
+    }
+
+    boolean hasPower() { return rapl; }
+    double getWatts() { return watts; }
+
+    private long processCpu() {
+        return os != null ? os.getProcessCpuTime() : -1;
+    }
+
+    private static long readLong(Path path) {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim());
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
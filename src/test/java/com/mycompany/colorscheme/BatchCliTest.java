@@ -0,0 +1,77 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchCliTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path spec(String... lines) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return path;
+    }
+
+    @Test
+    public void acceptsPlainNames() {
+        assertEquals("tono 2.b-c_d", BatchCli.parseLine("tono 2.b-c_d: hsl.hue=0..330/12", "v1").name);
+        assertEquals("v1", BatchCli.parseLine("hsl.hue=30", "v1").name);
+    }
+
+    // Un nombre no puede sacar el archivo del directorio de salida
+    @Test
+    public void rejectsPathNames() {
+        for (String name : new String[]{"../x", "a/b", "a\\b", "/x", "..", ".oculto", "", "a*b"}) {
+            try {
+                BatchCli.parseLine(name + ": hsl.hue=30", "v1");
+                fail("Se aceptó el nombre " + name);
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("Nombre de variante no válido"));
+            }
+        }
+    }
+
+    @Test
+    public void acceptsDistinctFileNames() throws IOException {
+        assertEquals(4, BatchCli.parse(spec(
+                "tono: hsl.hue=0..330/12",
+                "tono_00012: hsl.hue=30",   // La línea anterior llega hasta tono_00011
+                "tono_7: hsl.hue=30",       // Los generados llevan cinco dígitos
+                "hsl.sat=0.5")).size());
+    }
+
+    // Dos líneas que escriben el mismo archivo se pisarían entre escritores
+    @Test
+    public void rejectsCollidingFileNames() throws IOException {
+        String[][] specs = {
+                {"tono: hsl.hue=30", "tono: hsl.hue=60"},
+                {"tono: hsl.hue=0..330/12", "tono: hsl.sat=0.5..1.5/3"},
+                {"Tono: hsl.hue=30", "tono: hsl.hue=60"},
+                {"tono: hsl.hue=0..330/12", "tono_00011: hsl.hue=30"},
+                {"tono_00003: hsl.hue=30", "tono: hsl.hue=0..330/12"},
+                {"hsl.hue=30", "variante1: hsl.hue=60"},
+                {"hsl.hue=0..330/12", "variante1_00000: hsl.hue=60"},
+        };
+        for (String[] lines : specs) {
+            try {
+                BatchCli.parse(spec(lines));
+                fail("Se aceptó " + Arrays.toString(lines));
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(":2: "));
+            }
+        }
+    }
+}
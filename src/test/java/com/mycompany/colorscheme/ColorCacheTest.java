@@ -0,0 +1,108 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+// Las barras de HSL, HSV y CMYK conservan lo que dejó el usuario aunque el RGB no lo guarde
+public class ColorCacheTest {
+
+    private static final PaletteTransform.Space HSL = PaletteTransform.Space.HSL;
+    private static final PaletteTransform.Space HSV = PaletteTransform.Space.HSV;
+    private static final PaletteTransform.Space CMYK = PaletteTransform.Space.CMYK;
+
+    private static Figure figure(float r, float g, float b) {
+        return new Figure("Cuadrado", new float[]{0.0f, 0.0f, 0.2f, 0.2f}, new float[]{r, g, b});
+    }
+
+    // Muchos pasos de arrastre sobre los tres componentes, como hace la interfaz en cada cuadro
+    private static void drag(ColorCache cache, Figure figure, PaletteTransform.Space space, float[] target) {
+        for (int step = 1; step <= 200; step++) {
+            for (int c = 0; c < target.length; c++) {
+                float value = cache.get(figure, space)[c];
+                cache.set(figure, space, c, value + (target[c] - value) * step / 200.0f);
+            }
+        }
+    }
+
+    @Test
+    public void repeatedSetsKeepEnteredComponents() {
+        ColorCache cache = new ColorCache(16);
+        float[][] targets = {{0.37f, 0.61f, 0.43f}, {0.83f, 0.29f, 0.71f}};
+        for (PaletteTransform.Space space : new PaletteTransform.Space[]{HSL, HSV}) {
+            for (float[] target : targets) {
+                Figure figure = figure(0.2f, 0.5f, 0.9f);
+                drag(cache, figure, space, target);
+                assertArrayEquals(space + " tras arrastrar", target, cache.get(figure, space), 0.0f);
+                for (int c = 0; c < 3; c++) {
+                    cache.set(figure, space, c, target[c]);
+                }
+                assertArrayEquals(space.toString(), target, cache.get(figure, space), 0.0f);
+            }
+        }
+        Figure figure = figure(0.2f, 0.5f, 0.9f);
+        float[] cmyk = {0.13f, 0.57f, 0.31f, 0.22f};
+        drag(cache, figure, CMYK, cmyk);
+        assertArrayEquals(cmyk, cache.get(figure, CMYK), 0.0f);
+    }
+
+    // El tono y la saturación de un gris no existen en RGB: se conservan igual
+    @Test
+    public void grayKeepsHue() {
+        ColorCache cache = new ColorCache(16);
+        for (PaletteTransform.Space space : new PaletteTransform.Space[]{HSL, HSV}) {
+            Figure figure = figure(0.5f, 0.5f, 0.5f);
+            cache.set(figure, space, 0, 0.3f);
+            cache.set(figure, space, 1, 0.0f);
+            cache.set(figure, space, 0, 0.6f);
+            assertArrayEquals(space.toString(), new float[]{0.6f, 0.0f, 0.5f}, cache.get(figure, space), 0.0f);
+            assertEquals(figure.getRed(), figure.getGreen(), 0.0f);
+            assertEquals(figure.getGreen(), figure.getBlue(), 0.0f);
+
+            // Volver a dar saturación parte del tono elegido, no del rojo que daría el RGB gris
+            cache.set(figure, space, 1, 1.0f);
+            float[] hue = ColorSpaces.rgbToHsv(new float[]{figure.getRed(), figure.getGreen(), figure.getBlue()});
+            assertEquals(space.toString(), 0.6f, hue[0], 1e-5f);
+        }
+    }
+
+    // Con K = 1 el color es negro sea cual sea C, M e Y
+    @Test
+    public void blackKeepsCmy() {
+        ColorCache cache = new ColorCache(16);
+        Figure figure = figure(0.2f, 0.5f, 0.9f);
+        cache.set(figure, CMYK, 3, 1.0f);
+        cache.set(figure, CMYK, 0, 0.4f);
+        cache.set(figure, CMYK, 1, 0.7f);
+        cache.set(figure, CMYK, 2, 0.1f);
+        assertArrayEquals(new float[]{0.4f, 0.7f, 0.1f, 1.0f}, cache.get(figure, CMYK), 0.0f);
+        assertArrayEquals(new float[]{0.0f, 0.0f, 0.0f},
+                new float[]{figure.getRed(), figure.getGreen(), figure.getBlue()}, 0.0f);
+
+        cache.set(figure, CMYK, 3, 0.5f);
+        assertArrayEquals(new float[]{0.4f, 0.7f, 0.1f, 0.5f}, cache.get(figure, CMYK), 0.0f);
+        assertArrayEquals(new float[]{0.3f, 0.15f, 0.45f},
+                new float[]{figure.getRed(), figure.getGreen(), figure.getBlue()}, 1e-6f);
+    }
+
+    // Un setColor por fuera del caché (selector, paleta, deshacer) cambia colorVersion
+    @Test
+    public void outsideColorChangeIsRecomputed() {
+        ColorCache cache = new ColorCache(16);
+        Figure figure = figure(0.5f, 0.5f, 0.5f);
+        cache.set(figure, HSL, 0, 0.3f);
+        int version = figure.getColorVersion();
+        long misses = cache.getMisses();
+        assertArrayEquals(new float[]{0.3f, 0.0f, 0.5f}, cache.get(figure, HSL), 0.0f);
+        assertEquals(misses, cache.getMisses());
+
+        figure.setColor(1.0f, 0.0f, 0.0f);
+        assertNotEquals(version, figure.getColorVersion());
+        assertArrayEquals(new float[]{0.0f, 1.0f, 0.5f}, cache.get(figure, HSL), 1e-6f);
+        assertEquals(misses + 1, cache.getMisses());
+        assertArrayEquals(new float[]{0.0f, 1.0f, 1.0f}, cache.get(figure, HSV), 1e-6f);
+        assertArrayEquals(new float[]{0.0f, 1.0f, 1.0f, 0.0f}, cache.get(figure, CMYK), 1e-6f);
+    }
+}
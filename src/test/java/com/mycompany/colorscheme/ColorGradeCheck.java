@@ -0,0 +1,186 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Function;
+
+// Compara el ColorGrade que aplica el fragment shader con la misma cadena en Java
+// (ColorGrade.toTransform). Dibuja con BatchRenderer, InstancedRenderer y SoftwareRenderer
+// (la referencia sin OpenGL, que tiene que coincidir con los otros dos) una rejilla de
+// cuadrados, uno por color de muestra (grises, primarios, secundarios y colores al azar), con
+// varios ajustes de la escena, solos y con un ajuste al azar en cada figura, y lee el centro
+// de cada celda. Un color cuenta como distinto si algún canal difiere en más de 'tolerancia'
+// (en unidades de 1/255). Termina con código 1 si falla.
+//
+// Con Mesa se puede correr sin pantalla usando -Dcolorscheme.context=egl u osmesa (ver
+// HeadlessRenderer).
+//
+// Uso: ColorGradeCheck [tolerancia]
+//
+// Necesita un contexto OpenGL, así que no es una prueba JUnit: se corre a mano con las clases
+// de prueba en el classpath:
+//     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mycompany.colorscheme.ColorGradeCheck -Dexec.args="1"
+public class ColorGradeCheck {
+
+    private static final int GRID = 32;  // Celdas por lado
+    private static final int CELL = 8;   // Píxeles por celda
+
+    public static void main(String[] args) {
+        int tolerance = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+
+        if (!GLFW.glfwInit()) {
+            throw new IllegalStateException("No se pudo inicializar GLFW");
+        }
+        boolean passed = true;
+        long window = 0;
+        try {
+            window = HeadlessRenderer.createContext();
+            float[] colors = sampleColors(GRID * GRID);
+            ColorGrade grade = new ColorGrade();
+            passed &= checkAll("sin ajuste", grade, colors, tolerance);
+            grade.set(PaletteTransform.Space.HSL, 90.0f, 1.5f, 0.8f, 0.0f);
+            passed &= checkAll("HSL", grade, colors, tolerance);
+            grade.set(PaletteTransform.Space.HSV, -45.0f, 0.5f, 1.2f, 0.0f);
+            passed &= checkAll("HSV", grade, colors, tolerance);
+            grade.set(PaletteTransform.Space.HSL, 0.0f, 1.0f, 1.0f, 0.7f);
+            passed &= checkAll("desaturar CMYK", grade, colors, tolerance);
+            grade.set(PaletteTransform.Space.HSV, 170.0f, 1.2f, 0.9f, 0.3f);
+            grade.setInkLimit(0.6f, 0.8f, 1.0f, 0.5f);
+            passed &= checkAll("todo con límite de tinta", grade, colors, tolerance);
+        } finally {
+            if (window != 0) {
+                GLFW.glfwDestroyWindow(window);
+            }
+            GLFW.glfwTerminate();
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static float[] sampleColors(int count) {
+        float[] rgb = new float[3 * count];
+        int i = 0;
+        // Grises, incluidos negro y blanco
+        for (int v = 0; v <= 16; v++, i++) {
+            rgb[3 * i] = rgb[3 * i + 1] = rgb[3 * i + 2] = v / 16.0f;
+        }
+        // Primarios y secundarios a varias intensidades
+        for (int mask = 1; mask < 8; mask++) {
+            for (int v = 1; v <= 4; v++, i++) {
+                rgb[3 * i] = (mask & 1) != 0 ? v / 4.0f : 0.0f;
+                rgb[3 * i + 1] = (mask & 2) != 0 ? v / 4.0f : 0.0f;
+                rgb[3 * i + 2] = (mask & 4) != 0 ? v / 4.0f : 0.0f;
+            }
+        }
+        Random random = new Random(42L);
+        for (; i < count; i++) {
+            rgb[3 * i] = random.nextFloat();
+            rgb[3 * i + 1] = random.nextFloat();
+            rgb[3 * i + 2] = random.nextFloat();
+        }
+        return rgb;
+    }
+
+    // El ajuste de la escena con los dos renderizadores, sin y con ajuste por figura
+    private static boolean checkAll(String name, ColorGrade grade, float[] colors, int tolerance) {
+        boolean passed = true;
+        for (boolean perFigure : new boolean[]{false, true}) {
+            passed &= check("lotes", BatchRenderer::new, name, grade, colors, perFigure, tolerance);
+            passed &= check("instancias", InstancedRenderer::new, name, grade, colors, perFigure, tolerance);
+            passed &= check("software", g -> new SoftwareRenderer(GRID * CELL, GRID * CELL, 1, g),
+                    name, grade, colors, perFigure, tolerance);
+        }
+        return passed;
+    }
+
+    private static boolean check(String rendererName, Function<ColorGrade, Renderer> renderer, String name,
+                                 ColorGrade grade, float[] colors, boolean perFigure, int tolerance) {
+        int size = GRID * CELL;
+        int count = GRID * GRID;
+        FigureStore figures = new FigureStore(count, false);
+        float cell = 2.0f / GRID;
+        Random random = new Random(7L);
+        PaletteTransform.Block expected = new PaletteTransform.Block(count);
+        PaletteTransform.Block one = new PaletteTransform.Block(1);
+        for (int i = 0; i < count; i++) {
+            float x = -1.0f + (i % GRID) * cell;
+            float y = -1.0f + (i / GRID) * cell;
+            figures.add("Muestra " + i, new float[]{x, y, cell, cell},
+                    new float[]{colors[3 * i], colors[3 * i + 1], colors[3 * i + 2]});
+            expected.red()[i] = colors[3 * i];
+            expected.green()[i] = colors[3 * i + 1];
+            expected.blue()[i] = colors[3 * i + 2];
+            if (perFigure) {
+                // Una de cada cuatro queda sin ajuste propio
+                float hue = 0.0f, saturation = 1.0f, lightness = 1.0f, ink = 1.0f;
+                if (i % 4 != 0) {
+                    hue = random.nextFloat() * 360.0f - 180.0f;
+                    saturation = random.nextFloat() * 2.0f;
+                    lightness = 0.5f + random.nextFloat();
+                    ink = 0.5f + random.nextFloat() * 0.5f;
+                }
+                figures.setGrade(i, hue, saturation, lightness, ink);
+                one.red()[0] = colors[3 * i];
+                one.green()[0] = colors[3 * i + 1];
+                one.blue()[0] = colors[3 * i + 2];
+                grade.toTransform(hue, saturation, lightness, ink).apply(one);
+                expected.red()[i] = one.red()[0];
+                expected.green()[i] = one.green()[0];
+                expected.blue()[i] = one.blue()[0];
+            }
+        }
+        if (!perFigure) {
+            grade.toTransform().apply(expected);
+        }
+
+        OffscreenTarget target = new OffscreenTarget(size, size);
+        Renderer gl = renderer.apply(grade);
+        try {
+            target.bind();
+            GL33.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+            GL33.glClear(GL33.GL_COLOR_BUFFER_BIT);
+            gl.render(figures, null);
+            ByteBuffer pixels;
+            if (gl instanceof SoftwareRenderer) {
+                pixels = ByteBuffer.allocateDirect(size * size * 4);
+                GlPixels.toGlRgba(((SoftwareRenderer) gl).getPixels(), size, size, pixels);
+                pixels.flip();
+            } else {
+                pixels = target.readPixels();
+            }
+
+            int mismatches = 0;
+            int worst = 0;
+            for (int i = 0; i < count; i++) {
+                // Centro de la celda; glReadPixels empieza por la fila de abajo, igual que y
+                int px = (i % GRID) * CELL + CELL / 2;
+                int py = (i / GRID) * CELL + CELL / 2;
+                int at = 4 * (py * size + px);
+                int difference = Math.max(channelDifference(pixels.get(at), expected.red()[i]),
+                        Math.max(channelDifference(pixels.get(at + 1), expected.green()[i]),
+                                channelDifference(pixels.get(at + 2), expected.blue()[i])));
+                worst = Math.max(worst, difference);
+                if (difference > tolerance) {
+                    mismatches++;
+                }
+            }
+            boolean passed = mismatches == 0;
+            System.out.printf("Ajuste %s%s (%s): %d de %d colores distintos, diferencia máxima %d/255 %s%n",
+                    name, perFigure ? " y por figura" : "", rendererName, mismatches, count, worst, passed ? "OK" : "FALLA");
+            return passed;
+        } finally {
+            target.unbind();
+            gl.dispose();
+            target.dispose();
+        }
+    }
+
+    private static int channelDifference(byte actual, float expected) {
+        int value = Math.round(Math.max(0.0f, Math.min(1.0f, expected)) * 255);
+        return Math.abs((actual & 0xFF) - value);
+    }
+}
@@ -0,0 +1,129 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ColorLutTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private int files = 0;
+
+    private static PaletteTransform.Block randomBlock(int size, long seed) {
+        Random random = new Random(seed);
+        PaletteTransform.Block block = new PaletteTransform.Block(size);
+        for (int i = 0; i < size; i++) {
+            block.red()[i] = random.nextFloat();
+            block.green()[i] = random.nextFloat();
+            block.blue()[i] = random.nextFloat();
+        }
+        return block;
+    }
+
+    private static void assertSameColors(PaletteTransform.Block expected, PaletteTransform.Block actual, float tolerance) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.red()[i], actual.red()[i], tolerance);
+            assertEquals(expected.green()[i], actual.green()[i], tolerance);
+            assertEquals(expected.blue()[i], actual.blue()[i], tolerance);
+        }
+    }
+
+    // Una escala por canal sin saturar es lineal: las dos interpolaciones la reproducen exacta
+    @Test
+    public void linearTransformIsReproduced() {
+        PaletteTransform transform = new PaletteTransform(PaletteTransform.rgbScale(0.5f, 0.9f, 0.75f));
+        ColorLut lut = ColorLut.bake(transform, 17);
+        PaletteTransform.Block expected = randomBlock(10_000, 1L);
+        transform.apply(expected);
+        for (ColorLut.Interpolation interpolation : ColorLut.Interpolation.values()) {
+            PaletteTransform.Block actual = randomBlock(10_000, 1L);
+            lut.apply(actual, interpolation);
+            assertSameColors(expected, actual, 1e-5f);
+        }
+    }
+
+    @Test
+    public void cubeFileRoundTrip() throws IOException {
+        ColorLut lut = ColorLut.bake(new PaletteTransform(PaletteTransform.hueShiftHsl(40.0f),
+                PaletteTransform.desaturateCmyk(0.3f)), 9);
+        Path file = folder.newFile("ajuste.cube").toPath();
+        lut.write(file, "Ajuste \"cálido\"");
+        ColorLut read = ColorLut.read(file);
+        assertEquals(9, read.size());
+
+        PaletteTransform.Block expected = randomBlock(5_000, 2L);
+        PaletteTransform.Block actual = randomBlock(5_000, 2L);
+        lut.apply(expected, ColorLut.Interpolation.TETRAHEDRAL);
+        read.apply(actual, ColorLut.Interpolation.TETRAHEDRAL);
+        // El archivo guarda seis decimales
+        assertSameColors(expected, actual, 1e-6f);
+    }
+
+    // Comentarios, título, dominio 0..1 y otras palabras clave se aceptan
+    @Test
+    public void readsOptionalLines() throws IOException {
+        List<String> lines = new ArrayList<>(Arrays.asList(
+                "# Generada a mano",
+                "TITLE \"Identidad\"",
+                "",
+                "DOMAIN_MIN 0 0 0",
+                "DOMAIN_MAX 1.0 1.0 1.0",
+                "LUT_3D_INPUT_RANGE 0 1",
+                "LUT_3D_SIZE 2"));
+        for (int i = 0; i < 8; i++) {
+            lines.add((i & 1) + " " + (i >> 1 & 1) + " " + (i >> 2 & 1));
+        }
+        ColorLut lut = ColorLut.read(write("identidad.cube", lines));
+        assertEquals(2, lut.size());
+        PaletteTransform.Block expected = randomBlock(1_000, 3L);
+        PaletteTransform.Block actual = randomBlock(1_000, 3L);
+        lut.apply(actual, ColorLut.Interpolation.TRILINEAR);
+        assertSameColors(expected, actual, 1e-6f);
+    }
+
+    @Test
+    public void rejectsInvalidFiles() throws IOException {
+        assertRejected("faltan puntos", "LUT_3D_SIZE 2", "0 0 0", "1 0 0");
+        assertRejected("Sobran puntos", "LUT_3D_SIZE 2", "0 0 0", "1 0 0", "0 1 0", "1 1 0",
+                "0 0 1", "1 0 1", "0 1 1", "1 1 1", "1 1 1");
+        assertRejected("Datos antes de LUT_3D_SIZE", "0 0 0");
+        assertRejected("Tamaño de LUT no válido", "LUT_3D_SIZE 1");
+        assertRejected("LUT 1D", "LUT_1D_SIZE 1024");
+        assertRejected("dominio 0..1", "DOMAIN_MAX 4 4 4", "LUT_3D_SIZE 2");
+        assertRejected("rango de entrada 0..1", "LUT_3D_INPUT_RANGE 0 4", "LUT_3D_SIZE 2");
+        assertRejected("rango de entrada 0..1", "LUT_3D_SIZE 2", "LUT_3D_INPUT_RANGE -1 1");
+        assertRejected(":1:", "LUT_3D_INPUT_RANGE 0");
+        assertRejected(":2:", "LUT_3D_SIZE 2", "0 cero 0");
+    }
+
+    private Path write(String name, List<String> lines) throws IOException {
+        Path file = folder.newFile(name).toPath();
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private void assertRejected(String message, String... lines) throws IOException {
+        Path file = write("invalida" + files++ + ".cube", Arrays.asList(lines));
+        try {
+            ColorLut.read(file);
+            fail("Se aceptó un archivo inválido: " + message);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+// Las conversiones masivas (arreglos y FloatBuffer) tienen que coincidir con las de un color
+// dentro de ColorSpaces.TOLERANCE en una rejilla que incluye grises, negro (K = 1) y blanco
+public class ColorSpacesTest {
+
+    private static final int STEPS = 17; // 0, 1/16, ..., 1 por componente
+
+    // Rejilla de tres componentes: grid[0] varía más rápido
+    private static float[][] grid3() {
+        int count = STEPS * STEPS * STEPS;
+        float[][] grid = new float[3][count];
+        for (int i = 0; i < count; i++) {
+            grid[0][i] = (i % STEPS) / (float) (STEPS - 1);
+            grid[1][i] = (i / STEPS % STEPS) / (float) (STEPS - 1);
+            grid[2][i] = (i / (STEPS * STEPS)) / (float) (STEPS - 1);
+        }
+        return grid;
+    }
+
+    private static float[][] grid4() {
+        int count = STEPS * STEPS * STEPS * STEPS;
+        float[][] grid = new float[4][count];
+        for (int i = 0; i < count; i++) {
+            int rest = i;
+            for (int c = 0; c < 4; c++) {
+                grid[c][i] = (rest % STEPS) / (float) (STEPS - 1);
+                rest /= STEPS;
+            }
+        }
+        return grid;
+    }
+
+    private interface Scalar {
+        float[] convert(float[] in);
+    }
+
+    private interface Bulk {
+        void convert(float[][] in, float[][] out, int count);
+    }
+
+    private interface Buffers {
+        void convert(FloatBuffer[] in, FloatBuffer[] out, int count);
+    }
+
+    private static void check(String name, float[][] in, int outputs, Scalar scalar, Bulk bulk, Buffers buffers) {
+        int count = in[0].length;
+        float[][] out = new float[outputs][count];
+        bulk.convert(in, out, count);
+
+        // Los FloatBuffer se usan desde una posición distinta de cero para probar el desplazamiento
+        FloatBuffer[] inBuffers = new FloatBuffer[in.length];
+        for (int c = 0; c < in.length; c++) {
+            inBuffers[c] = FloatBuffer.allocate(count + 3);
+            inBuffers[c].position(3);
+            inBuffers[c].put(in[c]).position(3);
+        }
+        FloatBuffer[] outBuffers = new FloatBuffer[outputs];
+        for (int c = 0; c < outputs; c++) {
+            outBuffers[c] = FloatBuffer.allocate(count + 1);
+            outBuffers[c].position(1);
+        }
+        if (buffers != null) {
+            buffers.convert(inBuffers, outBuffers, count);
+        }
+
+        float[] color = new float[in.length];
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < in.length; c++) {
+                color[c] = in[c][i];
+            }
+            float[] expected = scalar.convert(color);
+            for (int c = 0; c < outputs; c++) {
+                String where = name + " en " + Arrays.toString(color) + ", componente " + c;
+                assertEquals(where, expected[c], out[c][i], ColorSpaces.TOLERANCE);
+                if (buffers != null) {
+                    assertEquals(where + " (FloatBuffer)", expected[c], outBuffers[c].get(1 + i), ColorSpaces.TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rgbToCmyk() {
+        check("rgbToCmyk", grid3(), 4, ColorSpaces::rgbToCmyk,
+                (in, out, n) -> ColorSpaces.rgbToCmyk(in[0], in[1], in[2], out[0], out[1], out[2], out[3], 0, n),
+                (in, out, n) -> ColorSpaces.rgbToCmyk(in[0], in[1], in[2], out[0], out[1], out[2], out[3], n));
+    }
+
+    @Test
+    public void cmykToRgb() {
+        check("cmykToRgb", grid4(), 3, ColorSpaces::cmykToRgb,
+                (in, out, n) -> ColorSpaces.cmykToRgb(in[0], in[1], in[2], in[3], out[0], out[1], out[2], 0, n),
+                (in, out, n) -> ColorSpaces.cmykToRgb(in[0], in[1], in[2], in[3], out[0], out[1], out[2], n));
+    }
+
+    @Test
+    public void rgbToHsl() {
+        check("rgbToHsl", grid3(), 3, ColorSpaces::rgbToHsl,
+                (in, out, n) -> ColorSpaces.rgbToHsl(in[0], in[1], in[2], out[0], out[1], out[2], 0, n),
+                (in, out, n) -> ColorSpaces.rgbToHsl(in[0], in[1], in[2], out[0], out[1], out[2], n));
+    }
+
+    @Test
+    public void hslToRgb() {
+        check("hslToRgb", grid3(), 3, ColorSpaces::hslToRgb,
+                (in, out, n) -> ColorSpaces.hslToRgb(in[0], in[1], in[2], out[0], out[1], out[2], 0, n),
+                (in, out, n) -> ColorSpaces.hslToRgb(in[0], in[1], in[2], out[0], out[1], out[2], n));
+    }
+
+    @Test
+    public void rgbToHsv() {
+        check("rgbToHsv", grid3(), 3, ColorSpaces::rgbToHsv,
+                (in, out, n) -> ColorSpaces.rgbToHsv(in[0], in[1], in[2], out[0], out[1], out[2], 0, n),
+                (in, out, n) -> ColorSpaces.rgbToHsv(in[0], in[1], in[2], out[0], out[1], out[2], n));
+    }
+
+    @Test
+    public void hsvToRgb() {
+        check("hsvToRgb", grid3(), 3, ColorSpaces::hsvToRgb,
+                (in, out, n) -> ColorSpaces.hsvToRgb(in[0], in[1], in[2], out[0], out[1], out[2], 0, n),
+                (in, out, n) -> ColorSpaces.hsvToRgb(in[0], in[1], in[2], out[0], out[1], out[2], n));
+    }
+
+    @Test
+    public void rgbToLab() {
+        check("rgbToLab", grid3(), 3, ColorSpaces::rgbToLab,
+                (in, out, n) -> ColorSpaces.rgbToLab(in[0], in[1], in[2], out[0], out[1], out[2], 0, n), null);
+    }
+
+    @Test
+    public void rgbToOklab() {
+        check("rgbToOklab", grid3(), 3, ColorSpaces::rgbToOklab,
+                (in, out, n) -> ColorSpaces.rgbToOklab(in[0], in[1], in[2], out[0], out[1], out[2], 0, n), null);
+    }
+}
@@ -0,0 +1,171 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EditJournalTest {
+
+    private static final Object FIRST = new Object();
+    private static final Object SECOND = new Object();
+
+    private static void assertColor(FigureStore scene, int slot, float r, float g, float b) {
+        assertEquals(r, scene.get(FigureStore.RED, slot), 0.0f);
+        assertEquals(g, scene.get(FigureStore.GREEN, slot), 0.0f);
+        assertEquals(b, scene.get(FigureStore.BLUE, slot), 0.0f);
+    }
+
+    // Un paso de color sobre una sola figura
+    private static void recolor(EditJournal journal, FigureStore scene, Object key, int slot, float value) {
+        journal.edit(key, EditJournal.COLOR, new int[]{slot}, 1);
+        scene.setColor(slot, value, value, value);
+        journal.close();
+    }
+
+    @Test
+    public void undoAndRedoRestoreEachStep() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 1 << 20);
+        int[] slots = {0, 1};
+        journal.edit(FIRST, EditJournal.COLOR, slots, 2);
+        scene.setColor(0, 1.0f, 0.5f, 0.25f);
+        scene.setColor(1, 0.0f, 1.0f, 0.0f);
+        journal.close();
+        journal.edit(SECOND, EditJournal.field(FigureStore.TRANSLATE_X), new int[]{2}, 1);
+        scene.setTransformValue(FigureStore.TRANSLATE_X, 2, 0.3f);
+        journal.close();
+        assertEquals(2, journal.steps());
+
+        assertTrue(journal.undo());
+        assertEquals(0.0f, scene.get(FigureStore.TRANSLATE_X, 2), 0.0f);
+        assertColor(scene, 0, 1.0f, 0.5f, 0.25f);
+        assertTrue(journal.undo());
+        assertColor(scene, 0, 0.0f, 0.0f, 0.0f);
+        assertColor(scene, 1, 0.0f, 0.0f, 0.0f);
+        assertFalse(journal.undo());
+        assertEquals(2, journal.redoSteps());
+
+        assertTrue(journal.redo());
+        assertColor(scene, 0, 1.0f, 0.5f, 0.25f);
+        assertColor(scene, 1, 0.0f, 1.0f, 0.0f);
+        assertEquals(0.0f, scene.get(FigureStore.TRANSLATE_X, 2), 0.0f);
+        assertTrue(journal.redo());
+        assertEquals(0.3f, scene.get(FigureStore.TRANSLATE_X, 2), 0.0f);
+        assertFalse(journal.redo());
+    }
+
+    // Arrastrar una barra: muchas llamadas a edit() con la misma clave son un solo paso
+    @Test
+    public void continuousEditIsOneStep() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 1 << 20);
+        int[] slots = {3};
+        for (int frame = 1; frame <= 10; frame++) {
+            journal.edit(FIRST, EditJournal.COLOR, slots, 1);
+            scene.setColor(3, frame / 10.0f, 0.0f, 0.0f);
+        }
+        journal.close();
+        assertEquals(1, journal.steps());
+        assertTrue(journal.undo());
+        assertColor(scene, 3, 0.0f, 0.0f, 0.0f);
+        assertTrue(journal.redo());
+        assertColor(scene, 3, 1.0f, 0.0f, 0.0f);
+    }
+
+    // El ajuste de la figura cambia su versión (para volver a subirla) pero no el color
+    @Test
+    public void gradeEditKeepsColor() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 1 << 20);
+        int colorVersion = scene.colorVersion(1);
+        int version = scene.version(1);
+        journal.edit(FIRST, EditJournal.GRADE, new int[]{1}, 1);
+        scene.setGrade(1, 30.0f, 0.5f, 1.25f, 0.8f);
+        journal.close();
+        assertEquals(colorVersion, scene.colorVersion(1));
+        assertTrue(scene.version(1) > version);
+
+        assertTrue(journal.undo());
+        Figure figure = scene.get(1);
+        assertEquals(0.0f, figure.getGradeHue(), 0.0f);
+        assertEquals(1.0f, figure.getGradeSaturation(), 0.0f);
+        assertEquals(1.0f, figure.getGradeLightness(), 0.0f);
+        assertEquals(1.0f, figure.getGradeInk(), 0.0f);
+        assertEquals(colorVersion, scene.colorVersion(1));
+        assertTrue(journal.redo());
+        assertEquals(30.0f, figure.getGradeHue(), 0.0f);
+        assertEquals(0.8f, figure.getGradeInk(), 0.0f);
+    }
+
+    @Test
+    public void stepWithoutChangesIsDropped() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 1 << 20);
+        journal.edit(FIRST, EditJournal.COLOR, new int[]{0}, 1);
+        scene.setColor(0, 0.0f, 0.0f, 0.0f);
+        journal.close();
+        assertEquals(0, journal.steps());
+        assertFalse(journal.canUndo());
+    }
+
+    @Test
+    public void newStepDiscardsRedo() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 1 << 20);
+        recolor(journal, scene, FIRST, 0, 0.5f);
+        recolor(journal, scene, SECOND, 1, 0.5f);
+        assertTrue(journal.undo());
+        assertTrue(journal.canRedo());
+        recolor(journal, scene, FIRST, 2, 0.75f);
+        assertFalse(journal.canRedo());
+        assertEquals(2, journal.steps());
+        assertTrue(journal.undo());
+        assertColor(scene, 2, 0.0f, 0.0f, 0.0f);
+        assertColor(scene, 1, 0.0f, 0.0f, 0.0f);
+        assertColor(scene, 0, 0.5f, 0.5f, 0.5f);
+    }
+
+    // Un paso de color de una figura ocupa 4 + 2 * 3 * 4 + 16 = 44 bytes: con 100 entran dos
+    @Test
+    public void oldestStepsAreEvictedOverBudget() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 100);
+        recolor(journal, scene, FIRST, 0, 0.25f);
+        recolor(journal, scene, SECOND, 1, 0.5f);
+        recolor(journal, scene, FIRST, 2, 0.75f);
+        assertEquals(2, journal.steps());
+        assertTrue(journal.bytes() <= journal.budget());
+
+        assertTrue(journal.undo());
+        assertTrue(journal.undo());
+        assertFalse(journal.undo());
+        // El primer paso ya no está: su color queda
+        assertColor(scene, 0, 0.25f, 0.25f, 0.25f);
+        assertColor(scene, 1, 0.0f, 0.0f, 0.0f);
+        assertColor(scene, 2, 0.0f, 0.0f, 0.0f);
+    }
+
+    @Test
+    public void stepLargerThanBudgetClearsHistory() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 40);
+        recolor(journal, scene, FIRST, 0, 0.25f);
+        assertEquals(0, journal.steps());
+        assertFalse(journal.canUndo());
+    }
+
+    // Agregar o quitar figuras cambia las posiciones: el historial se vacía
+    @Test
+    public void layoutChangeClearsHistory() {
+        FigureStore scene = SceneFactory.defaultScene();
+        EditJournal journal = new EditJournal(scene, 1 << 20);
+        recolor(journal, scene, FIRST, 0, 0.5f);
+        scene.add("Círculo", new float[]{0.0f, 0.0f, 0.1f}, new float[]{1.0f, 1.0f, 1.0f});
+        assertFalse(journal.canUndo());
+        assertEquals(0, journal.steps());
+        assertFalse(journal.undo());
+        assertColor(scene, 0, 0.5f, 0.5f, 0.5f);
+    }
+}
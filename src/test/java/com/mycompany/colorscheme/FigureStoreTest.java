@@ -0,0 +1,168 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class FigureStoreTest {
+
+    private static final int[] VALUE_COLUMNS = {
+            FigureStore.RED, FigureStore.GREEN, FigureStore.BLUE,
+            FigureStore.ROTATION, FigureStore.SCALE_X, FigureStore.SCALE_Y,
+            FigureStore.TRANSLATE_X, FigureStore.TRANSLATE_Y, FigureStore.BIAS_X, FigureStore.BIAS_Y};
+
+    private static final int BULK_FIGURES = 40_000;
+
+    private static void assertSameFigure(FigureStore expected, int slot, FigureStore actual, int other) {
+        assertEquals(expected.id(slot), actual.id(other));
+        assertEquals(expected.name(slot), actual.name(other));
+        assertArrayEquals(expected.shapeCopy(slot), actual.shapeCopy(other), 0.0f);
+        for (int column : VALUE_COLUMNS) {
+            assertEquals(expected.get(column, slot), actual.get(column, other), 0.0f);
+        }
+    }
+
+    @Test
+    public void removeSlotsKeepsOrderAndHandles() {
+        for (boolean direct : new boolean[]{false, true}) {
+            FigureStore scene = SceneFactory.stressScene(1_000, 42L, direct);
+            FigureStore reference = SceneFactory.stressScene(1_000, 42L);
+            Figure kept = scene.get(998);
+            Figure removed = scene.get(10);
+            BitSet marked = new BitSet();
+            for (int slot = 0; slot < 1_000; slot += 3) {
+                marked.set(slot);
+            }
+            marked.set(10);
+            int layout = scene.layoutCount();
+            scene.removeSlots(marked);
+
+            assertEquals(1_000 - marked.cardinality(), scene.size());
+            assertNotEquals(layout, scene.layoutCount());
+            int slot = 0;
+            for (int old = marked.nextClearBit(0); old < 1_000; old = marked.nextClearBit(old + 1), slot++) {
+                assertSameFigure(reference, old, scene, slot);
+            }
+            // Los manejadores siguen a su figura: los que quedan cambian de posición y los
+            // quitados pasan a un almacén propio
+            assertSame(kept, scene.get(kept.slot));
+            assertEquals(reference.name(998), kept.getName());
+            assertEquals(reference.name(10), removed.getName());
+            assertFalse(removed.store == scene);
+        }
+    }
+
+    @Test
+    public void colorChangesDoNotChangeLayout() {
+        FigureStore scene = SceneFactory.defaultScene();
+        int layout = scene.layoutCount();
+        int colorVersion = scene.colorVersion(2);
+        scene.setColor(2, 0.5f, 0.5f, 0.5f);
+        scene.setTransformValue(FigureStore.ROTATION, 2, 45.0f);
+        assertEquals(layout, scene.layoutCount());
+        assertEquals(colorVersion + 1, scene.colorVersion(2));
+        assertEquals(colorVersion + 1, scene.get(2).getColorVersion());
+
+        scene.add("Círculo", new float[]{0.0f, 0.0f, 0.1f}, new float[]{1.0f, 0.0f, 0.0f});
+        assertNotEquals(layout, scene.layoutCount());
+    }
+
+    // Solo hay geometría para cinco formas: las demás no entran al almacén
+    @Test
+    public void unknownShapeIsRejected() {
+        FigureStore scene = SceneFactory.defaultScene();
+        int size = scene.size();
+        for (int length : new int[]{0, 2, 5, 8, 14}) {
+            try {
+                scene.add("Octágono", new float[length], new float[]{0.0f, 0.0f, 0.0f});
+                fail("Se aceptó una forma de " + length + " valores");
+            } catch (IllegalArgumentException expected) {
+                // Ninguno de los renderizadores la dibujaría
+            }
+        }
+        assertEquals(size, scene.size());
+    }
+
+    // Una de cada tres figuras: más posiciones que una tarea hoja, así que se reparten en el pool
+    private static int[] everyThirdSlot(int figures) {
+        int[] slots = new int[(figures + 2) / 3];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = 3 * i;
+        }
+        return slots;
+    }
+
+    private static void assertSameStores(FigureStore expected, FigureStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int slot = 0; slot < expected.size(); slot++) {
+            assertSameFigure(expected, slot, actual, slot);
+            assertEquals(expected.version(slot), actual.version(slot));
+            assertEquals(expected.colorVersion(slot), actual.colorVersion(slot));
+        }
+    }
+
+    @Test
+    public void offsetTransformValueMatchesPerSlotEdits() {
+        FigureStore bulk = SceneFactory.stressScene(BULK_FIGURES, 42L);
+        FigureStore loop = SceneFactory.stressScene(BULK_FIGURES, 42L);
+        SpatialIndex bulkIndex = new SpatialIndex();
+        bulkIndex.insertAll(bulk);
+        SpatialIndex loopIndex = new SpatialIndex();
+        loopIndex.insertAll(loop);
+        int[] slots = everyThirdSlot(BULK_FIGURES);
+
+        bulk.offsetTransformValue(FigureStore.TRANSLATE_X, slots, slots.length, 0.05f);
+        bulk.offsetTransformValue(FigureStore.ROTATION, slots, slots.length, 30.0f);
+        for (int slot : slots) {
+            loop.setTransformValue(FigureStore.TRANSLATE_X, slot, loop.get(FigureStore.TRANSLATE_X, slot) + 0.05f);
+            loop.setTransformValue(FigureStore.ROTATION, slot, loop.get(FigureStore.ROTATION, slot) + 30.0f);
+        }
+
+        assertSameStores(loop, bulk);
+        for (int slot = 0; slot < BULK_FIGURES; slot++) {
+            bulk.updateTransform(slot);
+            loop.updateTransform(slot);
+            for (int column = FigureStore.A; column <= FigureStore.TY; column++) {
+                assertEquals(loop.get(column, slot), bulk.get(column, slot), 0.0f);
+            }
+        }
+        // El índice espacial sigue a las figuras movidas igual que con ediciones sueltas
+        Random random = new Random(1L);
+        for (int q = 0; q < 2_000; q++) {
+            float x = random.nextFloat() * 2.4f - 1.2f;
+            float y = random.nextFloat() * 2.4f - 1.2f;
+            Figure expected = loopIndex.pick(x, y);
+            Figure actual = bulkIndex.pick(x, y);
+            assertEquals(expected == null ? -1 : expected.slot, actual == null ? -1 : actual.slot);
+        }
+    }
+
+    @Test
+    public void recolorMatchesPerSlotEdits() {
+        FigureStore bulk = SceneFactory.stressScene(BULK_FIGURES, 42L);
+        FigureStore loop = SceneFactory.stressScene(BULK_FIGURES, 42L);
+        int[] slots = everyThirdSlot(BULK_FIGURES);
+        PaletteTransform transform = new PaletteTransform(
+                PaletteTransform.hueShiftHsl(120.0f), PaletteTransform.desaturateCmyk(0.3f));
+
+        bulk.recolor(slots, slots.length, transform);
+        PaletteTransform.Block one = new PaletteTransform.Block(1);
+        for (int slot : slots) {
+            one.red()[0] = loop.get(FigureStore.RED, slot);
+            one.green()[0] = loop.get(FigureStore.GREEN, slot);
+            one.blue()[0] = loop.get(FigureStore.BLUE, slot);
+            transform.apply(one);
+            loop.setColor(slot, one.red()[0], one.green()[0], one.blue()[0]);
+        }
+
+        assertSameStores(loop, bulk);
+    }
+}
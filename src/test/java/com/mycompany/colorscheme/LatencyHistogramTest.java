@@ -0,0 +1,51 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+
+    // Cada valor cae en una cubeta cuyo rango lo contiene, también en los extremos
+    @Test
+    public void bucketsCoverEveryValue() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value + "", value <= LatencyHistogram.highestOf(bucket));
+            assertTrue(value + "", bucket == 0 || value > LatencyHistogram.highestOf(bucket - 1));
+        }
+    }
+
+    // Los percentiles quedan a menos de 1/32 del valor exacto por rango más cercano
+    @Test
+    public void percentilesMatchSortedValues() {
+        Random random = new Random(7L);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.exp(random.nextGaussian() * 2.0) * 5_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.max());
+        for (double p : new double[]{0.5, 0.9, 0.99, 1.0}) {
+            long exact = values[(int) Math.ceil(p * values.length) - 1];
+            long approximate = histogram.percentile(p);
+            assertTrue(p + ": " + approximate + " < " + exact, approximate >= exact);
+            assertTrue(p + ": " + approximate + " > " + exact, approximate - exact <= exact / 32);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// El árbol k-d tiene que encontrar la misma entrada que recorrer toda la paleta (o una a la
+// misma distancia, si hay empates)
+public class PaletteMapperTest {
+
+    private static final int QUERIES = 20_000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static float[] randomPalette(int size, Random random) {
+        float[] rgb = new float[3 * size];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = random.nextFloat();
+        }
+        return rgb;
+    }
+
+    private static float distance(PaletteMapper mapper, int index, float[] query) {
+        float[] color = mapper.color(index, new float[3]);
+        float[] a = new float[3];
+        float[] b = new float[3];
+        if (mapper.metric() == PaletteMapper.Metric.LAB) {
+            ColorSpaces.rgbToLab(color, a);
+            ColorSpaces.rgbToLab(query, b);
+        } else {
+            ColorSpaces.rgbToOklab(color, a);
+            ColorSpaces.rgbToOklab(query, b);
+        }
+        float dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void checkNearest(PaletteMapper mapper, Random random) {
+        float[] query = new float[3];
+        for (int q = 0; q < QUERIES; q++) {
+            query[0] = random.nextFloat();
+            query[1] = random.nextFloat();
+            query[2] = random.nextFloat();
+            int expected = mapper.nearestBruteForce(query[0], query[1], query[2]);
+            int actual = mapper.nearest(query[0], query[1], query[2]);
+            if (actual != expected) {
+                assertEquals("color " + Arrays.toString(query),
+                        distance(mapper, expected, query), distance(mapper, actual, query), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(42L);
+        for (PaletteMapper.Metric metric : PaletteMapper.Metric.values()) {
+            for (int size : new int[]{1, 2, 7, 16, 100, 1_000}) {
+                checkNearest(new PaletteMapper(randomPalette(size, random), metric), random);
+            }
+        }
+    }
+
+    // Entradas repetidas y colores alineados en una rejilla (muchos empates en la mediana)
+    @Test
+    public void nearestMatchesLinearScanWithTies() {
+        float[] rgb = new float[3 * 2 * 27];
+        for (int i = 0; i < 27; i++) {
+            for (int copy = 0; copy < 2; copy++) {
+                int at = 3 * (2 * i + copy);
+                rgb[at] = (i % 3) / 2.0f;
+                rgb[at + 1] = (i / 3 % 3) / 2.0f;
+                rgb[at + 2] = (i / 9) / 2.0f;
+            }
+        }
+        Random random = new Random(7L);
+        for (PaletteMapper.Metric metric : PaletteMapper.Metric.values()) {
+            checkNearest(new PaletteMapper(rgb, metric), random);
+        }
+    }
+
+    // Ajustar un bloque y una imagen da el color de la entrada más cercana de cada uno
+    @Test
+    public void mapUsesNearestEntry() {
+        Random random = new Random(3L);
+        PaletteMapper mapper = new PaletteMapper(randomPalette(64, random), PaletteMapper.Metric.OKLAB);
+        PaletteTransform.Block block = new PaletteTransform.Block(50_000);
+        int[] argb = new int[block.size()];
+        for (int i = 0; i < block.size(); i++) {
+            argb[i] = random.nextInt();
+            block.red()[i] = (argb[i] >> 16 & 0xFF) / 255.0f;
+            block.green()[i] = (argb[i] >> 8 & 0xFF) / 255.0f;
+            block.blue()[i] = (argb[i] & 0xFF) / 255.0f;
+        }
+        float[] r = block.red().clone(), g = block.green().clone(), b = block.blue().clone();
+        mapper.map(block);
+        mapper.mapArgb(argb, 0, argb.length);
+
+        float[] color = new float[3];
+        for (int i = 0; i < block.size(); i++) {
+            mapper.color(mapper.nearest(r[i], g[i], b[i]), color);
+            assertEquals(color[0], block.red()[i], 0.0f);
+            assertEquals(color[1], block.green()[i], 0.0f);
+            assertEquals(color[2], block.blue()[i], 0.0f);
+            assertEquals(Math.round(color[0] * 255), argb[i] >> 16 & 0xFF);
+            assertEquals(Math.round(color[1] * 255), argb[i] >> 8 & 0xFF);
+            assertEquals(Math.round(color[2] * 255), argb[i] & 0xFF);
+        }
+    }
+
+    @Test
+    public void readsHexAndGimpPalettes() throws IOException {
+        Path file = folder.newFile("marca.gpl").toPath();
+        Files.write(file, Arrays.asList(
+                "GIMP Palette",
+                "Name: Marca",
+                "#",
+                "255   0   0\tRojo",
+                "  0 128 255\tAzul",
+                "#00ff00",
+                "ffffff"), StandardCharsets.UTF_8);
+        PaletteMapper mapper = PaletteMapper.read(file, PaletteMapper.Metric.LAB);
+        assertEquals(4, mapper.size());
+        assertArrayEquals(new float[]{1.0f, 0.0f, 0.0f}, mapper.color(0, new float[3]), 0.0f);
+        assertArrayEquals(new float[]{0.0f, 128 / 255.0f, 1.0f}, mapper.color(1, new float[3]), 0.0f);
+        assertArrayEquals(new float[]{0.0f, 1.0f, 0.0f}, mapper.color(2, new float[3]), 0.0f);
+        assertArrayEquals(new float[]{1.0f, 1.0f, 1.0f}, mapper.color(3, new float[3]), 0.0f);
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyPaletteIsRejected() throws IOException {
+        Path file = folder.newFile("vacia.gpl").toPath();
+        Files.write(file, Arrays.asList("GIMP Palette", "Name: Vacía"), StandardCharsets.UTF_8);
+        PaletteMapper.read(file, PaletteMapper.Metric.OKLAB);
+    }
+
+    @Test(expected = IOException.class)
+    public void channelOutOfRangeIsRejected() throws IOException {
+        Path file = folder.newFile("rango.gpl").toPath();
+        Files.write(file, Arrays.asList("GIMP Palette", "300 0 0"), StandardCharsets.UTF_8);
+        PaletteMapper.read(file, PaletteMapper.Metric.OKLAB);
+    }
+}
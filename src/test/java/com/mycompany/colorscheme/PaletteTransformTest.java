@@ -0,0 +1,156 @@
+package com.mycompany.colorscheme;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PaletteTransformTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // La misma cadena, color por color con las conversiones de un color de ColorSpaces
+    private static float[] scalarChain(float[] rgb) {
+        float[] hsl = ColorSpaces.rgbToHsl(rgb);
+        float hue = hsl[0] + 40.0f / 360.0f;
+        hsl[0] = hue - (float) Math.floor(hue);
+        hsl[1] = Math.max(0.0f, Math.min(1.0f, hsl[1] * 1.3f));
+        rgb = ColorSpaces.hslToRgb(hsl);
+
+        float[] hsv = ColorSpaces.rgbToHsv(rgb);
+        hsv[2] = Math.max(0.0f, Math.min(1.0f, hsv[2] * 0.8f));
+        rgb = ColorSpaces.hsvToRgb(hsv);
+
+        float[] cmyk = ColorSpaces.rgbToCmyk(rgb);
+        float gray = (cmyk[0] + cmyk[1] + cmyk[2]) / 3;
+        for (int c = 0; c < 3; c++) {
+            cmyk[c] += (gray - cmyk[c]) * 0.5f;
+        }
+        cmyk[0] = Math.min(cmyk[0], 0.9f);
+        cmyk[1] = Math.min(cmyk[1], 0.8f);
+        cmyk[3] = Math.min(cmyk[3], 0.7f);
+        rgb = ColorSpaces.cmykToRgb(cmyk);
+
+        rgb[0] = Math.max(0.0f, Math.min(1.0f, rgb[0] * 1.1f));
+        rgb[1] = Math.max(0.0f, Math.min(1.0f, rgb[1] * 0.9f));
+        return rgb;
+    }
+
+    private static PaletteTransform chain() {
+        return new PaletteTransform(
+                PaletteTransform.hueShiftHsl(40.0f),
+                PaletteTransform.saturationScaleHsl(1.3f),
+                PaletteTransform.valueScaleHsv(0.8f),
+                PaletteTransform.desaturateCmyk(0.5f),
+                PaletteTransform.inkLimitCmyk(0.9f, 0.8f, 1.0f, 0.7f),
+                PaletteTransform.rgbScale(1.1f, 0.9f, 1.0f));
+    }
+
+    // Más colores que una tarea hoja, con grises, negro y blanco al principio
+    @Test
+    public void chainMatchesScalarPath() {
+        int count = 100_000;
+        PaletteTransform.Block block = new PaletteTransform.Block(count);
+        Random random = new Random(42L);
+        for (int i = 0; i < count; i++) {
+            if (i <= 16) {
+                block.red()[i] = block.green()[i] = block.blue()[i] = i / 16.0f;
+            } else {
+                block.red()[i] = random.nextFloat();
+                block.green()[i] = random.nextFloat();
+                block.blue()[i] = random.nextFloat();
+            }
+        }
+        float[][] expected = new float[count][];
+        for (int i = 0; i < count; i++) {
+            expected[i] = scalarChain(new float[]{block.red()[i], block.green()[i], block.blue()[i]});
+        }
+
+        chain().apply(block, pool);
+
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals("color " + i, expected[i],
+                    new float[]{block.red()[i], block.green()[i], block.blue()[i]}, TOLERANCE);
+        }
+    }
+
+    // Corre applyToScene y devuelve el resultado sin escribirlo, como lo recibe el hilo de render
+    private PaletteTransform.SceneWrite compute(PaletteTransform transform, FigureStore figures) throws Exception {
+        CompletableFuture<PaletteTransform.SceneWrite> published = new CompletableFuture<>();
+        transform.applyToScene(figures, pool, published::complete);
+        return published.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writeSkipsFiguresRecoloredAfterTheCopy() throws Exception {
+        FigureStore figures = SceneFactory.stressScene(1_000, 42L);
+        FigureStore reference = SceneFactory.stressScene(1_000, 42L);
+        PaletteTransform redOnly = new PaletteTransform(PaletteTransform.setComponent(PaletteTransform.Space.RGB, 0, 0.25f));
+        PaletteTransform.SceneWrite write = compute(redOnly, figures);
+        figures.setColor(7, 0.5f, 0.5f, 0.5f);
+        figures.setColor(500, 0.1f, 0.2f, 0.3f);
+
+        assertFalse(write.isStale());
+        assertEquals(998, write.count());
+        write.write();
+
+        for (int slot = 0; slot < figures.size(); slot++) {
+            if (slot == 7) {
+                assertEquals(0.5f, figures.get(FigureStore.RED, slot), 0.0f);
+            } else if (slot == 500) {
+                assertEquals(0.1f, figures.get(FigureStore.RED, slot), 0.0f);
+            } else {
+                assertEquals(0.25f, figures.get(FigureStore.RED, slot), 0.0f);
+                assertEquals(reference.get(FigureStore.GREEN, slot), figures.get(FigureStore.GREEN, slot), 0.0f);
+                assertEquals(reference.get(FigureStore.BLUE, slot), figures.get(FigureStore.BLUE, slot), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void changedLayoutIsStale() throws Exception {
+        FigureStore figures = SceneFactory.stressScene(100, 42L);
+        PaletteTransform.SceneWrite write = compute(chain(), figures);
+        figures.add("Círculo", new float[]{0.0f, 0.0f, 0.1f}, new float[]{1.0f, 0.0f, 0.0f});
+
+        assertTrue(write.isStale());
+        try {
+            write.slots();
+            fail("slots() aceptó una escena con otra distribución");
+        } catch (IllegalStateException expected) {
+            // La escena cambió de distribución desde la copia
+        }
+    }
+
+    // Un Error en el pool termina el futuro, para que el panel no quede esperando
+    @Test
+    public void errorCompletesTheJob() throws Exception {
+        FigureStore figures = SceneFactory.stressScene(100, 42L);
+        CompletableFuture<Void> job = chain().applyToScene(figures, pool, write -> {
+            throw new StackOverflowError();
+        });
+        try {
+            job.get(10, TimeUnit.SECONDS);
+            fail("El trabajo terminó sin error");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+    }
+}
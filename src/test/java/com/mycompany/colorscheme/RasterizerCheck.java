@@ -0,0 +1,163 @@
+package com.mycompany.colorscheme;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL33;
+
+import java.util.List;
+import java.util.Random;
+
+// Compara SoftwareRenderer e InstancedRenderer con BatchRenderer sobre la escena
+// predeterminada y una escena de estrés (rotación, sesgado, escala y traslación, con figuras
+// de distinto tipo superpuestas), y sobre una escena de pentágonos y hexágonos en su mayoría
+// irregulares, que el instanciado no puede sacar de su malla unitaria. InstancedRenderer se compara dos veces: al subir la escena
+// y después de editar una de cada diez figuras (solo vuelve a subir esas). Un píxel cuenta
+// como distinto si algún canal difiere en más de 1; los bordes de los triángulos (y de los
+// círculos, que el instanciado dibuja con otro nivel de detalle) pueden caer distinto, así
+// que se acepta hasta 'porcentaje' de píxeles distintos. Termina con código 1 si falla.
+//
+// Uso: RasterizerCheck [ancho] [alto] [figuras] [porcentaje]
+//
+// Necesita un contexto OpenGL, así que no es una prueba JUnit: se corre a mano con las clases
+// de prueba en el classpath:
+//     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mycompany.colorscheme.RasterizerCheck -Dexec.args="800 600 2000 0.5"
+public class RasterizerCheck {
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 800;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        double maxPercent = args.length > 3 ? Double.parseDouble(args[3]) : 0.5;
+
+        if (!GLFW.glfwInit()) {
+            throw new IllegalStateException("No se pudo inicializar GLFW");
+        }
+        boolean passed;
+        long window = 0;
+        try {
+            window = HeadlessRenderer.createContext();
+            passed = check("predeterminada", SceneFactory.defaultScene(), width, height, maxPercent)
+                    & check("estrés", SceneFactory.stressScene(count, 42L), width, height, maxPercent)
+                    & checkInstanced("predeterminada", SceneFactory.defaultScene(), width, height, maxPercent)
+                    & check("polígonos irregulares", irregularScene(count, 42L), width, height, maxPercent)
+                    & checkInstanced("estrés", SceneFactory.stressScene(count, 42L), width, height, maxPercent)
+                    & checkInstanced("polígonos irregulares", irregularScene(count, 42L), width, height, maxPercent);
+        } finally {
+            if (window != 0) {
+                GLFW.glfwDestroyWindow(window);
+            }
+            GLFW.glfwTerminate();
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    // Pentágonos y hexágonos transformados al azar; en dos de cada tres cada vértice se acerca
+    // al centro una cantidad distinta, así que dejan de ser imagen afín de uno regular
+    private static FigureStore irregularScene(int count, long seed) {
+        Random random = new Random(seed);
+        FigureStore figures = new FigureStore(count, false);
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * 2 - 1;
+            float y = random.nextFloat() * 2 - 1;
+            float[] shape = SceneFactory.regularPolygon(i % 2 == 0 ? 5 : 6, x, y, 0.01f + random.nextFloat() * 0.03f);
+            if (i % 3 != 0) {
+                for (int v = 0; v < shape.length; v += 2) {
+                    float t = 0.6f + 0.4f * random.nextFloat();
+                    shape[v] = x + (shape[v] - x) * t;
+                    shape[v + 1] = y + (shape[v + 1] - y) * t;
+                }
+            }
+            float[] color = {random.nextFloat(), random.nextFloat(), random.nextFloat()};
+            int slot = figures.add("Polígono " + i, shape, color);
+            figures.setTransformValue(FigureStore.ROTATION, slot, random.nextFloat() * 360 - 180);
+            figures.setTransformValue(FigureStore.BIAS_X, slot, random.nextFloat() * 0.4f - 0.2f);
+        }
+        return figures;
+    }
+
+    private static boolean check(String name, List<Figure> figures, int width, int height, double maxPercent) {
+        OffscreenTarget target = new OffscreenTarget(width, height);
+        BatchRenderer gl = new BatchRenderer();
+        SoftwareRenderer software = new SoftwareRenderer(width, height, Runtime.getRuntime().availableProcessors());
+        try {
+            target.bind();
+            GL33.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
+            GL33.glClear(GL33.GL_COLOR_BUFFER_BIT);
+            gl.render(figures, null);
+            int[] expected = GlPixels.fromGlRgba(target.readPixels(), width, height);
+
+            software.setClearColor(1.0f, 1.0f, 1.0f);
+            software.render(figures, null);
+
+            return report("Escena " + name + ", software", figures.size(), expected, software.getPixels(),
+                    width, height, maxPercent);
+        } finally {
+            target.unbind();
+            gl.dispose();
+            software.dispose();
+            target.dispose();
+        }
+    }
+
+    private static boolean checkInstanced(String name, FigureStore figures, int width, int height, double maxPercent) {
+        OffscreenTarget target = new OffscreenTarget(width, height);
+        BatchRenderer batch = new BatchRenderer();
+        InstancedRenderer instanced = new InstancedRenderer();
+        try {
+            target.bind();
+            GL33.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
+            boolean passed = compare(target, batch, instanced, figures,
+                    "Escena " + name + ", instanciado", width, height, maxPercent);
+            for (int slot = 0; slot < figures.size(); slot += 10) {
+                figures.setColor(slot, 1.0f - figures.get(FigureStore.RED, slot), 0.5f, 0.25f);
+                figures.setTransformValue(FigureStore.TRANSLATE_X, slot, figures.get(FigureStore.TRANSLATE_X, slot) + 0.05f);
+            }
+            return passed & compare(target, batch, instanced, figures,
+                    "Escena " + name + ", instanciado tras editar", width, height, maxPercent);
+        } finally {
+            target.unbind();
+            batch.dispose();
+            instanced.dispose();
+            target.dispose();
+        }
+    }
+
+    private static boolean compare(OffscreenTarget target, Renderer expected, Renderer actual, List<Figure> figures,
+                                   String name, int width, int height, double maxPercent) {
+        GL33.glClear(GL33.GL_COLOR_BUFFER_BIT);
+        expected.render(figures, null);
+        int[] expectedPixels = GlPixels.fromGlRgba(target.readPixels(), width, height);
+        GL33.glClear(GL33.GL_COLOR_BUFFER_BIT);
+        actual.render(figures, null);
+        int[] actualPixels = GlPixels.fromGlRgba(target.readPixels(), width, height);
+        return report(name, figures.size(), expectedPixels, actualPixels, width, height, maxPercent);
+    }
+
+    private static boolean report(String name, int figures, int[] expected, int[] actual,
+                                  int width, int height, double maxPercent) {
+        int mismatches = countMismatches(expected, actual, 1);
+        double percent = 100.0 * mismatches / (width * height);
+        boolean passed = percent <= maxPercent;
+        System.out.printf("%s (%d figuras): %d píxeles distintos (%.3f%%) %s%n",
+                name, figures, mismatches, percent, passed ? "OK" : "FALLA");
+        return passed;
+    }
+
+    // Píxeles en los que algún canal RGB difiere en más de 'tolerance'
+    private static int countMismatches(int[] a, int[] b, int tolerance) {
+        if (a.length != b.length) {
+            throw new IllegalStateException("Los cuadros tienen tamaños distintos: " + a.length + " y " + b.length);
+        }
+        int mismatches = 0;
+        for (int i = 0; i < a.length; i++) {
+            int pa = a[i], pb = b[i];
+            if (Math.abs(((pa >> 16) & 0xFF) - ((pb >> 16) & 0xFF)) > tolerance
+                    || Math.abs(((pa >> 8) & 0xFF) - ((pb >> 8) & 0xFF)) > tolerance
+                    || Math.abs((pa & 0xFF) - (pb & 0xFF)) > tolerance) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+}
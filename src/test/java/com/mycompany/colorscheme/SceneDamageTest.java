@@ -0,0 +1,53 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SceneDamageTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 100;
+
+    private static FigureStore corners() {
+        FigureStore scene = new FigureStore();
+        scene.add("Abajo", new float[]{-0.9f, -0.9f, 0.1f, 0.1f}, new float[]{1.0f, 0.0f, 0.0f});
+        scene.add("Centro", new float[]{-0.05f, -0.05f, 0.1f, 0.1f}, new float[]{0.0f, 1.0f, 0.0f});
+        scene.add("Arriba", new float[]{0.8f, 0.8f, 0.1f, 0.1f}, new float[]{0.0f, 0.0f, 1.0f});
+        return scene;
+    }
+
+    @Test
+    public void firstFrameRedrawsEverything() {
+        SceneDamage damage = new SceneDamage();
+        assertTrue(damage.collect(corners(), null, WIDTH, HEIGHT));
+        assertEquals(1, damage.rectCount());
+        assertEquals(WIDTH, damage.width(0));
+        assertEquals(HEIGHT, damage.height(0));
+        assertEquals(1.0f, damage.coverage(), 0.0f);
+    }
+
+    // Dos cambios separados se dibujan en una sola pasada con la caja que contiene a ambos
+    @Test
+    public void separateChangesMergeIntoOneBox() {
+        FigureStore scene = corners();
+        SceneDamage damage = new SceneDamage();
+        damage.collect(scene, null, WIDTH, HEIGHT);
+        assertFalse(damage.collect(scene, null, WIDTH, HEIGHT));
+
+        scene.get(0).setColor(0.5f, 0.5f, 0.5f);
+        scene.get(2).setColor(0.5f, 0.5f, 0.5f);
+        assertTrue(damage.collect(scene, null, WIDTH, HEIGHT));
+        assertEquals(2, damage.regionCount());
+        assertEquals(1, damage.rectCount());
+        // Desde la esquina de "Abajo" (píxeles 10, 5) hasta la de "Arriba" (190, 95), con el
+        // margen de la selección y un píxel de redondeo
+        assertEquals(8, damage.x(0), 1);
+        assertEquals(3, damage.y(0), 1);
+        assertEquals(192, damage.x(0) + damage.width(0), 1);
+        assertEquals(97, damage.y(0) + damage.height(0), 1);
+        assertTrue(damage.coverage() < 1.0f);
+    }
+}
@@ -0,0 +1,123 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SceneDiffTest {
+
+    private static final int FIGURES = 500;
+    private static final int[] VALUE_COLUMNS = {
+            FigureStore.RED, FigureStore.GREEN, FigureStore.BLUE,
+            FigureStore.ROTATION, FigureStore.SCALE_X, FigureStore.SCALE_Y,
+            FigureStore.TRANSLATE_X, FigureStore.TRANSLATE_Y, FigureStore.BIAS_X, FigureStore.BIAS_Y};
+
+    // La misma escena de estrés cada vez, con ids 0..FIGURES-1
+    private static FigureStore scene() {
+        FigureStore scene = SceneFactory.stressScene(FIGURES, 42L);
+        for (int slot = 0; slot < scene.size(); slot++) {
+            scene.setId(slot, slot);
+        }
+        return scene;
+    }
+
+    // Cada figura de 'expected' tiene que estar en 'actual' con el mismo id, nombre, forma y valores
+    private static void assertSameFigures(FigureStore expected, FigureStore actual) {
+        SceneDiff.IdMap ids = SceneDiff.IdMap.of(actual);
+        for (int slot = 0; slot < expected.size(); slot++) {
+            int other = ids.get(expected.id(slot));
+            assertTrue("falta la figura " + expected.id(slot), other >= 0);
+            assertEquals(expected.name(slot), actual.name(other));
+            assertArrayEquals(expected.shapeCopy(slot), actual.shapeCopy(other), 0.0f);
+            for (int column : VALUE_COLUMNS) {
+                assertEquals("columna " + column + " de " + expected.id(slot),
+                        expected.get(column, slot), actual.get(column, other), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void identicalScenesHaveNoChanges() {
+        FigureStore previous = scene();
+        SceneDiff diff = new SceneDiff(previous, SceneDiff.IdMap.of(previous), scene());
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void applyBringsLiveSceneToNextVersion() {
+        FigureStore previous = scene();
+        FigureStore live = scene();
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(live);
+
+        FigureStore next = scene();
+        // 20 recoloreadas y 20 movidas
+        for (int slot = 0; slot < 20; slot++) {
+            next.setColor(slot, 1.0f, 0.0f, 0.5f);
+            next.setTransformValue(FigureStore.TRANSLATE_X, 100 + slot, 0.25f);
+        }
+        // 30 quitadas
+        BitSet marked = new BitSet();
+        marked.set(200, 230);
+        next.removeSlots(marked);
+        // Una con otra forma (se quita y se agrega con el mismo id) y 10 nuevas
+        BitSet replaced = new BitSet();
+        replaced.set(300);
+        long replacedId = next.id(300);
+        next.removeSlots(replaced);
+        int slot = next.add("Círculo reemplazado", new float[]{0.5f, 0.5f, 0.1f}, new float[]{0.0f, 1.0f, 0.0f});
+        next.setId(slot, replacedId);
+        for (int i = 0; i < 10; i++) {
+            slot = next.add("Rectángulo nuevo", new float[]{-0.5f + 0.1f * i, 0.0f, 0.05f, 0.05f}, new float[]{1.0f, 1.0f, 1.0f});
+            next.setId(slot, FIGURES + i);
+            next.setTransformValue(FigureStore.ROTATION, slot, 30.0f);
+        }
+
+        SceneDiff diff = new SceneDiff(previous, SceneDiff.IdMap.of(previous), next);
+        assertEquals(40, diff.modifiedCount());
+        assertEquals(31, diff.removedCount());
+        assertEquals(11, diff.addedCount());
+
+        diff.apply(live, index);
+        assertEquals(next.size(), live.size());
+        assertSameFigures(next, live);
+
+        // El índice tiene exactamente las figuras vivas
+        BitSet all = new BitSet();
+        assertEquals(live.size(), index.selectBox(-100.0f, -100.0f, 100.0f, 100.0f, all));
+        assertEquals(live.size(), all.cardinality());
+        assertEquals(live.size(), all.length());
+    }
+
+    // Las figuras que solo existen en la escena viva (sin id) no se tocan
+    @Test
+    public void applyKeepsFiguresWithoutId() {
+        FigureStore previous = scene();
+        FigureStore live = scene();
+        int local = live.add("Agregada en la aplicación", new float[]{0.0f, 0.0f, 0.1f}, new float[]{0.2f, 0.4f, 0.6f});
+        FigureStore next = scene();
+        next.setColor(0, 1.0f, 1.0f, 1.0f);
+        BitSet marked = new BitSet();
+        marked.set(1);
+        next.removeSlots(marked);
+
+        new SceneDiff(previous, SceneDiff.IdMap.of(previous), next).apply(live, null);
+        assertEquals(FIGURES, live.size());
+        local--; // Quitar la figura 1 corre las siguientes una posición
+        assertEquals(-1L, live.id(local));
+        assertEquals(0.4f, live.get(FigureStore.GREEN, local), 0.0f);
+        assertSameFigures(next, live);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void repeatedIdIsRejected() {
+        FigureStore previous = scene();
+        FigureStore next = scene();
+        next.setId(1, 0);
+        new SceneDiff(previous, SceneDiff.IdMap.of(previous), next);
+    }
+}
@@ -0,0 +1,157 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// Formato de SceneFile: ida y vuelta, agregados y archivos dañados
+public class SceneFileTest {
+
+    private static final int[] VALUE_COLUMNS = {
+            FigureStore.RED, FigureStore.GREEN, FigureStore.BLUE,
+            FigureStore.ROTATION, FigureStore.SCALE_X, FigureStore.SCALE_Y,
+            FigureStore.TRANSLATE_X, FigureStore.TRANSLATE_Y, FigureStore.BIAS_X, FigureStore.BIAS_Y};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameFigure(FigureStore expected, int slot, FigureStore actual, int other) {
+        assertEquals(expected.id(slot), actual.id(other));
+        assertEquals(expected.name(slot), actual.name(other));
+        assertArrayEquals(expected.shapeCopy(slot), actual.shapeCopy(other), 0.0f);
+        for (int column : VALUE_COLUMNS) {
+            assertEquals(expected.get(column, slot), actual.get(column, other), 0.0f);
+        }
+    }
+
+    private static void assertSameScene(FigureStore expected, FigureStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int slot = 0; slot < expected.size(); slot++) {
+            assertSameFigure(expected, slot, actual, slot);
+        }
+    }
+
+    @Test
+    public void writeAndReadRoundTrip() throws IOException {
+        FigureStore scene = SceneFactory.stressScene(20_000, 42L);
+        Path file = folder.newFile("escena.fgsc").toPath();
+        SceneFile.write(file, scene);
+        // Las figuras sin id reciben uno al escribirse
+        for (int slot = 0; slot < scene.size(); slot++) {
+            assertEquals(slot, scene.id(slot));
+        }
+        assertSameScene(scene, SceneFile.readAll(file, false));
+        assertSameScene(scene, SceneFile.readAll(file, true));
+
+        try (SceneFile.Reader reader = SceneFile.Reader.open(file)) {
+            assertEquals(scene.size(), reader.size());
+            Figure figure = reader.get(12_345);
+            assertSameFigure(scene, 12_345, figure.store, figure.slot);
+            assertEquals(12_345, reader.id(12_345));
+        }
+    }
+
+    // Agregar escribe un segmento nuevo; los ids siguen desde el último
+    @Test
+    public void appendContinuesIds() throws IOException {
+        FigureStore first = SceneFactory.stressScene(100, 1L);
+        FigureStore second = SceneFactory.stressScene(50, 2L);
+        Path file = folder.newFile("escena.fgsc").toPath();
+        SceneFile.write(file, first);
+        try (SceneFile.Writer writer = SceneFile.Writer.append(file)) {
+            for (Figure figure : second) {
+                writer.write(figure);
+            }
+        }
+        FigureStore read = SceneFile.readAll(file, false);
+        assertEquals(150, read.size());
+        for (int slot = 0; slot < 100; slot++) {
+            assertSameFigure(first, slot, read, slot);
+        }
+        for (int slot = 0; slot < 50; slot++) {
+            assertEquals(100 + slot, second.id(slot));
+            assertSameFigure(second, slot, read, 100 + slot);
+        }
+    }
+
+    // Una escritura interrumpida deja registros y una cola a medias detrás de la última cola
+    // válida: la lectura los ignora y el siguiente agregado los sobrescribe
+    @Test
+    public void interruptedAppendKeepsLastValidTrailer() throws IOException {
+        FigureStore first = SceneFactory.stressScene(100, 1L);
+        FigureStore second = SceneFactory.stressScene(50, 2L);
+        Path file = folder.newFile("escena.fgsc").toPath();
+        SceneFile.write(file, first);
+        long size = Files.size(file);
+        // Bytes sueltos y una cola cortada con MAGIC y VERSION pero sin crc válido
+        ByteBuffer garbage = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        new Random(3L).nextBytes(garbage.array());
+        garbage.position(4096 - 36);
+        garbage.putLong(0).putLong(1000).putLong(1000).putInt(0).putInt(SceneFile.MAGIC).putInt(SceneFile.VERSION);
+        garbage.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(garbage, size);
+        }
+        assertSameScene(first, SceneFile.readAll(file, false));
+
+        try (SceneFile.Writer writer = SceneFile.Writer.append(file)) {
+            for (Figure figure : second) {
+                writer.write(figure);
+            }
+        }
+        FigureStore read = SceneFile.readAll(file, false);
+        assertEquals(150, read.size());
+        for (int slot = 0; slot < 50; slot++) {
+            assertSameFigure(second, slot, read, 100 + slot);
+        }
+    }
+
+    // Si se pierde la cola de un agregado, queda la escena que describía la cola anterior
+    @Test
+    public void lostTrailerFallsBackToPreviousAppend() throws IOException {
+        FigureStore first = SceneFactory.stressScene(100, 1L);
+        Path file = folder.newFile("escena.fgsc").toPath();
+        SceneFile.write(file, first);
+        try (SceneFile.Writer writer = SceneFile.Writer.append(file)) {
+            for (Figure figure : SceneFactory.stressScene(50, 2L)) {
+                writer.write(figure);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 4);
+        }
+        assertSameScene(first, SceneFile.readAll(file, false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        Path file = folder.newFile("escena.fgsc").toPath();
+        SceneFile.write(file, SceneFactory.defaultScene());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 4);
+        }
+        SceneFile.readAll(file, false);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void corruptHeaderIsRejected() throws IOException {
+        Path file = folder.newFile("escena.fgsc").toPath();
+        SceneFile.write(file, SceneFactory.defaultScene());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), 0);
+        }
+        SceneFile.readAll(file, false);
+    }
+}
@@ -0,0 +1,112 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SelectionTest {
+
+    private static BitSet slots(int... slots) {
+        BitSet marked = new BitSet();
+        for (int slot : slots) {
+            marked.set(slot);
+        }
+        return marked;
+    }
+
+    private static void assertSlots(Selection selection, int... expected) {
+        assertEquals(expected.length, selection.size());
+        assertArrayEquals(expected, Arrays.copyOf(selection.slots(), selection.size()));
+    }
+
+    @Test
+    public void toggleAddsAndRemoves() {
+        FigureStore scene = SceneFactory.stressScene(20, 42L);
+        Selection selection = new Selection(scene);
+        assertTrue(selection.isEmpty());
+
+        selection.select(scene.get(4));
+        selection.toggle(scene.get(9));
+        selection.toggle(scene.get(2));
+        assertSame(scene.get(2), selection.primary());
+        assertSlots(selection, 2, 4, 9);
+
+        // Al quitar la principal pasa a serlo la primera que queda
+        selection.toggle(scene.get(2));
+        assertSame(scene.get(4), selection.primary());
+        assertSlots(selection, 4, 9);
+        selection.toggle(scene.get(9));
+        assertSame(scene.get(4), selection.primary());
+        selection.toggle(scene.get(4));
+        assertTrue(selection.isEmpty());
+        assertNull(selection.primary());
+        assertSlots(selection);
+
+        // Figuras de otro almacén no se seleccionan
+        selection.toggle(new Figure("Cuadrado", new float[]{0.0f, 0.0f, 0.1f, 0.1f}, new float[]{0.0f, 0.0f, 0.0f}));
+        assertTrue(selection.isEmpty());
+    }
+
+    @Test
+    public void setReplacesOrAdds() {
+        FigureStore scene = SceneFactory.stressScene(20, 42L);
+        Selection selection = new Selection(scene);
+        selection.select(scene.get(12));
+
+        // Sin 'add' la principal anterior ya no está: pasa a serlo la primera marcada
+        selection.set(slots(3, 7, 15), false);
+        assertSame(scene.get(3), selection.primary());
+        assertSlots(selection, 3, 7, 15);
+
+        // Con 'add' la principal se conserva
+        selection.toggle(scene.get(7));
+        selection.toggle(scene.get(7));
+        selection.set(slots(1, 18), true);
+        assertSame(scene.get(7), selection.primary());
+        assertSlots(selection, 1, 3, 7, 15, 18);
+        assertTrue(selection.contains(scene.get(18)));
+        assertFalse(selection.containsSlot(12));
+
+        selection.set(new BitSet(), false);
+        assertTrue(selection.isEmpty());
+    }
+
+    // Si cambia la distribución, las posiciones dejan de valer y queda solo la principal
+    @Test
+    public void layoutChangeCollapsesToPrimary() {
+        FigureStore scene = SceneFactory.stressScene(20, 42L);
+        Selection selection = new Selection(scene);
+        selection.set(slots(2, 5, 11, 14), false);
+        Figure primary = scene.get(11);
+        selection.toggle(scene.get(8));
+        selection.toggle(primary);
+        selection.toggle(primary);
+        assertSame(primary, selection.primary());
+        assertEquals(5, selection.size());
+
+        // Cambiar colores o transformaciones no toca la selección
+        scene.setColor(5, 0.1f, 0.2f, 0.3f);
+        scene.setTransformValue(FigureStore.ROTATION, 14, 10.0f);
+        assertEquals(5, selection.size());
+
+        scene.removeSlots(slots(0, 2));
+        assertEquals(9, primary.slot);
+        assertSame(primary, selection.primary());
+        assertSlots(selection, 9);
+        assertTrue(selection.contains(primary));
+
+        // Si también se quita la principal, la selección queda vacía
+        scene.removeSlots(slots(primary.slot));
+        scene.add("Círculo", new float[]{0.0f, 0.0f, 0.1f}, new float[]{1.0f, 0.0f, 0.0f});
+        assertTrue(selection.isEmpty());
+        assertSlots(selection);
+    }
+}
@@ -0,0 +1,125 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+// El ajuste de color aplicado al dibujar (el de la escena y el de cada figura) tiene que dar
+// los mismos píxeles que guardar en los colores el resultado de la misma cadena en Java
+public class SoftwareRendererTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    // Un ajuste propio al azar en tres de cada cuatro figuras
+    private static void gradeFigures(FigureStore scene, long seed) {
+        Random random = new Random(seed);
+        for (int slot = 0; slot < scene.size(); slot++) {
+            if (slot % 4 != 0) {
+                scene.setGrade(slot, random.nextFloat() * 360.0f - 180.0f, random.nextFloat() * 2.0f,
+                        0.5f + random.nextFloat(), 0.5f + random.nextFloat() * 0.5f);
+            }
+        }
+    }
+
+    // Los colores de 'scene' con la cadena que corresponde a cada figura, en una copia sin ajustes
+    private static FigureStore bake(FigureStore scene, ColorGrade grade) {
+        FigureStore baked = SceneFactory.stressScene(scene.size(), 42L);
+        PaletteTransform.Block one = new PaletteTransform.Block(1);
+        for (int slot = 0; slot < scene.size(); slot++) {
+            Figure figure = scene.get(slot);
+            one.red()[0] = figure.getRed();
+            one.green()[0] = figure.getGreen();
+            one.blue()[0] = figure.getBlue();
+            if (!grade.isIdentity() || !ColorGrade.isIdentity(figure)) {
+                grade.toTransform(figure.getGradeHue(), figure.getGradeSaturation(),
+                        figure.getGradeLightness(), figure.getGradeInk()).apply(one);
+            }
+            baked.setColor(slot, one.red()[0], one.green()[0], one.blue()[0]);
+        }
+        return baked;
+    }
+
+    private static int[] render(FigureStore scene, ColorGrade grade, int threads) {
+        SoftwareRenderer renderer = new SoftwareRenderer(WIDTH, HEIGHT, threads, grade);
+        try {
+            renderer.render(scene, null);
+            return renderer.getPixels().clone();
+        } finally {
+            renderer.dispose();
+        }
+    }
+
+    @Test
+    public void figureGradeMatchesBakedColors() {
+        FigureStore scene = SceneFactory.stressScene(400, 42L);
+        gradeFigures(scene, 1L);
+        ColorGrade identity = new ColorGrade();
+        int[] expected = render(bake(scene, identity), identity, 1);
+        assertArrayEquals(expected, render(scene, identity, 1));
+        assertArrayEquals(expected, render(scene, identity, 4));
+    }
+
+    @Test
+    public void sceneAndFigureGradeMatchBakedColors() {
+        FigureStore scene = SceneFactory.stressScene(400, 42L);
+        gradeFigures(scene, 2L);
+        ColorGrade grade = new ColorGrade();
+        grade.set(PaletteTransform.Space.HSV, 170.0f, 1.2f, 0.9f, 0.3f);
+        grade.setInkLimit(0.6f, 0.8f, 1.0f, 0.5f);
+        int[] expected = render(bake(scene, grade), new ColorGrade(), 1);
+        assertArrayEquals(expected, render(scene, grade, 1));
+        assertArrayEquals(expected, render(scene, grade, 4));
+    }
+
+    // Una figura sola que tapa el centro: el ajuste cambia su color y el resto queda igual
+    @Test
+    public void figureGradeChangesOnlyThatFigure() {
+        FigureStore scene = new FigureStore();
+        scene.add("Fondo", new float[]{-1.0f, -1.0f, 2.0f, 2.0f}, new float[]{0.2f, 0.4f, 0.6f});
+        scene.add("Centro", new float[]{-0.25f, -0.25f, 0.5f, 0.5f}, new float[]{0.8f, 0.3f, 0.1f});
+        ColorGrade grade = new ColorGrade();
+        int[] before = render(scene, grade, 1);
+        scene.setGrade(1, 120.0f, 1.0f, 1.0f, 1.0f);
+        int[] after = render(scene, grade, 1);
+
+        int center = HEIGHT / 2 * WIDTH + WIDTH / 2;
+        assertNotEquals(before[center], after[center]);
+        assertEquals(before[0], after[0]);
+        PaletteTransform.Block one = new PaletteTransform.Block(new float[]{0.8f}, new float[]{0.3f}, new float[]{0.1f});
+        grade.toTransform(120.0f, 1.0f, 1.0f, 1.0f).apply(one);
+        assertEquals(SoftwareRenderer.argb(one.red()[0], one.green()[0], one.blue()[0]), after[center]);
+    }
+
+    // El mismo renderizador a lo largo de varios cuadros: las cadenas guardadas por ajuste no
+    // pueden quedar viejas cuando cambia el ajuste de la escena o el de una figura
+    @Test
+    public void cachedFigureGradesFollowChanges() {
+        FigureStore scene = SceneFactory.stressScene(400, 42L);
+        gradeFigures(scene, 3L);
+        for (int slot = 1; slot < 40; slot += 2) {
+            scene.setGrade(slot, 45.0f, 1.5f, 0.8f, 0.9f); // Muchas figuras con el mismo ajuste
+        }
+        ColorGrade grade = new ColorGrade();
+        SoftwareRenderer renderer = new SoftwareRenderer(WIDTH, HEIGHT, 1, grade);
+        try {
+            renderer.render(scene, null);
+            assertArrayEquals(render(scene, grade, 1), renderer.getPixels());
+
+            grade.set(PaletteTransform.Space.HSL, -60.0f, 0.7f, 1.1f, 0.2f);
+            renderer.render(scene, null);
+            assertArrayEquals(render(scene, grade, 1), renderer.getPixels());
+
+            scene.setGrade(3, 200.0f, 0.5f, 1.2f, 0.7f);
+            scene.setGrade(5, 0.0f, 1.0f, 1.0f, 1.0f);
+            renderer.render(scene, null);
+            assertArrayEquals(render(scene, grade, 1), renderer.getPixels());
+        } finally {
+            renderer.dispose();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// pick, selectBox y selectLasso tienen que dar lo mismo que recorrer todas las figuras, antes
+// y después de mover y quitar figuras
+public class SpatialIndexTest {
+
+    private static final int FIGURES = 3_000;
+    private static final int QUERIES = 4_000;
+
+    // Primera figura (la de menor orden de inserción) que contiene el punto, o -1
+    private static int pickBruteForce(FigureStore scene, BitSet removed, float x, float y) {
+        for (int slot = 0; slot < scene.size(); slot++) {
+            if (!removed.get(slot) && scene.get(slot).hitTest(x, y)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // La mitad de los puntos cae cerca del centro de una figura, para que haya aciertos
+    private static void checkPick(FigureStore scene, SpatialIndex index, BitSet removed, Random random) {
+        float[] bounds = new float[4];
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float x, y;
+            if (q % 2 == 0) {
+                scene.get(random.nextInt(scene.size())).getWorldBounds(bounds);
+                x = bounds[0] + (bounds[2] - bounds[0]) * random.nextFloat();
+                y = bounds[1] + (bounds[3] - bounds[1]) * random.nextFloat();
+            } else {
+                x = random.nextFloat() * 2.4f - 1.2f;
+                y = random.nextFloat() * 2.4f - 1.2f;
+            }
+            int expected = pickBruteForce(scene, removed, x, y);
+            Figure picked = index.pick(x, y);
+            assertEquals("punto (" + x + ", " + y + ")", expected, picked == null ? -1 : picked.slot);
+            if (expected >= 0) {
+                hits++;
+            }
+        }
+        assertTrue("casi ningún punto tocó una figura: " + hits, hits > QUERIES / 10);
+    }
+
+    private static void checkBox(FigureStore scene, SpatialIndex index, BitSet removed, Random random) {
+        float[] bounds = new float[4];
+        BitSet actual = new BitSet();
+        BitSet expected = new BitSet();
+        for (int q = 0; q < 200; q++) {
+            float minX = random.nextFloat() * 2 - 1, minY = random.nextFloat() * 2 - 1;
+            float maxX = minX + random.nextFloat() * 0.6f, maxY = minY + random.nextFloat() * 0.6f;
+            expected.clear();
+            for (int slot = 0; slot < scene.size(); slot++) {
+                scene.get(slot).getWorldBounds(bounds);
+                if (!removed.get(slot) && bounds[0] >= minX && bounds[1] >= minY && bounds[2] <= maxX && bounds[3] <= maxY) {
+                    expected.set(slot);
+                }
+            }
+            actual.clear();
+            int count = index.selectBox(minX, minY, maxX, maxY, actual);
+            assertEquals(expected, actual);
+            assertEquals(expected.cardinality(), count);
+        }
+    }
+
+    @Test
+    public void pickMatchesBruteForce() {
+        FigureStore scene = SceneFactory.stressScene(FIGURES, 42L);
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(scene);
+        checkPick(scene, index, new BitSet(), new Random(1L));
+    }
+
+    @Test
+    public void pickMatchesBruteForceWhenInsertedOneByOne() {
+        FigureStore scene = SceneFactory.stressScene(FIGURES, 43L);
+        SpatialIndex index = new SpatialIndex();
+        for (Figure figure : scene) {
+            index.insert(figure);
+        }
+        checkPick(scene, index, new BitSet(), new Random(2L));
+    }
+
+    @Test
+    public void queriesFollowMovedAndRemovedFigures() {
+        FigureStore scene = SceneFactory.stressScene(FIGURES, 44L);
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(scene);
+        Random random = new Random(3L);
+
+        // Algunas se mueven varias veces sin consultas en el medio, como en una animación
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < FIGURES / 10; i++) {
+                Figure figure = scene.get(random.nextInt(scene.size()));
+                figure.setTranslateX(figure.getTranslateX() + random.nextFloat() * 0.2f - 0.1f);
+                figure.setTranslateY(figure.getTranslateY() + random.nextFloat() * 0.2f - 0.1f);
+                figure.setRotation(figure.getRotation() + 15.0f);
+                figure.setScaleX(0.5f + random.nextFloat());
+            }
+        }
+        BitSet removed = new BitSet();
+        for (int i = 0; i < FIGURES / 10; i++) {
+            int slot = random.nextInt(scene.size());
+            removed.set(slot);
+            index.remove(scene.get(slot));
+        }
+        checkPick(scene, index, removed, random);
+        checkBox(scene, index, removed, random);
+    }
+
+    @Test
+    public void selectBoxMatchesBruteForce() {
+        FigureStore scene = SceneFactory.stressScene(FIGURES, 45L);
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(scene);
+        checkBox(scene, index, new BitSet(), new Random(4L));
+    }
+
+    @Test
+    public void selectLassoMatchesBruteForce() {
+        FigureStore scene = SceneFactory.stressScene(FIGURES, 46L);
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(scene);
+        Random random = new Random(5L);
+        float[] bounds = new float[4];
+        float[] polygon = new float[2 * 7];
+        BitSet actual = new BitSet();
+        BitSet expected = new BitSet();
+        for (int q = 0; q < 100; q++) {
+            // Polígono estrellado alrededor de un centro al azar
+            float cx = random.nextFloat() * 2 - 1, cy = random.nextFloat() * 2 - 1;
+            for (int i = 0; i < 7; i++) {
+                double angle = 2 * Math.PI * i / 7;
+                float radius = 0.1f + random.nextFloat() * 0.4f;
+                polygon[2 * i] = cx + radius * (float) Math.cos(angle);
+                polygon[2 * i + 1] = cy + radius * (float) Math.sin(angle);
+            }
+            expected.clear();
+            for (int slot = 0; slot < scene.size(); slot++) {
+                scene.get(slot).getWorldBounds(bounds);
+                if (SpatialIndex.contains(polygon, 7, (bounds[0] + bounds[2]) * 0.5f, (bounds[1] + bounds[3]) * 0.5f)) {
+                    expected.set(slot);
+                }
+            }
+            actual.clear();
+            assertEquals(expected.cardinality(), index.selectLasso(polygon, 7, actual));
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mycompany.colorscheme;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TripleBufferTest {
+
+    private static TripleBuffer<int[]> buffer(int length) {
+        return new TripleBuffer<>(new int[length], new int[length], new int[length]);
+    }
+
+    @Test
+    public void acquireWithoutPublishIsNull() {
+        TripleBuffer<int[]> buffer = buffer(1);
+        assertNull(buffer.acquire());
+
+        buffer.back()[0] = 1;
+        buffer.publish();
+        assertEquals(1, buffer.acquire()[0]);
+        // Ya se leyó: hasta la próxima publicación no hay nada nuevo
+        assertNull(buffer.acquire());
+    }
+
+    @Test
+    public void twoPublishesWithoutReadAreOneOverwrite() {
+        TripleBuffer<int[]> buffer = buffer(1);
+        buffer.back()[0] = 1;
+        buffer.publish();
+        int[] second = buffer.back();
+        second[0] = 2;
+        buffer.publish();
+
+        assertEquals(2, buffer.getPublished());
+        assertEquals(1, buffer.getOverwritten());
+        assertSame(second, buffer.acquire());
+        assertEquals(2, second[0]);
+        assertNull(buffer.acquire());
+
+        // Una publicación leída a tiempo no cuenta como perdida
+        buffer.back()[0] = 3;
+        buffer.publish();
+        assertEquals(3, buffer.acquire()[0]);
+        assertEquals(3, buffer.getPublished());
+        assertEquals(1, buffer.getOverwritten());
+    }
+
+    // El productor llena cada búfer con su número de publicación, un elemento a la vez. Si el
+    // consumidor recibiera el búfer que el productor está escribiendo vería valores mezclados.
+    @Test
+    public void consumerNeverSeesBufferBeingWritten() throws InterruptedException {
+        final int publishes = 200_000;
+        final TripleBuffer<int[]> buffer = buffer(64);
+        Thread producer = new Thread(() -> {
+            for (int n = 1; n <= publishes; n++) {
+                Arrays.fill(buffer.back(), n);
+                buffer.publish();
+            }
+        }, "productor");
+
+        producer.start();
+        int last = 0;
+        int reads = 0;
+        while (last < publishes) {
+            int[] values = buffer.acquire();
+            if (values == null) {
+                continue;
+            }
+            int n = values[0];
+            for (int value : values) {
+                assertEquals("búfer leído mientras se escribía", n, value);
+            }
+            assertTrue("publicación " + n + " después de " + last, n > last);
+            last = n;
+            reads++;
+        }
+        producer.join();
+
+        assertEquals(publishes, last);
+        assertEquals(publishes, buffer.getPublished());
+        // Cada publicación se leyó o se perdió, nunca las dos cosas
+        assertEquals(publishes, reads + buffer.getOverwritten());
+    }
+}